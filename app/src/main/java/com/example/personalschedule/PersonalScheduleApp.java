@@ -0,0 +1,49 @@
+package com.example.personalschedule;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.example.personalschedule.database.EventRepository;
+import com.example.personalschedule.database.RepositoryScheduler;
+import com.example.personalschedule.utils.ReminderScheduler;
+
+/**
+ * Application của app, giữ các đối tượng dùng chung cho toàn process.
+ *
+ * EventRepository chỉ được tạo một lần ở đây: mọi màn hình, ViewModel và BroadcastReceiver dùng
+ * chung một instance (cùng cache, cùng RepositoryScheduler, cùng ContentObserver), nên dữ liệu
+ * đã load ở màn hình này được dùng lại ở màn hình khác và số thread không tăng theo số màn hình.
+ */
+public class PersonalScheduleApp extends Application {
+
+    private volatile EventRepository eventRepository;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Tạo repository ngay khi process khởi động: snapshot sự kiện trên đĩa được đọc ở background
+        // trong lúc Activity đầu tiên đang được tạo, nên thường đã sẵn sàng cho khung hình đầu tiên
+        getEventRepository();
+        // Hàng đợi reminder chỉ phủ vài ngày tới: dựng lại nếu đã cũ (ví dụ app lâu không chạy)
+        RepositoryScheduler.getInstance().read(RepositoryScheduler.Priority.BACKGROUND,
+                () -> ReminderScheduler.refillIfStale(this, null));
+    }
+
+    public EventRepository getEventRepository() {
+        if (eventRepository == null) {
+            synchronized (this) {
+                if (eventRepository == null) eventRepository = new EventRepository(this);
+            }
+        }
+        return eventRepository;
+    }
+
+    /**
+     * Repository dùng chung, lấy từ bất kỳ Context nào (Activity, Service, BroadcastReceiver).
+     */
+    public static EventRepository getRepository(@NonNull Context context) {
+        return ((PersonalScheduleApp) context.getApplicationContext()).getEventRepository();
+    }
+}
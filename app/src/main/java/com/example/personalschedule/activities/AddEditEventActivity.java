@@ -36,12 +36,17 @@ import androidx.core.content.ContextCompat;
 import androidx.lifecycle.ViewModelProvider;
 
 import com.example.personalschedule.R;
+import com.example.personalschedule.database.FreeSlotFinder;
 import com.example.personalschedule.models.CalendarInfo;
 import com.example.personalschedule.models.Event;
+import com.example.personalschedule.models.EventSummary;
 import com.example.personalschedule.utils.Constants;
 import com.example.personalschedule.utils.DateTimeUtils;
+import com.example.personalschedule.utils.RecurrenceRule;
 import com.example.personalschedule.viewmodels.AddEditEventViewModel;
+import com.example.personalschedule.viewmodels.FreeSlotViewModel;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 import java.util.TimeZone;
@@ -52,6 +57,7 @@ public class AddEditEventActivity extends AppCompatActivity {
     private static final int CALENDAR_PERMISSION_REQUEST_CODE = 101;
 
     private AddEditEventViewModel viewModel;
+    private FreeSlotViewModel freeSlotViewModel;
 
     private EditText etTitle;
     private TextView tvStartDate;
@@ -63,6 +69,9 @@ public class AddEditEventActivity extends AppCompatActivity {
     private Switch switchAllDay;
     private Spinner spinnerCalendar;
     private Spinner spinnerReminder;
+    private Spinner spinnerRecurrence;
+    private TextView tvConflictWarning;
+    private Button btnFindFreeSlot;
     private Button btnSave;
     private Button btnCancel;
 
@@ -71,12 +80,21 @@ public class AddEditEventActivity extends AppCompatActivity {
                                               "30 phút trước", "1 giờ trước", "1 ngày trước", "Tùy chỉnh..."};
     private int selectedReminderMinutes = 15;
 
+    // Thứ tự các lựa chọn trong spinner lặp lại; RRULE tùy chỉnh (nếu có) là lựa chọn cuối
+    private final String[] RECURRENCE_PATTERNS = {Constants.RECURRENCE_NONE, Constants.RECURRENCE_DAILY,
+            Constants.RECURRENCE_WEEKLY, Constants.RECURRENCE_MONTHLY, Constants.RECURRENCE_YEARLY};
+    private String customRrule = null; // RRULE của sự kiện đang sửa mà spinner không biểu diễn được
+
     private Calendar startCalendar = Calendar.getInstance();
     private Calendar endCalendar = Calendar.getInstance();
 
     private long eventId;
     private boolean isEditing = false;
     private Event currentEvent = null;
+    private List<EventSummary> conflicts = new ArrayList<>(); // Kết quả kiểm tra trùng giờ gần nhất
+
+    // Số sự kiện trùng được liệt kê trong cảnh báo (phần còn lại chỉ tính vào số lượng)
+    private static final int MAX_LISTED_CONFLICTS = 3;
 
     private final ActivityResultLauncher<String[]> requestCalendarPermissionLauncher =
             registerForActivityResult(new ActivityResultContracts.RequestMultiplePermissions(), result -> {
@@ -120,9 +138,12 @@ public class AddEditEventActivity extends AppCompatActivity {
 
         setupReminderSpinner();
 
+        setupRecurrenceSpinner();
+
         setupCalendarSpinner();
 
         viewModel = new ViewModelProvider(this).get(AddEditEventViewModel.class);
+        freeSlotViewModel = new ViewModelProvider(this).get(FreeSlotViewModel.class);
 
         if (!checkAndRequestCalendarPermissions()) {
             Log.i(TAG, "Calendar permissions not granted yet. Requesting...");
@@ -168,6 +189,19 @@ public class AddEditEventActivity extends AppCompatActivity {
             showExactAlarmPermissionRequestDialog();
         }
 
+        viewModel.getConflicts().observe(this, this::showConflicts);
+
+        freeSlotViewModel.getFreeSlots().observe(this, slots -> {
+            if (slots == null) return;
+            showFreeSlotPicker(slots);
+            freeSlotViewModel.resetFreeSlots();
+        });
+
+        freeSlotViewModel.isSearching().observe(this, searching -> {
+            btnFindFreeSlot.setEnabled(!searching);
+            btnFindFreeSlot.setText(searching ? R.string.finding_free_slot : R.string.find_free_slot);
+        });
+
         viewModel.getAvailableCalendars().observe(this, calendars -> {
             if (calendars != null) {
                 updateCalendarSpinner(calendars);
@@ -188,6 +222,9 @@ public class AddEditEventActivity extends AppCompatActivity {
         switchAllDay = findViewById(R.id.switch_all_day);
         spinnerCalendar = findViewById(R.id.spinner_calendar);
         spinnerReminder = findViewById(R.id.spinner_reminder);
+        spinnerRecurrence = findViewById(R.id.spinner_recurrence);
+        tvConflictWarning = findViewById(R.id.tv_conflict_warning);
+        btnFindFreeSlot = findViewById(R.id.btn_find_free_slot);
         btnSave = findViewById(R.id.btn_save);
         btnCancel = findViewById(R.id.btn_cancel);
     }
@@ -213,6 +250,8 @@ public class AddEditEventActivity extends AppCompatActivity {
 
         selectedReminderMinutes = event.getReminderMinutes();
         setReminderSpinnerSelection(selectedReminderMinutes);
+
+        setRecurrenceSpinnerSelection(event.getRrule());
     }
 
     private void setupListeners() {
@@ -240,6 +279,17 @@ public class AddEditEventActivity extends AppCompatActivity {
             public void onNothingSelected(AdapterView<?> parent) { }
         });
 
+        spinnerRecurrence.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                // Sự kiện lặp lại được kiểm tra trùng trên nhiều lần xuất hiện
+                viewModel.updateRecurrence(getSelectedRrule());
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) { }
+        });
+
         btnSave.setOnClickListener(v -> {
             if (checkAndRequestCalendarPermissions()) {
                 saveEvent();
@@ -249,6 +299,47 @@ public class AddEditEventActivity extends AppCompatActivity {
         });
 
         btnCancel.setOnClickListener(v -> finish());
+
+        btnFindFreeSlot.setOnClickListener(v -> {
+            if (checkAndRequestCalendarPermissions()) {
+                freeSlotViewModel.findFreeSlots(getSlotDurationMinutes(), isEditing ? eventId : 0);
+            }
+        });
+    }
+
+    // Tìm khoảng trống cùng độ dài với sự kiện đang nhập (sự kiện cả ngày: 1 giờ)
+    private int getSlotDurationMinutes() {
+        if (switchAllDay.isChecked()) return 60;
+        long minutes = (endCalendar.getTimeInMillis() - startCalendar.getTimeInMillis()) / 60000;
+        return (int) Math.max(15, Math.min(minutes, 24 * 60));
+    }
+
+    private void showFreeSlotPicker(List<FreeSlotFinder.Slot> slots) {
+        final int durationMinutes = getSlotDurationMinutes();
+        if (slots.isEmpty()) {
+            Toast.makeText(this, getString(R.string.no_free_slot, durationMinutes, Constants.FREE_SLOT_SEARCH_DAYS),
+                    Toast.LENGTH_LONG).show();
+            return;
+        }
+        // "Thứ Hai, 19/10/2026  09:00 - 11:30"
+        String[] labels = new String[slots.size()];
+        for (int i = 0; i < slots.size(); i++) {
+            FreeSlotFinder.Slot slot = slots.get(i);
+            labels[i] = DateTimeUtils.formatDayOfWeek(slot.getStart()) + ", " + DateTimeUtils.formatDate(slot.getStart())
+                    + "  " + DateTimeUtils.formatTime(slot.getStart()) + " - " + DateTimeUtils.formatTime(slot.getEnd());
+        }
+        new AlertDialog.Builder(this)
+            .setTitle(getString(R.string.free_slot_title, durationMinutes))
+            .setItems(labels, (dialog, which) -> {
+                // Đặt sự kiện vào đầu khoảng trống, giữ nguyên độ dài
+                long start = slots.get(which).getStart();
+                switchAllDay.setChecked(false);
+                startCalendar.setTimeInMillis(start);
+                endCalendar.setTimeInMillis(start + durationMinutes * 60000L);
+                updateDateTimeFields();
+            })
+            .setNegativeButton(R.string.cancel, null)
+            .show();
     }
 
     private void setupReminderSpinner() {
@@ -257,6 +348,44 @@ public class AddEditEventActivity extends AppCompatActivity {
         spinnerReminder.setAdapter(adapter);
     }
 
+    private void setupRecurrenceSpinner() {
+        List<String> labels = new ArrayList<>();
+        labels.add(getString(R.string.no_recurrence));
+        labels.add(getString(R.string.recurrence_daily));
+        labels.add(getString(R.string.recurrence_weekly));
+        labels.add(getString(R.string.recurrence_monthly));
+        labels.add(getString(R.string.recurrence_yearly));
+        if (customRrule != null) labels.add(getString(R.string.recurrence_other));
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, labels);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerRecurrence.setAdapter(adapter);
+    }
+
+    private void setRecurrenceSpinnerSelection(String rrule) {
+        String pattern = RecurrenceRule.patternOf(rrule);
+        customRrule = pattern == null ? rrule : null;
+        setupRecurrenceSpinner();
+        if (pattern == null) {
+            spinnerRecurrence.setSelection(RECURRENCE_PATTERNS.length); // "Lặp lại tùy chỉnh"
+            return;
+        }
+        for (int i = 0; i < RECURRENCE_PATTERNS.length; i++) {
+            if (RECURRENCE_PATTERNS[i].equals(pattern)) {
+                spinnerRecurrence.setSelection(i);
+                return;
+            }
+        }
+    }
+
+    // RRULE theo lựa chọn hiện tại (null: không lặp); lựa chọn tùy chỉnh giữ nguyên quy tắc cũ
+    private String getSelectedRrule() {
+        int position = spinnerRecurrence.getSelectedItemPosition();
+        if (position >= 0 && position < RECURRENCE_PATTERNS.length) {
+            return RecurrenceRule.forPattern(RECURRENCE_PATTERNS[position]);
+        }
+        return customRrule;
+    }
+
     private void setupCalendarSpinner() {
         ArrayAdapter<String> tempAdapter = new ArrayAdapter<>(
                 this, android.R.layout.simple_spinner_item, new String[]{"Đang tải danh sách lịch..."});
@@ -391,6 +520,37 @@ public class AddEditEventActivity extends AppCompatActivity {
         tvStartTime.setText(DateTimeUtils.formatTime(startCalendar.getTimeInMillis()));
         tvEndDate.setText(DateTimeUtils.formatDate(endCalendar.getTimeInMillis()));
         tvEndTime.setText(DateTimeUtils.formatTime(endCalendar.getTimeInMillis()));
+        // Báo giờ mới cho ViewModel để kiểm tra trùng lịch ngay khi người dùng chọn
+        if (viewModel != null) {
+            viewModel.updateAllDay(switchAllDay.isChecked());
+            viewModel.updateStartTime(startCalendar.getTimeInMillis());
+            viewModel.updateEndTime(endCalendar.getTimeInMillis());
+        }
+    }
+
+    private void showConflicts(List<EventSummary> found) {
+        conflicts = found != null ? found : new ArrayList<>();
+        if (conflicts.isEmpty()) {
+            tvConflictWarning.setVisibility(View.GONE);
+            return;
+        }
+        tvConflictWarning.setText(describeConflicts());
+        tvConflictWarning.setVisibility(View.VISIBLE);
+    }
+
+    // "Trùng giờ với 2 sự kiện: Họp nhóm (14:00 - 15:00), Học (14:30 - 16:00)"
+    private String describeConflicts() {
+        StringBuilder titles = new StringBuilder();
+        int listed = Math.min(conflicts.size(), MAX_LISTED_CONFLICTS);
+        for (int i = 0; i < listed; i++) {
+            EventSummary conflict = conflicts.get(i);
+            if (i > 0) titles.append(", ");
+            titles.append(conflict.getTitle())
+                    .append(" (").append(DateTimeUtils.formatTime(conflict.getStartTime()))
+                    .append(" - ").append(DateTimeUtils.formatTime(conflict.getEndTime())).append(")");
+        }
+        if (conflicts.size() > listed) titles.append(", …");
+        return getString(R.string.conflict_warning, conflicts.size(), titles.toString());
     }
 
     private void updateTimeVisibility(boolean isAllDay) {
@@ -448,17 +608,33 @@ public class AddEditEventActivity extends AppCompatActivity {
         tempEvent.setCalendarId(selectedCalendarId);
         tempEvent.setTimeZone(TimeZone.getDefault().getID());
         tempEvent.setReminderMinutes(selectedReminderMinutes);
+        tempEvent.setRrule(getSelectedRrule());
         
         final boolean needsLocalCalendar = selectedCalendarId <= 0 && !hasGoogleAccount();
+        Runnable save = () -> saveEventFromTempObject(tempEvent);
         if (needsLocalCalendar) {
             showNoGoogleAccountWarning(
-                () -> saveEventFromTempObject(tempEvent),
+                () -> confirmConflictsThen(save),
                 () -> {}
             );
             return;
         }
         
-        saveEventFromTempObject(tempEvent);
+        confirmConflictsThen(save);
+    }
+
+    // Hỏi lại trước khi lưu nếu lần kiểm tra gần nhất thấy trùng giờ
+    private void confirmConflictsThen(Runnable onProceed) {
+        if (conflicts.isEmpty()) {
+            onProceed.run();
+            return;
+        }
+        new AlertDialog.Builder(this)
+            .setTitle(R.string.conflict_confirm_title)
+            .setMessage(getString(R.string.conflict_confirm_message, describeConflicts()))
+            .setPositiveButton(R.string.save_anyway, (dialog, which) -> onProceed.run())
+            .setNegativeButton(R.string.cancel, null)
+            .show();
     }
 
     private void saveEventFromTempObject(Event eventToSave) {
@@ -20,6 +20,7 @@ import com.example.personalschedule.R;
 import com.example.personalschedule.models.Event;
 import com.example.personalschedule.utils.Constants;
 import com.example.personalschedule.utils.DateTimeUtils;
+import com.example.personalschedule.utils.RecurrenceRule;
 // import com.example.personalschedule.utils.NotificationUtils; // Xóa import không dùng
 
 import com.example.personalschedule.viewmodels.EventDetailViewModel; // Đảm bảo ViewModel đúng
@@ -38,7 +39,8 @@ public class EventDetailActivity extends AppCompatActivity {
     private TextView tvLocation;
     private TextView tvDescription;
     private TextView tvReminder;
-    // private TextView tvRecurrence;
+    private TextView tvRecurrence;
+    private TextView tvNextOccurrence;
     // private ImageView ivPriority; // XÓA
 
     // private int eventId; // Sửa thành long
@@ -114,6 +116,8 @@ public class EventDetailActivity extends AppCompatActivity {
         tvLocation = findViewById(R.id.tv_event_location);
         tvDescription = findViewById(R.id.tv_event_description);
         tvReminder = findViewById(R.id.tv_event_reminder);
+        tvRecurrence = findViewById(R.id.tv_event_recurrence);
+        tvNextOccurrence = findViewById(R.id.tv_next_occurrence);
     }
 
     private void displayEventDetails(Event event) {
@@ -173,6 +177,40 @@ public class EventDetailActivity extends AppCompatActivity {
                 }
             }
         }
+
+        // Hiển thị quy tắc lặp lại và lần xuất hiện tiếp theo
+        View recurrenceContainer = findViewById(R.id.ll_recurrence);
+        if (event.isRecurring()) {
+            tvRecurrence.setText(formatRecurrence(event.getRrule()));
+            if (RecurrenceRule.parse(event.getRrule()) != null) {
+                long next = viewModel.getNextOccurrence(event);
+                if (next > 0) {
+                    String when = event.isAllDay() ? DateTimeUtils.formatDate(next)
+                            : DateTimeUtils.formatDate(next) + " " + DateTimeUtils.formatTime(next);
+                    tvNextOccurrence.setText(getString(R.string.next_occurrence, when));
+                } else {
+                    tvNextOccurrence.setText(R.string.no_next_occurrence);
+                }
+                tvNextOccurrence.setVisibility(View.VISIBLE);
+            } else {
+                // Quy tắc tùy chỉnh (BYDAY, ...) không được tính trong app
+                tvNextOccurrence.setVisibility(View.GONE);
+            }
+            recurrenceContainer.setVisibility(View.VISIBLE);
+        } else {
+            recurrenceContainer.setVisibility(View.GONE);
+        }
+    }
+
+    // Tên hiển thị của quy tắc lặp lại
+    private String formatRecurrence(String rrule) {
+        String pattern = RecurrenceRule.patternOf(rrule);
+        if (Constants.RECURRENCE_DAILY.equals(pattern)) return getString(R.string.recurrence_daily);
+        if (Constants.RECURRENCE_WEEKLY.equals(pattern)) return getString(R.string.recurrence_weekly);
+        if (Constants.RECURRENCE_MONTHLY.equals(pattern)) return getString(R.string.recurrence_monthly);
+        if (Constants.RECURRENCE_YEARLY.equals(pattern)) return getString(R.string.recurrence_yearly);
+        if (Constants.RECURRENCE_NONE.equals(pattern)) return getString(R.string.no_recurrence);
+        return getString(R.string.recurrence_other);
     }
     
     // Định dạng thời gian lời nhắc dưới dạng văn bản
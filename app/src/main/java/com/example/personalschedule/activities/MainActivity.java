@@ -5,9 +5,12 @@ import android.accounts.AccountManager;
 import android.app.Activity;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.provider.CalendarContract;
+import android.text.TextUtils;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
@@ -18,16 +21,19 @@ import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.personalschedule.PersonalScheduleApp;
 import com.example.personalschedule.R;
 import com.example.personalschedule.adapters.EventAdapter;
 import com.example.personalschedule.adapters.MonthHeaderAdapter;
 import com.example.personalschedule.database.EventRepository;
-import com.example.personalschedule.models.Event;
+import com.example.personalschedule.database.RepositoryMetrics;
+import com.example.personalschedule.models.EventSummary;
 import com.example.personalschedule.utils.Constants;
 import com.example.personalschedule.utils.EventDecorator;
 import com.example.personalschedule.utils.NotificationUtils;
@@ -40,7 +46,6 @@ import com.prolificinteractive.materialcalendarview.OnDateSelectedListener;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -61,7 +66,15 @@ public class MainActivity extends AppCompatActivity implements EventAdapter.OnEv
     private Calendar selectedDate = Calendar.getInstance();
     private EventRepository eventRepository;
     private ActivityResultLauncher<Intent> addEditEventLauncher;
+    private ActivityResultLauncher<String[]> importIcsLauncher;
+    private ActivityResultLauncher<String> exportIcsLauncher;
     private SharedPreferences preferences;
+    // Sự kiện của tháng đang chọn (nhận từ LiveData tự cập nhật) và tháng tương ứng
+    private List<EventSummary> currentMonthEvents = new ArrayList<>();
+    private String currentMonthEventsKey;
+    // Sự kiện của ngày đang chọn và ngày tương ứng (millis đầu ngày)
+    private List<EventSummary> currentDayEvents = new ArrayList<>();
+    private Long currentDayEventsKey;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -80,7 +93,12 @@ public class MainActivity extends AppCompatActivity implements EventAdapter.OnEv
         setupActivityLauncher();
         
         // Initialize repository
-        eventRepository = new EventRepository(getApplication());
+        eventRepository = PersonalScheduleApp.getRepository(this);
+
+        // Khôi phục chế độ agenda sau khi xoay màn hình (trạng thái nằm trong ViewModel)
+        if (viewModel.isAgendaMode()) {
+            setAgendaMode(true);
+        }
         
         // Load events for today
         loadEventsForDate(CalendarDay.today());
@@ -130,14 +148,22 @@ public class MainActivity extends AppCompatActivity implements EventAdapter.OnEv
     private void setupCalendar() {
         // Lắng nghe sự kiện khi ngày được chọn
         calendarView.setOnDateChangedListener(this);
+        // Chỉ load sự kiện của tháng đang hiển thị để đánh dấu ngày (thay vì toàn bộ sự kiện)
+        calendarView.setOnMonthChangedListener((widget, date) -> viewModel.setVisibleMonth(toMonthYear(date)));
+        viewModel.setVisibleMonth(toMonthYear(calendarView.getCurrentDate()));
+    }
+
+    private static String toMonthYear(CalendarDay date) {
+        // Tháng trong CalendarDay bắt đầu từ 1
+        return String.format(Locale.US, "%02d-%04d", date.getMonth(), date.getYear());
     }
 
     private void setupRecyclerView() {
-        // Load sự kiện từ ViewModel và đánh dấu ngày trên lịch
-        viewModel.getEventList().observe(this, events -> {
+        // Đánh dấu ngày có sự kiện trên lịch, theo tháng đang hiển thị
+        viewModel.getVisibleMonthEvents().observe(this, events -> {
             // Tạo một tập hợp CalendarDay cho những ngày có sự kiện
             HashSet<CalendarDay> eventDays = new HashSet<>();
-            for (Event event : events) {
+            for (EventSummary event : events) {
                 Calendar calendar = Calendar.getInstance();
                 // Sử dụng setTimeInMillis thay vì setTime vì getStartTime trả về long
                 calendar.setTimeInMillis(event.getStartTime());
@@ -156,11 +182,116 @@ public class MainActivity extends AppCompatActivity implements EventAdapter.OnEv
             // Xóa tất cả các decorator hiện có (nếu có) và thêm decorator mới
             calendarView.removeDecorators();
             calendarView.addDecorator(eventDecorator);
-            List<Object> objectEvents = new ArrayList<>(events);
-            adapter.setEvents(objectEvents);
+        });
+
+        // Load sự kiện theo từ khóa tìm kiếm từ ViewModel
+        viewModel.getEventList().observe(this, events -> {
+            // Danh sách chỉ hiển thị kết quả này khi đang tìm kiếm, còn lại hiển thị theo tháng/agenda
+            if (isSearching()) {
+                List<Object> objectEvents = new ArrayList<>(events);
+                adapter.setEvents(objectEvents);
+            } else if (viewModel.isAgendaMode()) {
+                renderAgenda();
+            } else {
+                renderMonthEvents();
+            }
+        });
+
+        // Agenda: chỉ một cửa sổ trang quanh vị trí cuộn được giữ trong bộ nhớ
+        viewModel.getAgendaRows().observe(this, rows -> {
+            if (viewModel.isAgendaMode() && !isSearching()) {
+                renderAgenda();
+            }
+        });
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView view, int dx, int dy) {
+                if (viewModel.isAgendaMode() && !isSearching()) {
+                    reportAgendaRange();
+                }
+            }
+        });
+
+        // Observe một lần duy nhất: LiveData của tháng tự cập nhật khi dữ liệu lịch thay đổi
+        viewModel.getSelectedMonthEvents().observe(this, events -> {
+            currentMonthEvents = events != null ? events : new ArrayList<>();
+            currentMonthEventsKey = viewModel.getSelectedMonth();
+            if (!isSearching() && !viewModel.isAgendaMode()) {
+                renderMonthEvents();
+            }
+        });
+
+        viewModel.getSelectedDayEvents().observe(this, events -> {
+            currentDayEvents = events != null ? events : new ArrayList<>();
+            currentDayEventsKey = viewModel.getSelectedDay();
+            if (!isSearching() && !viewModel.isAgendaMode()) {
+                renderMonthEvents();
+            }
         });
     }
 
+    private boolean isSearching() {
+        return !TextUtils.isEmpty(viewModel.getCurrentSearchQuery());
+    }
+
+    private void setAgendaMode(boolean enabled) {
+        viewModel.setAgendaMode(enabled);
+        calendarView.setVisibility(enabled ? View.GONE : View.VISIBLE);
+        if (isSearching()) return;
+        if (enabled) {
+            renderAgenda();
+        } else {
+            renderMonthEvents();
+        }
+    }
+
+    private void renderAgenda() {
+        List<Object> rows = viewModel.getAgendaRows().getValue();
+        if (rows == null) return; // Trang đầu chưa về
+
+        // Giữ nguyên sự kiện đang ở đầu màn hình khi trang được thêm/bỏ ở phía trước
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int firstPosition = layoutManager.findFirstVisibleItemPosition();
+        EventSummary anchorEvent = null;
+        int anchorOffset = 0;
+        for (int position = Math.max(firstPosition, 0); firstPosition != RecyclerView.NO_POSITION
+                && position < adapter.getItemCount(); position++) {
+            Object item = adapter.getItem(position);
+            if (item instanceof EventSummary) {
+                anchorEvent = (EventSummary) item;
+                View view = layoutManager.findViewByPosition(position);
+                anchorOffset = view != null ? view.getTop() - recyclerView.getPaddingTop() : 0;
+                break;
+            }
+        }
+
+        tvNoEvents.setVisibility(View.GONE);
+        recyclerView.setVisibility(View.VISIBLE);
+        final EventSummary anchor = anchorEvent;
+        final int offset = anchorOffset;
+        // Diff được tính ở background: khôi phục vị trí khi adapter đã dùng danh sách mới
+        adapter.setEvents(rows, () -> {
+            if (anchor != null) {
+                for (int position = 0; position < rows.size(); position++) {
+                    Object item = rows.get(position);
+                    if (item instanceof EventSummary && ((EventSummary) item).getId() == anchor.getId()
+                            && ((EventSummary) item).getStartTime() == anchor.getStartTime()) {
+                        layoutManager.scrollToPositionWithOffset(position, offset);
+                        break;
+                    }
+                }
+            }
+            // Báo vị trí sau khi layout xong để pager quyết định load trang kế tiếp
+            recyclerView.post(this::reportAgendaRange);
+        });
+    }
+
+    private void reportAgendaRange() {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        viewModel.onAgendaScrolled(layoutManager.findFirstVisibleItemPosition(),
+                layoutManager.findLastVisibleItemPosition());
+    }
+
     private void setupFab() {
         // Setup FAB
         fabAddEvent.setOnClickListener(v -> {
@@ -174,72 +305,125 @@ public class MainActivity extends AppCompatActivity implements EventAdapter.OnEv
             new ActivityResultContracts.StartActivityForResult(),
             result -> {
                 if (result.getResultCode() == Activity.RESULT_OK) {
-                    Intent data = result.getData();
-                    if (data != null) {
-                        // We need to check the action or extras from the intent
-                        // since getRequestCode() isn't available in ActivityResult
-                        updateEventList();
-                        viewModel.refreshCurrentList();
-                    }
+                    // Không cần reload: LiveData tự cập nhật khi Calendar Provider thay đổi
+                    Log.d(TAG, "Add/edit finished with RESULT_OK");
                 }
             }
         );
+
+        // Chọn file .ics để nhập (Storage Access Framework)
+        importIcsLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(),
+            uri -> {
+                if (uri != null) {
+                    Toast.makeText(this, R.string.import_ics_running, Toast.LENGTH_SHORT).show();
+                    viewModel.importIcs(uri);
+                }
+            }
+        );
+        viewModel.getImportStatus().observe(this, status -> {
+            if (status == null || !status.finished) return;
+            String message;
+            if (status.errorMessage != null) {
+                message = getString(R.string.import_ics_failed, status.errorMessage);
+            } else if (status.cancelled) {
+                message = getString(R.string.import_ics_cancelled, status.count);
+            } else {
+                message = getString(R.string.import_ics_done, status.count, status.failed);
+            }
+            Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+            viewModel.resetImportStatus();
+        });
+
+        // Chọn nơi lưu file .ics khi xuất
+        exportIcsLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("text/calendar"),
+            uri -> {
+                if (uri != null) {
+                    viewModel.exportIcs(uri);
+                }
+            }
+        );
+        viewModel.getExportStatus().observe(this, status -> {
+            if (status == null || !status.finished) return;
+            String message;
+            if (status.errorMessage != null) {
+                message = getString(R.string.export_ics_failed, status.errorMessage);
+            } else if (status.cancelled) {
+                message = getString(R.string.export_ics_cancelled, status.count);
+            } else {
+                message = getString(R.string.export_ics_done, status.count);
+            }
+            Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+            viewModel.resetExportStatus();
+        });
     }
 
     private void updateEventList() {
         SimpleDateFormat monthYearFormat = new SimpleDateFormat("MM-yyyy", Locale.getDefault());
         String monthYear = monthYearFormat.format(selectedDate.getTime());
 
-        viewModel.getEventsByMonth(monthYear).observe(this, events -> {
-            List<Object> sortedEvents = new ArrayList<>(); // Thay Event bằng Object
-            List<Event> selectedDayEvents = new ArrayList<>();
-            List<Event> otherEvents = new ArrayList<>();
-
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            String selectedDateString = dateFormat.format(selectedDate.getTime());
-
-            // Phân loại sự kiện
-            for (Event event : events) {
-                // Tạo Date từ timestamp để sử dụng với SimpleDateFormat
-                Date eventDate = new Date(event.getStartTime());
-                String eventDateString = dateFormat.format(eventDate);
-                if (eventDateString.equals(selectedDateString)) {
-                    selectedDayEvents.add(event);
-                } else {
-                    otherEvents.add(event);
-                }
-            }
+        // Chỉ trigger truy vấn khi đổi tháng; sự kiện của ngày được trả lời từ chỉ mục trong bộ nhớ
+        viewModel.setSelectedMonth(monthYear);
+        viewModel.setSelectedDay(selectedDate.getTimeInMillis());
+    }
 
-            // Thêm sự kiện của ngày được chọn nếu có
-            if (!selectedDayEvents.isEmpty()) {
-                sortedEvents.add("Sự kiện trong ngày"); // Thêm tiêu đề dạng String
-                sortedEvents.addAll(selectedDayEvents);
+    private void renderMonthEvents() {
+        // Chỉ render khi dữ liệu tháng và ngày đều khớp với lựa chọn hiện tại
+        if (viewModel.isAgendaMode() || !TextUtils.equals(currentMonthEventsKey, viewModel.getSelectedMonth())
+                || currentDayEventsKey == null || !currentDayEventsKey.equals(viewModel.getSelectedDay())) {
+            return;
+        }
+        List<EventSummary> events = currentMonthEvents;
+        List<Object> sortedEvents = new ArrayList<>(); // Thay Event bằng Object
+        List<EventSummary> selectedDayEvents = currentDayEvents;
+        List<EventSummary> otherEvents = new ArrayList<>();
+
+        // Các sự kiện còn lại của tháng = sự kiện tháng trừ đi sự kiện của ngày đang chọn
+        HashSet<String> selectedDayKeys = new HashSet<>();
+        for (EventSummary event : selectedDayEvents) {
+            selectedDayKeys.add(event.getId() + "@" + event.getStartTime());
+        }
+        for (EventSummary event : events) {
+            if (!selectedDayKeys.contains(event.getId() + "@" + event.getStartTime())) {
+                otherEvents.add(event);
             }
+        }
 
-            // Thêm tiêu đề và các sự kiện còn lại trong tháng
-            if (!otherEvents.isEmpty()) {
-                sortedEvents.add("Các sự kiện khác trong tháng"); // Thêm tiêu đề dạng String
-                sortedEvents.addAll(otherEvents);
-            }
+        // Thêm sự kiện của ngày được chọn nếu có
+        if (!selectedDayEvents.isEmpty()) {
+            sortedEvents.add("Sự kiện trong ngày"); // Thêm tiêu đề dạng String
+            sortedEvents.addAll(selectedDayEvents);
+        }
 
-            // Cập nhật adapter với danh sách có tiêu đề
-            adapter.setEvents(sortedEvents);
-            
-            // Hiển thị hoặc ẩn thông báo không có sự kiện
-            if (events.isEmpty()) {
-                tvNoEvents.setVisibility(View.VISIBLE);
-                recyclerView.setVisibility(View.GONE);
-            } else {
-                tvNoEvents.setVisibility(View.GONE);
-                recyclerView.setVisibility(View.VISIBLE);
-            }
-        });
+        // Thêm tiêu đề và các sự kiện còn lại trong tháng
+        if (!otherEvents.isEmpty()) {
+            sortedEvents.add("Các sự kiện khác trong tháng"); // Thêm tiêu đề dạng String
+            sortedEvents.addAll(otherEvents);
+        }
+
+        // Cập nhật adapter với danh sách có tiêu đề
+        adapter.setEvents(sortedEvents);
+
+        // Hiển thị hoặc ẩn thông báo không có sự kiện
+        if (events.isEmpty() && selectedDayEvents.isEmpty()) {
+            tvNoEvents.setVisibility(View.VISIBLE);
+            recyclerView.setVisibility(View.GONE);
+        } else {
+            tvNoEvents.setVisibility(View.GONE);
+            recyclerView.setVisibility(View.VISIBLE);
+        }
     }
 
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_main, menu);
 
+        // Thống kê hiệu năng chỉ hiện trong bản debug
+        boolean debuggable = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        menu.findItem(R.id.action_metrics).setVisible(debuggable);
+        menu.findItem(R.id.action_agenda).setChecked(viewModel.isAgendaMode());
+
         MenuItem searchItem = menu.findItem(R.id.action_search);
         SearchView searchView = (SearchView) searchItem.getActionView();
 
@@ -261,6 +445,7 @@ public class MainActivity extends AppCompatActivity implements EventAdapter.OnEv
         searchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
             @Override
             public boolean onMenuItemActionExpand(MenuItem item) {
+                viewModel.prepareSearch();
                 return true;
             }
 
@@ -275,19 +460,42 @@ public class MainActivity extends AppCompatActivity implements EventAdapter.OnEv
     }
 
     @Override
-    public void onEventClick(Event event) {
-        Intent intent = new Intent(this, EventDetailActivity.class);
-        intent.putExtra(Constants.EXTRA_EVENT_ID, event.getId());
-        startActivityForResult(intent, Constants.REQUEST_EDIT_EVENT);
+    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        if (item.getItemId() == R.id.action_agenda) {
+            item.setChecked(!item.isChecked());
+            setAgendaMode(item.isChecked());
+            return true;
+        }
+        if (item.getItemId() == R.id.action_import_ics) {
+            importIcsLauncher.launch(new String[]{"text/calendar", "application/octet-stream", "*/*"});
+            return true;
+        }
+        if (item.getItemId() == R.id.action_export_ics) {
+            exportIcsLauncher.launch("lich-trinh.ics");
+            return true;
+        }
+        if (item.getItemId() == R.id.action_metrics) {
+            showRepositoryMetrics();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void showRepositoryMetrics() {
+        String metrics = RepositoryMetrics.dump();
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.repository_metrics)
+                .setMessage(TextUtils.isEmpty(metrics) ? getString(R.string.repository_metrics_empty) : metrics)
+                .setPositiveButton(android.R.string.ok, null)
+                .setNeutralButton(R.string.repository_metrics_reset, (dialog, which) -> RepositoryMetrics.reset())
+                .show();
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        // Refresh data mỗi khi activity trở lại foreground
-        updateEventList();
-        // Cũng refresh danh sách event toàn bộ để cập nhật calendar dots
-        viewModel.refreshCurrentList();
+    public void onEventClick(EventSummary event) {
+        Intent intent = new Intent(this, EventDetailActivity.class);
+        intent.putExtra(Constants.EXTRA_EVENT_ID, event.getId());
+        startActivityForResult(intent, Constants.REQUEST_EDIT_EVENT);
     }
 
     @Override
@@ -322,6 +530,13 @@ public class MainActivity extends AppCompatActivity implements EventAdapter.OnEv
         calendarView.setSelectedDate(date);
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Delta refresh: chỉ load lại các sự kiện đã đổi khi app ở background (không có gì đổi: không truy vấn)
+        if (viewModel != null) viewModel.refreshCurrentList();
+    }
+
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
@@ -330,9 +545,8 @@ public class MainActivity extends AppCompatActivity implements EventAdapter.OnEv
         if ((requestCode == Constants.REQUEST_ADD_EVENT && resultCode == Constants.RESULT_EVENT_ADDED) ||
                 (requestCode == Constants.REQUEST_EDIT_EVENT &&
                         (resultCode == Constants.RESULT_EVENT_UPDATED || resultCode == Constants.RESULT_EVENT_DELETED))) {
-            // Data will be refreshed automatically via LiveData
-            updateEventList();
-            viewModel.refreshCurrentList(); // Refresh entire list
+            // Data will be refreshed automatically via LiveData (ProviderQueryLiveData theo dõi Calendar Provider)
+            Log.d(TAG, "Event changed (requestCode=" + requestCode + "), waiting for provider update");
         }
     }
 }
\ No newline at end of file
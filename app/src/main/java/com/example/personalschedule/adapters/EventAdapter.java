@@ -14,16 +14,17 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.personalschedule.R;
 import com.example.personalschedule.models.Event;
+import com.example.personalschedule.models.EventRow;
+import com.example.personalschedule.models.EventSummary;
 // import com.example.personalschedule.utils.Constants; // Có thể không cần nữa
-import com.example.personalschedule.utils.DateTimeUtils;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale; // Thêm Locale cho String.format
 
 public class EventAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
-    private List<Object> items = new ArrayList<>(); // Chứa cả Header (String) và Event
+    // Chứa cả Header (String) và Event; sự kiện được format và diff ở background (xem EventRowDiffer)
+    private final EventRowDiffer differ;
     private OnEventClickListener listener;
     private Context context; // Giữ context nếu cần cho resource hoặc việc khác
     private static final int TYPE_HEADER = 0;
@@ -32,6 +33,8 @@ public class EventAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     public EventAdapter(Context context, OnEventClickListener listener) {
         this.context = context;
         this.listener = listener;
+        this.differ = new EventRowDiffer(this, context.getString(R.string.all_day));
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -51,24 +54,33 @@ public class EventAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
         if (getItemViewType(position) == TYPE_HEADER) {
-            ((HeaderViewHolder) holder).bind((String) items.get(position));
+            ((HeaderViewHolder) holder).bind((String) getItem(position));
         } else { // TYPE_EVENT
-            ((EventViewHolder) holder).bind((Event) items.get(position));
+            ((EventViewHolder) holder).bind((EventRow) differ.getRow(position));
         }
     }
 
     @Override
     public int getItemCount() {
-        return items.size();
+        return differ.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return RowDiffCallback.stableId(differ.getRow(position));
+    }
+
+    private Object getItem(int position) {
+        return differ.getItem(position);
     }
 
     @Override
     public int getItemViewType(int position) {
-        if (position < 0 || position >= items.size()) {
+        if (position < 0 || position >= getItemCount()) {
             return -1; // Hoặc xử lý lỗi khác
         }
         // instanceof là cách an toàn để kiểm tra kiểu
-        return items.get(position) instanceof String ? TYPE_HEADER : TYPE_EVENT;
+        return getItem(position) instanceof String ? TYPE_HEADER : TYPE_EVENT;
     }
 
     /**
@@ -79,16 +91,15 @@ public class EventAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
      * @param events Danh sách các sự kiện chính cần hiển thị.
      */
     public void submitList(List<Event> events) {
-        items.clear();
+        List<Object> items = new ArrayList<>();
         if (events != null && !events.isEmpty()) {
             // TODO: Thêm logic nhóm sự kiện ở đây nếu cần
             // Ví dụ: Thêm header "Tất cả sự kiện" hoặc nhóm theo ngày
             items.add("Tất cả sự kiện"); // Ví dụ header đơn giản
             items.addAll(events);
         }
-        // Luôn gọi notifyDataSetChanged sau khi thay đổi dữ liệu hoàn toàn
-        // Cân nhắc dùng DiffUtil để cải thiện hiệu năng nếu danh sách lớn và thay đổi thường xuyên
-        notifyDataSetChanged();
+        // DiffUtil: chỉ các dòng thay đổi được bind lại, giữ animation khi thêm/xóa
+        differ.submit(items, null);
     }
 
     // Xóa phương thức setEvents cũ nếu không còn dùng logic nhóm phức tạp đó
@@ -108,6 +119,7 @@ public class EventAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
         private TextView tvTitle;
         private TextView tvTime;
         private TextView tvLocation;
+        private Boolean boundToday; // Background đang dùng, null nếu chưa bind
         // private ImageView ivPriority; // XÓA BIẾN NÀY
 
         public EventViewHolder(@NonNull View itemView) {
@@ -123,34 +135,23 @@ public class EventAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
             itemView.setOnClickListener(v -> {
                 int position = getAdapterPosition(); // Sử dụng getAdapterPosition() thay vì getBindingAdapterPosition()
                 if (position != RecyclerView.NO_POSITION && listener != null) {
-                    Object item = items.get(position);
-                    if (item instanceof Event) { // Kiểm tra lại kiểu trước khi cast
-                        listener.onEventClick((Event) item);
+                    Object item = getItem(position);
+                    if (item instanceof EventSummary) { // Kiểm tra lại kiểu trước khi cast
+                        listener.onEventClick((EventSummary) item);
                     }
                 }
             });
         }
 
-        public void bind(Event event) {
-            if (event == null) return; // Tránh NullPointerException
+        // Chỉ gán các chuỗi đã format sẵn (EventRow), không cấp phát khi cuộn
+        public void bind(EventRow row) {
+            if (row == null) return; // Tránh NullPointerException
+            EventSummary event = row.getEvent();
 
-            // Sử dụng các phương thức DateTimeUtils nhận long
-            tvDate.setText(DateTimeUtils.formatDate(event.getStartTime()));
-            tvDayOfWeek.setText(DateTimeUtils.formatDayOfWeek(event.getStartTime()));
+            tvDate.setText(row.getDate());
+            tvDayOfWeek.setText(row.getDayOfWeek());
             tvTitle.setText(event.getTitle());
-
-            if (event.isAllDay()) {
-                tvTime.setText(R.string.all_day); // Sử dụng resource string
-            } else {
-                // Đảm bảo endTime hợp lệ trước khi format
-                String endTimeFormatted = (event.getEndTime() >= event.getStartTime())
-                        ? DateTimeUtils.formatTime(event.getEndTime())
-                        : "?";
-                // Sử dụng Locale.getDefault() cho String.format
-                tvTime.setText(String.format(Locale.getDefault(), "%s - %s",
-                        DateTimeUtils.formatTime(event.getStartTime()),
-                        endTimeFormatted));
-            }
+            tvTime.setText(row.getTimeRange()); // Đã gồm nhãn "Cả ngày"
 
             // Kiểm tra location bằng TextUtils
             if (!TextUtils.isEmpty(event.getLocation())) {
@@ -160,11 +161,12 @@ public class EventAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
                 tvLocation.setVisibility(View.GONE);
             }
 
-            // Cập nhật background dựa trên isToday (sử dụng long)
-            if (DateTimeUtils.isToday(event.getStartTime())) {
-                itemView.setBackgroundResource(R.drawable.bg_event_item_today); // Đảm bảo drawable tồn tại
-            } else {
-                itemView.setBackgroundResource(R.drawable.bg_event_item); // Đảm bảo drawable tồn tại
+            // Cập nhật background theo isToday đã tính sẵn; chỉ đặt lại khi đổi (setBackgroundResource tạo drawable mới)
+            if (boundToday == null || boundToday != row.isToday()) {
+                boundToday = row.isToday();
+                itemView.setBackgroundResource(row.isToday()
+                        ? R.drawable.bg_event_item_today // Đảm bảo drawable tồn tại
+                        : R.drawable.bg_event_item);
             }
         }
     }
@@ -184,6 +186,6 @@ public class EventAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
 
     // --- Interface ---
     public interface OnEventClickListener {
-        void onEventClick(Event event);
+        void onEventClick(EventSummary event); // Màn hình chi tiết tự load Event đầy đủ theo ID
     }
 }
\ No newline at end of file
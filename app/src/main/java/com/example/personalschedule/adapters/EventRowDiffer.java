@@ -0,0 +1,112 @@
+package com.example.personalschedule.adapters;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.personalschedule.models.EventRow;
+import com.example.personalschedule.models.EventSummary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Danh sách dòng của một adapter: các EventSummary được đổi thành EventRow (chuỗi hiển thị format sẵn)
+ * rồi diff với danh sách hiện tại, trong cùng một task trên executor nền của RowDiffCallback.config()
+ * (executor mặc định của AsyncDifferConfig, không phải pool đọc của RepositoryScheduler). Các dòng
+ * khác (MonthHeader, tiêu đề) giữ nguyên.
+ *
+ * Chỉ gọi submit() từ main thread. Nếu danh sách mới được gửi trước khi danh sách cũ diff xong,
+ * danh sách cũ bị bỏ.
+ */
+final class EventRowDiffer {
+
+    private final ListUpdateCallback updateCallback;
+    private final AsyncDifferConfig<Object> config = RowDiffCallback.config();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final String allDayLabel;
+    // Chỉ đọc/ghi trên main thread
+    private List<Object> currentList = Collections.emptyList();
+    private int generation = 0;
+
+    EventRowDiffer(@NonNull RecyclerView.Adapter<?> adapter, @NonNull String allDayLabel) {
+        this.updateCallback = new AdapterListUpdateCallback(adapter);
+        this.allDayLabel = allDayLabel;
+    }
+
+    /**
+     * @param rows           danh sách mới, không được sửa sau đó
+     * @param commitCallback chạy trên main thread khi adapter đã dùng danh sách mới, có thể null
+     */
+    void submit(@NonNull List<?> rows, Runnable commitCallback) {
+        final int submitted = ++generation;
+        final List<Object> oldList = currentList;
+        config.getBackgroundThreadExecutor().execute(() -> {
+            EventRow.Formatter formatter = new EventRow.Formatter(allDayLabel, System.currentTimeMillis());
+            List<Object> formatted = new ArrayList<>(rows.size());
+            for (Object row : rows) {
+                formatted.add(row instanceof EventSummary ? formatter.format((EventSummary) row) : row);
+            }
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new ListCallback(oldList, formatted));
+            mainHandler.post(() -> {
+                if (submitted != generation) return; // Đã có danh sách mới hơn
+                currentList = Collections.unmodifiableList(formatted);
+                result.dispatchUpdatesTo(updateCallback);
+                if (commitCallback != null) commitCallback.run();
+            });
+        });
+    }
+
+    int size() {
+        return currentList.size();
+    }
+
+    // Dòng đã format (EventRow, MonthHeader hoặc String)
+    Object getRow(int position) {
+        return currentList.get(position);
+    }
+
+    // Dòng gốc: EventSummary thay cho EventRow
+    Object getItem(int position) {
+        Object row = getRow(position);
+        return row instanceof EventRow ? ((EventRow) row).getEvent() : row;
+    }
+
+    // So sánh hai danh sách bằng RowDiffCallback, như AsyncListDiffer
+    private final class ListCallback extends DiffUtil.Callback {
+        private final List<Object> oldList;
+        private final List<Object> newList;
+
+        ListCallback(List<Object> oldList, List<Object> newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            return config.getDiffCallback().areItemsTheSame(oldList.get(oldPosition), newList.get(newPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            return config.getDiffCallback().areContentsTheSame(oldList.get(oldPosition), newList.get(newPosition));
+        }
+    }
+}
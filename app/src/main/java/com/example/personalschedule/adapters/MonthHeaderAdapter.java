@@ -12,7 +12,8 @@ import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.personalschedule.R;
-import com.example.personalschedule.models.Event;
+import com.example.personalschedule.models.EventRow;
+import com.example.personalschedule.models.EventSummary;
 import com.example.personalschedule.models.MonthHeader;
 import com.example.personalschedule.utils.Constants;
 import com.example.personalschedule.utils.DateTimeUtils;
@@ -32,12 +33,15 @@ public class MonthHeaderAdapter extends RecyclerView.Adapter<RecyclerView.ViewHo
     private static final int TYPE_TITLE = 3; //Thêm type
 
     private Context context;
-    private List<Object> items = new ArrayList<>();
+    // Danh sách hiện tại; dòng sự kiện được format và diff ở background (xem EventRowDiffer)
+    private final EventRowDiffer differ;
     private EventAdapter.OnEventClickListener eventClickListener;
 
     public MonthHeaderAdapter(Context context, EventAdapter.OnEventClickListener eventClickListener) {
         this.context = context;
         this.eventClickListener = eventClickListener;
+        this.differ = new EventRowDiffer(this, context.getString(R.string.all_day));
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -66,38 +70,38 @@ public class MonthHeaderAdapter extends RecyclerView.Adapter<RecyclerView.ViewHo
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
         if (holder instanceof MonthHeaderViewHolder) {
-            MonthHeader monthHeader = (MonthHeader) items.get(position);
+            MonthHeader monthHeader = (MonthHeader) getItem(position);
             ((MonthHeaderViewHolder) holder).bind(monthHeader);
         } else if (holder instanceof EventViewHolder) {
-            Event event = (Event) items.get(position);
-            ((EventViewHolder) holder).bind(event);
-            holder.itemView.setOnClickListener(v -> {
-                if (eventClickListener != null) {
-                    eventClickListener.onEventClick(event);
-                }
-            });
+            ((EventViewHolder) holder).bind((EventRow) differ.getRow(position));
         }else if (holder instanceof TitleViewHolder) {
-            String title = (String) items.get(position);
+            String title = (String) getItem(position);
             ((TitleViewHolder) holder).bind(title);
         }
         else if (holder instanceof EmptyViewHolder) {
-            MonthHeader monthHeader = (MonthHeader) items.get(position - 1);
+            MonthHeader monthHeader = (MonthHeader) getItem(position - 1);
             ((EmptyViewHolder) holder).bind(monthHeader);
         }
     }
 
     @Override
     public int getItemCount() {
-        return items.size();
+        return differ.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return RowDiffCallback.stableId(differ.getRow(position));
     }
 
     @Override
     public int getItemViewType(int position) {
-        if (items.get(position) instanceof MonthHeader) {
+        Object item = getItem(position);
+        if (item instanceof MonthHeader) {
             return TYPE_MONTH_HEADER;
-        } else if (items.get(position) instanceof Event) {
+        } else if (item instanceof EventSummary) { // Gồm cả Event (kết quả tìm kiếm)
             return TYPE_EVENT;
-        }else if(items.get(position) instanceof String){
+        }else if(item instanceof String){
             return TYPE_TITLE;
         }
         else {
@@ -106,22 +110,30 @@ public class MonthHeaderAdapter extends RecyclerView.Adapter<RecyclerView.ViewHo
     }
 
     public void setEvents(List<Object> events) {
+        setEvents(events, null);
+    }
+
+    /**
+     * Thay danh sách hiển thị. Chuỗi hiển thị của từng sự kiện được format sẵn và chỉ các dòng thực sự
+     * thay đổi được bind lại (DiffUtil), cả hai đều ở background.
+     * Danh sách truyền vào không được sửa sau đó.
+     * @param commitCallback chạy trên main thread khi adapter đã dùng danh sách mới, có thể null
+     */
+    public void setEvents(List<Object> events, Runnable commitCallback) {
         if (events == null || events.isEmpty()) {
-            MonthHeader currentMonth = getCurrentMonth();
-            items.clear();
-            items.add(currentMonth);
-            items.add("EMPTY");
-            notifyDataSetChanged();
+            List<Object> empty = new ArrayList<>(2);
+            empty.add(getCurrentMonth());
+            empty.add("EMPTY");
+            differ.submit(empty, commitCallback);
             return;
         }
-
-        items.clear();
-        items.addAll(events);
-
-
-        notifyDataSetChanged();
+        differ.submit(events, commitCallback);
     }
 
+    // Dòng gốc (EventSummary, MonthHeader hoặc String)
+    public Object getItem(int position) {
+        return differ.getItem(position);
+    }
 
     private MonthHeader getCurrentMonth() {
         Calendar cal = Calendar.getInstance();
@@ -170,6 +182,7 @@ public class MonthHeaderAdapter extends RecyclerView.Adapter<RecyclerView.ViewHo
         private TextView tvLocation;
         private Context context;
         private EventAdapter.OnEventClickListener listener;
+        private EventSummary event; // Sự kiện đang bind
 
         public EventViewHolder(@NonNull View itemView, Context context, EventAdapter.OnEventClickListener listener) {
             super(itemView);
@@ -180,29 +193,23 @@ public class MonthHeaderAdapter extends RecyclerView.Adapter<RecyclerView.ViewHo
             tvLocation = itemView.findViewById(R.id.tv_location);
             this.context = context;
             this.listener = listener;
-        }
-
-        public void bind(Event event) {
-            if (event == null) return; // Tránh NullPointerException
-
-            // Cập nhật click listener để sử dụng event hiện tại
+            // Gắn một lần, không tạo listener mới mỗi lần bind
             itemView.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onEventClick(event);
+                if (this.listener != null && event != null) {
+                    this.listener.onEventClick(event);
                 }
             });
+        }
 
-            tvDate.setText(DateTimeUtils.formatDate(event.getStartTime()));
-            tvDayOfWeek.setText(DateTimeUtils.formatDayOfWeek(event.getStartTime()));
-            tvTitle.setText(event.getTitle());
+        // Chỉ gán các chuỗi đã format sẵn (EventRow), không cấp phát khi cuộn
+        public void bind(EventRow row) {
+            if (row == null) return; // Tránh NullPointerException
+            event = row.getEvent();
 
-            if (event.isAllDay()) {
-                tvTime.setText(R.string.all_day);
-            } else {
-                tvTime.setText(String.format("%s - %s",
-                        DateTimeUtils.formatTime(event.getStartTime()),
-                        DateTimeUtils.formatTime(event.getEndTime())));
-            }
+            tvDate.setText(row.getDate());
+            tvDayOfWeek.setText(row.getDayOfWeek());
+            tvTitle.setText(event.getTitle());
+            tvTime.setText(row.getTimeRange());
 
             if (event.getLocation() != null && !event.getLocation().isEmpty()) {
                 tvLocation.setVisibility(View.VISIBLE);
@@ -0,0 +1,101 @@
+package com.example.personalschedule.adapters;
+
+import android.annotation.SuppressLint;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.personalschedule.models.EventRow;
+import com.example.personalschedule.models.EventSummary;
+import com.example.personalschedule.models.MonthHeader;
+
+import java.util.Objects;
+
+/**
+ * So sánh các dòng của danh sách sự kiện (EventRow, MonthHeader, tiêu đề dạng String) cho
+ * AsyncListDiffer, và cấp stable ID cho từng dòng. Một sự kiện lặp lại có nhiều dòng cùng id, nên một
+ * dòng sự kiện được nhận diện bằng (id, thời điểm bắt đầu).
+ *
+ * Diff được tính trên executor mặc định của AsyncDifferConfig, riêng cho UI (không chung với truy vấn
+ * provider), cùng task với việc format dòng (xem EventRowDiffer).
+ */
+final class RowDiffCallback extends DiffUtil.ItemCallback<Object> {
+
+    // 2 bit thấp của stable ID là loại dòng, để ID của các loại khác nhau không trùng nhau
+    private static final long KIND_EVENT = 0;
+    private static final long KIND_MONTH = 1;
+    private static final long KIND_TEXT = 2;
+
+    private static final RowDiffCallback INSTANCE = new RowDiffCallback();
+
+    private RowDiffCallback() {
+    }
+
+    static AsyncDifferConfig<Object> config() {
+        return new AsyncDifferConfig.Builder<>(INSTANCE).build();
+    }
+
+    static long stableId(Object item) {
+        item = unwrap(item);
+        if (item instanceof EventSummary) {
+            EventSummary event = (EventSummary) item;
+            long hash = event.getId() * 0x9E3779B97F4A7C15L ^ event.getStartTime();
+            return (hash << 2) | KIND_EVENT;
+        }
+        if (item instanceof MonthHeader) {
+            MonthHeader header = (MonthHeader) item;
+            return ((long) (header.getYear() * 12 + header.getMonth()) << 2) | KIND_MONTH;
+        }
+        return ((long) String.valueOf(item).hashCode() << 2) | KIND_TEXT;
+    }
+
+    @Override
+    public boolean areItemsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+        oldItem = unwrap(oldItem);
+        newItem = unwrap(newItem);
+        if (oldItem instanceof EventSummary && newItem instanceof EventSummary) {
+            EventSummary oldEvent = (EventSummary) oldItem;
+            EventSummary newEvent = (EventSummary) newItem;
+            return oldEvent.getId() == newEvent.getId() && oldEvent.getStartTime() == newEvent.getStartTime();
+        }
+        if (oldItem instanceof MonthHeader && newItem instanceof MonthHeader) {
+            MonthHeader oldHeader = (MonthHeader) oldItem;
+            MonthHeader newHeader = (MonthHeader) newItem;
+            return oldHeader.getMonth() == newHeader.getMonth() && oldHeader.getYear() == newHeader.getYear();
+        }
+        return oldItem instanceof String && oldItem.equals(newItem);
+    }
+
+    // Chỉ gọi khi areItemsTheSame: MonthHeader và tiêu đề không có gì khác để so
+    @SuppressLint("DiffUtilEquals")
+    @Override
+    public boolean areContentsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+        if (oldItem instanceof EventRow && newItem instanceof EventRow) {
+            EventRow oldRow = (EventRow) oldItem;
+            EventRow newRow = (EventRow) newItem;
+            // Chuỗi đã format cũng đổi khi đổi múi giờ; "hôm nay" đổi khi qua ngày
+            return oldRow.isToday() == newRow.isToday()
+                    && Objects.equals(oldRow.getDate(), newRow.getDate())
+                    && Objects.equals(oldRow.getTimeRange(), newRow.getTimeRange())
+                    && areEventsTheSame(oldRow.getEvent(), newRow.getEvent());
+        }
+        if (oldItem instanceof EventSummary && newItem instanceof EventSummary) {
+            return areEventsTheSame((EventSummary) oldItem, (EventSummary) newItem);
+        }
+        return true;
+    }
+
+    private static Object unwrap(Object item) {
+        return item instanceof EventRow ? ((EventRow) item).getEvent() : item;
+    }
+
+    private static boolean areEventsTheSame(EventSummary oldEvent, EventSummary newEvent) {
+        // Các trường được hiển thị trên một dòng sự kiện
+        return oldEvent.getEndTime() == newEvent.getEndTime()
+                && oldEvent.isAllDay() == newEvent.isAllDay()
+                && oldEvent.getCalendarId() == newEvent.getCalendarId()
+                && Objects.equals(oldEvent.getTitle(), newEvent.getTitle())
+                && Objects.equals(oldEvent.getLocation(), newEvent.getLocation());
+    }
+}
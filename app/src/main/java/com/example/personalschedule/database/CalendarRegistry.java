@@ -0,0 +1,228 @@
+package com.example.personalschedule.database;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.CalendarContract;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.personalschedule.models.CalendarInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Danh sách calendar trên thiết bị, load một lần và giữ trong bộ nhớ cho toàn app.
+ *
+ * Trả lời "lịch mặc định để ghi" và "calendar X có tồn tại không" mà không cần truy vấn provider,
+ * nên insert chỉ còn một lần ghi thay vì thêm 3 truy vấn Calendars. Dữ liệu chỉ được load lại khi
+ * ContentObserver trên CalendarContract.Calendars báo thay đổi: khi đó một lần load mới được lên
+ * lịch ở background (gộp các thông báo liên tiếp), nên lần lưu tiếp theo thường đã có sẵn dữ liệu.
+ *
+ * Lưu ý: Calendar Provider thông báo thay đổi qua URI gốc, nên observer cũng nhận được khi bảng
+ * Events thay đổi; việc load lại chỉ là một truy vấn nhỏ chạy ở mức BACKGROUND.
+ */
+public final class CalendarRegistry {
+
+    private static final String TAG = "CalendarRegistry";
+
+    // Gộp các thông báo thay đổi liên tiếp trước khi load lại ở background
+    private static final long RELOAD_DELAY_MS = 500;
+
+    private static final String GOOGLE_ACCOUNT_TYPE = "com.google";
+
+    private static final String[] PROJECTION = new String[]{
+            CalendarContract.Calendars._ID,                   // 0: long
+            CalendarContract.Calendars.CALENDAR_DISPLAY_NAME, // 1: String
+            CalendarContract.Calendars.ACCOUNT_NAME,          // 2: String
+            CalendarContract.Calendars.ACCOUNT_TYPE,          // 3: String
+            CalendarContract.Calendars.IS_PRIMARY,            // 4: int (>=1 if primary)
+            CalendarContract.Calendars.SYNC_EVENTS,           // 5: int
+            CalendarContract.Calendars.VISIBLE                // 6: int
+    };
+    private static final int ID_INDEX = 0;
+    private static final int DISPLAY_NAME_INDEX = 1;
+    private static final int ACCOUNT_NAME_INDEX = 2;
+    private static final int ACCOUNT_TYPE_INDEX = 3;
+    private static final int IS_PRIMARY_INDEX = 4;
+    private static final int SYNC_EVENTS_INDEX = 5;
+    private static final int VISIBLE_INDEX = 6;
+
+    private static volatile CalendarRegistry instance;
+
+    private final ContentResolver contentResolver;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Tăng mỗi khi observer báo Calendars thay đổi; snapshot cũ hơn thì phải load lại
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+    private final ContentObserver observer = new ContentObserver(mainHandler) {
+        @Override
+        public void onChange(boolean selfChange) {
+            invalidate();
+        }
+    };
+    // Đăng ký observer có thể thất bại khi chưa có quyền READ_CALENDAR (registry được tạo từ Application):
+    // thử lại ở mỗi lần truy vấn cho tới khi thành công
+    private volatile boolean observing;
+
+    private final Runnable backgroundReload = () ->
+            RepositoryScheduler.getInstance().read(RepositoryScheduler.Priority.BACKGROUND, () -> {
+                try {
+                    current();
+                } catch (Exception e) {
+                    Log.w(TAG, "Background reload of calendars failed", e);
+                }
+            });
+
+    private CalendarRegistry(ContentResolver contentResolver) {
+        this.contentResolver = contentResolver;
+        registerObserver();
+    }
+
+    public static CalendarRegistry getInstance(@NonNull ContentResolver contentResolver) {
+        if (instance == null) {
+            synchronized (CalendarRegistry.class) {
+                if (instance == null) instance = new CalendarRegistry(contentResolver);
+            }
+        }
+        return instance;
+    }
+
+    // --- Truy vấn (chạy trên background thread: lần đầu hoặc sau khi thay đổi sẽ truy vấn provider) ---
+
+    /**
+     * @return calendar mặc định để ghi sự kiện mới: lịch Google đồng bộ (ưu tiên lịch chính),
+     * nếu không có thì bất kỳ lịch đồng bộ nào; -1 nếu thiết bị chưa có lịch nào.
+     */
+    public long getDefaultCalendarId() {
+        return current().defaultCalendarId;
+    }
+
+    public boolean exists(long calendarId) {
+        return calendarId > 0 && current().ids.contains(calendarId);
+    }
+
+    /**
+     * @return true nếu lịch đang được bật hiển thị (VISIBLE), kể cả lịch không đồng bộ.
+     * Dùng để chỉ tính những lịch người dùng đang xem khi kiểm tra trùng giờ.
+     */
+    public boolean isVisible(long calendarId) {
+        return current().visibleIds.contains(calendarId);
+    }
+
+    /**
+     * @return các lịch đồng bộ và đang hiển thị (cho Spinner chọn lịch), lịch chính trước rồi theo tên.
+     * List không sửa đổi được.
+     */
+    public List<CalendarInfo> getSelectableCalendars() {
+        return current().selectable;
+    }
+
+    /**
+     * Đánh dấu dữ liệu cũ (ví dụ ngay sau khi app tự tạo calendar) và load lại ở background.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        if (snapshot != null) {
+            // Chỉ load trước nếu đã từng có người dùng registry
+            mainHandler.removeCallbacks(backgroundReload);
+            mainHandler.postDelayed(backgroundReload, RELOAD_DELAY_MS);
+        }
+    }
+
+    // --- Helpers ---
+
+    private Snapshot current() {
+        // Thay đổi xảy ra trước khi observer được đăng ký không được báo: coi snapshot hiện có là cũ
+        if (registerObserver()) version.incrementAndGet();
+        Snapshot current = snapshot;
+        if (current != null && current.version == version.get()) return current;
+        synchronized (this) {
+            current = snapshot;
+            if (current != null && current.version == version.get()) return current;
+            current = load(version.get());
+            snapshot = current;
+            return current;
+        }
+    }
+
+    // true nếu observer vừa được đăng ký ở lần gọi này
+    private boolean registerObserver() {
+        if (observing) return false;
+        synchronized (observer) {
+            if (observing) return false;
+            try {
+                contentResolver.registerContentObserver(CalendarContract.Calendars.CONTENT_URI, true, observer);
+                observing = true;
+                return true;
+            } catch (SecurityException e) {
+                Log.w(TAG, "Cannot observe calendars (permission denied), will retry");
+                return false;
+            }
+        }
+    }
+
+    // Một truy vấn Calendars cho mọi câu hỏi; SecurityException được ném ra cho nơi gọi xử lý
+    private Snapshot load(long loadVersion) {
+        List<CalendarInfo> selectable = new ArrayList<>();
+        Set<Long> ids = new HashSet<>();
+        Set<Long> visibleIds = new HashSet<>();
+        long googleCalendarId = -1;
+        long syncCalendarId = -1;
+        Cursor cursor = null;
+        try {
+            RepositoryMetrics.countIpc();
+            cursor = contentResolver.query(CalendarContract.Calendars.CONTENT_URI, PROJECTION, null, null,
+                    CalendarContract.Calendars.IS_PRIMARY + " DESC, " + CalendarContract.Calendars.CALENDAR_DISPLAY_NAME + " ASC");
+            if (cursor != null) {
+                RepositoryMetrics.countRows(cursor.getCount());
+                while (cursor.moveToNext()) {
+                    long id = cursor.getLong(ID_INDEX);
+                    ids.add(id);
+                    if (cursor.getInt(VISIBLE_INDEX) == 1) visibleIds.add(id);
+                    if (cursor.getInt(SYNC_EVENTS_INDEX) != 1) continue;
+
+                    // Cùng thứ tự ưu tiên với cách chọn lịch mặc định trước đây (IS_PRIMARY DESC)
+                    if (syncCalendarId <= 0) syncCalendarId = id;
+                    if (googleCalendarId <= 0 && GOOGLE_ACCOUNT_TYPE.equals(cursor.getString(ACCOUNT_TYPE_INDEX))) {
+                        googleCalendarId = id;
+                    }
+                    if (cursor.getInt(VISIBLE_INDEX) == 1) {
+                        selectable.add(new CalendarInfo(id, cursor.getString(DISPLAY_NAME_INDEX),
+                                cursor.getString(ACCOUNT_NAME_INDEX), cursor.getInt(IS_PRIMARY_INDEX) > 0));
+                    }
+                }
+            }
+        } finally {
+            if (cursor != null && !cursor.isClosed()) cursor.close();
+        }
+        long defaultCalendarId = googleCalendarId > 0 ? googleCalendarId : syncCalendarId;
+        Log.d(TAG, "Loaded " + ids.size() + " calendars (" + selectable.size() + " selectable), default ID=" + defaultCalendarId);
+        return new Snapshot(loadVersion, Collections.unmodifiableList(selectable), ids, visibleIds, defaultCalendarId);
+    }
+
+    private static final class Snapshot {
+        final long version;
+        final List<CalendarInfo> selectable;
+        final Set<Long> ids;
+        final Set<Long> visibleIds;
+        final long defaultCalendarId;
+
+        Snapshot(long version, List<CalendarInfo> selectable, Set<Long> ids, Set<Long> visibleIds,
+                 long defaultCalendarId) {
+            this.version = version;
+            this.selectable = selectable;
+            this.ids = ids;
+            this.visibleIds = visibleIds;
+            this.defaultCalendarId = defaultCalendarId;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.personalschedule.database;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tìm các sự kiện trùng giờ với một sự kiện sắp lưu, bằng sweep-line.
+ *
+ * Các lần xuất hiện của sự kiện ứng viên (một lần, hoặc nhiều lần nếu lặp lại, cùng độ dài) và các
+ * sự kiện đã có (lấy từ EventIntervalIndex, đã sắp xếp theo start) được duyệt song song theo thời
+ * điểm bắt đầu: với mỗi sự kiện chỉ cần so với lần xuất hiện bắt đầu gần nhất trước nó và lần bắt
+ * đầu ngay sau nó, nên chi phí là O(n + m) thay vì so từng cặp.
+ *
+ * Không giữ trạng thái, an toàn khi gọi từ nhiều thread.
+ */
+public final class ConflictDetector {
+
+    private ConflictDetector() {
+    }
+
+    /**
+     * @param candidateStarts thời điểm bắt đầu (tăng dần) các lần xuất hiện của sự kiện ứng viên
+     * @param candidateCount  số phần tử dùng trong candidateStarts
+     * @param duration        độ dài mỗi lần xuất hiện (0: sự kiện tức thời, chiếm 1ms)
+     * @param sorted          các sự kiện đã có, sắp xếp theo start tăng dần
+     * @return mỗi sự kiện trùng giờ một lần (lần xuất hiện trùng đầu tiên), theo thứ tự start
+     */
+    public static <T> List<T> findConflicts(long[] candidateStarts, int candidateCount, long duration,
+                                            @NonNull List<T> sorted,
+                                            @NonNull EventIntervalIndex.IntervalAdapter<T> adapter) {
+        List<T> conflicts = new ArrayList<>();
+        if (candidateCount <= 0 || sorted.isEmpty()) return conflicts;
+        long span = Math.max(1, duration);
+        long lastCandidateEnd = candidateStarts[candidateCount - 1] + span;
+        Set<Long> reported = new HashSet<>();
+
+        int next = 0; // Lần xuất hiện đầu tiên của ứng viên bắt đầu sau start hiện tại
+        for (T item : sorted) {
+            long start = adapter.startOf(item);
+            // Mọi sự kiện còn lại bắt đầu sau khi lần xuất hiện cuối cùng đã kết thúc
+            if (start >= lastCandidateEnd) break;
+            long end = Math.max(adapter.endOf(item), start + 1);
+            while (next < candidateCount && candidateStarts[next] <= start) next++;
+            // Cùng độ dài nên lần bắt đầu gần nhất trước start là lần kết thúc muộn nhất trong số đó
+            boolean clash = (next > 0 && candidateStarts[next - 1] + span > start)
+                    || (next < candidateCount && candidateStarts[next] < end);
+            if (clash && reported.add(adapter.idOf(item))) {
+                conflicts.add(item);
+            }
+        }
+        return conflicts;
+    }
+}
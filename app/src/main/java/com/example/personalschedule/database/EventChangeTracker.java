@@ -0,0 +1,225 @@
+package com.example.personalschedule.database;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Dấu vân tay (fingerprint) của từng dòng Events ở lần quét gần nhất, để biết chính xác dòng nào
+ * đã được thêm/sửa/xóa khi Calendar Provider báo thay đổi, thay vì bỏ toàn bộ dữ liệu trong bộ nhớ.
+ *
+ * Mỗi lần quét chỉ đọc _ID và vài cột nhỏ (không DESCRIPTION, không Reminders), theo thứ tự _ID,
+ * nên so với lần quét trước là một lần merge hai mảng đã sắp xếp: O(n), không boxing.
+ *
+ * Thread-safe (mọi phương thức public đều synchronized).
+ */
+public class EventChangeTracker {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Lần quét gần nhất đã được áp dụng (baseline), sắp xếp theo id tăng dần
+    private long[] ids = new long[0];
+    private long[] fingerprints = new long[0];
+    private boolean[] exceptions = new boolean[0];
+    private long version = -1; // -1: chưa có baseline
+
+    /**
+     * Kết quả một lần quét: id (tăng dần) + fingerprint của từng dòng. Dựng trên một thread, không thread-safe.
+     */
+    public static final class Scan {
+        private long[] ids;
+        private long[] fingerprints;
+        private boolean[] exceptions;
+        private int size;
+
+        public Scan(int expectedSize) {
+            int capacity = Math.max(expectedSize, 16);
+            ids = new long[capacity];
+            fingerprints = new long[capacity];
+            exceptions = new boolean[capacity];
+        }
+
+        /**
+         * @param exception dòng là ngoại lệ của một sự kiện lặp lại (ORIGINAL_ID khác null): thay đổi của
+         *                  nó làm thay đổi các lần xuất hiện của sự kiện gốc
+         */
+        public void add(long id, long fingerprint, boolean exception) {
+            if (size > 0 && id <= ids[size - 1]) {
+                throw new IllegalArgumentException("Scan must be sorted by id: " + id + " after " + ids[size - 1]);
+            }
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                fingerprints = Arrays.copyOf(fingerprints, capacity);
+                exceptions = Arrays.copyOf(exceptions, capacity);
+            }
+            ids[size] = id;
+            fingerprints[size] = fingerprint;
+            exceptions[size] = exception;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Các dòng đã thay đổi giữa hai phiên bản provider. Cùng một id chỉ nằm trong một danh sách.
+     */
+    public static final class ChangeSet {
+        private final long fromVersion;
+        private final long toVersion;
+        private final long[] inserted;
+        private final long[] updated;
+        private final long[] removed;
+        private final boolean touchesExceptions;
+        private final boolean full;
+
+        ChangeSet(long fromVersion, long toVersion, long[] inserted, long[] updated, long[] removed,
+                  boolean touchesExceptions, boolean full) {
+            this.fromVersion = fromVersion;
+            this.toVersion = toVersion;
+            this.inserted = inserted;
+            this.updated = updated;
+            this.removed = removed;
+            this.touchesExceptions = touchesExceptions;
+            this.full = full;
+        }
+
+        // Không có gì thay đổi kể từ version
+        public static ChangeSet none(long version) {
+            return new ChangeSet(version, version, new long[0], new long[0], new long[0], false, false);
+        }
+
+        // Không so được với lần trước (chưa có baseline, hoặc quá nhiều thay đổi): coi như mọi thứ đều mới
+        public static ChangeSet full(long fromVersion, long toVersion) {
+            return new ChangeSet(fromVersion, toVersion, new long[0], new long[0], new long[0], false, true);
+        }
+
+        public long getFromVersion() { return fromVersion; }
+        public long getToVersion() { return toVersion; }
+        public long[] getInserted() { return inserted; }
+        public long[] getUpdated() { return updated; }
+        public long[] getRemoved() { return removed; }
+        // Có ngoại lệ của sự kiện lặp lại bị thêm/sửa/xóa (các lần xuất hiện của sự kiện gốc cũng đổi)
+        public boolean touchesExceptions() { return touchesExceptions; }
+        public boolean isFull() { return full; }
+
+        public boolean isEmpty() {
+            return !full && inserted.length == 0 && updated.length == 0 && removed.length == 0;
+        }
+
+        // Số dòng phải load lại (thêm mới + đã sửa)
+        public int changedCount() {
+            return inserted.length + updated.length;
+        }
+
+        @Override
+        public String toString() {
+            if (full) return "ChangeSet{full, " + fromVersion + "->" + toVersion + "}";
+            return "ChangeSet{" + fromVersion + "->" + toVersion + ", inserted=" + inserted.length
+                    + ", updated=" + updated.length + ", removed=" + removed.length
+                    + (touchesExceptions ? ", exceptions" : "") + "}";
+        }
+    }
+
+    // Phiên bản provider của baseline, -1 nếu chưa có
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized boolean hasBaseline() {
+        return version >= 0;
+    }
+
+    /**
+     * So lần quét với baseline (không thay đổi baseline, xem commit).
+     * @param scanVersion phiên bản provider đọc trước khi quét
+     */
+    @NonNull
+    public synchronized ChangeSet diff(@NonNull Scan scan, long scanVersion) {
+        if (version < 0) return ChangeSet.full(version, scanVersion);
+        LongList inserted = new LongList();
+        LongList updated = new LongList();
+        LongList removed = new LongList();
+        boolean touchesExceptions = false;
+        int old = 0;
+        int now = 0;
+        while (old < ids.length || now < scan.size) {
+            if (now == scan.size || (old < ids.length && ids[old] < scan.ids[now])) {
+                removed.add(ids[old]);
+                touchesExceptions |= exceptions[old];
+                old++;
+            } else if (old == ids.length || scan.ids[now] < ids[old]) {
+                inserted.add(scan.ids[now]);
+                touchesExceptions |= scan.exceptions[now];
+                now++;
+            } else {
+                if (fingerprints[old] != scan.fingerprints[now]) {
+                    updated.add(scan.ids[now]);
+                    touchesExceptions |= exceptions[old] || scan.exceptions[now];
+                }
+                old++;
+                now++;
+            }
+        }
+        return new ChangeSet(version, scanVersion, inserted.toArray(), updated.toArray(), removed.toArray(),
+                touchesExceptions, false);
+    }
+
+    /**
+     * Lấy lần quét làm baseline mới. Chỉ gọi sau khi dữ liệu trong bộ nhớ đã được cập nhật theo diff.
+     */
+    public synchronized void commit(@NonNull Scan scan, long scanVersion) {
+        ids = Arrays.copyOf(scan.ids, scan.size);
+        fingerprints = Arrays.copyOf(scan.fingerprints, scan.size);
+        exceptions = Arrays.copyOf(scan.exceptions, scan.size);
+        version = scanVersion;
+    }
+
+    public synchronized void reset() {
+        ids = new long[0];
+        fingerprints = new long[0];
+        exceptions = new boolean[0];
+        version = -1;
+    }
+
+    // --- Fingerprint ---
+
+    public static long initialFingerprint() {
+        return FNV_OFFSET;
+    }
+
+    /**
+     * Thêm giá trị một cột vào fingerprint (FNV-1a 64-bit). null khác chuỗi rỗng.
+     */
+    public static long addToFingerprint(long fingerprint, String value) {
+        if (value == null) {
+            return (fingerprint ^ 0xff) * FNV_PRIME;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            fingerprint = (fingerprint ^ (c & 0xff)) * FNV_PRIME;
+            fingerprint = (fingerprint ^ (c >>> 8)) * FNV_PRIME;
+        }
+        // Dấu phân cách để ("ab", "c") khác ("a", "bc")
+        return (fingerprint ^ 0xfe) * FNV_PRIME;
+    }
+
+    // Mảng long tự giãn, chỉ dùng trong diff
+    private static final class LongList {
+        private long[] values = new long[8];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.personalschedule.database;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Chỉ mục khoảng thời gian [start, end) trong bộ nhớ cho các sự kiện đã load.
+ *
+ * Các phần tử được giữ trong mảng sắp xếp theo (start, id). Mảng này được xem như một cây
+ * nhị phân cân bằng ngầm định (nút gốc là phần tử giữa), mỗi nút lưu end lớn nhất của cây con
+ * (augmented interval tree). Truy vấn "các sự kiện giao với cửa sổ W" chạy trong O(log n + k)
+ * và trả về kết quả theo thứ tự start tăng dần.
+ *
+ * Chỉ mục cũng ghi nhớ các cửa sổ thời gian đã được load đầy đủ từ provider (covers()), để
+ * biết khi nào có thể trả lời hoàn toàn từ bộ nhớ.
+ *
+ * Thread-safe (mọi phương thức public đều synchronized).
+ */
+public class EventIntervalIndex<T> {
+
+    // Cách lấy id/start/end từ phần tử được lưu
+    public interface IntervalAdapter<T> {
+        long idOf(T item);
+        long startOf(T item);
+        long endOf(T item);
+    }
+
+    private final IntervalAdapter<T> adapter;
+
+    private long[] starts = new long[16];
+    private long[] ends = new long[16];   // end hiệu dụng: luôn > start (sự kiện tức thời chiếm 1ms)
+    private long[] ids = new long[16];
+    private Object[] items = new Object[16];
+    private long[] maxEnds = new long[16]; // end lớn nhất của cây con có gốc tại vị trí i
+    private int size = 0;
+    private boolean maxEndsDirty = false;
+
+    // Các cửa sổ [begin, end) đã load đầy đủ, đã gộp và sắp xếp: begin0, end0, begin1, end1, ...
+    private long[] covered = new long[8];
+    private int coveredCount = 0;
+
+    public EventIntervalIndex(@NonNull IntervalAdapter<T> adapter) {
+        this.adapter = adapter;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // --- Cửa sổ đã load ---
+
+    /**
+     * @return true nếu toàn bộ [begin, end) nằm trong một cửa sổ đã load đầy đủ.
+     */
+    public synchronized boolean covers(long begin, long end) {
+        for (int i = 0; i < coveredCount; i += 2) {
+            if (covered[i] <= begin && end <= covered[i + 1]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Thay toàn bộ phần tử giao với [begin, end) bằng danh sách vừa load từ provider
+     * và đánh dấu cửa sổ này là đã load.
+     */
+    public synchronized void replaceWindow(long begin, long end, @NonNull List<T> loaded) {
+        removeOverlapping(begin, end);
+        for (T item : loaded) {
+            insertSorted(item);
+        }
+        addCoverage(begin, end);
+    }
+
+    /**
+     * Xóa toàn bộ chỉ mục (ví dụ khi Calendar Provider bị thay đổi từ bên ngoài).
+     */
+    public synchronized void clear() {
+        size = 0;
+        Arrays.fill(items, null);
+        coveredCount = 0;
+        maxEndsDirty = false;
+    }
+
+    /**
+     * @return bản sao các cửa sổ đã load đầy đủ: begin0, end0, begin1, end1, ...
+     */
+    public synchronized long[] getCoveredWindows() {
+        return Arrays.copyOf(covered, coveredCount);
+    }
+
+    // --- Truy vấn ---
+
+    /**
+     * @return các phần tử giao với [begin, end), theo thứ tự start tăng dần.
+     */
+    public synchronized List<T> query(long begin, long end) {
+        List<T> result = new ArrayList<>();
+        if (size == 0 || end <= begin) return result;
+        ensureMaxEnds();
+        collect(0, size, begin, end, result);
+        return result;
+    }
+
+    // --- Cập nhật gia tăng (từ các thao tác ghi của repository) ---
+
+    /**
+     * Thêm phần tử nếu nó giao với một cửa sổ đã load (ngoài vùng đã load thì không cần giữ).
+     */
+    public synchronized void add(@NonNull T item) {
+        long start = adapter.startOf(item);
+        long end = effectiveEnd(start, adapter.endOf(item));
+        if (!overlapsCoverage(start, end)) return;
+        insertSorted(item);
+    }
+
+    /**
+     * Thay mọi phần tử có cùng id bằng phần tử mới (sự kiện đã được cập nhật).
+     */
+    public synchronized void update(@NonNull T item) {
+        removeById(adapter.idOf(item));
+        add(item);
+    }
+
+    /**
+     * Xóa mọi phần tử có id tương ứng (mọi lần xuất hiện của sự kiện).
+     */
+    public synchronized void removeById(long id) {
+        int write = 0;
+        for (int read = 0; read < size; read++) {
+            if (ids[read] == id) continue;
+            moveEntry(read, write++);
+        }
+        truncate(write);
+    }
+
+    // --- Helpers ---
+
+    private void collect(int lo, int hi, long begin, long end, List<T> out) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        // Cả cây con kết thúc trước cửa sổ -> bỏ qua
+        if (maxEnds[mid] <= begin) return;
+        collect(lo, mid, begin, end, out);
+        // Nút giữa và cây con bên phải đều bắt đầu từ sau cửa sổ -> dừng
+        if (starts[mid] >= end) return;
+        if (ends[mid] > begin) {
+            @SuppressWarnings("unchecked")
+            T item = (T) items[mid];
+            out.add(item);
+        }
+        collect(mid + 1, hi, begin, end, out);
+    }
+
+    private void ensureMaxEnds() {
+        if (!maxEndsDirty) return;
+        buildMaxEnds(0, size);
+        maxEndsDirty = false;
+    }
+
+    private long buildMaxEnds(int lo, int hi) {
+        if (lo >= hi) return Long.MIN_VALUE;
+        int mid = (lo + hi) >>> 1;
+        long max = Math.max(ends[mid], Math.max(buildMaxEnds(lo, mid), buildMaxEnds(mid + 1, hi)));
+        maxEnds[mid] = max;
+        return max;
+    }
+
+    private void insertSorted(T item) {
+        long id = adapter.idOf(item);
+        long start = adapter.startOf(item);
+        long end = effectiveEnd(start, adapter.endOf(item));
+        ensureCapacity(size + 1);
+
+        int pos = lowerBound(start, id);
+        int moved = size - pos;
+        if (moved > 0) {
+            System.arraycopy(starts, pos, starts, pos + 1, moved);
+            System.arraycopy(ends, pos, ends, pos + 1, moved);
+            System.arraycopy(ids, pos, ids, pos + 1, moved);
+            System.arraycopy(items, pos, items, pos + 1, moved);
+        }
+        starts[pos] = start;
+        ends[pos] = end;
+        ids[pos] = id;
+        items[pos] = item;
+        size++;
+        maxEndsDirty = true;
+    }
+
+    // Vị trí đầu tiên có (start, id) >= (start, id) cần chèn
+    private int lowerBound(long start, long id) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] < start || (starts[mid] == start && ids[mid] < id)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void removeOverlapping(long begin, long end) {
+        int write = 0;
+        for (int read = 0; read < size; read++) {
+            if (starts[read] < end && ends[read] > begin) continue;
+            moveEntry(read, write++);
+        }
+        truncate(write);
+    }
+
+    private void moveEntry(int from, int to) {
+        if (from == to) return;
+        starts[to] = starts[from];
+        ends[to] = ends[from];
+        ids[to] = ids[from];
+        items[to] = items[from];
+    }
+
+    private void truncate(int newSize) {
+        if (newSize == size) return;
+        Arrays.fill(items, newSize, size, null);
+        size = newSize;
+        maxEndsDirty = true;
+    }
+
+    private void addCoverage(long begin, long end) {
+        if (end <= begin) return;
+        // Gộp với các cửa sổ giao hoặc kề nhau, giữ mảng được sắp xếp theo begin
+        long[] merged = new long[coveredCount + 2];
+        int count = 0;
+        boolean placed = false;
+        for (int i = 0; i < coveredCount; i += 2) {
+            long b = covered[i], e = covered[i + 1];
+            if (e < begin) {
+                merged[count++] = b; merged[count++] = e;
+            } else if (end < b) {
+                if (!placed) { merged[count++] = begin; merged[count++] = end; placed = true; }
+                merged[count++] = b; merged[count++] = e;
+            } else {
+                begin = Math.min(begin, b);
+                end = Math.max(end, e);
+            }
+        }
+        if (!placed) { merged[count++] = begin; merged[count++] = end; }
+        covered = merged.length >= 8 ? merged : Arrays.copyOf(merged, 8);
+        coveredCount = count;
+    }
+
+    private boolean overlapsCoverage(long start, long end) {
+        for (int i = 0; i < coveredCount; i += 2) {
+            if (covered[i] < end && start < covered[i + 1]) return true;
+        }
+        return false;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= starts.length) return;
+        int newLength = Math.max(capacity, starts.length * 2);
+        starts = Arrays.copyOf(starts, newLength);
+        ends = Arrays.copyOf(ends, newLength);
+        ids = Arrays.copyOf(ids, newLength);
+        items = Arrays.copyOf(items, newLength);
+        maxEnds = new long[newLength];
+        maxEndsDirty = true;
+    }
+
+    private static long effectiveEnd(long start, long end) {
+        return end > start ? end : start + 1;
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.personalschedule.database;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.personalschedule.models.EventSummary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Nguồn dữ liệu phân trang cho danh sách agenda (mọi sự kiện, sắp theo DTSTART rồi _ID).
+ *
+ * Chỉ giữ một cửa sổ tối đa MAX_PAGES trang quanh vị trí đang cuộn. Khi vị trí hiển thị tới gần
+ * mép cửa sổ, trang kế tiếp (hoặc trang trước) được load bằng keyset qua
+ * EventRepository.loadEventPage; trang ở đầu bên kia bị bỏ đi. Nhờ vậy lần hiển thị đầu chỉ cần
+ * một trang và bộ nhớ không tăng theo tổng số sự kiện trên thiết bị.
+ *
+ * Khi Calendar Provider thay đổi, cửa sổ được load lại bắt đầu từ sự kiện đang hiển thị đầu tiên
+ * (xem refreshIfStale), hoặc chỉ cập nhật theo các sự kiện đã đổi (xem applyChanges). Chỉ dùng trên main thread.
+ */
+public class EventPager {
+
+    private static final String TAG = "EventPager";
+
+    public static final int PAGE_SIZE = 50;
+    // Load trang kế khi còn không quá chừng này sự kiện tới mép cửa sổ
+    private static final int PREFETCH_DISTANCE = 20;
+    // Tối đa 5 trang (250 sự kiện) trong bộ nhớ
+    private static final int MAX_PAGES = 5;
+
+    private final EventRepository repository;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final MutableLiveData<List<EventSummary>> window = new MutableLiveData<>();
+
+    // Các trang đang giữ, theo thứ tự thời gian
+    private final List<List<EventSummary>> pages = new ArrayList<>();
+    private int windowSize = 0;
+    private boolean reachedStart = false;
+    private boolean reachedEnd = false;
+    private boolean loadingBefore = false;
+    private boolean loadingAfter = false;
+    // true: trang kế tiếp nhận được sẽ thay thế toàn bộ cửa sổ (sau start/refresh)
+    private boolean replaceOnNextPage = false;
+    // Tăng mỗi lần start/refresh để bỏ qua các trang của lần load cũ
+    private int generation = 0;
+    private long windowVersion = -1;
+    private EventRepository.PageKey anchor;
+
+    // Vị trí hiển thị gần nhất (chỉ số sự kiện trong cửa sổ)
+    private int firstVisible = 0;
+    private int lastVisible = 0;
+
+    public EventPager(@NonNull EventRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Cửa sổ sự kiện hiện tại (đã sắp xếp). Mỗi lần thay đổi là một list mới, không sửa đổi được.
+     */
+    public LiveData<List<EventSummary>> getWindow() {
+        return window;
+    }
+
+    public boolean isStarted() {
+        return anchor != null;
+    }
+
+    /**
+     * Bắt đầu danh sách tại thời điểm anchorMillis: trang đầu là các sự kiện bắt đầu từ lúc đó,
+     * các sự kiện trước đó được load khi người dùng cuộn lên.
+     */
+    public void start(long anchorMillis) {
+        reload(EventRepository.PageKey.at(anchorMillis));
+    }
+
+    /**
+     * Load lại cửa sổ nếu Calendar Provider đã thay đổi kể từ lần load trước.
+     */
+    public void refreshIfStale() {
+        if (anchor != null && windowVersion != ProviderQueryLiveData.getProviderVersion()) {
+            refresh();
+        }
+    }
+
+    /**
+     * Cập nhật cửa sổ theo kết quả delta refresh (EventRepository.refreshChanges) thay vì luôn load lại:
+     * không có gì đổi thì chỉ nhận phiên bản mới, chỉ có sự kiện bị xóa thì bỏ chúng khỏi các trang
+     * đang giữ (keyset không bị ảnh hưởng), còn lại (thêm/sửa có thể đổi thứ tự) thì load lại.
+     */
+    public void applyChanges(@NonNull EventChangeTracker.ChangeSet changes) {
+        if (anchor == null || windowVersion == changes.getToVersion()) return;
+        if (changes.isFull() || windowVersion != changes.getFromVersion() || replaceOnNextPage
+                || changes.changedCount() > 0) {
+            refreshIfStale();
+            return;
+        }
+        windowVersion = changes.getToVersion();
+        if (changes.getRemoved().length == 0) {
+            Log.d(TAG, "Provider changed without affecting events, keeping window");
+            return;
+        }
+        long[] removed = changes.getRemoved().clone();
+        Arrays.sort(removed);
+        boolean dropped = false;
+        for (int p = 0; p < pages.size(); p++) {
+            List<EventSummary> page = pages.get(p);
+            List<EventSummary> kept = new ArrayList<>(page.size());
+            for (EventSummary event : page) {
+                if (Arrays.binarySearch(removed, event.getId()) < 0) kept.add(event);
+            }
+            if (kept.size() == page.size()) continue;
+            pages.set(p, Collections.unmodifiableList(kept));
+            dropped = true;
+        }
+        if (dropped) {
+            Log.d(TAG, "Dropped " + removed.length + " removed events from window without reloading");
+            publish();
+        }
+    }
+
+    /**
+     * Load lại cửa sổ, bắt đầu từ sự kiện đang hiển thị đầu tiên. Cửa sổ cũ vẫn được hiển thị
+     * cho tới khi trang mới về.
+     */
+    public void refresh() {
+        if (anchor == null) return;
+        EventSummary first = eventAt(firstVisible);
+        reload(first != null ? EventRepository.PageKey.before(first) : anchor);
+    }
+
+    /**
+     * Báo vị trí đang hiển thị (chỉ số sự kiện trong cửa sổ hiện tại) để load trước / bỏ trang.
+     */
+    public void onVisibleRangeChanged(int first, int last) {
+        firstVisible = Math.max(0, first);
+        lastVisible = Math.max(firstVisible, last);
+        refreshIfStale();
+        checkPrefetch();
+    }
+
+    // --- Helpers ---
+
+    private void reload(EventRepository.PageKey key) {
+        anchor = key;
+        generation++;
+        windowVersion = ProviderQueryLiveData.getProviderVersion();
+        replaceOnNextPage = true;
+        // Chặn load trang trước cho tới khi trang đầu của lần load này về
+        loadingBefore = true;
+        loadingAfter = false;
+        loadPage(key, true);
+    }
+
+    private void checkPrefetch() {
+        if (anchor == null || replaceOnNextPage) return;
+        if (!reachedEnd && !loadingAfter && lastVisible >= windowSize - PREFETCH_DISTANCE) {
+            EventSummary last = eventAt(windowSize - 1);
+            loadPage(last != null ? EventRepository.PageKey.after(last) : anchor, true);
+        }
+        if (!reachedStart && !loadingBefore && firstVisible < PREFETCH_DISTANCE) {
+            EventSummary first = eventAt(0);
+            loadPage(first != null ? EventRepository.PageKey.before(first) : anchor, false);
+        }
+    }
+
+    private void loadPage(EventRepository.PageKey key, boolean forward) {
+        if (forward) loadingAfter = true;
+        else loadingBefore = true;
+        final int requestGeneration = generation;
+        repository.loadEventPage(key, forward, PAGE_SIZE, (page, version) ->
+                mainHandler.post(() -> onPageLoaded(requestGeneration, forward, page, version)));
+    }
+
+    private void onPageLoaded(int requestGeneration, boolean forward, List<EventSummary> page, long version) {
+        if (requestGeneration != generation) return; // Kết quả của lần load cũ
+        if (forward) loadingAfter = false;
+        else loadingBefore = false;
+
+        if (version != windowVersion) {
+            // Provider đã thay đổi giữa các trang: ghép tiếp sẽ lệch dữ liệu, load lại cả cửa sổ
+            Log.d(TAG, "Provider changed while paging, reloading window");
+            refresh();
+            return;
+        }
+
+        boolean endOfData = page.size() < PAGE_SIZE;
+        if (replaceOnNextPage) {
+            replaceOnNextPage = false;
+            loadingBefore = false;
+            pages.clear();
+            reachedStart = false;
+            windowSize = 0;
+            firstVisible = 0;
+            lastVisible = 0;
+        }
+
+        if (forward) {
+            if (!page.isEmpty()) pages.add(page);
+            reachedEnd = endOfData;
+            if (pages.size() > MAX_PAGES) {
+                // Bỏ trang đầu (xa vị trí đang cuộn nhất)
+                int removed = pages.remove(0).size();
+                firstVisible = Math.max(0, firstVisible - removed);
+                lastVisible = Math.max(0, lastVisible - removed);
+                reachedStart = false;
+            }
+        } else {
+            if (!page.isEmpty()) pages.add(0, page);
+            reachedStart = endOfData;
+            firstVisible += page.size();
+            lastVisible += page.size();
+            if (pages.size() > MAX_PAGES) {
+                // Bỏ trang cuối
+                pages.remove(pages.size() - 1);
+                reachedEnd = false;
+            }
+        }
+        publish();
+        Log.d(TAG, "Loaded " + page.size() + (forward ? " events after, " : " events before, ")
+                + "window now " + windowSize + " events in " + pages.size() + " pages");
+
+        // Trang vừa về có thể chưa lấp đầy vùng prefetch (ví dụ trang rất ngắn)
+        checkPrefetch();
+    }
+
+    private void publish() {
+        List<EventSummary> events = new ArrayList<>(pages.size() * PAGE_SIZE);
+        for (List<EventSummary> page : pages) {
+            events.addAll(page);
+        }
+        windowSize = events.size();
+        window.setValue(Collections.unmodifiableList(events));
+    }
+
+    private EventSummary eventAt(int index) {
+        if (index < 0) return null;
+        for (List<EventSummary> page : pages) {
+            if (index < page.size()) return page.get(index);
+            index -= page.size();
+        }
+        return null;
+    }
+}
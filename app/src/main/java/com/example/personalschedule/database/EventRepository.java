@@ -1,41 +1,71 @@
 package com.example.personalschedule.database;
 
 import android.app.Application;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.os.RemoteException;
 import android.provider.CalendarContract;
 import android.text.TextUtils; // Thêm import TextUtils
 import android.util.Log;
+import android.util.LruCache;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.example.personalschedule.database.RepositoryScheduler.Priority;
 import com.example.personalschedule.models.CalendarInfo; // Đảm bảo import lớp này
 import com.example.personalschedule.models.Event;
+import com.example.personalschedule.models.EventSummary;
+import com.example.personalschedule.utils.DateTimeUtils;
+import com.example.personalschedule.utils.IcsEventReader;
+import com.example.personalschedule.utils.IcsEventWriter;
+import com.example.personalschedule.utils.LongIntMap;
+import com.example.personalschedule.utils.RecurrenceRule;
+import com.example.personalschedule.utils.ReminderScheduler;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 // import java.util.Date; // Không còn dùng Date trực tiếp ở đây
 import java.util.List;
 import java.util.TimeZone;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.text.SimpleDateFormat;
 import java.util.Locale;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.lang.StringBuilder;
 
 public class EventRepository {
 
     private static final String TAG = "EventRepository"; // Tag for logging
+    // Log chi tiết từng dòng (tốn kém) chỉ khi bật: adb shell setprop log.tag.EventRepository VERBOSE
+    private static final boolean VERBOSE_LOGGING = Log.isLoggable(TAG, Log.VERBOSE);
 
     private ContentResolver contentResolver;
-    private ExecutorService executorService;
+    // Pool đọc có ưu tiên + lane ghi tuần tự, dùng chung toàn app (xem RepositoryScheduler)
+    private final RepositoryScheduler scheduler = RepositoryScheduler.getInstance();
     private Application application;
+    // Danh sách calendar giữ trong bộ nhớ, dùng chung toàn app (xem CalendarRegistry)
+    private final CalendarRegistry calendars;
+    // Snapshot trên đĩa của tháng hiện tại và hai tháng bên cạnh, cho khung hình đầu tiên khi mở app
+    private final EventSnapshotStore snapshots;
 
     // --- Projection for Events (các cột cần lấy từ Calendar Provider) ---
     private static final String[] EVENT_PROJECTION = new String[]{
@@ -48,7 +78,9 @@ public class EventRepository {
             CalendarContract.Events.DTEND,               // 6: long (milliseconds) - Có thể null nếu dùng DURATION
             CalendarContract.Events.DURATION,            // 7: String (e.g., "P1H" for 1 hour) - Dùng nếu DTEND null
             CalendarContract.Events.EVENT_TIMEZONE,      // 8: String
-            CalendarContract.Events.ALL_DAY              // 9: int (0 or 1)
+            CalendarContract.Events.ALL_DAY,             // 9: int (0 or 1)
+            CalendarContract.Events.RRULE,               // 10: String - null nếu không lặp
+            CalendarContract.Events.EXDATE               // 11: String - null nếu không bỏ lần lặp nào
             // Thêm các cột khác nếu cần
     };
     // Indices for EVENT_PROJECTION
@@ -62,93 +94,212 @@ public class EventRepository {
     private static final int PROJECTION_DURATION_INDEX = 7;
     private static final int PROJECTION_TIMEZONE_INDEX = 8;
     private static final int PROJECTION_ALL_DAY_INDEX = 9;
+    private static final int PROJECTION_RRULE_INDEX = 10;
+    private static final int PROJECTION_EXDATE_INDEX = 11;
 
-    // --- Projection for Calendars ---
-    private static final String[] CALENDAR_PROJECTION = new String[]{
-            CalendarContract.Calendars._ID,                 // 0: long
-            CalendarContract.Calendars.CALENDAR_DISPLAY_NAME, // 1: String
-            CalendarContract.Calendars.ACCOUNT_NAME,        // 2: String
-            CalendarContract.Calendars.OWNER_ACCOUNT,       // 3: String
-            CalendarContract.Calendars.IS_PRIMARY           // 4: int (>=1 if primary, deprecated)
-            // Có thể thêm CALENDAR_ACCESS_LEVEL để kiểm tra quyền ghi
-            // CalendarContract.Calendars.CALENDAR_ACCESS_LEVEL // 5: int
+    // --- Projection hẹp cho EventSummary (danh sách, chấm trên lịch): không có DESCRIPTION/timezone/reminder ---
+    private static final String[] SUMMARY_EVENT_PROJECTION = new String[]{
+            CalendarContract.Events._ID,                 // 0: long
+            CalendarContract.Events.TITLE,               // 1: String
+            CalendarContract.Events.EVENT_LOCATION,      // 2: String
+            CalendarContract.Events.DTSTART,             // 3: long
+            CalendarContract.Events.DTEND,               // 4: long - null với sự kiện lặp lại
+            CalendarContract.Events.DURATION,            // 5: String - dùng khi DTEND null
+            CalendarContract.Events.ALL_DAY,             // 6: int (0 or 1)
+            CalendarContract.Events.CALENDAR_ID          // 7: long
+    };
+    // Cùng thứ tự cột với SUMMARY_EVENT_PROJECTION để dùng chung cursorToSummary
+    private static final String[] SUMMARY_INSTANCE_PROJECTION = new String[]{
+            CalendarContract.Instances.EVENT_ID,         // 0: long
+            CalendarContract.Instances.TITLE,            // 1: String
+            CalendarContract.Instances.EVENT_LOCATION,   // 2: String
+            CalendarContract.Instances.BEGIN,            // 3: long
+            CalendarContract.Instances.END,              // 4: long
+            CalendarContract.Instances.DURATION,         // 5: String
+            CalendarContract.Instances.ALL_DAY,          // 6: int (0 or 1)
+            CalendarContract.Instances.CALENDAR_ID       // 7: long
+    };
+    private static final int SUMMARY_ID_INDEX = 0;
+    private static final int SUMMARY_TITLE_INDEX = 1;
+    private static final int SUMMARY_LOCATION_INDEX = 2;
+    private static final int SUMMARY_START_INDEX = 3;
+    private static final int SUMMARY_END_INDEX = 4;
+    private static final int SUMMARY_DURATION_INDEX = 5;
+    private static final int SUMMARY_ALL_DAY_INDEX = 6;
+    private static final int SUMMARY_CALENDAR_ID_INDEX = 7;
+
+    // --- Projection for Reminders (dùng khi prefetch reminders theo lô) ---
+    private static final String[] REMINDER_PROJECTION = new String[]{
+            CalendarContract.Reminders.EVENT_ID,            // 0: long
+            CalendarContract.Reminders.MINUTES              // 1: int
+    };
+    private static final int PROJECTION_REMINDER_EVENT_ID_INDEX = 0;
+    private static final int PROJECTION_REMINDER_MINUTES_INDEX = 1;
+    // Giới hạn cho mỗi lần applyBatch: binder transaction tối đa ~1MB dùng chung cho cả process,
+    // và provider từ chối quá 500 thao tác giữa hai điểm yield
+    private static final int MAX_BATCH_OPERATIONS = 300;
+    private static final int MAX_OPERATIONS_PER_WRITE = 3; // Sự kiện + xóa reminder + thêm reminder
+    private static final long MAX_BATCH_BYTES = 256 * 1024;
+
+    // --- Projections cho export (cùng vị trí cột với EVENT_PROJECTION; Events thêm các cột của ngoại lệ ở cuối) ---
+    private static final String[] EXPORT_EVENT_PROJECTION = new String[]{
+            CalendarContract.Events._ID,
+            CalendarContract.Events.CALENDAR_ID,
+            CalendarContract.Events.TITLE,
+            CalendarContract.Events.EVENT_LOCATION,
+            CalendarContract.Events.DESCRIPTION,
+            CalendarContract.Events.DTSTART,
+            CalendarContract.Events.DTEND,
+            CalendarContract.Events.DURATION,
+            CalendarContract.Events.EVENT_TIMEZONE,
+            CalendarContract.Events.ALL_DAY,
+            CalendarContract.Events.RRULE,               // 10: String
+            CalendarContract.Events.EXDATE,              // 11: String
+            CalendarContract.Events.ORIGINAL_ID,         // 12: long, khác null với ngoại lệ của sự kiện lặp lại
+            CalendarContract.Events.ORIGINAL_INSTANCE_TIME, // 13: long
+            CalendarContract.Events.ORIGINAL_ALL_DAY,    // 14: int
+            CalendarContract.Events.STATUS               // 15: int
+    };
+    private static final String[] EXPORT_INSTANCE_PROJECTION = new String[]{
+            CalendarContract.Instances.EVENT_ID,
+            CalendarContract.Instances.CALENDAR_ID,
+            CalendarContract.Instances.TITLE,
+            CalendarContract.Instances.EVENT_LOCATION,
+            CalendarContract.Instances.DESCRIPTION,
+            CalendarContract.Instances.BEGIN,
+            CalendarContract.Instances.END,
+            CalendarContract.Instances.DURATION,
+            CalendarContract.Instances.EVENT_TIMEZONE,
+            CalendarContract.Instances.ALL_DAY,
+            CalendarContract.Instances.RRULE
+    };
+    private static final int PROJECTION_EXPORT_RRULE_INDEX = 10;
+    private static final int PROJECTION_EXPORT_EXDATE_INDEX = 11;
+    private static final int PROJECTION_EXPORT_ORIGINAL_ID_INDEX = 12;
+    private static final int PROJECTION_EXPORT_ORIGINAL_TIME_INDEX = 13;
+    private static final int PROJECTION_EXPORT_ORIGINAL_ALL_DAY_INDEX = 14;
+    private static final int PROJECTION_EXPORT_STATUS_INDEX = 15;
+    private static final int EXPORT_PROGRESS_INTERVAL = 1000;
+
+    // Số sự kiện đọc từ file .ics trước khi ghi một lô (giới hạn bộ nhớ khi nhập file lớn)
+    private static final int IMPORT_CHUNK_SIZE = 500;
+
+    // Số ID tối đa trong một mệnh đề IN (giới hạn biến của SQLite là 999)
+    private static final int REMINDER_PREFETCH_CHUNK_SIZE = 500;
+
+    // --- Projection cho delta refresh: _ID + các cột nhỏ để tính fingerprint (xem EventChangeTracker) ---
+    // Không lấy DESCRIPTION (có thể rất dài) và không quét Reminders; sửa đổi từ ứng dụng khác
+    // luôn đặt DIRTY = 1 và HAS_ALARM đổi khi thêm/xóa reminder, nên vẫn được nhận ra.
+    private static final String[] FINGERPRINT_PROJECTION = new String[]{
+            CalendarContract.Events._ID,                // 0: long
+            CalendarContract.Events.ORIGINAL_ID,        // 1: long, khác null với ngoại lệ của sự kiện lặp lại
+            CalendarContract.Events.DIRTY,
+            CalendarContract.Events._SYNC_ID,
+            CalendarContract.Events.CALENDAR_ID,
+            CalendarContract.Events.TITLE,
+            CalendarContract.Events.EVENT_LOCATION,
+            CalendarContract.Events.DTSTART,
+            CalendarContract.Events.DTEND,
+            CalendarContract.Events.DURATION,
+            CalendarContract.Events.EVENT_TIMEZONE,
+            CalendarContract.Events.ALL_DAY,
+            CalendarContract.Events.RRULE,
+            CalendarContract.Events.HAS_ALARM
+    };
+    private static final int FINGERPRINT_ID_INDEX = 0;
+    private static final int FINGERPRINT_ORIGINAL_ID_INDEX = 1;
+    // Số ID tối đa trong một mệnh đề IN khi load lại các dòng đã đổi
+    private static final int DELTA_FETCH_CHUNK_SIZE = 500;
+    // Nhiều thay đổi hơn thế (ví dụ sync lần đầu): load lại toàn bộ rẻ hơn load từng lô
+    private static final int MAX_DELTA_CHANGES = 2000;
+
+
+    // Lấy id/start/end của EventSummary cho EventIntervalIndex
+    private static final EventIntervalIndex.IntervalAdapter<EventSummary> EVENT_INTERVALS = new EventIntervalIndex.IntervalAdapter<EventSummary>() {
+        @Override public long idOf(EventSummary event) { return event.getId(); }
+        @Override public long startOf(EventSummary event) { return event.getStartTime(); }
+        @Override public long endOf(EventSummary event) { return event.getEndTime(); }
     };
-    // Indices for CALENDAR_PROJECTION
-    private static final int PROJECTION_CAL_ID_INDEX = 0;
-    private static final int PROJECTION_CAL_DISPLAY_NAME_INDEX = 1;
-    private static final int PROJECTION_CAL_ACCOUNT_NAME_INDEX = 2;
-    private static final int PROJECTION_CAL_OWNER_ACCOUNT_INDEX = 3;
-    private static final int PROJECTION_CAL_IS_PRIMARY_INDEX = 4; // Cẩn thận khi dùng IS_PRIMARY
 
+    // Chỉ mục khoảng thời gian của các sự kiện đã load. Các cache dưới đây là field của repository, dùng chung
+    // toàn app vì chỉ có một EventRepository (PersonalScheduleApp). Phục vụ truy vấn tháng/ngày/tuần và kiểm tra trùng lịch.
+    private final EventIntervalIndex<EventSummary> eventIndex = new EventIntervalIndex<>(EVENT_INTERVALS);
+    // Cache LRU theo tháng ("MM-yyyy"). Vuốt qua lại giữa các tháng được
+    // phục vụ từ bộ nhớ; tháng liền trước/liền sau được load trước ở background.
+    private static final int MONTH_CACHE_SIZE = 12;
+    private final MonthBucketCache<EventSummary> monthCache = new MonthBucketCache<>(MONTH_CACHE_SIZE, EVENT_INTERVALS);
+    // Bỏ các dòng đã xóa nhưng chưa sync (provider chỉ đánh dấu DELETED = 1)
+    private static final String NOT_DELETED = CalendarContract.Events.DELETED + " = 0";
+    // Chỉ mục tìm kiếm toàn văn (tiêu đề/địa điểm/mô tả), dựng từ bảng Events khi cần tìm kiếm
+    private static final int SEARCH_RESULT_LIMIT = 200;
+    private final EventSearchIndex<Event> searchIndex = new EventSearchIndex<>(new EventSearchIndex.SearchAdapter<Event>() {
+        @Override public long idOf(Event event) { return event.getId(); }
+        @Override public long startOf(Event event) { return event.getStartTime(); }
+        @Override public String titleOf(Event event) { return event.getTitle(); }
+        @Override public String locationOf(Event event) { return event.getLocation(); }
+        @Override public String descriptionOf(Event event) { return event.getDescription(); }
+    });
+    private long searchIndexVersion = -1;
+    // Chỉ một thread quét bảng Events để dựng searchIndex; các lần tìm kiếm khác chờ ở đây thay vì quét lại
+    private final Object searchIndexBuildLock = new Object();
+    // Số lần searchIndex được cập nhật sau khi ghi, để bỏ kết quả quét bắt đầu trước lần ghi đó
+    private long searchIndexWriteCount = 0;
+    // Các Event đầy đủ vừa mở ở màn hình chi tiết/sửa, để mở lại không phải truy vấn provider
+    private static final int DETAIL_CACHE_SIZE = 32;
+    private final LruCache<Long, Event> detailCache = new LruCache<>(DETAIL_CACHE_SIZE);
+    private long detailCacheVersion = -1;
+    // Các lần xuất hiện đã tính của sự kiện lặp lại mà repository vừa ghi (xem onRecurringEventWritten)
+    private static final int RECURRENCE_CACHE_SIZE = 64;
+    private final RecurrenceExpander recurrences = new RecurrenceExpander(RECURRENCE_CACHE_SIZE);
+    // Kiểm tra trùng giờ cho sự kiện lặp lại: chỉ xét các lần xuất hiện trong 4 tuần đầu
+    private static final long CONFLICT_HORIZON_MS = 28L * 24 * 3600_000;
+    private static final int MAX_CONFLICT_OCCURRENCES = 64;
+    private static final int MAX_FREE_SLOTS = 20;
+    // Phiên bản provider của snapshot đã ghi trong process này (-1: chưa ghi)
+    private volatile long snapshotVersion = -1;
+    // Phiên bản provider tương ứng với dữ liệu trong eventIndex/monthCache (xem ProviderQueryLiveData.getProviderVersion)
+    private long cachedProviderVersion = -1;
+    // Số lần repository đã sửa eventIndex/monthCache sau khi ghi (tăng đồng bộ, không chờ ContentObserver).
+    // Dữ liệu truy vấn trước một lần ghi không được đưa vào cache sau lần ghi đó. Đọc/ghi dưới lock eventIndex.
+    private long cacheWriteCount = 0;
+    // Fingerprint của từng dòng Events ở lần quét trước, để chỉ load lại các dòng đã đổi (delta refresh)
+    private final EventChangeTracker changeTracker = new EventChangeTracker();
+    private final AtomicBoolean baselineRequested = new AtomicBoolean();
 
     public EventRepository(Application application) {
         this.application = application;
         contentResolver = application.getContentResolver();
-        // Sử dụng cached thread pool có thể tốt hơn cho nhiều tác vụ ngắn
-        // executorService = Executors.newCachedThreadPool();
-        executorService = Executors.newSingleThreadExecutor(); // Hoặc giữ single thread nếu muốn tuần tự
+        calendars = CalendarRegistry.getInstance(contentResolver);
+        snapshots = EventSnapshotStore.getInstance(application);
+        snapshots.preload();
     }
 
     // --- Create Event---
     public void insert(Event event, OnEventOperationListener listener) {
-        executorService.execute(() -> {
+        runWrite("insert", () -> {
             // **QUAN TRỌNG: Quyền WRITE_CALENDAR phải được kiểm tra trước khi gọi**
             if (event.getCalendarId() <= 0) {
-                // Tự động tìm kiếm lịch Google mặc định
-                long googleCalendarId = findGoogleCalendar();
-                if (googleCalendarId <= 0) {
-                    Log.w(TAG, "Không tìm thấy lịch nào. Thử tạo calendar cục bộ...");
-                    googleCalendarId = createLocalCalendar();
-                    if (googleCalendarId <= 0) {
-                        Log.e(TAG, "Không thể tạo calendar cục bộ");
-                        handleError(listener, "Không thể tìm thấy hoặc tạo lịch. Vui lòng kiểm tra quyền truy cập và đăng nhập Google.", null);
-                        return;
-                    }
-                }
-                Log.d(TAG, "Tự động chọn Calendar: " + googleCalendarId);
-                event.setCalendarId(googleCalendarId);
-            }
-            
-            // Kiểm tra lịch tồn tại trước khi insert
-            boolean calendarExists = checkCalendarExists(event.getCalendarId());
-            if (!calendarExists) {
-                Log.e(TAG, "Calendar ID " + event.getCalendarId() + " không tồn tại trong thiết bị!");
-                if (listener != null) {
-                    handleError(listener, "Lịch không tồn tại hoặc không có quyền truy cập.", null);
+                // Tự động chọn lịch mặc định (từ CalendarRegistry, không cần truy vấn provider)
+                long defaultCalendarId = resolveDefaultCalendarId();
+                if (defaultCalendarId <= 0) {
+                    Log.e(TAG, "Không thể tìm thấy hoặc tạo calendar");
+                    handleError(listener, "Không thể tìm thấy hoặc tạo lịch. Vui lòng kiểm tra quyền truy cập và đăng nhập Google.", null);
                     return;
                 }
-            } else {
-                Log.d(TAG, "✓ Xác nhận lịch ID " + event.getCalendarId() + " tồn tại, tiếp tục insert");
+                Log.d(TAG, "Tự động chọn Calendar: " + defaultCalendarId);
+                event.setCalendarId(defaultCalendarId);
+            } else if (!checkCalendarExists(event.getCalendarId())) {
+                // Kiểm tra lịch tồn tại trước khi insert
+                Log.e(TAG, "Calendar ID " + event.getCalendarId() + " không tồn tại trong thiết bị!");
+                handleError(listener, "Lịch không tồn tại hoặc không có quyền truy cập.", null);
+                return;
             }
-            
+
             if (TextUtils.isEmpty(event.getTimeZone())) {
                 // Tự động đặt timezone mặc định nếu không có
                 event.setTimeZone(TimeZone.getDefault().getID());
             }
 
-            ContentValues values = new ContentValues();
-            values.put(CalendarContract.Events.DTSTART, event.getStartTime());
-            if (event.getEndTime() > event.getStartTime()) {
-                values.put(CalendarContract.Events.DTEND, event.getEndTime());
-                values.putNull(CalendarContract.Events.DURATION);
-            } else {
-                // Nếu là sự kiện cả ngày hoặc không có end time rõ ràng
-                if(event.isAllDay()){
-                    values.putNull(CalendarContract.Events.DTEND); // Đặt DTEND là null cho sự kiện cả ngày
-                    values.put(CalendarContract.Events.DURATION, "P1D"); // Duration 1 ngày
-                } else {
-                    // Sự kiện tức thời (không có duration)
-                    values.put(CalendarContract.Events.DTEND, event.getStartTime()); // Đặt end bằng start
-                    values.putNull(CalendarContract.Events.DURATION);
-                }
-            }
-            values.put(CalendarContract.Events.EVENT_TIMEZONE, event.getTimeZone());
-            values.put(CalendarContract.Events.CALENDAR_ID, event.getCalendarId());
-            values.put(CalendarContract.Events.TITLE, event.getTitle());
-            values.put(CalendarContract.Events.DESCRIPTION, event.getDescription());
-            values.put(CalendarContract.Events.EVENT_LOCATION, event.getLocation());
-            values.put(CalendarContract.Events.ALL_DAY, event.isAllDay() ? 1 : 0);
-
             SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
             Log.d(TAG, "Inserting event: Title='" + event.getTitle() + 
                       "', Start=" + sdf.format(new Date(event.getStartTime())) + 
@@ -157,15 +308,20 @@ public class EventRepository {
                       ", Reminder=" + event.getReminderMinutes() + " minutes");
 
             try {
-                Uri uri = contentResolver.insert(CalendarContract.Events.CONTENT_URI, values);
+                // Sự kiện và reminder được ghi trong cùng một transaction (reminder tham chiếu ngược tới ID mới)
+                ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+                int eventOperation = appendWriteOperations(EventWrite.insert(event), operations);
+                ContentProviderResult[] results = applyProviderBatch(operations);
+                Uri uri = results[eventOperation].uri;
                 if (uri != null) {
                     long eventID = ContentUris.parseId(uri);
-                    Log.d(TAG, "✓ Event inserted successfully with ID: " + eventID);
-                    
-                    // Thêm reminder nếu cần
-                    if (event.getReminderMinutes() > 0) {
-                        addReminder(eventID, event.getReminderMinutes());
-                    }
+                    Log.d(TAG, "✓ Event inserted successfully with ID: " + eventID
+                            + (event.getReminderMinutes() > 0 ? " (reminder " + event.getReminderMinutes() + " minutes before)" : ""));
+
+                    Event written = copyOf(event);
+                    written.setId(eventID);
+                    onEventWritten(written, false);
+                    onRemindersChanged(Collections.singletonList(written), new long[0]);
                     
                     handleSuccess(listener, eventID);
                 } else {
@@ -182,25 +338,6 @@ public class EventRepository {
         });
     }
 
-    // Thêm phương thức để tạo reminder cho event
-    private void addReminder(long eventId, int minutes) {
-        ContentValues values = new ContentValues();
-        values.put(CalendarContract.Reminders.EVENT_ID, eventId);
-        values.put(CalendarContract.Reminders.METHOD, CalendarContract.Reminders.METHOD_ALERT);
-        values.put(CalendarContract.Reminders.MINUTES, minutes);
-        
-        try {
-            Uri uri = contentResolver.insert(CalendarContract.Reminders.CONTENT_URI, values);
-            if (uri != null) {
-                Log.d(TAG, "✓ Reminder added successfully for event ID: " + eventId + " (" + minutes + " minutes before)");
-            } else {
-                Log.e(TAG, "✗ Failed to add reminder for event ID: " + eventId);
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "✗ Error adding reminder: " + e.getMessage(), e);
-        }
-    }
-
     // Tạo một calendar cục bộ mới nếu không tìm thấy calendar nào
     private long createLocalCalendar() {
         ContentValues values = new ContentValues();
@@ -221,6 +358,7 @@ public class EventRepository {
         Uri calendarUri = builder.build();
         
         try {
+            RepositoryMetrics.countIpc();
             Uri uri = contentResolver.insert(calendarUri, values);
             if (uri != null) {
                 long calendarId = ContentUris.parseId(uri);
@@ -235,124 +373,45 @@ public class EventRepository {
         return -1;
     }
 
-    // Phương thức để tìm lịch Google mặc định
-    private long findGoogleCalendar() {
-        long defaultCalendarId = -1;
-        Cursor cursor = null;
+    // Lịch mặc định để ghi sự kiện mới; tạo calendar cục bộ nếu thiết bị chưa có lịch nào
+    private long resolveDefaultCalendarId() {
         try {
-            // Bước 1: Tìm bất kỳ lịch Google nào
-            String selection = CalendarContract.Calendars.ACCOUNT_TYPE + " = ? AND " + 
-                    CalendarContract.Calendars.SYNC_EVENTS + " = 1";
-            String[] selectionArgs = new String[]{"com.google"}; // Google account type
-            
-            cursor = contentResolver.query(
-                    CalendarContract.Calendars.CONTENT_URI,
-                    CALENDAR_PROJECTION,
-                    selection,
-                    selectionArgs,
-                    CalendarContract.Calendars.IS_PRIMARY + " DESC" // Ưu tiên lịch chính
-            );
-            
-            if (cursor != null && cursor.moveToFirst()) {
-                defaultCalendarId = cursor.getLong(PROJECTION_CAL_ID_INDEX);
-                String displayName = cursor.getString(PROJECTION_CAL_DISPLAY_NAME_INDEX);
-                Log.d(TAG, "Found Google Calendar: ID=" + defaultCalendarId + ", Name=" + displayName);
-                closeCursor(cursor);
-                return defaultCalendarId;
-            }
-            
-            closeCursor(cursor);
-            
-            // Bước 2: Nếu không tìm thấy lịch Google, tìm bất kỳ lịch nào khác
-            cursor = contentResolver.query(
-                    CalendarContract.Calendars.CONTENT_URI,
-                    CALENDAR_PROJECTION,
-                    CalendarContract.Calendars.SYNC_EVENTS + " = 1",
-                    null,
-                    CalendarContract.Calendars.IS_PRIMARY + " DESC" // Ưu tiên lịch chính
-            );
-            
-            if (cursor != null && cursor.moveToFirst()) {
-                defaultCalendarId = cursor.getLong(PROJECTION_CAL_ID_INDEX);
-                String displayName = cursor.getString(PROJECTION_CAL_DISPLAY_NAME_INDEX);
-                Log.d(TAG, "Found non-Google Calendar as fallback: ID=" + defaultCalendarId + ", Name=" + displayName);
-                closeCursor(cursor);
-                return defaultCalendarId;
-            }
-            
-            // Bước 3: Nếu vẫn không tìm thấy, sử dụng ID mặc định = 1 (lịch cục bộ)
-            if (defaultCalendarId <= 0) {
-                defaultCalendarId = 1; // Sử dụng calendar ID = 1 làm phương án cuối cùng
-                Log.d(TAG, "No calendars found, using default ID = 1");
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error finding default calendar", e);
-        } finally {
-            closeCursor(cursor);
+            long calendarId = calendars.getDefaultCalendarId();
+            if (calendarId > 0) return calendarId;
+            Log.w(TAG, "Không tìm thấy lịch nào. Thử tạo calendar cục bộ...");
+            calendarId = createLocalCalendar();
+            if (calendarId > 0) calendars.invalidate();
+            return calendarId;
+        } catch (SecurityException e) {
+            Log.e(TAG, "Error finding default calendar: Permission denied", e);
+            return -1;
         }
-        return defaultCalendarId;
     }
 
-    // Phương thức mới để kiểm tra calendar có tồn tại không
+    // Kiểm tra calendar có tồn tại không (từ CalendarRegistry)
     private boolean checkCalendarExists(long calendarId) {
-        if (calendarId <= 0) return false;
-        
-        Cursor cursor = null;
         try {
-            Uri calendarUri = ContentUris.withAppendedId(CalendarContract.Calendars.CONTENT_URI, calendarId);
-            cursor = contentResolver.query(calendarUri, 
-                    new String[]{ CalendarContract.Calendars._ID }, 
-                    null, null, null);
-            return cursor != null && cursor.moveToFirst();
-        } catch (Exception e) {
-            Log.e(TAG, "Error checking calendar existence", e);
+            return calendars.exists(calendarId);
+        } catch (SecurityException e) {
+            Log.e(TAG, "Error checking calendar existence: Permission denied", e);
             return false;
-        } finally {
-            closeCursor(cursor);
         }
     }
 
     // --- Read Events ---
 
-    // Lưu ý: LiveData này không tự cập nhật
+    // LiveData tự truy vấn lại khi Calendar Provider thay đổi (xem ProviderQueryLiveData)
     public LiveData<List<Event>> getAllEvents() {
-        MutableLiveData<List<Event>> liveData = new MutableLiveData<>();
-        executorService.execute(() -> {
+        return liveQuery("getAllEvents", Priority.NORMAL, () -> {
             // **QUAN TRỌNG: Quyền READ_CALENDAR phải được kiểm tra trước khi gọi**
             Log.d(TAG, "Querying ALL events from ALL calendars");
             
-            // In ra tất cả các calendar IDs có sẵn để debug
-            Cursor calCursor = null;
-            try {
-                calCursor = contentResolver.query(
-                    CalendarContract.Calendars.CONTENT_URI,
-                    new String[] { CalendarContract.Calendars._ID, CalendarContract.Calendars.CALENDAR_DISPLAY_NAME },
-                    null, null, null);
-                
-                if (calCursor != null && calCursor.getCount() > 0) {
-                    Log.d(TAG, "Found " + calCursor.getCount() + " calendars:");
-                    while (calCursor.moveToNext()) {
-                        long calId = calCursor.getLong(0);
-                        String calName = calCursor.getString(1);
-                        Log.d(TAG, "Calendar ID: " + calId + ", Name: " + calName);
-                    }
-                } else {
-                    Log.w(TAG, "No calendars found in the device!");
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error listing calendars", e);
-            } finally {
-                closeCursor(calCursor);
-            }
-            
             // Truy vấn tất cả sự kiện không có điều kiện lọc
-            List<Event> events = queryEvents(null, null, CalendarContract.Events.DTSTART + " ASC");
-            liveData.postValue(events);
+            return queryEvents(null, null, CalendarContract.Events.DTSTART + " ASC");
         });
-        return liveData;
     }
 
-    // Lưu ý: LiveData này không tự cập nhật
+    // LiveData tự truy vấn lại khi Calendar Provider thay đổi
     // **Đã sửa signature để nhận long id**
     public LiveData<Event> getEventById(long id) { // <<<< ĐÃ SỬA
         MutableLiveData<Event> liveData = new MutableLiveData<>();
@@ -361,142 +420,184 @@ public class EventRepository {
             liveData.postValue(null); // Trả về null nếu ID không hợp lệ
             return liveData;
         }
-        executorService.execute(() -> {
+        ProviderQueryLiveData<Event> query = liveQuery("getEventById", Priority.INTERACTIVE, () -> {
             // **QUAN TRỌNG: Quyền READ_CALENDAR phải được kiểm tra trước khi gọi**
+            long version = ProviderQueryLiveData.getProviderVersion();
             Event event = null;
             // Sử dụng trực tiếp long id
             Uri eventUri = ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, id); // <<<< ĐÃ SỬA (bỏ ép kiểu)
             Cursor cursor = null;
             try {
-                cursor = contentResolver.query(eventUri, EVENT_PROJECTION, null, null, null);
+                cursor = queryProvider(eventUri, EVENT_PROJECTION, null, null, null);
                 if (cursor != null && cursor.moveToFirst()) {
-                    event = cursorToEvent(cursor);
+                    List<Event> events = readEvents(cursor);
+                    event = events.isEmpty() ? null : events.get(0);
                 } else {
                     Log.w(TAG,"Cursor null or empty for event ID: " + id);
                 }
             } catch (SecurityException e) {
                 Log.e(TAG, "getEventById failed: Permission denied for ID " + id, e);
+            } catch (OperationCanceledException e) {
+                throw e; // Để ProviderQueryLiveData bỏ qua kết quả
             } catch (Exception e) {
                 Log.e(TAG, "getEventById failed: Error querying event ID " + id, e);
             } finally {
                 closeCursor(cursor);
             }
-            liveData.postValue(event);
+            if (event != null) rememberEvent(event, version);
+            return event;
         });
-        return liveData;
+        // Sự kiện đã được load ở nơi khác (màn hình chi tiết trước đó, kết quả tìm kiếm) và provider
+        // chưa đổi: hiển thị ngay, không truy vấn lại
+        long version = ProviderQueryLiveData.getProviderVersion();
+        Event loaded = findLoadedEvent(id, version);
+        if (loaded != null && Looper.myLooper() == Looper.getMainLooper()) {
+            Log.d(TAG, "getEventById(" + id + ") served from memory");
+            query.seed(loaded, version);
+        }
+        return query;
     }
 
-    // Lưu ý: LiveData này không tự cập nhật
+    // LiveData tự truy vấn lại khi Calendar Provider thay đổi
     public LiveData<List<Event>> getUpcomingEvents() {
-        MutableLiveData<List<Event>> liveData = new MutableLiveData<>();
-        executorService.execute(() -> {
+        return liveQuery("getUpcomingEvents", Priority.NORMAL, () -> {
             // **QUAN TRỌNG: Quyền READ_CALENDAR phải được kiểm tra trước khi gọi**
             long nowMillis = System.currentTimeMillis();
             String selection = CalendarContract.Events.DTSTART + " >= ?";
             String[] selectionArgs = new String[]{String.valueOf(nowMillis)};
-            List<Event> events = queryEvents(selection, selectionArgs, CalendarContract.Events.DTSTART + " ASC");
-            liveData.postValue(events);
+            return queryEvents(selection, selectionArgs, CalendarContract.Events.DTSTART + " ASC");
         });
-        return liveData;
     }
 
-    // Lưu ý: LiveData này không tự cập nhật
-    public LiveData<List<Event>> getEventsByMonth(String monthYear) { // Ví dụ monthYear = "03-2024"
-        MutableLiveData<List<Event>> liveData = new MutableLiveData<>();
-        executorService.execute(() -> {
+    // LiveData tự truy vấn lại khi Calendar Provider thay đổi
+    public LiveData<List<EventSummary>> getEventsByMonth(String monthYear) { // Ví dụ monthYear = "03-2024"
+        ProviderQueryLiveData<List<EventSummary>> query = liveQuery("getEventsByMonth", Priority.INTERACTIVE, () -> {
             // **QUAN TRỌNG: Quyền READ_CALENDAR phải được kiểm tra trước khi gọi**
-            long startMillis = 0;
-            long endMillis = 0;
-            try {
-                String[] parts = monthYear.split("-");
-                int month = Integer.parseInt(parts[0]); // 1-12
-                int year = Integer.parseInt(parts[1]);
+            List<EventSummary> events = loadMonth(monthYear);
+            // Load trước tháng liền trước/liền sau để vuốt lịch không phải chờ provider (trừ khi truy vấn đang lỗi)
+            if (!isFailed(events)) prefetchNeighbourMonths(monthYear);
+            return events;
+        });
+        long[] range = monthRange(monthYear);
+        if (range != null && Looper.myLooper() == Looper.getMainLooper() && !monthCache.contains(monthYear)) {
+            seedFromSnapshot(query, snapshots.peekMonth(monthYear, range[0], range[1]), monthYear);
+        }
+        return query;
+    }
 
-                Calendar calendar = Calendar.getInstance();
-                calendar.set(Calendar.YEAR, year);
-                calendar.set(Calendar.MONTH, month - 1); // Calendar.MONTH là 0-based
-                calendar.set(Calendar.DAY_OF_MONTH, 1);
-                calendar.set(Calendar.HOUR_OF_DAY, 0); calendar.set(Calendar.MINUTE, 0); calendar.set(Calendar.SECOND, 0); calendar.set(Calendar.MILLISECOND, 0);
-                startMillis = calendar.getTimeInMillis();
+    // LiveData chứa các sự kiện giao với [beginMillis, endMillis), tự cập nhật khi provider thay đổi
+    public LiveData<List<EventSummary>> getEventsInRange(long beginMillis, long endMillis) {
+        ProviderQueryLiveData<List<EventSummary>> query = liveQuery("getEventsInRange", Priority.INTERACTIVE,
+                () -> queryWindow(beginMillis, endMillis));
+        if (Looper.myLooper() == Looper.getMainLooper() && !eventIndex.covers(beginMillis, endMillis)) {
+            seedFromSnapshot(query, snapshots.peekRange(beginMillis, endMillis), "range");
+        }
+        return query;
+    }
 
-                calendar.add(Calendar.MONTH, 1); // Đi tới ngày đầu tiên của tháng sau
-                endMillis = calendar.getTimeInMillis();
+    // Khi mở app (bộ nhớ còn trống): hiển thị ngay dữ liệu từ snapshot trên đĩa. Seed với phiên bản -1
+    // nên LiveData vẫn truy vấn provider khi active và thay snapshot bằng kết quả mới.
+    private static void seedFromSnapshot(ProviderQueryLiveData<List<EventSummary>> query, List<EventSummary> snapshot,
+                                         String what) {
+        if (snapshot == null) return;
+        Log.d(TAG, "Seeding " + what + " from snapshot (" + snapshot.size() + " events)");
+        query.seed(snapshot, -1);
+    }
 
-            } catch (Exception e) {
-                Log.e(TAG, "Error parsing monthYear string: " + monthYear, e);
-                liveData.postValue(new ArrayList<>()); // Trả list rỗng nếu lỗi parse
-                return;
-            }
-            
-            Log.d(TAG, "Fetching events for month " + monthYear + " (from " + new Date(startMillis) + " to " + new Date(endMillis) + ")");
+    // Các sự kiện giao với ngày chứa dayMillis (theo múi giờ thiết bị)
+    public LiveData<List<EventSummary>> getEventsForDay(long dayMillis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(dayMillis);
+        calendar.set(Calendar.HOUR_OF_DAY, 0); calendar.set(Calendar.MINUTE, 0); calendar.set(Calendar.SECOND, 0); calendar.set(Calendar.MILLISECOND, 0);
+        long startMillis = calendar.getTimeInMillis();
+        calendar.add(Calendar.DATE, 1);
+        return getEventsInRange(startMillis, calendar.getTimeInMillis());
+    }
 
-            // Thử truy vấn tất cả sự kiện trước để xem có sự kiện nào không
-            List<Event> allEvents = queryEvents(null, null, CalendarContract.Events.DTSTART + " ASC");
-            
-            if (!allEvents.isEmpty()) {
-                Log.d(TAG, "Found " + allEvents.size() + " events in total across all calendars");
-                // Lọc bằng Java thay vì SQL query
-                List<Event> filteredEvents = new ArrayList<>();
-                for (Event event : allEvents) {
-                    long eventStart = event.getStartTime();
-                    long eventEnd = event.getEndTime();
-                    
-                    if ((eventStart >= startMillis && eventStart < endMillis) || 
-                        (eventStart < startMillis && eventEnd >= startMillis)) {
-                        filteredEvents.add(event);
-                        Log.d(TAG, "Manually filtered event: " + event.getTitle() + 
-                                  " (ID:" + event.getId() + ", CalID:" + event.getCalendarId() + ")");
-                    }
-                }
-                
-                if (!filteredEvents.isEmpty()) {
-                    Log.d(TAG, "Returning " + filteredEvents.size() + " filtered events for month " + monthYear);
-                    liveData.postValue(filteredEvents);
-                    return;
-                } else {
-                    Log.w(TAG, "No events found after manual filtering for month " + monthYear);
-                }
-            }
+    // Các sự kiện giao với tuần chứa dayMillis (ngày đầu tuần theo Locale của thiết bị)
+    public LiveData<List<EventSummary>> getEventsForWeek(long dayMillis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(dayMillis);
+        calendar.set(Calendar.HOUR_OF_DAY, 0); calendar.set(Calendar.MINUTE, 0); calendar.set(Calendar.SECOND, 0); calendar.set(Calendar.MILLISECOND, 0);
+        calendar.set(Calendar.DAY_OF_WEEK, calendar.getFirstDayOfWeek());
+        long startMillis = calendar.getTimeInMillis();
+        calendar.add(Calendar.DATE, 7);
+        return getEventsInRange(startMillis, calendar.getTimeInMillis());
+    }
 
-            // Nếu không tìm thấy sự kiện nào bằng phương pháp trên, thử query SQL
-            String selection = "((" + CalendarContract.Events.DTSTART + " >= ? AND " + 
-                               CalendarContract.Events.DTSTART + " < ?) OR " + // Bắt đầu trong tháng 
-                               "(" + CalendarContract.Events.DTSTART + " < ? AND " + 
-                               CalendarContract.Events.DTEND + " >= ?))"; // Bắt đầu trước, kết thúc trong/sau tháng
-            
-            String[] selectionArgs = new String[]{
-                String.valueOf(startMillis), String.valueOf(endMillis), // Cho điều kiện 1
-                String.valueOf(startMillis), String.valueOf(startMillis) // Cho điều kiện 2
-            };
-            
-            List<Event> events = queryEvents(selection, selectionArgs, CalendarContract.Events.DTSTART + " ASC");
-            if (!events.isEmpty()) {
-                Log.d(TAG, "SQL query found " + events.size() + " events for month " + monthYear);
-            }
-            liveData.postValue(events);
-        });
-        return liveData;
+    /**
+     * Dựng trước chỉ mục tìm kiếm ở mức BACKGROUND (gọi khi người dùng mở ô tìm kiếm), để lần gõ phím
+     * đầu tiên không phải chờ quét toàn bộ bảng Events.
+     */
+    public void prepareSearch() {
+        runRead("prepareSearch", Priority.BACKGROUND, this::ensureSearchIndex);
     }
 
-    // Lưu ý: LiveData này không tự cập nhật
+    // LiveData tự truy vấn lại khi Calendar Provider thay đổi
     public LiveData<List<Event>> searchEvents(String query) {
-        MutableLiveData<List<Event>> liveData = new MutableLiveData<>();
-        executorService.execute(() -> {
+        return liveQuery("searchEvents", Priority.INTERACTIVE, () -> {
             // **QUAN TRỌNG: Quyền READ_CALENDAR phải được kiểm tra trước khi gọi**
-            String selection = CalendarContract.Events.TITLE + " LIKE ? OR " +
-                    CalendarContract.Events.DESCRIPTION + " LIKE ? OR " +
-                    CalendarContract.Events.EVENT_LOCATION + " LIKE ?";
-            String queryArg = "%" + query + "%";
-            String[] selectionArgs = new String[]{queryArg, queryArg, queryArg};
-            List<Event> events = queryEvents(selection, selectionArgs, CalendarContract.Events.DTSTART + " ASC");
-            liveData.postValue(events);
+            // Trả lời từ chỉ mục trong bộ nhớ (khớp tiền tố, không dấu, có xếp hạng)
+            // thay vì quét LIKE '%q%' trên bảng Events ở mỗi lần gõ phím
+            // Dựng chỉ mục không gắn với signal của lần tìm kiếm này: gõ phím tiếp không làm mất công dựng
+            RepositoryScheduler.runCancellable(null, () -> {
+                ensureSearchIndex();
+                return null;
+            });
+            List<Event> matches = searchIndex.search(query, SEARCH_RESULT_LIMIT);
+            // Event trong chỉ mục sửa được: trả bản sao để nơi nhận không sửa vào dữ liệu dùng chung
+            List<Event> results = new ArrayList<>(matches.size());
+            for (Event event : matches) results.add(copyOf(event));
+            Log.d(TAG, "Search '" + query + "' matched " + results.size() + " events");
+            return results;
+        });
+    }
+
+    // LiveData phát ra phiên bản provider mỗi khi Calendar Provider thay đổi (đã debounce).
+    // Dùng cho dữ liệu không đi qua liveQuery (ví dụ EventPager) để biết khi nào cần load lại.
+    public LiveData<Long> getProviderChanges() {
+        return liveQuery("getProviderChanges", Priority.NORMAL, ProviderQueryLiveData::getProviderVersion);
+    }
+
+    /**
+     * Delta refresh (ví dụ khi quay lại màn hình): đưa dữ liệu trong bộ nhớ lên phiên bản provider hiện tại
+     * và cho biết những sự kiện nào đã được thêm/sửa/xóa. Provider chưa đổi: không truy vấn gì; đã đổi:
+     * một truy vấn hẹp (_ID + fingerprint) rồi chỉ load lại các dòng đã đổi.
+     * @param listener nhận ChangeSet trên background thread (isFull() nếu không so được với lần trước)
+     */
+    public void refreshChanges(@NonNull OnProviderChangesListener listener) {
+        runRead("refreshChanges", Priority.INTERACTIVE, () -> {
+            EventChangeTracker.ChangeSet changes = applyProviderChanges();
+            if (changes == null) {
+                // Không quét được (ví dụ mất quyền): không biết gì đã đổi
+                changes = EventChangeTracker.ChangeSet.full(-1, ProviderQueryLiveData.getProviderVersion());
+            }
+            listener.onProviderChanges(changes);
+        });
+    }
+
+    // --- Keyset pagination ---
+
+    /**
+     * Load một trang sự kiện theo thứ tự (DTSTART, _ID), ngay sau (hoặc ngay trước) khóa anchor.
+     * Dùng keyset thay vì OFFSET nên chi phí mỗi trang không tăng theo vị trí trong danh sách,
+     * và trang không bị lệch khi có sự kiện được thêm/xóa ở phía trước.
+     * @param forward true: các sự kiện sau anchor; false: các sự kiện trước anchor
+     * @param listener nhận trang (luôn sắp xếp tăng dần) trên background thread
+     */
+    public void loadEventPage(@NonNull PageKey anchor, boolean forward, int pageSize,
+                              @NonNull OnEventPageLoadedListener listener) {
+        runRead("loadEventPage", Priority.NORMAL, () -> {
+            // Đọc phiên bản trước khi truy vấn: thay đổi xảy ra trong lúc truy vấn sẽ làm trang bị coi là cũ
+            long version = ProviderQueryLiveData.getProviderVersion();
+            List<EventSummary> page = queryEventPage(anchor, forward, pageSize);
+            listener.onPageLoaded(page, version);
         });
-        return liveData;
     }
 
     // --- Update Event ---
     public void update(Event event, OnEventOperationListener listener) {
-        executorService.execute(() -> {
+        runWrite("update", () -> {
             // **QUAN TRỌNG: Quyền WRITE_CALENDAR phải được kiểm tra trước khi gọi**
             if (event.getId() <= 0) {
                 handleError(listener, "Update failed: Invalid event ID (must be > 0)", null);
@@ -509,39 +610,17 @@ public class EventRepository {
                 // event.setTimeZone(TimeZone.getDefault().getID()); // Không nên tự ý set ở đây
             }
 
-            ContentValues values = new ContentValues();
-            // Chỉ put những trường bạn muốn cho phép cập nhật
-            values.put(CalendarContract.Events.DTSTART, event.getStartTime());
-            if (event.getEndTime() > event.getStartTime()) {
-                values.put(CalendarContract.Events.DTEND, event.getEndTime());
-                values.putNull(CalendarContract.Events.DURATION);
-            } else {
-                if(event.isAllDay()){
-                    values.putNull(CalendarContract.Events.DTEND);
-                    values.put(CalendarContract.Events.DURATION, "P1D");
-                } else {
-                    values.put(CalendarContract.Events.DTEND, event.getStartTime());
-                    values.putNull(CalendarContract.Events.DURATION);
-                }
-            }
-            if(!TextUtils.isEmpty(event.getTimeZone())) { // Chỉ cập nhật nếu timezone hợp lệ
-                values.put(CalendarContract.Events.EVENT_TIMEZONE, event.getTimeZone());
-            }
-            values.put(CalendarContract.Events.TITLE, event.getTitle());
-            values.put(CalendarContract.Events.DESCRIPTION, event.getDescription());
-            values.put(CalendarContract.Events.EVENT_LOCATION, event.getLocation());
-            values.put(CalendarContract.Events.ALL_DAY, event.isAllDay() ? 1 : 0);
-            // values.put(CalendarContract.Events.CALENDAR_ID, event.getCalendarId()); // Cập nhật calendar nếu cần
-
-            Uri updateUri = ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, event.getId());
-
             try {
-                int rowsAffected = contentResolver.update(updateUri, values, null, null);
+                // Cập nhật sự kiện và thay reminder trong cùng một transaction
+                ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+                int eventOperation = appendWriteOperations(EventWrite.update(event), operations);
+                ContentProviderResult[] results = applyProviderBatch(operations);
+                int rowsAffected = results[eventOperation].count != null ? results[eventOperation].count : 0;
                 Log.d(TAG, "Updated event ID: " + event.getId() + ", Rows affected: " + rowsAffected);
                 
                 if (rowsAffected > 0) {
-                    // Cập nhật reminder nếu cần
-                    updateReminder(event.getId(), event.getReminderMinutes());
+                    onEventWritten(event, false);
+                    onRemindersChanged(Collections.singletonList(event), new long[0]);
                     
                     handleSuccess(listener, event.getId());
                 } else {
@@ -556,40 +635,9 @@ public class EventRepository {
         });
     }
     
-    // Phương thức cập nhật reminder cho event
-    private void updateReminder(long eventId, int minutes) {
-        try {
-            // Trước tiên xóa tất cả reminders hiện có
-            contentResolver.delete(
-                CalendarContract.Reminders.CONTENT_URI,
-                CalendarContract.Reminders.EVENT_ID + " = ?",
-                new String[] {String.valueOf(eventId)}
-            );
-            
-            // Sau đó thêm reminder mới nếu cần
-            if (minutes > 0) {
-                ContentValues values = new ContentValues();
-                values.put(CalendarContract.Reminders.EVENT_ID, eventId);
-                values.put(CalendarContract.Reminders.METHOD, CalendarContract.Reminders.METHOD_ALERT);
-                values.put(CalendarContract.Reminders.MINUTES, minutes);
-                
-                Uri uri = contentResolver.insert(CalendarContract.Reminders.CONTENT_URI, values);
-                if (uri != null) {
-                    Log.d(TAG, "✓ Reminder updated successfully for event ID: " + eventId + " (" + minutes + " minutes before)");
-                } else {
-                    Log.e(TAG, "✗ Failed to update reminder for event ID: " + eventId);
-                }
-            } else {
-                Log.d(TAG, "No reminder needed for event ID: " + eventId);
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "✗ Error updating reminder: " + e.getMessage(), e);
-        }
-    }
-
     // --- Delete Event ---
     public void delete(Event event, OnEventOperationListener listener) {
-        executorService.execute(() -> {
+        runWrite("delete", () -> {
             // **QUAN TRỌNG: Quyền WRITE_CALENDAR phải được kiểm tra trước khi gọi**
             if (event == null || event.getId() <= 0) {
                 handleError(listener, "Delete failed: Invalid event or event ID", null);
@@ -598,9 +646,12 @@ public class EventRepository {
 
             Uri deleteUri = ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, event.getId());
             try {
+                RepositoryMetrics.countIpc();
                 int rowsAffected = contentResolver.delete(deleteUri, null, null);
                 Log.d(TAG, "Deleted event ID: " + event.getId() + ", Rows affected: " + rowsAffected);
                 if (rowsAffected > 0) {
+                    onEventWritten(event, true);
+                    onRemindersChanged(Collections.<Event>emptyList(), new long[]{event.getId()});
                     handleSuccess(listener, event.getId());
                 } else {
                     // Có thể sự kiện đã bị xóa trước đó
@@ -615,203 +666,1457 @@ public class EventRepository {
     }
 
 
-    // --- Read Calendars ---
-    public void getAvailableCalendars(OnCalendarsLoadedListener listener) {
-        executorService.execute(() -> {
-            // **QUAN TRỌNG: Quyền READ_CALENDAR phải được kiểm tra trước khi gọi**
-            List<CalendarInfo> calendars = new ArrayList<>();
-            Cursor cursor = null;
-            Uri calendarsUri = CalendarContract.Calendars.CONTENT_URI;
+    // --- Batch Write ---
 
-            try {
-                cursor = contentResolver.query(calendarsUri, CALENDAR_PROJECTION,
-                        // Chỉ lấy những calendar có thể đồng bộ và hiển thị
-                        CalendarContract.Calendars.SYNC_EVENTS + "=1 AND " + CalendarContract.Calendars.VISIBLE + "=1",
-                        null,
-                        CalendarContract.Calendars.IS_PRIMARY + " DESC, " + CalendarContract.Calendars.CALENDAR_DISPLAY_NAME + " ASC"); // Ưu tiên primary
+    /**
+     * Thêm nhiều sự kiện bằng ContentResolver.applyBatch (xem applyEventBatch).
+     */
+    public void insertAll(List<Event> events, OnBatchOperationListener listener) {
+        List<EventWrite> writes = new ArrayList<>(events.size());
+        for (Event event : events) {
+            writes.add(EventWrite.insert(event));
+        }
+        applyEventBatch(writes, listener);
+    }
 
-                if (cursor != null) {
-                    while (cursor.moveToNext()) {
-                        long id = cursor.getLong(PROJECTION_CAL_ID_INDEX);
-                        String displayName = cursor.getString(PROJECTION_CAL_DISPLAY_NAME_INDEX);
-                        String accountName = cursor.getString(PROJECTION_CAL_ACCOUNT_NAME_INDEX);
-                        // IS_PRIMARY không đáng tin cậy hoàn toàn, nhưng có thể dùng làm gợi ý
-                        boolean isPrimary = cursor.getInt(PROJECTION_CAL_IS_PRIMARY_INDEX) > 0;
-                        // String ownerAccount = cursor.getString(PROJECTION_CAL_OWNER_ACCOUNT_INDEX);
-
-                        // TODO: Kiểm tra thêm quyền ghi (CALENDAR_ACCESS_LEVEL) nếu cần thiết
-                        // Chỉ thêm lịch mà người dùng có quyền ghi vào nếu muốn lọc chặt hơn
-
-                        calendars.add(new CalendarInfo(id, displayName, accountName, isPrimary));
-                        Log.d(TAG, "Found calendar: ID=" + id + ", Name=" + displayName + ", Account=" + accountName + ", isPrimary=" + isPrimary);
-                    }
-                    if (listener != null) listener.onSuccess(calendars);
-                } else {
-                    if (listener != null) listener.onError("Failed to query calendars (cursor is null)");
-                }
-            } catch (SecurityException e) {
-                Log.e(TAG, "getAvailableCalendars failed: Permission denied", e);
-                if (listener != null) listener.onError("Permission denied to read calendars");
-            } catch (Exception e) {
-                Log.e(TAG, "getAvailableCalendars failed: Error querying calendars", e);
-                if (listener != null) listener.onError("Error getting calendars: " + e.getMessage());
-            } finally {
-                closeCursor(cursor);
-            }
+    /**
+     * Ghi nhiều thao tác thêm/sửa/xóa bằng ContentResolver.applyBatch, chia thành các lô nhỏ
+     * để không vượt giới hạn binder transaction. Mỗi lô là một transaction (không dùng điểm yield)
+     * nên có thể thử lại an toàn khi lô bị từ chối; reminder của sự kiện mới dùng back-reference
+     * tới ID vừa được tạo.
+     * Kết quả trả về theo từng phần tử, cùng thứ tự với danh sách đầu vào.
+     */
+    public void applyEventBatch(List<EventWrite> writes, OnBatchOperationListener listener) {
+        runWrite("applyEventBatch", () -> {
+            // **QUAN TRỌNG: Quyền WRITE_CALENDAR phải được kiểm tra trước khi gọi**
+            List<EventWriteResult> results = applyWritesNow(writes);
+            if (listener != null) listener.onComplete(results);
         });
     }
 
+    // Chạy trên background thread. Ghi các thao tác theo lô và trả về kết quả từng phần tử.
+    private List<EventWriteResult> applyWritesNow(List<EventWrite> writes) {
+        EventWriteResult[] results = new EventWriteResult[writes.size()];
+        long defaultCalendarId = 0; // Chỉ tìm/tạo lịch mặc định một lần cho cả lô
 
-    // --- Helper method to query events ---
-    private List<Event> queryEvents(String selection, String[] selectionArgs, String sortOrder) {
-        List<Event> events = new ArrayList<>();
-        Cursor cursor = null;
-        // **QUAN TRỌNG: Quyền READ_CALENDAR phải được kiểm tra trước khi gọi hàm này**
-        try {
-            cursor = contentResolver.query(
-                    CalendarContract.Events.CONTENT_URI,
-                    EVENT_PROJECTION,
-                    selection,
-                    selectionArgs,
-                    sortOrder
-            );
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        List<Integer> chunkItems = new ArrayList<>();
+        List<Integer> chunkEventOperations = new ArrayList<>();
+        long chunkBytes = 0;
+        int transactions = 0;
 
-            if (cursor != null) {
-                int count = cursor.getCount();
-                Log.d(TAG,"Query found " + count + " events.");
-                
-                if (count > 0) {
-                    SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
-                    while (cursor.moveToNext()) {
-                        Event event = cursorToEvent(cursor);
-                        if (event != null) {
-                            events.add(event);
-                            // Log thông tin chi tiết về sự kiện
-                            String startTime = sdf.format(new Date(event.getStartTime()));
-                            String endTime = sdf.format(new Date(event.getEndTime()));
-                            Log.d(TAG, "Event found: ID=" + event.getId() + 
-                                      ", Title=" + event.getTitle() + 
-                                      ", Start=" + startTime + 
-                                      ", End=" + endTime +
-                                      ", CalendarID=" + event.getCalendarId());
-                        }
-                    }
-                } else {
-                    Log.w(TAG, "No events found for query: " + (selection != null ? selection : "null"));
-                    if (selectionArgs != null && selectionArgs.length > 0) {
-                        StringBuilder argStr = new StringBuilder();
-                        for (String arg : selectionArgs) {
-                            argStr.append(arg).append(", ");
-                        }
-                        Log.d(TAG, "Selection args: " + argStr.toString());
+        for (int i = 0; i < writes.size(); i++) {
+            EventWrite write = writes.get(i);
+            Event event = write.getEvent();
+            if (event == null || (write.getType() != EventWrite.Type.INSERT && event.getId() <= 0)) {
+                results[i] = EventWriteResult.failure(write, "Invalid event or event ID");
+                continue;
+            }
+            if (write.getType() == EventWrite.Type.INSERT) {
+                if (event.getCalendarId() <= 0) {
+                    if (defaultCalendarId == 0) defaultCalendarId = resolveDefaultCalendarId();
+                    if (defaultCalendarId <= 0) {
+                        results[i] = EventWriteResult.failure(write, "Không thể tìm thấy hoặc tạo lịch");
+                        continue;
                     }
+                    event.setCalendarId(defaultCalendarId);
+                }
+                if (TextUtils.isEmpty(event.getTimeZone())) {
+                    event.setTimeZone(TimeZone.getDefault().getID());
                 }
-            } else {
-                Log.w(TAG, "Event query returned null cursor.");
             }
-        } catch (SecurityException e) {
-            Log.e(TAG, "queryEvents failed: Permission denied", e);
-            // Trả về list rỗng hoặc throw exception tùy logic xử lý lỗi
-        } catch (Exception e) {
-            Log.e(TAG, "queryEvents failed: Error querying events", e);
-        } finally {
-            closeCursor(cursor);
+
+            long writeBytes = estimateWriteBytes(event);
+            if (!chunkItems.isEmpty() && (operations.size() + MAX_OPERATIONS_PER_WRITE > MAX_BATCH_OPERATIONS
+                    || chunkBytes + writeBytes > MAX_BATCH_BYTES)) {
+                transactions += flushBatch(writes, chunkItems, chunkEventOperations, operations, results);
+                chunkBytes = 0;
+            }
+            chunkItems.add(i);
+            chunkEventOperations.add(appendWriteOperations(write, operations));
+            chunkBytes += writeBytes;
         }
-        return events;
+        if (!chunkItems.isEmpty()) {
+            transactions += flushBatch(writes, chunkItems, chunkEventOperations, operations, results);
+        }
+
+        List<EventWriteResult> resultList = new ArrayList<>(results.length);
+        int failed = 0;
+        for (EventWriteResult result : results) {
+            resultList.add(result);
+            if (!result.isSuccess()) failed++;
+        }
+        Log.d(TAG, "Batch write finished: " + writes.size() + " items, " + failed + " failed, "
+                + transactions + " transactions");
+        return resultList;
     }
 
-    // --- Helper method to convert Cursor row to Event object ---
-    private Event cursorToEvent(@NonNull Cursor cursor) {
+    // Gửi một lô thao tác. Nếu cả lô bị từ chối, thử lại từng phần tử để lỗi của một sự kiện
+    // không làm hỏng các sự kiện còn lại. Trả về số lần gọi applyBatch.
+    private int flushBatch(List<EventWrite> writes, List<Integer> chunkItems, List<Integer> chunkEventOperations,
+                           ArrayList<ContentProviderOperation> operations, EventWriteResult[] results) {
+        int transactions = 1;
         try {
-            long id = cursor.getLong(PROJECTION_ID_INDEX);
-            long calendarId = cursor.getLong(PROJECTION_CALENDAR_ID_INDEX);
-            String title = cursor.getString(PROJECTION_TITLE_INDEX);
-            String location = cursor.getString(PROJECTION_LOCATION_INDEX);
-            String description = cursor.getString(PROJECTION_DESCRIPTION_INDEX);
-            long startTime = cursor.getLong(PROJECTION_DTSTART_INDEX);
-            long endTime = cursor.getLong(PROJECTION_DTEND_INDEX); // Có thể là 0 hoặc null
-            String duration = cursor.getString(PROJECTION_DURATION_INDEX); // Có thể null
-            String timeZone = cursor.getString(PROJECTION_TIMEZONE_INDEX);
-            boolean isAllDay = cursor.getInt(PROJECTION_ALL_DAY_INDEX) == 1;
-
-            // Xử lý trường hợp endTime không có và có duration (phức tạp, bỏ qua xử lý duration chi tiết ở đây)
-            if (endTime <= 0 && !TextUtils.isEmpty(duration)) {
-                // Nếu là sự kiện cả ngày theo duration P1D, tính toán endTime hợp lý
-                if(isAllDay && "P1D".equals(duration)) {
-                    Calendar startCal = Calendar.getInstance();
-                    if (!TextUtils.isEmpty(timeZone)) startCal.setTimeZone(TimeZone.getTimeZone(timeZone));
-                    startCal.setTimeInMillis(startTime);
-                    startCal.add(Calendar.DATE, 1); // Bắt đầu ngày hôm sau
-                    endTime = startCal.getTimeInMillis();
-                } else {
-                    Log.w(TAG, "Event " + id + " has duration '" + duration + "' but no end time, endTime calculation not fully implemented.");
-                    // Tạm thời đặt endTime = startTime nếu không phải all day P1D
-                    if(!isAllDay) endTime = startTime;
+            ContentProviderResult[] batchResults = applyProviderBatch(operations);
+            for (int j = 0; j < chunkItems.size(); j++) {
+                int item = chunkItems.get(j);
+                results[item] = toWriteResult(writes.get(item), batchResults[chunkEventOperations.get(j)]);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Batch of " + chunkItems.size() + " writes failed: " + e.getMessage(), e);
+            for (int item : chunkItems) {
+                EventWrite write = writes.get(item);
+                if (chunkItems.size() == 1) {
+                    results[item] = EventWriteResult.failure(write, "Batch write failed: " + e.getMessage());
+                    continue;
+                }
+                ArrayList<ContentProviderOperation> single = new ArrayList<>();
+                int eventOperation = appendWriteOperations(write, single);
+                transactions++;
+                try {
+                    ContentProviderResult[] singleResults = applyProviderBatch(single);
+                    results[item] = toWriteResult(write, singleResults[eventOperation]);
+                } catch (Exception itemError) {
+                    results[item] = EventWriteResult.failure(write, "Write failed: " + itemError.getMessage());
                 }
-            } else if (endTime <= 0 && !isAllDay) {
-                // Sự kiện tức thời nếu không có endTime/duration và không phải all day
-                endTime = startTime;
             }
-            // Nếu là all day nhưng không có endTime/duration, endTime cũng nên được tính toán
-            else if (isAllDay && endTime <= 0) {
-                Calendar startCal = Calendar.getInstance();
-                if (!TextUtils.isEmpty(timeZone)) startCal.setTimeZone(TimeZone.getTimeZone(timeZone));
-                startCal.setTimeInMillis(startTime);
-                startCal.add(Calendar.DATE, 1); // Bắt đầu ngày hôm sau
-                endTime = startCal.getTimeInMillis();
+        }
+        List<Event> writtenEvents = new ArrayList<>(chunkItems.size());
+        long[] deletedIds = new long[chunkItems.size()];
+        int deletedCount = 0;
+        for (int item : chunkItems) {
+            EventWriteResult result = results[item];
+            if (result.isSuccess()) {
+                Event written = copyOf(result.getWrite().getEvent());
+                written.setId(result.getEventId());
+                boolean isDelete = result.getWrite().getType() == EventWrite.Type.DELETE;
+                onEventWritten(written, isDelete);
+                if (isDelete) deletedIds[deletedCount++] = written.getId();
+                else writtenEvents.add(written);
             }
+        }
+        // Một lần ghi hàng đợi reminder cho cả lô
+        onRemindersChanged(writtenEvents, Arrays.copyOf(deletedIds, deletedCount));
+        operations.clear();
+        chunkItems.clear();
+        chunkEventOperations.clear();
+        return transactions;
+    }
 
+    private static EventWriteResult toWriteResult(EventWrite write, ContentProviderResult result) {
+        if (write.getType() == EventWrite.Type.INSERT) {
+            if (result.uri == null) return EventWriteResult.failure(write, "Insert returned null URI");
+            return EventWriteResult.success(write, ContentUris.parseId(result.uri));
+        }
+        if (result.count == null || result.count == 0) {
+            return EventWriteResult.failure(write, "Event not found (rowsAffected=0)");
+        }
+        return EventWriteResult.success(write, write.getEvent().getId());
+    }
 
-            // Tạo đối tượng Event (Sử dụng constructor hoặc setters)
-            Event event = new Event();
-            event.setId(id);
-            event.setCalendarId(calendarId);
-            event.setTimeZone(timeZone);
-            event.setTitle(title);
-            event.setStartTime(startTime);
-            event.setEndTime(endTime);
-            event.setLocation(location);
-            event.setDescription(description);
-            event.setAllDay(isAllDay);
-            
-            // Đọc thông tin reminder
-            int reminderMinutes = getReminderMinutes(id);
-            event.setReminderMinutes(reminderMinutes);
-            
-            return event;
+    /**
+     * Thêm các ContentProviderOperation của một thao tác ghi vào danh sách.
+     * @return vị trí của thao tác trên dòng Events (để đọc kết quả / tham chiếu ngược).
+     */
+    private static int appendWriteOperations(EventWrite write, ArrayList<ContentProviderOperation> operations) {
+        Event event = write.getEvent();
+        int eventOperation = operations.size();
+        switch (write.getType()) {
+            case INSERT:
+                operations.add(ContentProviderOperation.newInsert(CalendarContract.Events.CONTENT_URI)
+                        .withValues(buildEventValues(event, true))
+                        .build());
+                if (event.getReminderMinutes() > 0) {
+                    operations.add(ContentProviderOperation.newInsert(CalendarContract.Reminders.CONTENT_URI)
+                            .withValues(buildReminderValues(event.getReminderMinutes()))
+                            .withValueBackReference(CalendarContract.Reminders.EVENT_ID, eventOperation)
+                            .build());
+                }
+                break;
+            case UPDATE:
+                operations.add(ContentProviderOperation.newUpdate(
+                                ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, event.getId()))
+                        .withValues(buildEventValues(event, false))
+                        .build());
+                // Xóa tất cả reminders hiện có rồi thêm reminder mới nếu cần
+                operations.add(ContentProviderOperation.newDelete(CalendarContract.Reminders.CONTENT_URI)
+                        .withSelection(CalendarContract.Reminders.EVENT_ID + " = ?",
+                                new String[]{String.valueOf(event.getId())})
+                        .build());
+                if (event.getReminderMinutes() > 0) {
+                    ContentValues reminder = buildReminderValues(event.getReminderMinutes());
+                    reminder.put(CalendarContract.Reminders.EVENT_ID, event.getId());
+                    operations.add(ContentProviderOperation.newInsert(CalendarContract.Reminders.CONTENT_URI)
+                            .withValues(reminder)
+                            .build());
+                }
+                break;
+            case DELETE:
+                // Provider tự xóa reminders của sự kiện
+                operations.add(ContentProviderOperation.newDelete(
+                                ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, event.getId()))
+                        .build());
+                break;
+        }
+        return eventOperation;
+    }
+
+    private static ContentValues buildEventValues(Event event, boolean forInsert) {
+        ContentValues values = new ContentValues();
+        values.put(CalendarContract.Events.DTSTART, event.getStartTime());
+        if (event.isRecurring()) {
+            // Sự kiện lặp lại: provider yêu cầu DURATION thay cho DTEND
+            values.put(CalendarContract.Events.RRULE, event.getRrule());
+            // Màn hình sửa không giữ EXDATE: chỉ ghi khi Event có, không xóa EXDATE đang có trong provider
+            if (event.getExdate() != null) values.put(CalendarContract.Events.EXDATE, event.getExdate());
+            values.putNull(CalendarContract.Events.DTEND);
+            values.put(CalendarContract.Events.DURATION,
+                    RecurrenceRule.formatDuration(event.getEndTime() - event.getStartTime(), event.isAllDay()));
+        } else {
+            values.putNull(CalendarContract.Events.RRULE); // Bỏ lặp lại khi cập nhật
+            if (event.getEndTime() > event.getStartTime()) {
+                values.put(CalendarContract.Events.DTEND, event.getEndTime());
+                values.putNull(CalendarContract.Events.DURATION);
+            } else if (event.isAllDay()) {
+                // Sự kiện cả ngày không có end time rõ ràng
+                values.putNull(CalendarContract.Events.DTEND); // Đặt DTEND là null cho sự kiện cả ngày
+                values.put(CalendarContract.Events.DURATION, "P1D"); // Duration 1 ngày
+            } else {
+                // Sự kiện tức thời (không có duration)
+                values.put(CalendarContract.Events.DTEND, event.getStartTime()); // Đặt end bằng start
+                values.putNull(CalendarContract.Events.DURATION);
+            }
+        }
+        if (!TextUtils.isEmpty(event.getTimeZone())) { // Khi cập nhật, chỉ ghi nếu timezone hợp lệ
+            values.put(CalendarContract.Events.EVENT_TIMEZONE, event.getTimeZone());
+        }
+        if (forInsert) {
+            values.put(CalendarContract.Events.CALENDAR_ID, event.getCalendarId());
+        }
+        values.put(CalendarContract.Events.TITLE, event.getTitle());
+        values.put(CalendarContract.Events.DESCRIPTION, event.getDescription());
+        values.put(CalendarContract.Events.EVENT_LOCATION, event.getLocation());
+        values.put(CalendarContract.Events.ALL_DAY, event.isAllDay() ? 1 : 0);
+        return values;
+    }
+
+    private static ContentValues buildReminderValues(int minutes) {
+        ContentValues values = new ContentValues();
+        values.put(CalendarContract.Reminders.METHOD, CalendarContract.Reminders.METHOD_ALERT);
+        values.put(CalendarContract.Reminders.MINUTES, minutes);
+        return values;
+    }
+
+    // Ước lượng kích thước Parcel của một thao tác ghi (chuỗi UTF-16 + phần cố định cho các cột khác)
+    private static long estimateWriteBytes(Event event) {
+        long bytes = 512;
+        bytes += 2L * (length(event.getTitle()) + length(event.getDescription())
+                + length(event.getLocation()) + length(event.getTimeZone()) + length(event.getRrule()));
+        return bytes;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    // --- Import iCalendar ---
+
+    /**
+     * Nhập các VEVENT từ file .ics vào lịch calendarId (<= 0: lịch mặc định).
+     * File được đọc tuần tự và ghi theo từng lô IMPORT_CHUNK_SIZE sự kiện, nên bộ nhớ dùng
+     * không phụ thuộc kích thước file. Dừng giữa chừng khi cancellationSignal bị hủy (các lô đã
+     * ghi được giữ lại). Stream được đóng khi kết thúc.
+     */
+    public void importIcs(InputStream input, long calendarId, CancellationSignal cancellationSignal,
+                          OnImportListener listener) {
+        // **QUAN TRỌNG: Quyền WRITE_CALENDAR phải được kiểm tra trước khi gọi**
+        IcsEventReader reader = new IcsEventReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        runWrite("importIcs", new IcsImport(reader, calendarId, cancellationSignal, listener));
+    }
+
+    // Nhập file trên lane ghi, mỗi lần chạy đọc và ghi một lô rồi đưa lô tiếp theo vào cuối lane:
+    // các lần lưu khác chen vào được giữa các lô, và không thread nào của pool đọc phải đứng chờ lane ghi.
+    // Chỉ chạy trên lane ghi (tuần tự), nên reader và các bộ đếm không cần đồng bộ.
+    private final class IcsImport implements Runnable {
+        private final IcsEventReader reader;
+        private final CancellationSignal cancellationSignal;
+        private final OnImportListener listener;
+        private final List<EventWrite> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        private long targetCalendarId;
+        private int imported = 0;
+        private int failed = 0;
+
+        IcsImport(IcsEventReader reader, long calendarId, CancellationSignal cancellationSignal,
+                  OnImportListener listener) {
+            this.reader = reader;
+            this.targetCalendarId = calendarId;
+            this.cancellationSignal = cancellationSignal;
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            boolean done = true;
+            try {
+                if (targetCalendarId <= 0) {
+                    targetCalendarId = resolveDefaultCalendarId();
+                    if (targetCalendarId <= 0) {
+                        if (listener != null) listener.onError("Không thể tìm thấy hoặc tạo lịch để nhập sự kiện.");
+                        return;
+                    }
+                }
+
+                Event event = null;
+                while (chunk.size() < IMPORT_CHUNK_SIZE) {
+                    if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+                        finish(true);
+                        return;
+                    }
+                    event = reader.next();
+                    if (event == null) break;
+                    event.setCalendarId(targetCalendarId);
+                    chunk.add(EventWrite.insert(event));
+                }
+                if (!chunk.isEmpty()) {
+                    for (EventWriteResult result : applyWritesNow(chunk)) {
+                        if (result.isSuccess()) imported++;
+                        else failed++;
+                    }
+                    chunk.clear();
+                    if (listener != null) listener.onProgress(imported, failed);
+                }
+                if (event == null) {
+                    finish(false);
+                    return;
+                }
+                done = false;
+                runWrite("importIcsChunk", this);
+            } catch (IOException e) {
+                Log.e(TAG, "ICS import failed after " + imported + " events", e);
+                if (listener != null) listener.onError("Không đọc được file .ics: " + e.getMessage());
+            } catch (SecurityException e) {
+                Log.e(TAG, "ICS import failed: Permission denied", e);
+                if (listener != null) listener.onError("Import failed: Permission denied");
+            } catch (Exception e) {
+                Log.e(TAG, "ICS import failed after " + imported + " events", e);
+                if (listener != null) listener.onError("Import failed: " + e.getMessage());
+            } finally {
+                if (done) {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        Log.w(TAG, "Cannot close .ics stream", e);
+                    }
+                }
+            }
+        }
+
+        private void finish(boolean cancelled) {
+            failed += reader.getSkippedCount();
+            Log.d(TAG, "ICS import " + (cancelled ? "cancelled" : "finished") + ": " + imported
+                    + " imported, " + failed + " failed/skipped");
+            if (listener != null) listener.onComplete(imported, failed, cancelled);
+        }
+    }
+
+    // --- Export iCalendar ---
+
+    /**
+     * Xuất kết quả của một truy vấn ra file .ics. Dữ liệu được đọc thẳng từ cursor của provider
+     * và ghi ngay qua BufferedWriter (không tạo List<Event>), reminders được ghép bằng merge join
+     * trên cursor Reminders cùng sắp xếp theo event id, nên bộ nhớ dùng không phụ thuộc số sự kiện.
+     * Stream được đóng khi kết thúc.
+     */
+    public void exportIcs(OutputStream output, ExportQuery query, CancellationSignal cancellationSignal,
+                          OnExportListener listener) {
+        runRead("exportIcs", Priority.BACKGROUND, () -> {
+            // **QUAN TRỌNG: Quyền READ_CALENDAR phải được kiểm tra trước khi gọi**
+            int exported = 0;
+            boolean cancelled = false;
+            Cursor cursor = null;
+            Cursor reminderCursor = null;
+            try (IcsEventWriter writer = new IcsEventWriter(
+                    new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                boolean occurrences = query.kind == ExportQuery.Kind.RANGE;
+                reminderCursor = queryProvider(CalendarContract.Reminders.CONTENT_URI, REMINDER_PROJECTION,
+                        null, null, CalendarContract.Reminders.EVENT_ID + " ASC", cancellationSignal);
+                boolean hasReminder = reminderCursor != null && reminderCursor.moveToFirst();
+
+                writer.begin();
+                Event row = new Event(); // Dùng lại cho mọi dòng
+                // Danh sách id được truy vấn theo từng chunk tăng dần, nên merge join với Reminders vẫn đi một chiều
+                for (int part = 0; part < query.queryCount() && !cancelled; part++) {
+                    if (occurrences) {
+                        // Mỗi lần xuất hiện của sự kiện lặp lại trong khoảng được xuất thành một VEVENT
+                        Uri.Builder builder = CalendarContract.Instances.CONTENT_URI.buildUpon();
+                        ContentUris.appendId(builder, query.beginMillis);
+                        ContentUris.appendId(builder, Math.max(query.beginMillis, query.endMillis - 1));
+                        cursor = queryProvider(builder.build(), EXPORT_INSTANCE_PROJECTION, null, null,
+                                CalendarContract.Instances.EVENT_ID + " ASC, " + CalendarContract.Instances.BEGIN + " ASC",
+                                cancellationSignal);
+                    } else {
+                        cursor = queryProvider(CalendarContract.Events.CONTENT_URI, EXPORT_EVENT_PROJECTION,
+                                query.selection(part), query.selectionArgs(part), CalendarContract.Events._ID + " ASC",
+                                cancellationSignal);
+                    }
+                    if (cursor == null) {
+                        if (listener != null) listener.onError("Export failed: cursor is null");
+                        return;
+                    }
+                    while (cursor.moveToNext()) {
+                        if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+                            cancelled = true;
+                            break;
+                        }
+                        long eventId = cursor.getLong(PROJECTION_ID_INDEX);
+                        // Merge join: tiến cursor Reminders tới event id hiện tại
+                        while (hasReminder && reminderCursor.getLong(PROJECTION_REMINDER_EVENT_ID_INDEX) < eventId) {
+                            hasReminder = reminderCursor.moveToNext();
+                        }
+                        row.setId(eventId);
+                        row.setTitle(cursor.getString(PROJECTION_TITLE_INDEX));
+                        row.setLocation(cursor.getString(PROJECTION_LOCATION_INDEX));
+                        row.setDescription(cursor.getString(PROJECTION_DESCRIPTION_INDEX));
+                        row.setStartTime(cursor.getLong(PROJECTION_DTSTART_INDEX));
+                        row.setEndTime(cursor.isNull(PROJECTION_DTEND_INDEX) ? 0 : cursor.getLong(PROJECTION_DTEND_INDEX));
+                        row.setTimeZone(cursor.getString(PROJECTION_TIMEZONE_INDEX));
+                        row.setAllDay(cursor.getInt(PROJECTION_ALL_DAY_INDEX) == 1);
+                        boolean reminderMatches = hasReminder
+                                && reminderCursor.getLong(PROJECTION_REMINDER_EVENT_ID_INDEX) == eventId;
+                        row.setReminderMinutes(reminderMatches ? reminderCursor.getInt(PROJECTION_REMINDER_MINUTES_INDEX) : 0);
+                        String duration = cursor.getString(PROJECTION_DURATION_INDEX);
+
+                        if (occurrences) {
+                            writer.writeEvent(eventId + "-" + row.getStartTime() + "@personalschedule", row, null, duration);
+                        } else if (!cursor.isNull(PROJECTION_EXPORT_ORIGINAL_ID_INDEX)) {
+                            // Ngoại lệ của sự kiện lặp lại: ghi đè lần lặp của sự kiện gốc (cùng UID)
+                            writer.writeOverride(cursor.getLong(PROJECTION_EXPORT_ORIGINAL_ID_INDEX) + "@personalschedule",
+                                    row, cursor.getLong(PROJECTION_EXPORT_ORIGINAL_TIME_INDEX),
+                                    cursor.getInt(PROJECTION_EXPORT_ORIGINAL_ALL_DAY_INDEX) == 1,
+                                    cursor.getInt(PROJECTION_EXPORT_STATUS_INDEX) == CalendarContract.Events.STATUS_CANCELED,
+                                    duration);
+                        } else {
+                            row.setExdate(cursor.getString(PROJECTION_EXPORT_EXDATE_INDEX));
+                            writer.writeEvent(eventId + "@personalschedule", row,
+                                    cursor.getString(PROJECTION_EXPORT_RRULE_INDEX), duration);
+                        }
+                        exported++;
+                        if (listener != null && exported % EXPORT_PROGRESS_INTERVAL == 0) {
+                            listener.onProgress(exported);
+                        }
+                    }
+                    closeCursor(cursor);
+                    cursor = null;
+                }
+                writer.end();
+                RepositoryMetrics.countRows(exported);
+                Log.d(TAG, "ICS export " + (cancelled ? "cancelled" : "finished") + ": " + exported + " events");
+                if (listener != null) listener.onComplete(exported, cancelled);
+            } catch (OperationCanceledException e) {
+                Log.d(TAG, "ICS export cancelled during query");
+                if (listener != null) listener.onComplete(exported, true);
+            } catch (IOException e) {
+                Log.e(TAG, "ICS export failed after " + exported + " events", e);
+                if (listener != null) listener.onError("Không ghi được file .ics: " + e.getMessage());
+            } catch (SecurityException e) {
+                Log.e(TAG, "ICS export failed: Permission denied", e);
+                if (listener != null) listener.onError("Export failed: Permission denied");
+            } catch (RuntimeException e) {
+                Log.e(TAG, "ICS export failed after " + exported + " events", e);
+                if (listener != null) listener.onError("Export failed: " + e.getMessage());
+            } finally {
+                closeCursor(cursor);
+                closeCursor(reminderCursor);
+            }
+        });
+    }
+
+    // --- Reminders ---
+
+    /**
+     * Các reminder có thời điểm nhắc trong [beginMillis, endMillis), dùng để dựng lại ReminderQueue.
+     * Một truy vấn Instances theo khoảng thời gian (chỉ sự kiện có reminder) cộng reminder lấy theo lô,
+     * không quét toàn bộ bảng Events. Chạy ở mức BACKGROUND.
+     */
+    public void loadUpcomingReminders(long beginMillis, long endMillis, @NonNull OnRemindersLoadedListener listener) {
+        runRead("loadUpcomingReminders", Priority.BACKGROUND, () -> {
+            try {
+                // Lần xuất hiện bắt đầu sau endMillis vẫn có thể nhắc trước endMillis (reminder tối đa 1 ngày
+                // trong app), thêm một ngày cho chênh lệch múi giờ của sự kiện cả ngày
+                long dayMillis = 24 * 3600_000L;
+                List<EventSummary> occurrences = queryInstances(beginMillis - dayMillis, endMillis + 2 * dayMillis,
+                        CalendarContract.Instances.HAS_ALARM + " = 1", null, CalendarContract.Instances.BEGIN + " ASC");
+                if (isFailed(occurrences)) {
+                    // Không thay hàng đợi bằng danh sách rỗng khi truy vấn lỗi
+                    listener.onError("Cannot query instances");
+                    return;
+                }
+                long[] eventIds = new long[occurrences.size()];
+                int idCount = 0;
+                LongIntMap seen = new LongIntMap(occurrences.size());
+                for (EventSummary occurrence : occurrences) {
+                    if (seen.containsKey(occurrence.getId())) continue;
+                    seen.put(occurrence.getId(), 1);
+                    eventIds[idCount++] = occurrence.getId();
+                }
+                LongIntMap minutes = prefetchReminderMinutes(eventIds, idCount);
+
+                List<ReminderQueue.Entry> reminders = new ArrayList<>();
+                for (EventSummary occurrence : occurrences) {
+                    int reminderMinutes = minutes.get(occurrence.getId(), 0);
+                    if (reminderMinutes <= 0) continue;
+                    long begin = ReminderScheduler.localBegin(occurrence.getStartTime(), occurrence.isAllDay());
+                    ReminderQueue.Entry entry = new ReminderQueue.Entry(occurrence.getId(), begin, reminderMinutes,
+                            occurrence.isAllDay(), occurrence.getTitle(), occurrence.getLocation());
+                    if (entry.getAlarmTime() >= beginMillis && entry.getAlarmTime() < endMillis) reminders.add(entry);
+                }
+                Log.d(TAG, "Loaded " + reminders.size() + " upcoming reminders from " + occurrences.size() + " occurrences");
+                listener.onSuccess(reminders);
+            } catch (SecurityException e) {
+                Log.e(TAG, "loadUpcomingReminders failed: Permission denied", e);
+                listener.onError("Permission denied");
+            } catch (Exception e) {
+                Log.e(TAG, "loadUpcomingReminders failed", e);
+                listener.onError(e.getMessage());
+            }
+        });
+    }
+
+    // Cập nhật hàng đợi reminder sau khi ghi (chạy trên lane ghi hoặc pool đọc)
+    private void onRemindersChanged(List<Event> written, long[] deletedIds) {
+        try {
+            ReminderScheduler.onEventsWritten(application, written, deletedIds);
+        } catch (RuntimeException e) {
+            // Reminder không được làm hỏng thao tác ghi đã thành công
+            Log.e(TAG, "Cannot update reminder queue", e);
+        }
+    }
+
+    // --- Read Calendars ---
+    public void getAvailableCalendars(OnCalendarsLoadedListener listener) {
+        runRead("getAvailableCalendars", Priority.INTERACTIVE, () -> {
+            // **QUAN TRỌNG: Quyền READ_CALENDAR phải được kiểm tra trước khi gọi**
+            try {
+                // Chỉ truy vấn provider lần đầu hoặc sau khi Calendars thay đổi (xem CalendarRegistry)
+                List<CalendarInfo> selectable = calendars.getSelectableCalendars();
+                if (VERBOSE_LOGGING) {
+                    for (CalendarInfo calendar : selectable) {
+                        Log.v(TAG, "Found calendar: ID=" + calendar.getId() + ", Name=" + calendar.getDisplayName()
+                                + ", Account=" + calendar.getAccountName() + ", isPrimary=" + calendar.isPrimary());
+                    }
+                }
+                if (listener != null) listener.onSuccess(new ArrayList<>(selectable));
+            } catch (SecurityException e) {
+                Log.e(TAG, "getAvailableCalendars failed: Permission denied", e);
+                if (listener != null) listener.onError("Permission denied to read calendars");
+            } catch (Exception e) {
+                Log.e(TAG, "getAvailableCalendars failed: Error querying calendars", e);
+                if (listener != null) listener.onError("Error getting calendars: " + e.getMessage());
+            }
+        });
+    }
+
+
+    // --- Helpers for scheduling and metrics ---
+
+    // Chạy việc đọc trên pool đọc theo mức ưu tiên, đo thời gian chờ/chạy (xem RepositoryMetrics)
+    private void runRead(String operation, Priority priority, Runnable task) {
+        final long enqueuedNanos = System.nanoTime();
+        scheduler.read(priority, () -> measure(operation, enqueuedNanos, task));
+    }
+
+    // Chạy việc ghi trên lane ghi tuần tự
+    private void runWrite(String operation, Runnable task) {
+        final long enqueuedNanos = System.nanoTime();
+        scheduler.write(() -> measure(operation, enqueuedNanos, task));
+    }
+
+    private static void measure(String operation, long enqueuedNanos, Runnable task) {
+        try (RepositoryMetrics.Span ignored = RepositoryMetrics.begin(operation, enqueuedNanos)) {
+            task.run();
+        }
+    }
+
+    // LiveData tự truy vấn lại khi provider thay đổi, mỗi lần load được đo như một thao tác.
+    // Lần load bị thay thế hoặc không còn observer sẽ bị hủy qua CancellationSignal.
+    private <T> ProviderQueryLiveData<T> liveQuery(String operation, Priority priority, ProviderQueryLiveData.Loader<T> loader) {
+        return new ProviderQueryLiveData<>(contentResolver, task -> runRead(operation, priority, task), loader);
+    }
+
+    // Truy vấn gắn với CancellationSignal của việc đang chạy (nếu có, xem RepositoryScheduler.runCancellable)
+    private Cursor queryProvider(Uri uri, String[] projection, String selection, String[] selectionArgs,
+                                 String sortOrder) {
+        return queryProvider(uri, projection, selection, selectionArgs, sortOrder, RepositoryScheduler.currentSignal());
+    }
+
+    private Cursor queryProvider(Uri uri, String[] projection, String selection, String[] selectionArgs,
+                                 String sortOrder, CancellationSignal cancellationSignal) {
+        RepositoryMetrics.countIpc();
+        return contentResolver.query(uri, projection, selection, selectionArgs, sortOrder, cancellationSignal);
+    }
+
+    private ContentProviderResult[] applyProviderBatch(ArrayList<ContentProviderOperation> operations)
+            throws RemoteException, OperationApplicationException {
+        RepositoryMetrics.countIpc();
+        return contentResolver.applyBatch(CalendarContract.AUTHORITY, operations);
+    }
+
+    // --- Helper method to query events ---
+    private List<Event> queryEvents(String selection, String[] selectionArgs, String sortOrder) {
+        return queryEventRows(CalendarContract.Events.CONTENT_URI, EVENT_PROJECTION, selection, selectionArgs, sortOrder);
+    }
+
+    // --- Helper method to query one keyset page ---
+    // WHERE ((DTSTART > s) OR (DTSTART = s AND _ID > id)) AND DELETED = 0 ORDER BY DTSTART, _ID LIMIT n
+    // (đảo chiều khi đi lùi)
+    private List<EventSummary> queryEventPage(PageKey anchor, boolean forward, int pageSize) {
+        String compare = forward ? " > ?" : " < ?";
+        String direction = forward ? " ASC" : " DESC";
+        String selection = "((" + CalendarContract.Events.DTSTART + compare + ") OR ("
+                + CalendarContract.Events.DTSTART + " = ? AND " + CalendarContract.Events._ID + compare + ")) AND "
+                + NOT_DELETED;
+        String start = String.valueOf(anchor.getStartMillis());
+        String[] selectionArgs = new String[]{start, start, String.valueOf(anchor.getEventId())};
+        // Calendar Provider ghép sortOrder vào sau ORDER BY, nên LIMIT đi kèm ở đây
+        String sortOrder = CalendarContract.Events.DTSTART + direction + ", "
+                + CalendarContract.Events._ID + direction + " LIMIT " + pageSize;
+
+        List<EventSummary> page = querySummaryRows(CalendarContract.Events.CONTENT_URI, SUMMARY_EVENT_PROJECTION,
+                selection, selectionArgs, sortOrder, pageSize);
+        if (!forward) {
+            Collections.reverse(page);
+        }
+        return page;
+    }
+
+    // --- Helper methods for month buckets ---
+
+    // Chạy trên background thread. Trả về sự kiện của tháng từ monthCache, hoặc load qua queryWindow.
+    private List<EventSummary> loadMonth(String monthYear) {
+        long[] range = monthRange(monthYear);
+        if (range == null) {
+            return new ArrayList<>(); // Trả list rỗng nếu lỗi parse
+        }
+        long version = ProviderQueryLiveData.getProviderVersion();
+        validateCaches(version);
+        List<EventSummary> cached = monthCache.get(monthYear);
+        if (cached != null) {
+            Log.d(TAG, "Month cache hit for " + monthYear + " (" + cached.size() + " events)");
+            return cached;
+        }
+
+        Log.d(TAG, "Fetching events for month " + monthYear + " (from " + new Date(range[0]) + " to " + new Date(range[1]) + ")");
+        long writeCount;
+        synchronized (eventIndex) {
+            writeCount = cacheWriteCount;
+        }
+        // Trả lời từ eventIndex nếu tháng đã được load, nếu không thì truy vấn bảng Instances
+        // (provider lọc theo khoảng thời gian và mở rộng sự kiện lặp lại)
+        List<EventSummary> events = queryWindow(range[0], range[1]);
+        if (isFailed(events)) {
+            // Tháng rỗng do lỗi (ví dụ chưa có quyền) không được cache, lần sau truy vấn lại
+            Log.w(TAG, "Month " + monthYear + " could not be loaded, not cached");
+            return events;
+        }
+        synchronized (eventIndex) {
+            // Có lần ghi xen giữa truy vấn và lúc này: kết quả có thể đã cũ, không cache
+            if (cachedProviderVersion == version && cacheWriteCount == writeCount) {
+                monthCache.put(monthYear, range[0], range[1], events);
+            }
+        }
+        Log.d(TAG, "Found " + events.size() + " events for month " + monthYear);
+        return events;
+    }
+
+    private void prefetchNeighbourMonths(String monthYear) {
+        long[] range = monthRange(monthYear);
+        if (range == null) return;
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(range[0]);
+        calendar.add(Calendar.MONTH, -1);
+        final String previousMonth = monthKey(calendar);
+        calendar.add(Calendar.MONTH, 2);
+        final String nextMonth = monthKey(calendar);
+        runRead("prefetchNeighbourMonths", Priority.BACKGROUND, () -> {
+            boolean failed = false;
+            for (String neighbour : new String[]{previousMonth, nextMonth}) {
+                if (!monthCache.contains(neighbour)) {
+                    Log.d(TAG, "Prefetching month " + neighbour);
+                    failed |= isFailed(loadMonth(neighbour));
+                }
+            }
+            if (!failed) saveSnapshotIfStale();
+        });
+    }
+
+    // Chạy trên background thread. Ghi lại snapshot (tháng hiện tại và hai tháng bên cạnh) khi cả ba tháng
+    // đã có trong monthCache và provider đã thay đổi kể từ lần ghi trước. monthCache chỉ giữ các tháng truy vấn
+    // thành công, nên tháng rỗng do lỗi (ví dụ chưa có quyền) không bao giờ bị ghi xuống đĩa.
+    private void saveSnapshotIfStale() {
+        long version = ProviderQueryLiveData.getProviderVersion();
+        if (snapshotVersion == version) return;
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.MONTH, -1);
+        List<EventSnapshotStore.Month> months = new ArrayList<>(3);
+        for (int i = 0; i < 3; i++) {
+            String key = monthKey(calendar);
+            long[] range = monthRange(key);
+            List<EventSummary> events = monthCache.get(key);
+            if (range == null || events == null) return; // Chưa load đủ (ví dụ đang xem tháng khác)
+            months.add(new EventSnapshotStore.Month(key, range[0], range[1], events));
+            calendar.add(Calendar.MONTH, 1);
+        }
+        synchronized (eventIndex) {
+            if (cachedProviderVersion != version) return; // Dữ liệu trong cache đã cũ
+        }
+        snapshots.save(months);
+        snapshotVersion = version;
+    }
+
+    // Khoảng [đầu tháng, đầu tháng sau) theo múi giờ thiết bị, hoặc null nếu chuỗi không hợp lệ
+    private static long[] monthRange(String monthYear) {
+        try {
+            String[] parts = monthYear.split("-");
+            int month = Integer.parseInt(parts[0]); // 1-12
+            int year = Integer.parseInt(parts[1]);
+
+            Calendar calendar = Calendar.getInstance();
+            calendar.clear();
+            calendar.set(year, month - 1, 1, 0, 0, 0); // Calendar.MONTH là 0-based
+            long startMillis = calendar.getTimeInMillis();
+            calendar.add(Calendar.MONTH, 1); // Đi tới ngày đầu tiên của tháng sau
+            return new long[]{startMillis, calendar.getTimeInMillis()};
         } catch (Exception e) {
-            Log.e(TAG, "Error converting cursor to event at position " + cursor.getPosition(), e);
+            Log.e(TAG, "Error parsing monthYear string: " + monthYear, e);
             return null;
         }
     }
 
-    // Phương thức lấy reminder minutes cho một event
-    private int getReminderMinutes(long eventId) {
-        int reminderMinutes = 0;
+    private static String monthKey(Calendar calendar) {
+        return String.format(Locale.US, "%02d-%04d", calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.YEAR));
+    }
+
+    // Đưa eventIndex/monthCache lên phiên bản provider hiện tại khi provider đã thay đổi (có thể từ ứng dụng
+    // khác / sync): chỉ cập nhật các sự kiện đã đổi nếu được (delta refresh), nếu không thì bỏ toàn bộ
+    private void validateCaches(long version) {
+        synchronized (eventIndex) {
+            if (cachedProviderVersion >= version) return;
+        }
+        if (changeTracker.hasBaseline()) {
+            applyProviderChanges();
+        } else {
+            requestChangeBaseline();
+        }
+        synchronized (eventIndex) {
+            if (cachedProviderVersion < version) {
+                eventIndex.clear();
+                monthCache.clear();
+                cachedProviderVersion = version;
+            }
+        }
+    }
+
+    // Chạy trên background thread. Cập nhật chỉ mục tìm kiếm nếu provider đã thay đổi kể từ lần dựng trước:
+    // theo delta nếu được, nếu không thì dựng lại từ toàn bộ sự kiện.
+    private void ensureSearchIndex() {
+        long version = ProviderQueryLiveData.getProviderVersion();
+        // Không giữ lock của searchIndex khi áp dụng delta (delta cũng cập nhật searchIndex)
+        if (changeTracker.hasBaseline()) applyProviderChanges();
+        synchronized (searchIndexBuildLock) {
+            long writeCount;
+            synchronized (searchIndex) {
+                if (searchIndexVersion >= version) return;
+                writeCount = searchIndexWriteCount;
+            }
+            // Quét ngoài lock của searchIndex: tìm kiếm và cập nhật sau khi ghi không bị chặn trong lúc quét.
+            // Tìm kiếm không dùng reminder, nên không truy vấn bảng Reminders.
+            long startNanos = System.nanoTime();
+            List<Event> all = queryEventRows(CalendarContract.Events.CONTENT_URI, EVENT_PROJECTION,
+                    NOT_DELETED, null, CalendarContract.Events.DTSTART + " ASC", false);
+            if (isFailed(all)) return; // Ví dụ chưa có quyền: để lần tìm kiếm sau dựng lại
+            synchronized (searchIndex) {
+                // Có lần ghi trong lúc quét: kết quả quét có thể thiếu nó, để lần sau dựng lại
+                if (searchIndexWriteCount != writeCount || searchIndexVersion >= version) return;
+                searchIndex.rebuild(all);
+                searchIndexVersion = version;
+            }
+            Log.d(TAG, "Search index rebuilt with " + all.size() + " events in "
+                    + (System.nanoTime() - startNanos) / 1000000 + " ms");
+        }
+        requestChangeBaseline();
+    }
+
+    // --- Delta refresh ---
+
+    // Quét baseline fingerprint ở mức BACKGROUND (không nằm trên đường load đầu tiên), một lần cho tới khi thành công
+    private void requestChangeBaseline() {
+        if (changeTracker.hasBaseline() || !baselineRequested.compareAndSet(false, true)) return;
+        runRead("trackProviderChanges", Priority.BACKGROUND, () -> {
+            if (applyProviderChanges() == null) baselineRequested.set(false);
+        });
+    }
+
+    /**
+     * Chạy trên background thread. Quét _ID + fingerprint của mọi sự kiện (một truy vấn hẹp), so với lần
+     * quét trước, load lại chỉ những dòng được thêm/sửa và cập nhật eventIndex, monthCache, searchIndex
+     * theo đó. Provider chưa đổi kể từ lần quét trước: không truy vấn gì.
+     * @return các thay đổi (isFull() nếu chưa có lần quét trước hoặc quá nhiều thay đổi, khi đó dữ liệu
+     * trong bộ nhớ được để nguyên cho validateCaches/ensureSearchIndex bỏ đi), hoặc null nếu lỗi
+     */
+    private EventChangeTracker.ChangeSet applyProviderChanges() {
+        // Không gắn với signal của truy vấn đang gọi: truy vấn đó bị hủy thì delta vẫn có ích cho lần sau
+        return RepositoryScheduler.runCancellable(null, () -> {
+            synchronized (changeTracker) {
+                long version = ProviderQueryLiveData.getProviderVersion();
+                if (changeTracker.getVersion() == version) return EventChangeTracker.ChangeSet.none(version);
+                long startNanos = System.nanoTime();
+                try {
+                    EventChangeTracker.Scan scan = scanFingerprints();
+                    if (scan == null) return null;
+                    EventChangeTracker.ChangeSet changes = changeTracker.diff(scan, version);
+                    if (!changes.isFull() && changes.changedCount() + changes.getRemoved().length > MAX_DELTA_CHANGES) {
+                        changes = EventChangeTracker.ChangeSet.full(changes.getFromVersion(), version);
+                    }
+                    if (!changes.isFull()) {
+                        List<Event> changed = queryEventsById(changes.getInserted(), changes.getUpdated());
+                        if (changed == null) return null; // Giữ baseline cũ, lần sau so lại
+                        patchCaches(changes, changed);
+                        if (changes.touchesExceptions()) {
+                            // Lần lặp bị sửa/hủy: không suy ra được từ dòng ngoại lệ, đọc lại từ Instances
+                            ReminderScheduler.refill(application, null);
+                        } else {
+                            onRemindersChanged(changed, changes.getRemoved());
+                        }
+                    } else if (changeTracker.hasBaseline()) {
+                        // Quá nhiều thay đổi từ bên ngoài: dựng lại hàng đợi reminder bằng một truy vấn theo khoảng
+                        ReminderScheduler.refill(application, null);
+                    }
+                    changeTracker.commit(scan, version);
+                    Log.d(TAG, "Provider delta " + changes + " over " + scan.size() + " events in "
+                            + (System.nanoTime() - startNanos) / 1000 + " us");
+                    return changes;
+                } catch (SecurityException e) {
+                    Log.e(TAG, "Delta refresh failed: Permission denied", e);
+                    return null;
+                }
+            }
+        });
+    }
+
+    // Một truy vấn trên Events, chỉ các cột của FINGERPRINT_PROJECTION, theo thứ tự _ID. Dòng đã xóa nhưng
+    // chưa sync (DELETED = 1) không có trong lần quét, nên được coi là đã xóa chứ không phải đã sửa.
+    private EventChangeTracker.Scan scanFingerprints() {
         Cursor cursor = null;
-        
         try {
-            cursor = contentResolver.query(
-                CalendarContract.Reminders.CONTENT_URI,
-                new String[] {CalendarContract.Reminders.MINUTES},
-                CalendarContract.Reminders.EVENT_ID + " = ?",
-                new String[] {String.valueOf(eventId)},
-                null
+            cursor = queryProvider(CalendarContract.Events.CONTENT_URI, FINGERPRINT_PROJECTION, NOT_DELETED, null,
+                    CalendarContract.Events._ID + " ASC");
+            if (cursor == null) return null;
+            RepositoryMetrics.countRows(cursor.getCount());
+            EventChangeTracker.Scan scan = new EventChangeTracker.Scan(cursor.getCount());
+            while (cursor.moveToNext()) {
+                long fingerprint = EventChangeTracker.initialFingerprint();
+                for (int column = FINGERPRINT_ID_INDEX + 1; column < FINGERPRINT_PROJECTION.length; column++) {
+                    fingerprint = EventChangeTracker.addToFingerprint(fingerprint, cursor.getString(column));
+                }
+                scan.add(cursor.getLong(FINGERPRINT_ID_INDEX), fingerprint,
+                        !cursor.isNull(FINGERPRINT_ORIGINAL_ID_INDEX));
+            }
+            return scan;
+        } finally {
+            closeCursor(cursor);
+        }
+    }
+
+    // Load đầy đủ (kèm reminder) các sự kiện theo ID, "_ID IN (...) AND DELETED = 0" theo từng chunk,
+    // hoặc null nếu một truy vấn bị lỗi
+    private List<Event> queryEventsById(long[] first, long[] second) {
+        long[] ids = new long[first.length + second.length];
+        System.arraycopy(first, 0, ids, 0, first.length);
+        System.arraycopy(second, 0, ids, first.length, second.length);
+        List<Event> events = new ArrayList<>(ids.length);
+        for (int from = 0; from < ids.length; from += DELTA_FETCH_CHUNK_SIZE) {
+            int to = Math.min(from + DELTA_FETCH_CHUNK_SIZE, ids.length);
+            String[] selectionArgs = new String[to - from];
+            StringBuilder selection = new StringBuilder(CalendarContract.Events._ID).append(" IN (");
+            for (int i = from; i < to; i++) {
+                if (i > from) selection.append(',');
+                selection.append('?');
+                selectionArgs[i - from] = String.valueOf(ids[i]);
+            }
+            selection.append(") AND ").append(NOT_DELETED);
+            List<Event> chunk = queryEvents(selection.toString(), selectionArgs, null);
+            if (isFailed(chunk)) return null;
+            events.addAll(chunk);
+        }
+        return events;
+    }
+
+    // Áp dụng các thay đổi vào dữ liệu trong bộ nhớ, rồi đánh dấu dữ liệu đang ở phiên bản cũ của baseline
+    // là đã lên phiên bản mới (dữ liệu ở phiên bản khác vẫn bị validateCaches/ensureSearchIndex bỏ đi)
+    private void patchCaches(EventChangeTracker.ChangeSet changes, List<Event> changed) {
+        if (changes.touchesExceptions()) {
+            // Ngoại lệ của sự kiện lặp lại đổi các lần xuất hiện của sự kiện gốc: load lại từ Instances
+            synchronized (eventIndex) {
+                eventIndex.clear();
+                monthCache.clear();
+                cacheWriteCount++;
+            }
+        }
+        for (long id : changes.getRemoved()) {
+            onEventRemoved(id);
+        }
+        LongIntMap loaded = new LongIntMap(changed.size());
+        for (Event event : changed) {
+            onEventWritten(event, false);
+            loaded.put(event.getId(), 1);
+        }
+        // Bị xóa giữa lúc quét và lúc load lại
+        for (long[] ids : new long[][]{changes.getInserted(), changes.getUpdated()}) {
+            for (long id : ids) {
+                if (!loaded.containsKey(id)) onEventRemoved(id);
+            }
+        }
+        synchronized (eventIndex) {
+            if (cachedProviderVersion == changes.getFromVersion()) cachedProviderVersion = changes.getToVersion();
+        }
+        synchronized (searchIndex) {
+            if (searchIndexVersion == changes.getFromVersion()) searchIndexVersion = changes.getToVersion();
+        }
+    }
+
+    // Bản sao của Event đầy đủ đã load (detailCache) nếu còn đúng phiên bản provider.
+    // Không lấy từ searchIndex: chỉ mục được dựng không kèm reminder.
+    private Event findLoadedEvent(long id, long version) {
+        synchronized (detailCache) {
+            Event cached = detailCacheVersion == version ? detailCache.get(id) : null;
+            return cached != null ? copyOf(cached) : null;
+        }
+    }
+
+    // Ghi nhớ Event vừa load với phiên bản provider lúc bắt đầu truy vấn
+    private void rememberEvent(Event event, long version) {
+        synchronized (detailCache) {
+            if (version < detailCacheVersion) return; // Kết quả cũ hơn dữ liệu đang giữ
+            if (version != detailCacheVersion) {
+                detailCache.evictAll();
+                detailCacheVersion = version;
+            }
+            detailCache.put(event.getId(), copyOf(event));
+        }
+    }
+
+    // Cập nhật chỉ mục và hủy chính xác các tháng bị ảnh hưởng sau khi repository ghi thành công
+    private void onEventWritten(Event event, boolean deleted) {
+        synchronized (detailCache) {
+            detailCache.remove(event.getId());
+        }
+        recurrences.invalidate(event.getId());
+        if (!deleted && event.isRecurring()) {
+            onRecurringEventWritten(event);
+            return;
+        }
+        synchronized (eventIndex) {
+            monthCache.invalidate(event.getId(), event.getStartTime(), event.getEndTime());
+            if (deleted) {
+                eventIndex.removeById(event.getId());
+            } else {
+                eventIndex.update(EventSummary.of(event));
+            }
+            cacheWriteCount++;
+        }
+        synchronized (searchIndex) {
+            if (deleted) {
+                searchIndex.remove(event.getId());
+            } else {
+                searchIndex.put(copyOf(event));
+            }
+            searchIndexWriteCount++;
+        }
+    }
+
+    // Sự kiện đã bị xóa khỏi provider mà không biết thời gian của nó: hủy các tháng đang chứa nó
+    private void onEventRemoved(long id) {
+        synchronized (detailCache) {
+            detailCache.remove(id);
+        }
+        recurrences.invalidate(id);
+        synchronized (eventIndex) {
+            monthCache.invalidate(id, 0, 0);
+            eventIndex.removeById(id);
+            cacheWriteCount++;
+        }
+        synchronized (searchIndex) {
+            searchIndex.remove(id);
+            searchIndexWriteCount++;
+        }
+    }
+
+    // Sự kiện lặp lại: chỉ sinh các lần xuất hiện nằm trong những cửa sổ eventIndex đang giữ
+    // (vài tháng), không bao giờ mở rộng toàn bộ chuỗi lặp
+    private void onRecurringEventWritten(Event event) {
+        long duration = Math.max(0, event.getEndTime() - event.getStartTime());
+        // Sự kiện cả ngày được lưu theo UTC
+        String timeZone = event.isAllDay() ? "UTC" : event.getTimeZone();
+        RecurrenceRule rule = RecurrenceRule.parse(event.getRrule());
+        synchronized (eventIndex) {
+            if (rule == null || event.getExdate() != null) {
+                // Quy tắc app không tự mở rộng được (BYDAY, EXDATE, ...): load lại từ Instances khi cần
+                eventIndex.clear();
+                monthCache.clear();
+            } else {
+                monthCache.invalidate(event.getId(), event.getStartTime(),
+                        RecurrenceExpander.lastOccurrenceEnd(event.getStartTime(), duration, rule, timeZone));
+                eventIndex.removeById(event.getId());
+                long[] covered = eventIndex.getCoveredWindows();
+                for (int i = 0; i < covered.length; i += 2) {
+                    long[] starts = recurrences.expand(event.getId(), event.getStartTime(), duration,
+                            event.getRrule(), timeZone, covered[i], covered[i + 1]);
+                    for (long start : starts) {
+                        eventIndex.add(new EventSummary(event.getId(), event.getCalendarId(), event.getTitle(),
+                                start, start + duration, event.getLocation(), event.isAllDay()));
+                    }
+                }
+            }
+            cacheWriteCount++;
+        }
+        synchronized (searchIndex) {
+            searchIndex.put(copyOf(event));
+            searchIndexWriteCount++;
+        }
+    }
+
+    /**
+     * Lần xuất hiện tiếp theo (chưa kết thúc tại afterMillis) của sự kiện lặp lại, tính trong bộ nhớ.
+     * @return thời điểm bắt đầu, hoặc -1 nếu sự kiện không lặp, đã hết lần lặp hoặc quy tắc không được hỗ trợ
+     */
+    public long getNextOccurrence(@NonNull Event event, long afterMillis) {
+        if (!event.isRecurring()) return -1;
+        long duration = Math.max(0, event.getEndTime() - event.getStartTime());
+        return recurrences.nextOccurrence(event.getStartTime(), duration, event.getRrule(),
+                event.isAllDay() ? "UTC" : event.getTimeZone(), afterMillis);
+    }
+
+    // --- Kiểm tra trùng giờ ---
+
+    /**
+     * Tìm các sự kiện trên những lịch đang hiển thị bị trùng giờ với candidate (chưa lưu), chạy trên pool đọc.
+     * Lần đầu chạm tới một ngày mới sẽ truy vấn Instances cho cả ngày đó và đưa vào eventIndex, nên các
+     * lần kiểm tra tiếp theo khi người dùng đổi giờ chỉ chạy trong bộ nhớ (vài ms).
+     * @param signal hủy lần kiểm tra cũ khi đã có lần mới hơn (có thể null)
+     * @param listener nhận kết quả trên background thread; không được gọi nếu lần kiểm tra bị hủy
+     */
+    public void findConflicts(@NonNull Event candidate, CancellationSignal signal,
+                              @NonNull OnConflictsFoundListener listener) {
+        runRead("findConflicts", Priority.INTERACTIVE, () -> {
+            if (signal != null && signal.isCanceled()) return;
+            try {
+                long startNanos = System.nanoTime();
+                List<EventSummary> conflicts = RepositoryScheduler.runCancellable(signal, () -> detectConflicts(candidate));
+                Log.d(TAG, "Conflict check found " + conflicts.size() + " events in "
+                        + (System.nanoTime() - startNanos) / 1000 + " us");
+                if (signal == null || !signal.isCanceled()) listener.onConflictsFound(conflicts);
+            } catch (OperationCanceledException e) {
+                Log.d(TAG, "Conflict check cancelled");
+            }
+        });
+    }
+
+    private List<EventSummary> detectConflicts(Event candidate) {
+        List<EventSummary> none = new ArrayList<>();
+        // Sự kiện cả ngày (sinh nhật, ngày lễ, ...) không chiếm giờ nên không tính trùng
+        if (candidate.isAllDay()) return none;
+        long duration = Math.max(0, candidate.getEndTime() - candidate.getStartTime());
+
+        // Các lần xuất hiện của ứng viên: sự kiện lặp lại chỉ xét trong CONFLICT_HORIZON_MS đầu tiên
+        long[] starts;
+        int count = 0;
+        RecurrenceRule rule = candidate.isRecurring() ? RecurrenceRule.parse(candidate.getRrule()) : null;
+        if (rule == null) {
+            starts = new long[]{candidate.getStartTime()};
+            count = 1;
+        } else {
+            starts = new long[MAX_CONFLICT_OCCURRENCES];
+            RecurrenceExpander.OccurrenceIterator occurrences = new RecurrenceExpander.OccurrenceIterator().reset(
+                    candidate.getStartTime(), duration, rule, candidate.getTimeZone(),
+                    candidate.getStartTime(), candidate.getStartTime() + CONFLICT_HORIZON_MS);
+            while (count < starts.length && occurrences.next()) starts[count++] = occurrences.begin();
+            if (count == 0) return none;
+        }
+
+        // Load theo cả ngày (không chỉ khoảng của ứng viên) để eventIndex trả lời được các lần kiểm tra sau
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(starts[0]);
+        calendar.set(Calendar.HOUR_OF_DAY, 0); calendar.set(Calendar.MINUTE, 0); calendar.set(Calendar.SECOND, 0); calendar.set(Calendar.MILLISECOND, 0);
+        long windowBegin = calendar.getTimeInMillis();
+        calendar.setTimeInMillis(starts[count - 1] + Math.max(1, duration) - 1);
+        calendar.set(Calendar.HOUR_OF_DAY, 0); calendar.set(Calendar.MINUTE, 0); calendar.set(Calendar.SECOND, 0); calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DATE, 1);
+        List<EventSummary> busy = busyEvents(queryWindow(windowBegin, calendar.getTimeInMillis()), candidate.getId());
+        return ConflictDetector.findConflicts(starts, count, duration, busy, EVENT_INTERVALS);
+    }
+
+    /**
+     * Tìm các khoảng trống dài ít nhất durationMillis trong [beginMillis, endMillis), chỉ trong giờ làm việc
+     * [workStartMinute, workEndMinute) của mỗi ngày, tính trên mọi lịch đang hiển thị. Chạy trên pool đọc.
+     * @param excludeEventId sự kiện đang sửa (không tính là bận), 0 nếu là sự kiện mới
+     * @param listener nhận kết quả trên background thread
+     */
+    public void findFreeSlots(long beginMillis, long endMillis, long durationMillis, int workStartMinute,
+                              int workEndMinute, long excludeEventId, @NonNull OnFreeSlotsFoundListener listener) {
+        runRead("findFreeSlots", Priority.INTERACTIVE, () -> {
+            long startNanos = System.nanoTime();
+            List<EventSummary> busy = busyEvents(queryWindow(beginMillis, endMillis), excludeEventId);
+            List<FreeSlotFinder.Slot> slots = FreeSlotFinder.findFreeSlots(busy, EVENT_INTERVALS, beginMillis, endMillis,
+                    durationMillis, workStartMinute, workEndMinute, TimeZone.getDefault(), MAX_FREE_SLOTS);
+            Log.d(TAG, "Free slot search found " + slots.size() + " slots among " + busy.size() + " events in "
+                    + (System.nanoTime() - startNanos) / 1000 + " us");
+            listener.onFreeSlotsFound(slots);
+        });
+    }
+
+    // Các sự kiện chiếm giờ trong window (giữ thứ tự start): bỏ sự kiện excludeEventId (mọi lần xuất hiện),
+    // sự kiện cả ngày (sinh nhật, ngày lễ, ...) và sự kiện trên lịch đang ẩn
+    private List<EventSummary> busyEvents(List<EventSummary> window, long excludeEventId) {
+        List<EventSummary> busy = new ArrayList<>(window.size());
+        boolean filterCalendars = true;
+        for (EventSummary event : window) {
+            if (event.getId() == excludeEventId || event.isAllDay()) continue;
+            if (filterCalendars) {
+                try {
+                    if (!calendars.isVisible(event.getCalendarId())) continue;
+                } catch (SecurityException e) {
+                    Log.w(TAG, "Cannot read calendars, counting events on all calendars", e);
+                    filterCalendars = false;
+                }
+            }
+            busy.add(event);
+        }
+        return busy;
+    }
+
+    // --- Helper method to answer window queries through eventIndex ---
+    // Chạy trên background thread. Nếu cửa sổ đã được load (và provider chưa đổi) thì trả lời
+    // hoàn toàn từ bộ nhớ, nếu không thì truy vấn Instances rồi đưa kết quả vào chỉ mục.
+    private List<EventSummary> queryWindow(long beginMillis, long endMillis) {
+        long version = ProviderQueryLiveData.getProviderVersion();
+        validateCaches(version);
+        long writeCount;
+        synchronized (eventIndex) {
+            if (eventIndex.covers(beginMillis, endMillis)) {
+                return eventIndex.query(beginMillis, endMillis);
+            }
+            writeCount = cacheWriteCount;
+        }
+        List<EventSummary> events = queryInstances(beginMillis, endMillis, null, null,
+                CalendarContract.Instances.BEGIN + " ASC");
+        if (isFailed(events)) return events; // Không đánh dấu cửa sổ là đã load (ví dụ chưa có quyền)
+        synchronized (eventIndex) {
+            if (cachedProviderVersion == version && cacheWriteCount == writeCount) {
+                eventIndex.replaceWindow(beginMillis, endMillis, events);
+            }
+        }
+        return events;
+    }
+
+    // --- Helper method to query event instances overlapping [beginMillis, endMillis) ---
+    // Mỗi dòng là một lần xuất hiện (sự kiện lặp lại có thể trả về nhiều dòng cùng event ID).
+    private List<EventSummary> queryInstances(long beginMillis, long endMillis, String selection, String[] selectionArgs, String sortOrder) {
+        Uri.Builder builder = CalendarContract.Instances.CONTENT_URI.buildUpon();
+        ContentUris.appendId(builder, beginMillis);
+        // Instances coi END là bao gồm, trừ 1ms để không lấy sự kiện bắt đầu đúng lúc endMillis
+        ContentUris.appendId(builder, Math.max(beginMillis, endMillis - 1));
+        return querySummaryRows(builder.build(), SUMMARY_INSTANCE_PROJECTION, selection, selectionArgs, sortOrder,
+                Integer.MAX_VALUE);
+    }
+
+    // --- Helper method to query EventSummary rows (projection hẹp, không cần Reminders) ---
+    private List<EventSummary> querySummaryRows(Uri uri, String[] projection, String selection, String[] selectionArgs,
+                                                String sortOrder, int maxRows) {
+        List<EventSummary> summaries = new FailedRows<>();
+        Cursor cursor = null;
+        // **QUAN TRỌNG: Quyền READ_CALENDAR phải được kiểm tra trước khi gọi hàm này**
+        try {
+            cursor = queryProvider(uri, projection, selection, selectionArgs, sortOrder);
+            if (cursor != null) {
+                int count = Math.min(cursor.getCount(), maxRows);
+                RepositoryMetrics.countRows(count);
+                summaries = new ArrayList<>(count);
+                for (int row = 0; row < count && cursor.moveToNext(); row++) {
+                    EventSummary summary = cursorToSummary(cursor);
+                    if (summary != null) {
+                        summaries.add(summary);
+                    }
+                }
+                RepositoryMetrics.countConverted(summaries.size());
+                Log.d(TAG, "Summary query found " + summaries.size() + " events.");
+            } else {
+                Log.w(TAG, "Summary query returned null cursor.");
+            }
+        } catch (SecurityException e) {
+            Log.e(TAG, "querySummaryRows failed: Permission denied", e);
+        } catch (OperationCanceledException e) {
+            throw e; // Không trả list rỗng: kết quả bị hủy không được đưa vào cache/LiveData
+        } catch (Exception e) {
+            Log.e(TAG, "querySummaryRows failed: Error querying events", e);
+        } finally {
+            closeCursor(cursor);
+        }
+        return summaries;
+    }
+
+    private List<Event> queryEventRows(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        return queryEventRows(uri, projection, selection, selectionArgs, sortOrder, true);
+    }
+
+    // withReminders = false: không truy vấn bảng Reminders, Event có reminderMinutes = 0
+    private List<Event> queryEventRows(Uri uri, String[] projection, String selection, String[] selectionArgs,
+                                       String sortOrder, boolean withReminders) {
+        List<Event> events = new FailedRows<>();
+        Cursor cursor = null;
+        // **QUAN TRỌNG: Quyền READ_CALENDAR phải được kiểm tra trước khi gọi hàm này**
+        try {
+            cursor = queryProvider(
+                    uri,
+                    projection,
+                    selection,
+                    selectionArgs,
+                    sortOrder
             );
-            
-            if (cursor != null && cursor.moveToFirst()) {
-                reminderMinutes = cursor.getInt(0);
-                Log.d(TAG, "Found reminder for event " + eventId + ": " + reminderMinutes + " minutes");
+
+            if (cursor != null) {
+                events = new ArrayList<>();
+                int count = cursor.getCount();
+                Log.d(TAG,"Query found " + count + " events.");
+                
+                RepositoryMetrics.countRows(count);
+
+                if (count > 0) {
+                    events = readEvents(cursor, withReminders);
+                    // Log từng dòng chỉ khi bật: adb shell setprop log.tag.EventRepository VERBOSE
+                    if (VERBOSE_LOGGING) {
+                        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
+                        for (Event event : events) {
+                            // Log thông tin chi tiết về sự kiện
+                            String startTime = sdf.format(new Date(event.getStartTime()));
+                            String endTime = sdf.format(new Date(event.getEndTime()));
+                            Log.v(TAG, "Event found: ID=" + event.getId() +
+                                      ", Title=" + event.getTitle() +
+                                      ", Start=" + startTime +
+                                      ", End=" + endTime +
+                                      ", CalendarID=" + event.getCalendarId());
+                        }
+                    }
+                } else {
+                    Log.w(TAG, "No events found for query: " + (selection != null ? selection : "null"));
+                    if (selectionArgs != null && selectionArgs.length > 0) {
+                        StringBuilder argStr = new StringBuilder();
+                        for (String arg : selectionArgs) {
+                            argStr.append(arg).append(", ");
+                        }
+                        Log.d(TAG, "Selection args: " + argStr.toString());
+                    }
+                }
             } else {
-                Log.d(TAG, "No reminder found for event " + eventId);
+                Log.w(TAG, "Event query returned null cursor.");
             }
+        } catch (SecurityException e) {
+            Log.e(TAG, "queryEvents failed: Permission denied", e);
+            // Trả về list rỗng hoặc throw exception tùy logic xử lý lỗi
+        } catch (OperationCanceledException e) {
+            throw e; // Không trả list rỗng: kết quả bị hủy không được đưa vào cache/LiveData
         } catch (Exception e) {
-            Log.e(TAG, "Error querying reminder for event " + eventId, e);
+            Log.e(TAG, "queryEvents failed: Error querying events", e);
         } finally {
             closeCursor(cursor);
         }
-        
-        return reminderMinutes;
+        return events;
+    }
+
+    // Kết quả của một truy vấn lỗi (không có quyền, lỗi provider, cursor null): rỗng như khi không có sự kiện,
+    // nhưng không được đưa vào cache
+    private static final class FailedRows<T> extends ArrayList<T> {
+    }
+
+    private static boolean isFailed(List<?> rows) {
+        return rows instanceof FailedRows;
+    }
+
+    // --- Helper method to materialize all rows of an event cursor ---
+    // Đọc ID của toàn bộ kết quả trước, lấy reminders theo lô, rồi mới chuyển từng dòng thành Event.
+    // Nhờ vậy số lần IPC tới Reminders không còn tăng theo số sự kiện (tránh N+1 query).
+    private List<Event> readEvents(@NonNull Cursor cursor) {
+        return readEvents(cursor, true);
+    }
+
+    private List<Event> readEvents(@NonNull Cursor cursor, boolean withReminders) {
+        int count = cursor.getCount();
+        List<Event> events = new ArrayList<>(Math.max(count, 0));
+        if (count <= 0) return events;
+
+        long[] eventIds = new long[count];
+        int idCount = 0;
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext() && idCount < count) {
+            eventIds[idCount++] = cursor.getLong(PROJECTION_ID_INDEX);
+        }
+        LongIntMap reminders = withReminders ? prefetchReminderMinutes(eventIds, idCount) : new LongIntMap(0);
+
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            Event event = cursorToEvent(cursor, reminders);
+            if (event != null) {
+                events.add(event);
+            }
+        }
+        RepositoryMetrics.countConverted(events.size());
+        return events;
+    }
+
+    // Lấy reminder (phút) cho nhiều event bằng các truy vấn "EVENT_ID IN (...)" theo từng chunk.
+    // Với mỗi event chỉ giữ reminder đầu tiên, giống hành vi của moveToFirst() trước đây.
+    private LongIntMap prefetchReminderMinutes(long[] eventIds, int count) {
+        LongIntMap reminders = new LongIntMap(count);
+        for (int from = 0; from < count; from += REMINDER_PREFETCH_CHUNK_SIZE) {
+            int to = Math.min(from + REMINDER_PREFETCH_CHUNK_SIZE, count);
+            String[] selectionArgs = new String[to - from];
+            StringBuilder selection = new StringBuilder(CalendarContract.Reminders.EVENT_ID).append(" IN (");
+            for (int i = from; i < to; i++) {
+                if (i > from) selection.append(',');
+                selection.append('?');
+                selectionArgs[i - from] = String.valueOf(eventIds[i]);
+            }
+            selection.append(')');
+
+            Cursor cursor = null;
+            try {
+                cursor = queryProvider(
+                        CalendarContract.Reminders.CONTENT_URI,
+                        REMINDER_PROJECTION,
+                        selection.toString(),
+                        selectionArgs,
+                        null
+                );
+                if (cursor != null) {
+                    RepositoryMetrics.countRows(cursor.getCount());
+                    while (cursor.moveToNext()) {
+                        reminders.putIfAbsent(cursor.getLong(PROJECTION_REMINDER_EVENT_ID_INDEX),
+                                cursor.getInt(PROJECTION_REMINDER_MINUTES_INDEX));
+                    }
+                }
+            } catch (OperationCanceledException e) {
+                throw e;
+            } catch (Exception e) {
+                Log.e(TAG, "Error prefetching reminders for " + (to - from) + " events", e);
+            } finally {
+                closeCursor(cursor);
+            }
+        }
+        Log.d(TAG, "Prefetched reminders for " + count + " events (" + reminders.size() + " with reminder)");
+        return reminders;
+    }
+
+    // --- Helper method to convert Cursor row to Event object ---
+    private Event cursorToEvent(@NonNull Cursor cursor, @NonNull LongIntMap reminders) {
+        try {
+            long id = cursor.getLong(PROJECTION_ID_INDEX);
+            long calendarId = cursor.getLong(PROJECTION_CALENDAR_ID_INDEX);
+            String title = cursor.getString(PROJECTION_TITLE_INDEX);
+            String location = cursor.getString(PROJECTION_LOCATION_INDEX);
+            String description = cursor.getString(PROJECTION_DESCRIPTION_INDEX);
+            long startTime = cursor.getLong(PROJECTION_DTSTART_INDEX);
+            long endTime = cursor.getLong(PROJECTION_DTEND_INDEX); // Có thể là 0 hoặc null
+            String duration = cursor.getString(PROJECTION_DURATION_INDEX); // Có thể null
+            String timeZone = cursor.getString(PROJECTION_TIMEZONE_INDEX);
+            boolean isAllDay = cursor.getInt(PROJECTION_ALL_DAY_INDEX) == 1;
+
+            endTime = resolveEndTime(id, startTime, endTime, duration, isAllDay, timeZone);
+
+            // Tạo đối tượng Event (Sử dụng constructor hoặc setters)
+            Event event = new Event();
+            event.setId(id);
+            event.setCalendarId(calendarId);
+            event.setTimeZone(timeZone);
+            event.setTitle(title);
+            event.setStartTime(startTime);
+            event.setEndTime(endTime);
+            event.setLocation(location);
+            event.setDescription(description);
+            event.setAllDay(isAllDay);
+            event.setRrule(cursor.getString(PROJECTION_RRULE_INDEX));
+            event.setExdate(cursor.getString(PROJECTION_EXDATE_INDEX));
+            
+            // Reminder đã được lấy trước theo lô (xem prefetchReminderMinutes)
+            event.setReminderMinutes(reminders.get(id, 0));
+            
+            return event;
+        } catch (Exception e) {
+            Log.e(TAG, "Error converting cursor to event at position " + cursor.getPosition(), e);
+            return null;
+        }
+    }
+
+    // --- Helper method to convert Cursor row to EventSummary ---
+    private EventSummary cursorToSummary(@NonNull Cursor cursor) {
+        try {
+            long id = cursor.getLong(SUMMARY_ID_INDEX);
+            long startTime = cursor.getLong(SUMMARY_START_INDEX);
+            boolean isAllDay = cursor.getInt(SUMMARY_ALL_DAY_INDEX) == 1;
+            // Sự kiện cả ngày được lưu theo UTC nên không cần timezone của sự kiện để tính endTime
+            long endTime = resolveEndTime(id, startTime, cursor.getLong(SUMMARY_END_INDEX),
+                    cursor.getString(SUMMARY_DURATION_INDEX), isAllDay, isAllDay ? "UTC" : null);
+            return new EventSummary(id, cursor.getLong(SUMMARY_CALENDAR_ID_INDEX), cursor.getString(SUMMARY_TITLE_INDEX),
+                    startTime, endTime,
+                    cursor.getString(SUMMARY_LOCATION_INDEX), isAllDay);
+        } catch (Exception e) {
+            Log.e(TAG, "Error converting cursor to event summary at position " + cursor.getPosition(), e);
+            return null;
+        }
+    }
+
+    // endTime khi DTEND không có (sự kiện lặp lại dùng DURATION, sự kiện cả ngày, sự kiện tức thời)
+    private static long resolveEndTime(long id, long startTime, long endTime, String duration, boolean isAllDay,
+                                       String timeZone) {
+        // Xử lý trường hợp endTime không có và có duration (phức tạp, bỏ qua xử lý duration chi tiết ở đây)
+        if (endTime <= 0 && !TextUtils.isEmpty(duration)) {
+            // Nếu là sự kiện cả ngày theo duration P1D, tính toán endTime hợp lý
+            if(isAllDay && "P1D".equals(duration)) {
+                Calendar startCal = Calendar.getInstance();
+                if (!TextUtils.isEmpty(timeZone)) startCal.setTimeZone(TimeZone.getTimeZone(timeZone));
+                startCal.setTimeInMillis(startTime);
+                startCal.add(Calendar.DATE, 1); // Bắt đầu ngày hôm sau
+                endTime = startCal.getTimeInMillis();
+            } else {
+                // Sự kiện lặp lại luôn dùng DURATION (ví dụ "P3600S", "PT1H30M")
+                try {
+                    endTime = startTime + Math.max(0, DateTimeUtils.parseDuration(duration));
+                } catch (IllegalArgumentException e) {
+                    Log.w(TAG, "Event " + id + " has unparseable duration '" + duration + "'");
+                    if (!isAllDay) endTime = startTime;
+                }
+            }
+        } else if (endTime <= 0 && !isAllDay) {
+            // Sự kiện tức thời nếu không có endTime/duration và không phải all day
+            endTime = startTime;
+        }
+        // Nếu là all day nhưng không có endTime/duration, endTime cũng nên được tính toán
+        else if (isAllDay && endTime <= 0) {
+            Calendar startCal = Calendar.getInstance();
+            if (!TextUtils.isEmpty(timeZone)) startCal.setTimeZone(TimeZone.getTimeZone(timeZone));
+            startCal.setTimeInMillis(startTime);
+            startCal.add(Calendar.DATE, 1); // Bắt đầu ngày hôm sau
+            endTime = startCal.getTimeInMillis();
+        }
+        return endTime;
+    }
+
+    // Bản sao để dữ liệu trong searchIndex/detailCache không bị thay đổi bởi nơi gọi
+    private static Event copyOf(Event event) {
+        Event copy = new Event(event.getId(), event.getCalendarId(), event.getTimeZone(), event.getTitle(),
+                event.getStartTime(), event.getEndTime(), event.getLocation(), event.getDescription(),
+                event.getReminderMinutes(), event.isAllDay());
+        copy.setRrule(event.getRrule());
+        copy.setExdate(event.getExdate());
+        return copy;
     }
 
     // --- Helper method to safely close cursor ---
@@ -853,6 +2158,207 @@ public class EventRepository {
         void onError(String message);
     }
 
+    // Listener cho các thao tác ghi theo lô (applyEventBatch / insertAll)
+    public interface OnBatchOperationListener {
+        void onComplete(List<EventWriteResult> results); // Cùng thứ tự với danh sách đầu vào
+    }
+
+    // Một thao tác ghi trong lô
+    public static final class EventWrite {
+        public enum Type { INSERT, UPDATE, DELETE }
+
+        private final Type type;
+        private final Event event;
+
+        private EventWrite(Type type, Event event) {
+            this.type = type;
+            this.event = event;
+        }
+
+        public static EventWrite insert(Event event) { return new EventWrite(Type.INSERT, event); }
+        public static EventWrite update(Event event) { return new EventWrite(Type.UPDATE, event); }
+        public static EventWrite delete(Event event) { return new EventWrite(Type.DELETE, event); }
+
+        public Type getType() { return type; }
+        public Event getEvent() { return event; }
+    }
+
+    // Kết quả của một thao tác ghi trong lô
+    public static final class EventWriteResult {
+        private final EventWrite write;
+        private final long eventId;   // ID sự kiện (ID mới nếu là INSERT), -1 nếu lỗi
+        private final String error;   // null nếu thành công
+
+        private EventWriteResult(EventWrite write, long eventId, String error) {
+            this.write = write;
+            this.eventId = eventId;
+            this.error = error;
+        }
+
+        static EventWriteResult success(EventWrite write, long eventId) { return new EventWriteResult(write, eventId, null); }
+        static EventWriteResult failure(EventWrite write, String error) { return new EventWriteResult(write, -1, error); }
+
+        public EventWrite getWrite() { return write; }
+        public long getEventId() { return eventId; }
+        public String getError() { return error; }
+        public boolean isSuccess() { return error == null; }
+    }
+
+    // Listener cho việc nhập file .ics (gọi trên background thread)
+    public interface OnImportListener {
+        void onProgress(int imported, int failed); // Sau mỗi lô
+        void onComplete(int imported, int failed, boolean cancelled);
+        void onError(String message);
+    }
+
+    // Listener cho việc xuất file .ics (gọi trên background thread)
+    public interface OnExportListener {
+        void onProgress(int exported);
+        void onComplete(int exported, boolean cancelled);
+        void onError(String message);
+    }
+
+    // Truy vấn cần xuất ra file .ics
+    public static final class ExportQuery {
+        enum Kind { EVENTS, RANGE }
+
+        // Số ID tối đa trong một mệnh đề IN
+        private static final int ID_CHUNK_SIZE = 500;
+
+        final Kind kind;
+        private final String selection;
+        private final String[] selectionArgs;
+        private final long[] ids; // Khác null: chỉ xuất các sự kiện này (tăng dần, không trùng)
+        final long beginMillis;
+        final long endMillis;
+
+        private ExportQuery(Kind kind, String selection, String[] selectionArgs, long[] ids,
+                            long beginMillis, long endMillis) {
+            this.kind = kind;
+            this.selection = selection;
+            this.selectionArgs = selectionArgs;
+            this.ids = ids;
+            this.beginMillis = beginMillis;
+            this.endMillis = endMillis;
+        }
+
+        // Tất cả sự kiện (sự kiện lặp lại được xuất kèm RRULE)
+        public static ExportQuery all() {
+            return new ExportQuery(Kind.EVENTS, NOT_DELETED, null, null, 0, 0);
+        }
+
+        public static ExportQuery calendar(long calendarId) {
+            return new ExportQuery(Kind.EVENTS, CalendarContract.Events.CALENDAR_ID + " = ? AND " + NOT_DELETED,
+                    new String[]{String.valueOf(calendarId)}, null, 0, 0);
+        }
+
+        // Đúng các sự kiện đang hiển thị (ví dụ kết quả tìm kiếm của chỉ mục), truy vấn theo "_ID IN (...)"
+        public static ExportQuery events(@NonNull List<? extends EventSummary> events) {
+            long[] ids = new long[events.size()];
+            for (int i = 0; i < ids.length; i++) ids[i] = events.get(i).getId();
+            Arrays.sort(ids);
+            int count = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (count == 0 || ids[i] != ids[count - 1]) ids[count++] = ids[i];
+            }
+            return new ExportQuery(Kind.EVENTS, null, null, Arrays.copyOf(ids, count), 0, 0);
+        }
+
+        // Số truy vấn Events cần chạy: danh sách id được chia theo ID_CHUNK_SIZE
+        int queryCount() {
+            return ids == null ? 1 : (ids.length + ID_CHUNK_SIZE - 1) / ID_CHUNK_SIZE;
+        }
+
+        String selection(int part) {
+            if (ids == null) return selection;
+            int from = part * ID_CHUNK_SIZE;
+            int to = Math.min(from + ID_CHUNK_SIZE, ids.length);
+            StringBuilder builder = new StringBuilder(CalendarContract.Events._ID).append(" IN (");
+            for (int i = from; i < to; i++) {
+                if (i > from) builder.append(',');
+                builder.append('?');
+            }
+            return builder.append(") AND ").append(NOT_DELETED).toString();
+        }
+
+        String[] selectionArgs(int part) {
+            if (ids == null) return selectionArgs;
+            int from = part * ID_CHUNK_SIZE;
+            int to = Math.min(from + ID_CHUNK_SIZE, ids.length);
+            String[] args = new String[to - from];
+            for (int i = from; i < to; i++) args[i - from] = String.valueOf(ids[i]);
+            return args;
+        }
+
+        // Mọi lần xuất hiện giao với [beginMillis, endMillis)
+        public static ExportQuery range(long beginMillis, long endMillis) {
+            return new ExportQuery(Kind.RANGE, null, null, null, beginMillis, endMillis);
+        }
+
+        // Mọi lần xuất hiện trong tháng ("MM-yyyy"), null nếu chuỗi không hợp lệ
+        public static ExportQuery month(String monthYear) {
+            long[] range = monthRange(monthYear);
+            return range != null ? range(range[0], range[1]) : null;
+        }
+    }
+
+    // Khóa keyset (DTSTART, _ID) của một vị trí trong danh sách sự kiện sắp theo thời gian
+    public static final class PageKey {
+        private final long startMillis;
+        private final long eventId;
+
+        public PageKey(long startMillis, long eventId) {
+            this.startMillis = startMillis;
+            this.eventId = eventId;
+        }
+
+        // Vị trí ngay trước mọi sự kiện bắt đầu từ startMillis (ID sự kiện luôn > 0)
+        public static PageKey at(long startMillis) {
+            return new PageKey(startMillis, 0);
+        }
+
+        // Vị trí của chính sự kiện: trang sau không gồm sự kiện này
+        public static PageKey after(@NonNull EventSummary event) {
+            return new PageKey(event.getStartTime(), event.getId());
+        }
+
+        // Vị trí ngay trước sự kiện: trang sau bắt đầu từ chính sự kiện này
+        public static PageKey before(@NonNull EventSummary event) {
+            return new PageKey(event.getStartTime(), event.getId() - 1);
+        }
+
+        public long getStartMillis() { return startMillis; }
+        public long getEventId() { return eventId; }
+    }
+
+    // Listener cho loadEventPage (gọi trên background thread)
+    public interface OnEventPageLoadedListener {
+        // providerVersion: phiên bản provider lúc truy vấn (xem ProviderQueryLiveData.getProviderVersion)
+        void onPageLoaded(List<EventSummary> page, long providerVersion);
+    }
+
+    // Listener cho refreshChanges (gọi trên background thread)
+    public interface OnProviderChangesListener {
+        void onProviderChanges(EventChangeTracker.ChangeSet changes);
+    }
+
+    // Listener cho findConflicts (gọi trên background thread)
+    public interface OnConflictsFoundListener {
+        // conflicts: mỗi sự kiện trùng giờ một lần, theo thứ tự thời gian bắt đầu (rỗng nếu không trùng)
+        void onConflictsFound(List<EventSummary> conflicts);
+    }
+
+    // Listener cho findFreeSlots (gọi trên background thread)
+    public interface OnFreeSlotsFoundListener {
+        void onFreeSlotsFound(List<FreeSlotFinder.Slot> slots);
+    }
+
+    // Listener cho loadUpcomingReminders (gọi trên background thread)
+    public interface OnRemindersLoadedListener {
+        void onSuccess(List<ReminderQueue.Entry> reminders);
+        void onError(String message);
+    }
+
     // Listener cho việc load danh sách lịch
     public interface OnCalendarsLoadedListener {
         void onSuccess(List<CalendarInfo> calendars);
@@ -861,7 +2367,7 @@ public class EventRepository {
 
     // Phương thức để truy vấn sự kiện mới được thêm vào theo calendarId
     private void verifyRecentlyAddedEvent(long eventId, long calendarId) {
-        executorService.execute(() -> {
+        runRead("verifyRecentlyAddedEvent", Priority.BACKGROUND, () -> {
             Log.d(TAG, "Verifying recently added event with ID: " + eventId + ", Calendar ID: " + calendarId);
             
             // 1. Kiểm tra sự kiện bằng ID
@@ -869,9 +2375,10 @@ public class EventRepository {
                 Uri eventUri = ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, eventId);
                 Cursor cursor = null;
                 try {
-                    cursor = contentResolver.query(eventUri, EVENT_PROJECTION, null, null, null);
-                    if (cursor != null && cursor.moveToFirst()) {
-                        Event event = cursorToEvent(cursor);
+                    cursor = queryProvider(eventUri, EVENT_PROJECTION, null, null, null);
+                    List<Event> found = cursor != null ? readEvents(cursor) : new ArrayList<>();
+                    if (!found.isEmpty()) {
+                        Event event = found.get(0);
                         Log.d(TAG, "✓ Found event by ID: " + eventId + 
                              ", Title: " + event.getTitle() + 
                              ", CalendarID: " + event.getCalendarId());
@@ -892,7 +2399,7 @@ public class EventRepository {
                     String selection = CalendarContract.Events.CALENDAR_ID + " = ?";
                     String[] selectionArgs = new String[]{String.valueOf(calendarId)};
                     
-                    cursor = contentResolver.query(
+                    cursor = queryProvider(
                             CalendarContract.Events.CONTENT_URI,
                             EVENT_PROJECTION,
                             selection,
@@ -903,8 +2410,7 @@ public class EventRepository {
                     if (cursor != null && cursor.getCount() > 0) {
                         Log.d(TAG, "✓ Found " + cursor.getCount() + " events with Calendar ID: " + calendarId);
                         SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
-                        while (cursor.moveToNext()) {
-                            Event event = cursorToEvent(cursor);
+                        for (Event event : readEvents(cursor)) {
                             String startTime = sdf.format(new Date(event.getStartTime()));
                             Log.d(TAG, "  Event: ID=" + event.getId() + 
                                       ", Title='" + event.getTitle() + 
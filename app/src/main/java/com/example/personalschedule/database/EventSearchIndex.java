@@ -0,0 +1,348 @@
+package com.example.personalschedule.database;
+
+import androidx.annotation.NonNull;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Chỉ mục tìm kiếm toàn văn (inverted index) trong bộ nhớ cho tiêu đề, địa điểm và mô tả sự kiện.
+ *
+ * - Văn bản được chuẩn hóa: chữ thường, bỏ dấu tiếng Việt ("Họp" khớp "hop"), tách theo ký tự
+ *   không phải chữ/số.
+ * - Mỗi từ trong truy vấn khớp theo tiền tố ("hop" khớp "hợp", "họp", "hopdong"); mọi từ đều
+ *   phải khớp (AND).
+ * - Kết quả được xếp hạng: khớp ở tiêu đề > địa điểm > mô tả, khớp nguyên từ > khớp tiền tố;
+ *   cùng điểm thì sự kiện bắt đầu sớm hơn đứng trước.
+ *
+ * Các từ được giữ trong mảng đã sắp xếp (dựng lại khi cần) nên tra tiền tố là tìm nhị phân.
+ * Phần tử bị xóa/cập nhật chỉ bị đánh dấu, chỉ mục tự nén lại khi có quá nhiều slot chết.
+ *
+ * Thread-safe (mọi phương thức public đều synchronized).
+ */
+public class EventSearchIndex<T> {
+
+    // Cách lấy dữ liệu cần đánh chỉ mục từ phần tử được lưu
+    public interface SearchAdapter<T> {
+        long idOf(T item);
+        long startOf(T item);
+        String titleOf(T item);
+        String locationOf(T item);
+        String descriptionOf(T item);
+    }
+
+    // Bit trường trong posting (3 bit thấp của mỗi posting)
+    private static final int FIELD_TITLE = 1;
+    private static final int FIELD_LOCATION = 2;
+    private static final int FIELD_DESCRIPTION = 4;
+    private static final int FIELD_BITS = 3;
+
+    private static final int WEIGHT_TITLE = 8;
+    private static final int WEIGHT_LOCATION = 3;
+    private static final int WEIGHT_DESCRIPTION = 1;
+
+    private final SearchAdapter<T> adapter;
+
+    // Slot -> phần tử (null nếu đã bị xóa)
+    private Object[] items = new Object[64];
+    private long[] starts = new long[64];
+    private int slotCount = 0;
+    private int liveCount = 0;
+    // id -> slot hiện tại
+    private final Map<Long, Integer> slotById = new HashMap<>();
+
+    // Từ -> danh sách posting (slot << FIELD_BITS | fieldMask)
+    private final Map<String, Postings> postingsByTerm = new HashMap<>();
+    // Các từ đã sắp xếp để tra tiền tố (null khi cần dựng lại)
+    private String[] sortedTerms;
+
+    private static final class Postings {
+        int[] entries = new int[4];
+        int size;
+
+        void add(int entry) {
+            if (size == entries.length) entries = Arrays.copyOf(entries, size * 2);
+            entries[size++] = entry;
+        }
+    }
+
+    public EventSearchIndex(@NonNull SearchAdapter<T> adapter) {
+        this.adapter = adapter;
+    }
+
+    public synchronized int size() {
+        return liveCount;
+    }
+
+    /**
+     * Dựng lại toàn bộ chỉ mục từ danh sách vừa load.
+     */
+    public synchronized void rebuild(@NonNull List<T> all) {
+        clearInternal();
+        for (T item : all) {
+            addInternal(item);
+        }
+    }
+
+    public synchronized void clear() {
+        clearInternal();
+    }
+
+    /**
+     * Thêm hoặc thay thế phần tử có cùng id.
+     */
+    public synchronized void put(@NonNull T item) {
+        removeInternal(adapter.idOf(item));
+        addInternal(item);
+        compactIfNeeded();
+    }
+
+    public synchronized void remove(long id) {
+        removeInternal(id);
+        compactIfNeeded();
+    }
+
+    /**
+     * @return phần tử có id này, hoặc null nếu không có trong chỉ mục.
+     */
+    public synchronized T get(long id) {
+        Integer slot = slotById.get(id);
+        if (slot == null) return null;
+        @SuppressWarnings("unchecked")
+        T item = (T) items[slot];
+        return item;
+    }
+
+    /**
+     * @return các phần tử khớp với mọi từ trong truy vấn, theo thứ hạng giảm dần (tối đa limit phần tử).
+     */
+    public synchronized List<T> search(String query, int limit) {
+        String[] tokens = tokenize(query);
+        if (tokens.length == 0 || liveCount == 0) return new ArrayList<>();
+        ensureSortedTerms();
+
+        int[] scores = new int[slotCount];
+        int[] matchedTokens = new int[slotCount]; // Số từ truy vấn đã khớp liên tiếp cho mỗi slot
+        int[] tokenScore = new int[slotCount];    // Điểm tốt nhất của từ truy vấn hiện tại
+        int[] touched = new int[slotCount];
+        for (int t = 0; t < tokens.length; t++) {
+            String prefix = tokens[t];
+            int touchedCount = 0;
+            int from = lowerBound(prefix);
+            for (int i = from; i < sortedTerms.length && sortedTerms[i].startsWith(prefix); i++) {
+                boolean exact = sortedTerms[i].length() == prefix.length();
+                Postings postings = postingsByTerm.get(sortedTerms[i]);
+                for (int p = 0; p < postings.size; p++) {
+                    int slot = postings.entries[p] >>> FIELD_BITS;
+                    // Slot đã chết hoặc đã trượt một từ trước đó -> bỏ qua
+                    if (items[slot] == null || matchedTokens[slot] != t) continue;
+                    int score = fieldScore(postings.entries[p]) * (exact ? 2 : 1);
+                    if (tokenScore[slot] == 0) touched[touchedCount++] = slot;
+                    if (score > tokenScore[slot]) tokenScore[slot] = score;
+                }
+            }
+            for (int k = 0; k < touchedCount; k++) {
+                int slot = touched[k];
+                scores[slot] += tokenScore[slot];
+                tokenScore[slot] = 0;
+                matchedTokens[slot] = t + 1;
+            }
+        }
+
+        // Giữ limit kết quả tốt nhất bằng heap (phần tử kém nhất ở gốc): O(n log limit)
+        // thay vì sắp xếp toàn bộ khi từ khóa ngắn khớp rất nhiều sự kiện
+        int[] heap = new int[Math.max(0, Math.min(limit, liveCount))];
+        int heapSize = 0;
+        for (int slot = 0; slot < slotCount && heap.length > 0; slot++) {
+            if (items[slot] == null || matchedTokens[slot] != tokens.length) continue;
+            if (heapSize < heap.length) {
+                heap[heapSize] = slot;
+                siftUp(heap, heapSize++, scores);
+            } else if (ranksBefore(slot, heap[0], scores)) {
+                heap[0] = slot;
+                siftDown(heap, heapSize, scores);
+            }
+        }
+
+        // Lấy dần phần tử kém nhất ra cuối danh sách
+        Object[] ordered = new Object[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            ordered[i] = items[heap[0]];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize, scores);
+        }
+        List<T> result = new ArrayList<>(ordered.length);
+        for (Object item : ordered) {
+            @SuppressWarnings("unchecked")
+            T typed = (T) item;
+            result.add(typed);
+        }
+        return result;
+    }
+
+    // --- Chuẩn hóa văn bản ---
+
+    /**
+     * Tách văn bản thành các từ đã chuẩn hóa (chữ thường, không dấu).
+     */
+    public static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) return new String[0];
+        String normalized = normalize(text);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean letterOrDigit = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (letterOrDigit && start < 0) {
+                start = i;
+            } else if (!letterOrDigit && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue; // Bỏ dấu
+            builder.append(c == 'đ' ? 'd' : c); // "đ" không tách dấu được bằng NFD
+        }
+        return builder.toString();
+    }
+
+    // --- Helpers ---
+
+    private void addInternal(T item) {
+        ensureCapacity(slotCount + 1);
+        int slot = slotCount++;
+        items[slot] = item;
+        starts[slot] = adapter.startOf(item);
+        slotById.put(adapter.idOf(item), slot);
+        liveCount++;
+
+        // Gộp các trường của cùng một từ thành một posting
+        Map<String, Integer> fieldsByTerm = new HashMap<>();
+        collectTerms(adapter.titleOf(item), FIELD_TITLE, fieldsByTerm);
+        collectTerms(adapter.locationOf(item), FIELD_LOCATION, fieldsByTerm);
+        collectTerms(adapter.descriptionOf(item), FIELD_DESCRIPTION, fieldsByTerm);
+        for (Map.Entry<String, Integer> entry : fieldsByTerm.entrySet()) {
+            Postings postings = postingsByTerm.get(entry.getKey());
+            if (postings == null) {
+                postings = new Postings();
+                postingsByTerm.put(entry.getKey(), postings);
+                sortedTerms = null;
+            }
+            postings.add((slot << FIELD_BITS) | entry.getValue());
+        }
+    }
+
+    private static void collectTerms(String text, int field, Map<String, Integer> out) {
+        for (String token : tokenize(text)) {
+            Integer fields = out.get(token);
+            out.put(token, fields == null ? field : fields | field);
+        }
+    }
+
+    private void removeInternal(long id) {
+        Integer slot = slotById.remove(id);
+        if (slot == null) return;
+        items[slot] = null;
+        liveCount--;
+    }
+
+    // Dựng lại khi hơn nửa số slot đã chết để postings không phình mãi
+    private void compactIfNeeded() {
+        if (slotCount < 64 || liveCount * 2 > slotCount) return;
+        List<T> live = new ArrayList<>(liveCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            @SuppressWarnings("unchecked")
+            T item = (T) items[slot];
+            if (item != null) live.add(item);
+        }
+        rebuild(live);
+    }
+
+    private void clearInternal() {
+        Arrays.fill(items, 0, slotCount, null);
+        slotCount = 0;
+        liveCount = 0;
+        slotById.clear();
+        postingsByTerm.clear();
+        sortedTerms = null;
+    }
+
+    private void ensureSortedTerms() {
+        if (sortedTerms != null) return;
+        sortedTerms = postingsByTerm.keySet().toArray(new String[0]);
+        Arrays.sort(sortedTerms);
+    }
+
+    // Vị trí đầu tiên có từ >= prefix
+    private int lowerBound(String prefix) {
+        int lo = 0, hi = sortedTerms.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedTerms[mid].compareTo(prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // true nếu slot a xếp trước slot b (điểm cao hơn, hoặc cùng điểm nhưng bắt đầu sớm hơn)
+    private boolean ranksBefore(int a, int b, int[] scores) {
+        if (scores[a] != scores[b]) return scores[a] > scores[b];
+        return starts[a] < starts[b];
+    }
+
+    private void siftUp(int[] heap, int index, int[] scores) {
+        int slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksBefore(heap[parent], slot, scores)) break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = slot;
+    }
+
+    private void siftDown(int[] heap, int size, int[] scores) {
+        if (size == 0) return;
+        int slot = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) break;
+            if (child + 1 < size && ranksBefore(heap[child], heap[child + 1], scores)) child++;
+            if (!ranksBefore(slot, heap[child], scores)) break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = slot;
+    }
+
+    private static int fieldScore(int posting) {
+        int score = 0;
+        if ((posting & FIELD_TITLE) != 0) score += WEIGHT_TITLE;
+        if ((posting & FIELD_LOCATION) != 0) score += WEIGHT_LOCATION;
+        if ((posting & FIELD_DESCRIPTION) != 0) score += WEIGHT_DESCRIPTION;
+        return score;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= items.length) return;
+        int newLength = Math.max(capacity, items.length * 2);
+        items = Arrays.copyOf(items, newLength);
+        starts = Arrays.copyOf(starts, newLength);
+    }
+}
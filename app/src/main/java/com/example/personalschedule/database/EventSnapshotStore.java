@@ -0,0 +1,280 @@
+package com.example.personalschedule.database;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.personalschedule.models.EventSummary;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bản chụp (snapshot) nhị phân các sự kiện của tháng hiện tại và hai tháng bên cạnh, lưu trong bộ nhớ
+ * riêng của app, để lần mở app sau vẽ được khung hình đầu tiên trước khi Calendar Provider trả lời.
+ * Dữ liệu trong snapshot chỉ là giá trị tạm: LiveData được seed bằng nó rồi vẫn truy vấn provider.
+ *
+ * Định dạng (big-endian, mọi chuỗi là UTF-8 có độ dài đứng trước, -1 = null):
+ * <pre>
+ *   int magic, int formatVersion, long savedAtMillis, int monthCount
+ *   monthCount x { int blockLength, [block] }
+ *   block = String monthKey, long begin, long end, int eventCount,
+ *           eventCount x { long id, long calendarId, long start, long end, byte allDay, String title, String location }
+ * </pre>
+ * Mỗi tháng có độ dài đứng trước nên một tháng hỏng không làm hỏng các tháng khác. File được đọc qua
+ * FileChannel.map (không copy vào heap trước khi parse) và ghi bằng AtomicFile (không bao giờ đọc
+ * phải file ghi dở). File sai magic/phiên bản bị bỏ qua và xóa.
+ *
+ * Thread-safe.
+ */
+public final class EventSnapshotStore {
+
+    private static final String TAG = "EventSnapshotStore";
+
+    private static final String FILE_NAME = "event_snapshot.bin";
+    private static final int MAGIC = 0x50534E50; // "PSNP"
+    private static final int FORMAT_VERSION = 1;
+    // Giới hạn để file hỏng không làm cấp phát quá lớn
+    private static final int MAX_MONTHS = 12;
+    private static final int MAX_EVENTS_PER_MONTH = 10_000;
+    private static final int MAX_STRING_BYTES = 64 * 1024;
+
+    private static volatile EventSnapshotStore instance;
+
+    private final AtomicFile file;
+    private final AtomicBoolean preloadStarted = new AtomicBoolean();
+    // Các tháng đã đọc từ file (hoặc vừa ghi), theo key "MM-yyyy"; rỗng cho tới khi preload xong
+    private volatile Map<String, Month> months = Collections.emptyMap();
+
+    // Sự kiện của một tháng trong snapshot, [begin, end) theo múi giờ lúc lưu
+    public static final class Month {
+        final String key;
+        final long begin;
+        final long end;
+        final List<EventSummary> events;
+
+        public Month(@NonNull String key, long begin, long end, @NonNull List<EventSummary> events) {
+            this.key = key;
+            this.begin = begin;
+            this.end = end;
+            this.events = events;
+        }
+    }
+
+    private EventSnapshotStore(Context context) {
+        file = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    public static EventSnapshotStore getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (EventSnapshotStore.class) {
+                if (instance == null) instance = new EventSnapshotStore(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Đọc file ở background (chỉ lần đầu), để lúc màn hình đầu tiên cần dữ liệu thì đã có sẵn trong bộ nhớ.
+     */
+    public void preload() {
+        if (!preloadStarted.compareAndSet(false, true)) return;
+        RepositoryScheduler.getInstance().read(RepositoryScheduler.Priority.INTERACTIVE, this::load);
+    }
+
+    // --- Đọc (gọi được trên main thread: chỉ đọc dữ liệu đã nằm trong bộ nhớ) ---
+
+    /**
+     * @return sự kiện của tháng trong snapshot, hoặc null nếu chưa preload xong, không có tháng này,
+     * hoặc khoảng thời gian của tháng đã khác (ví dụ đổi múi giờ)
+     */
+    public List<EventSummary> peekMonth(@NonNull String monthYear, long begin, long end) {
+        Month month = months.get(monthYear);
+        if (month == null || month.begin != begin || month.end != end) return null;
+        return month.events;
+    }
+
+    /**
+     * @return sự kiện giao với [begin, end) nếu khoảng này nằm gọn trong một tháng của snapshot, hoặc null
+     */
+    public List<EventSummary> peekRange(long begin, long end) {
+        for (Month month : months.values()) {
+            if (month.begin > begin || end > month.end) continue;
+            List<EventSummary> result = new ArrayList<>();
+            for (EventSummary event : month.events) {
+                long eventEnd = Math.max(event.getEndTime(), event.getStartTime() + 1);
+                if (event.getStartTime() < end && eventEnd > begin) result.add(event);
+            }
+            return result;
+        }
+        return null;
+    }
+
+    // --- Ghi (background thread) ---
+
+    /**
+     * Thay toàn bộ snapshot bằng các tháng này. Lỗi ghi chỉ được log (snapshot chỉ để tăng tốc).
+     */
+    public synchronized void save(@NonNull List<Month> snapshot) {
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(snapshot.size());
+            int events = 0;
+            for (Month month : snapshot) {
+                byte[] block = encodeMonth(month);
+                out.writeInt(block.length);
+                out.write(block);
+                events += month.events.size();
+            }
+            out.flush();
+            file.finishWrite(stream);
+            Map<String, Month> saved = new HashMap<>();
+            for (Month month : snapshot) saved.put(month.key, month);
+            months = Collections.unmodifiableMap(saved);
+            Log.d(TAG, "Saved snapshot: " + snapshot.size() + " months, " + events + " events");
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot write event snapshot", e);
+            if (stream != null) file.failWrite(stream);
+        }
+    }
+
+    // --- Helpers ---
+
+    private synchronized void load() {
+        long startNanos = System.nanoTime();
+        FileInputStream stream = null;
+        try {
+            stream = file.openRead();
+            FileChannel channel = stream.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                Log.w(TAG, "Discarding snapshot with unknown format");
+                file.delete();
+                return;
+            }
+            buffer.getLong(); // savedAtMillis
+            int count = buffer.getInt();
+            if (count < 0 || count > MAX_MONTHS) throw new IllegalArgumentException("month count " + count);
+            Map<String, Month> loaded = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    // File bị cắt (ví dụ hết dung lượng): giữ các tháng đã đọc được
+                    Log.w(TAG, "Snapshot truncated after " + i + " months");
+                    break;
+                }
+                ByteBuffer block = buffer.slice();
+                block.limit(length);
+                buffer.position(buffer.position() + length);
+                try {
+                    Month month = decodeMonth(block);
+                    loaded.put(month.key, month);
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    Log.w(TAG, "Skipping corrupt month block " + i, e);
+                }
+            }
+            months = Collections.unmodifiableMap(loaded);
+            Log.d(TAG, "Loaded snapshot: " + loaded.size() + " months in "
+                    + (System.nanoTime() - startNanos) / 1000 + " us");
+        } catch (FileNotFoundException e) {
+            Log.d(TAG, "No event snapshot yet");
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            Log.w(TAG, "Discarding unreadable snapshot", e);
+            file.delete();
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    // Mã hóa/giải mã một khối tháng (package-private để unit test không cần file)
+    static byte[] encodeMonth(Month month) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + month.events.size() * 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, month.key);
+        out.writeLong(month.begin);
+        out.writeLong(month.end);
+        out.writeInt(month.events.size());
+        for (EventSummary event : month.events) {
+            out.writeLong(event.getId());
+            out.writeLong(event.getCalendarId());
+            out.writeLong(event.getStartTime());
+            out.writeLong(event.getEndTime());
+            out.writeByte(event.isAllDay() ? 1 : 0);
+            writeString(out, event.getTitle());
+            writeString(out, event.getLocation());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static Month decodeMonth(ByteBuffer block) {
+        String key = readString(block);
+        if (key == null) throw new IllegalArgumentException("missing month key");
+        long begin = block.getLong();
+        long end = block.getLong();
+        int count = block.getInt();
+        if (count < 0 || count > MAX_EVENTS_PER_MONTH) throw new IllegalArgumentException("event count " + count);
+        List<EventSummary> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long id = block.getLong();
+            long calendarId = block.getLong();
+            long start = block.getLong();
+            long eventEnd = block.getLong();
+            boolean allDay = block.get() == 1;
+            String title = readString(block);
+            String location = readString(block);
+            events.add(new EventSummary(id, calendarId, title, start, eventEnd, location, allDay));
+        }
+        return new Month(key, begin, end, Collections.unmodifiableList(events));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) return null;
+        if (length < 0 || length > MAX_STRING_BYTES || length > buffer.remaining()) {
+            throw new IllegalArgumentException("string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
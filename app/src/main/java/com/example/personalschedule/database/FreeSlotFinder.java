@@ -0,0 +1,99 @@
+package com.example.personalschedule.database;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Tìm các khoảng trống (không có sự kiện nào) đủ dài trong một cửa sổ thời gian, chỉ trong giờ làm việc.
+ *
+ * Các sự kiện bận được duyệt một lần theo thứ tự start (EventIntervalIndex đã trả về theo thứ tự
+ * này cho mọi lịch), giữ thời điểm "bận tới" lớn nhất: mỗi khi sự kiện tiếp theo bắt đầu sau thời
+ * điểm đó là có một khoảng trống. Khung giờ làm việc của từng ngày được duyệt song song với các
+ * khoảng trống, nên chi phí là O(n + số ngày), không sắp xếp lại hay so từng cặp.
+ *
+ * Không giữ trạng thái, an toàn khi gọi từ nhiều thread.
+ */
+public final class FreeSlotFinder {
+
+    private FreeSlotFinder() {
+    }
+
+    // Một khoảng trống [start, end)
+    public static final class Slot {
+        private final long start;
+        private final long end;
+
+        public Slot(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() { return start; }
+        public long getEnd() { return end; }
+        public long getDuration() { return end - start; }
+    }
+
+    /**
+     * @param sorted           các sự kiện bận, sắp xếp theo start tăng dần
+     * @param windowBegin      đầu cửa sổ tìm kiếm (ví dụ bây giờ)
+     * @param windowEnd        cuối cửa sổ tìm kiếm
+     * @param durationMillis   độ dài tối thiểu của khoảng trống
+     * @param workStartMinute  giờ bắt đầu làm việc, tính bằng phút từ 00:00 (ví dụ 9 * 60)
+     * @param workEndMinute    giờ kết thúc làm việc (ví dụ 18 * 60), phải lớn hơn workStartMinute
+     * @param timeZone         múi giờ để tính giờ làm việc của từng ngày
+     * @param maxSlots         số khoảng trống tối đa trả về
+     * @return các khoảng trống (đã cắt theo giờ làm việc) dài ít nhất durationMillis, theo thứ tự thời gian
+     */
+    public static <T> List<Slot> findFreeSlots(@NonNull List<T> sorted,
+                                               @NonNull EventIntervalIndex.IntervalAdapter<T> adapter,
+                                               long windowBegin, long windowEnd, long durationMillis,
+                                               int workStartMinute, int workEndMinute,
+                                               @NonNull TimeZone timeZone, int maxSlots) {
+        List<Slot> slots = new ArrayList<>();
+        if (windowEnd <= windowBegin || workEndMinute <= workStartMinute || maxSlots <= 0) return slots;
+        long duration = Math.max(1, durationMillis);
+
+        Calendar day = Calendar.getInstance(timeZone);
+        day.setTimeInMillis(windowBegin);
+        day.set(Calendar.HOUR_OF_DAY, 0); day.set(Calendar.MINUTE, 0); day.set(Calendar.SECOND, 0); day.set(Calendar.MILLISECOND, 0);
+
+        int next = 0;                  // Sự kiện tiếp theo chưa duyệt
+        long busyUntil = windowBegin;  // Mọi sự kiện đã duyệt kết thúc trước (hoặc đúng) thời điểm này
+        while (slots.size() < maxSlots) {
+            // Khung giờ làm việc của ngày hiện tại, cắt theo cửa sổ tìm kiếm
+            long workBegin = atMinute(day, workStartMinute);
+            long workEnd = atMinute(day, workEndMinute);
+            if (workBegin >= windowEnd) break;
+            day.add(Calendar.DATE, 1);
+            long from = Math.max(workBegin, windowBegin);
+            long to = Math.min(workEnd, windowEnd);
+            if (to - from < duration) continue;
+
+            // Các khoảng trống trong [from, to): sự kiện đã kết thúc trước from không còn ảnh hưởng
+            long cursor = Math.max(from, busyUntil);
+            while (next < sorted.size() && slots.size() < maxSlots) {
+                T item = sorted.get(next);
+                long start = adapter.startOf(item);
+                if (start >= to) break; // Thuộc các ngày sau, giữ lại cho vòng lặp ngày tiếp theo
+                long end = Math.max(adapter.endOf(item), start + 1);
+                if (start - cursor >= duration) slots.add(new Slot(cursor, start));
+                busyUntil = Math.max(busyUntil, end);
+                cursor = Math.max(cursor, end);
+                next++;
+            }
+            if (slots.size() < maxSlots && to - cursor >= duration) slots.add(new Slot(cursor, to));
+        }
+        return slots;
+    }
+
+    private static long atMinute(Calendar day, int minuteOfDay) {
+        Calendar calendar = (Calendar) day.clone();
+        calendar.set(Calendar.HOUR_OF_DAY, minuteOfDay / 60);
+        calendar.set(Calendar.MINUTE, minuteOfDay % 60);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.personalschedule.database;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache LRU có giới hạn cho kết quả truy vấn theo tháng (key "MM-yyyy").
+ * Mỗi bucket nhớ khoảng thời gian [begin, end) của tháng để có thể hủy chính xác
+ * những tháng bị ảnh hưởng khi một sự kiện được thêm/sửa/xóa.
+ *
+ * Thread-safe (mọi phương thức public đều synchronized).
+ */
+public class MonthBucketCache<T> {
+
+    private static class Bucket<T> {
+        final long begin;
+        final long end;
+        final List<T> items;
+
+        Bucket(long begin, long end, List<T> items) {
+            this.begin = begin;
+            this.end = end;
+            this.items = items;
+        }
+    }
+
+    private final EventIntervalIndex.IntervalAdapter<T> adapter;
+    private final LinkedHashMap<String, Bucket<T>> buckets;
+
+    public MonthBucketCache(final int maxMonths, @NonNull EventIntervalIndex.IntervalAdapter<T> adapter) {
+        this.adapter = adapter;
+        // accessOrder = true: get() đưa bucket lên cuối, bucket ít dùng nhất nằm ở đầu
+        this.buckets = new LinkedHashMap<String, Bucket<T>>(maxMonths + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Bucket<T>> eldest) {
+                return size() > maxMonths;
+            }
+        };
+    }
+
+    // Trả về danh sách (không sửa được) của tháng, hoặc null nếu chưa có trong cache
+    public synchronized List<T> get(@NonNull String monthYear) {
+        Bucket<T> bucket = buckets.get(monthYear);
+        return bucket != null ? bucket.items : null;
+    }
+
+    public synchronized boolean contains(@NonNull String monthYear) {
+        return buckets.containsKey(monthYear);
+    }
+
+    public synchronized void put(@NonNull String monthYear, long begin, long end, @NonNull List<T> items) {
+        buckets.put(monthYear, new Bucket<>(begin, end, Collections.unmodifiableList(items)));
+    }
+
+    /**
+     * Hủy các tháng giao với [start, end) hoặc đang chứa phần tử có id tương ứng
+     * (dùng khi sự kiện đổi thời gian: tháng cũ cũng phải bị hủy).
+     */
+    public synchronized void invalidate(long id, long start, long end) {
+        long effectiveEnd = end > start ? end : start + 1;
+        Iterator<Bucket<T>> iterator = buckets.values().iterator();
+        while (iterator.hasNext()) {
+            Bucket<T> bucket = iterator.next();
+            if ((bucket.begin < effectiveEnd && start < bucket.end) || containsId(bucket, id)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        buckets.clear();
+    }
+
+    private boolean containsId(Bucket<T> bucket, long id) {
+        if (id <= 0) return false;
+        for (T item : bucket.items) {
+            if (adapter.idOf(item) == id) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.personalschedule.database;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.provider.CalendarContract;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * LiveData cho một truy vấn Calendar Provider, tự chạy lại khi dữ liệu provider thay đổi.
+ *
+ * - Chỉ đăng ký ContentObserver (Events/Reminders) khi có observer đang active.
+ * - Gộp (debounce) các thông báo thay đổi liên tiếp thành một lần truy vấn lại.
+ * - Khi trở lại active, chỉ truy vấn lại nếu provider đã thay đổi kể từ lần load trước,
+ *   nên việc quay lại màn hình (onResume) không còn kéo theo reload toàn bộ.
+ * - Truy vấn đang chạy bị hủy (CancellationSignal) khi có lần load mới thay thế nó, hoặc khi
+ *   LiveData hết active (ví dụ switchMap chuyển sang từ khóa tìm kiếm mới).
+ */
+public class ProviderQueryLiveData<T> extends LiveData<T> {
+
+    private static final String TAG = "ProviderQueryLiveData";
+
+    // Thời gian gộp các thông báo thay đổi (ví dụ sync adapter ghi nhiều dòng liên tiếp)
+    private static final long DEBOUNCE_DELAY_MS = 300;
+
+    // Các URI mặc định cần theo dõi cho truy vấn sự kiện
+    public static final Uri[] EVENT_URIS = new Uri[]{
+            CalendarContract.Events.CONTENT_URI,
+            CalendarContract.Reminders.CONTENT_URI
+    };
+
+    // Phiên bản dữ liệu của provider, tăng mỗi khi có thay đổi (kể cả khi không màn hình nào active)
+    private static final AtomicLong providerVersion = new AtomicLong();
+    private static ContentObserver versionObserver;
+
+    // Hàm truy vấn, chạy trên background executor
+    public interface Loader<T> {
+        T load();
+    }
+
+    private final ContentResolver contentResolver;
+    private final Executor executor;
+    private final Loader<T> loader;
+    private final Uri[] observedUris;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger loadGeneration = new AtomicInteger();
+    // Signal của lần load đang chạy (null nếu không có)
+    private final AtomicReference<CancellationSignal> inFlightSignal = new AtomicReference<>();
+
+    private long loadedVersion = -1; // Phiên bản provider tại lần load gần nhất (-1: chưa load)
+    private boolean observerRegistered = false;
+
+    private final Runnable reloadRunnable = this::reload;
+
+    private final ContentObserver contentObserver;
+
+    public ProviderQueryLiveData(@NonNull ContentResolver contentResolver, @NonNull Executor executor,
+                                 @NonNull Loader<T> loader) {
+        this(contentResolver, executor, loader, EVENT_URIS);
+    }
+
+    public ProviderQueryLiveData(@NonNull ContentResolver contentResolver, @NonNull Executor executor,
+                                 @NonNull Loader<T> loader, @NonNull Uri... observedUris) {
+        this.contentResolver = contentResolver;
+        this.executor = executor;
+        this.loader = loader;
+        this.observedUris = observedUris;
+        this.contentObserver = new ContentObserver(mainHandler) {
+            @Override
+            public void onChange(boolean selfChange) {
+                scheduleReload();
+            }
+        };
+        ensureVersionObserver(contentResolver);
+    }
+
+    /**
+     * Phiên bản dữ liệu hiện tại của Calendar Provider. Tăng mỗi khi provider thông báo thay đổi,
+     * dùng để biết dữ liệu giữ trong bộ nhớ (index, cache) có còn hợp lệ không.
+     */
+    public static long getProviderVersion() {
+        return providerVersion.get();
+    }
+
+    @Override
+    protected void onActive() {
+        super.onActive();
+        registerObserver();
+        // Chỉ truy vấn lại nếu chưa từng load hoặc provider đã thay đổi khi đang inactive
+        if (loadedVersion != providerVersion.get()) {
+            scheduleReload();
+        }
+    }
+
+    @Override
+    protected void onInactive() {
+        super.onInactive();
+        mainHandler.removeCallbacks(reloadRunnable);
+        unregisterObserver();
+        // Không còn ai cần kết quả: hủy truy vấn đang chạy và load lại khi active trở lại
+        CancellationSignal signal = inFlightSignal.getAndSet(null);
+        if (signal != null) {
+            signal.cancel();
+            loadedVersion = -1;
+        }
+    }
+
+    /**
+     * Đặt sẵn kết quả đã có trong bộ nhớ (ví dụ sự kiện vừa được load ở màn hình khác), tương ứng
+     * với phiên bản provider version. Nếu provider chưa đổi khi LiveData active thì không truy vấn.
+     * version = -1: giá trị tạm (ví dụ snapshot trên đĩa), vẫn truy vấn ngay khi active.
+     * Gọi trên main thread, trước khi có observer.
+     */
+    public void seed(T value, long version) {
+        setValue(value);
+        loadedVersion = version;
+    }
+
+    /**
+     * Buộc truy vấn lại ngay (bỏ qua debounce), ví dụ khi người dùng kéo để làm mới.
+     */
+    public void refresh() {
+        mainHandler.removeCallbacks(reloadRunnable);
+        reload();
+    }
+
+    private void scheduleReload() {
+        mainHandler.removeCallbacks(reloadRunnable);
+        mainHandler.postDelayed(reloadRunnable, loadedVersion < 0 ? 0 : DEBOUNCE_DELAY_MS);
+    }
+
+    private void reload() {
+        final int generation = loadGeneration.incrementAndGet();
+        final long version = providerVersion.get();
+        loadedVersion = version;
+        final CancellationSignal signal = new CancellationSignal();
+        CancellationSignal superseded = inFlightSignal.getAndSet(signal);
+        if (superseded != null) superseded.cancel();
+        executor.execute(() -> {
+            // Bỏ qua nếu đã có lần load mới hơn được yêu cầu hoặc đã bị hủy khi đang chờ
+            if (generation != loadGeneration.get() || signal.isCanceled()) return;
+            try {
+                T result = RepositoryScheduler.runCancellable(signal, loader);
+                if (generation == loadGeneration.get() && !signal.isCanceled()) {
+                    postValue(result);
+                }
+            } catch (OperationCanceledException e) {
+                Log.d(TAG, "Query cancelled");
+            } finally {
+                inFlightSignal.compareAndSet(signal, null);
+            }
+        });
+    }
+
+    private void registerObserver() {
+        if (observerRegistered) return;
+        try {
+            for (Uri uri : observedUris) {
+                contentResolver.registerContentObserver(uri, true, contentObserver);
+            }
+            observerRegistered = true;
+        } catch (SecurityException e) {
+            Log.w(TAG, "Cannot observe calendar provider (permission denied)", e);
+        }
+    }
+
+    private void unregisterObserver() {
+        if (!observerRegistered) return;
+        contentResolver.unregisterContentObserver(contentObserver);
+        observerRegistered = false;
+    }
+
+    // Observer dùng chung cho toàn process, chỉ tăng providerVersion (không giữ tham chiếu tới màn hình nào)
+    private static synchronized void ensureVersionObserver(ContentResolver contentResolver) {
+        if (versionObserver != null) return;
+        ContentObserver observer = new ContentObserver(new Handler(Looper.getMainLooper())) {
+            @Override
+            public void onChange(boolean selfChange) {
+                providerVersion.incrementAndGet();
+            }
+        };
+        try {
+            contentResolver.registerContentObserver(CalendarContract.CONTENT_URI, true, observer);
+            versionObserver = observer;
+        } catch (SecurityException e) {
+            Log.w(TAG, "Cannot register provider version observer (permission denied)", e);
+        }
+    }
+}
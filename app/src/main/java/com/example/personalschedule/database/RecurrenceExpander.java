@@ -0,0 +1,272 @@
+package com.example.personalschedule.database;
+
+import androidx.annotation.NonNull;
+
+import com.example.personalschedule.utils.RecurrenceRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Tính các lần xuất hiện của sự kiện lặp lại (RecurrenceRule) trong một cửa sổ thời gian.
+ *
+ * - OccurrenceIterator sinh từng lần xuất hiện theo kiểu con trỏ (begin()/end() là long), nhảy
+ *   thẳng tới cửa sổ cần tính thay vì đi từ DTSTART, và không tạo object cho mỗi lần xuất hiện:
+ *   sự kiện hằng ngày kéo dài 10 năm chỉ tốn ~30 bước để vẽ một tháng.
+ * - expand() giữ kết quả (mảng long các thời điểm bắt đầu) của các cửa sổ đã tính trong cache LRU
+ *   theo sự kiện, nên vuốt qua lại giữa các tháng không phải tính lại.
+ *
+ * Thread-safe (mọi phương thức public đều synchronized).
+ */
+public class RecurrenceExpander {
+
+    // Số cửa sổ giữ lại cho mỗi sự kiện (ví dụ tháng đang xem và hai tháng bên cạnh)
+    private static final int WINDOWS_PER_EVENT = 4;
+
+    private final LinkedHashMap<Long, Expansion> expansions;
+    private final OccurrenceIterator iterator = new OccurrenceIterator();
+    private long[] buffer = new long[32];
+
+    public RecurrenceExpander(final int maxEvents) {
+        // accessOrder = true: sự kiện ít dùng nhất nằm ở đầu và bị bỏ trước
+        this.expansions = new LinkedHashMap<Long, Expansion>(maxEvents + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Expansion> eldest) {
+                return size() > maxEvents;
+            }
+        };
+    }
+
+    /**
+     * @return thời điểm bắt đầu (tăng dần) của các lần xuất hiện giao với [windowBegin, windowEnd);
+     * lần xuất hiện thứ i kết thúc ở result[i] + durationMillis. Mảng rỗng nếu rrule không được hỗ trợ.
+     * Không được sửa mảng trả về (dùng chung với cache).
+     */
+    public synchronized long[] expand(long eventId, long dtStart, long durationMillis, String rrule, String timeZone,
+                                      long windowBegin, long windowEnd) {
+        Expansion expansion = expansions.get(eventId);
+        if (expansion == null || !expansion.matches(dtStart, durationMillis, rrule, timeZone)) {
+            expansion = new Expansion(dtStart, durationMillis, rrule, timeZone);
+            expansions.put(eventId, expansion);
+        }
+        long[] cached = expansion.find(windowBegin, windowEnd);
+        if (cached != null) return cached;
+
+        long[] starts;
+        RecurrenceRule rule = RecurrenceRule.parse(rrule);
+        if (rule == null) {
+            starts = new long[0];
+        } else {
+            iterator.reset(dtStart, durationMillis, rule, timeZone, windowBegin, windowEnd);
+            int size = 0;
+            while (iterator.next()) {
+                if (size == buffer.length) buffer = Arrays.copyOf(buffer, size * 2);
+                buffer[size++] = iterator.begin();
+            }
+            starts = Arrays.copyOf(buffer, size);
+        }
+        expansion.remember(windowBegin, windowEnd, starts);
+        return starts;
+    }
+
+    /**
+     * @return thời điểm bắt đầu của lần xuất hiện đầu tiên chưa kết thúc tại afterMillis,
+     * hoặc -1 nếu không còn lần nào (hoặc rrule không được hỗ trợ).
+     */
+    public synchronized long nextOccurrence(long dtStart, long durationMillis, String rrule, String timeZone,
+                                            long afterMillis) {
+        RecurrenceRule rule = RecurrenceRule.parse(rrule);
+        if (rule == null) return -1;
+        iterator.reset(dtStart, durationMillis, rule, timeZone, afterMillis, Long.MAX_VALUE);
+        return iterator.next() ? iterator.begin() : -1;
+    }
+
+    /**
+     * @return thời điểm kết thúc của lần xuất hiện cuối cùng, hoặc Long.MAX_VALUE nếu lặp vô hạn
+     * (dùng để biết những tháng nào bị ảnh hưởng khi sự kiện thay đổi).
+     */
+    public static long lastOccurrenceEnd(long dtStart, long durationMillis, RecurrenceRule rule, String timeZone) {
+        if (rule == null) return dtStart + Math.max(0, durationMillis);
+        if (rule.getUntil() > 0) return rule.getUntil() + Math.max(0, durationMillis);
+        if (rule.getCount() == 0) return Long.MAX_VALUE;
+        OccurrenceIterator counter = new OccurrenceIterator();
+        counter.reset(dtStart, durationMillis, rule, timeZone, dtStart, Long.MAX_VALUE);
+        long lastEnd = dtStart + Math.max(0, durationMillis);
+        while (counter.next()) lastEnd = counter.end();
+        return lastEnd;
+    }
+
+    public synchronized void invalidate(long eventId) {
+        expansions.remove(eventId);
+    }
+
+    public synchronized void clear() {
+        expansions.clear();
+    }
+
+    // --- OccurrenceIterator ---
+
+    /**
+     * Con trỏ qua các lần xuất hiện trong một cửa sổ. Dùng lại được (reset), mỗi bước chỉ tính
+     * lại từ DTSTART bằng một Calendar dùng chung nên không cộng dồn sai số và giữ đúng giờ địa
+     * phương khi qua đổi giờ (DST). Lần xuất hiện rơi vào ngày không tồn tại (31/2, 29/2 năm
+     * thường) bị bỏ qua và không tính vào COUNT, theo RFC 5545.
+     */
+    public static final class OccurrenceIterator {
+        private static final long DAY_MILLIS = 24 * 3600_000L;
+
+        private Calendar calendar;
+        private String calendarZone;
+
+        private long dtStart;
+        private long duration;
+        private int field;
+        private int interval;
+        private int count;
+        private long until;
+        private int startDay;
+        private boolean checkDay;
+        private long windowBegin;
+        private long windowEnd;
+
+        private int step;   // Bước tiếp theo (lần thứ step tính từ DTSTART, kể cả ngày không hợp lệ)
+        private int index;  // Số lần xuất hiện hợp lệ đã đi qua (cho COUNT)
+        private boolean done;
+        private long begin;
+        private long end;
+
+        public OccurrenceIterator reset(long dtStart, long durationMillis, @NonNull RecurrenceRule rule,
+                                        String timeZone, long windowBegin, long windowEnd) {
+            String zone = timeZone != null && !timeZone.isEmpty() ? timeZone : TimeZone.getDefault().getID();
+            if (calendar == null || !zone.equals(calendarZone)) {
+                calendar = Calendar.getInstance(TimeZone.getTimeZone(zone), Locale.US);
+                calendarZone = zone;
+            }
+            this.dtStart = dtStart;
+            this.duration = Math.max(0, durationMillis);
+            this.interval = rule.getInterval();
+            this.count = rule.getCount();
+            this.until = rule.getUntil();
+            this.windowBegin = windowBegin;
+            this.windowEnd = windowEnd;
+            switch (rule.getFrequency()) {
+                case RecurrenceRule.FREQ_WEEKLY: field = Calendar.WEEK_OF_YEAR; break;
+                case RecurrenceRule.FREQ_MONTHLY: field = Calendar.MONTH; break;
+                case RecurrenceRule.FREQ_YEARLY: field = Calendar.YEAR; break;
+                default: field = Calendar.DATE; break;
+            }
+            calendar.setTimeInMillis(dtStart);
+            startDay = calendar.get(Calendar.DAY_OF_MONTH);
+            checkDay = (field == Calendar.MONTH && startDay > 28)
+                    || (field == Calendar.YEAR && startDay == 29 && calendar.get(Calendar.MONTH) == Calendar.FEBRUARY);
+            done = false;
+            step = 0;
+            index = 0;
+            // COUNT + ngày không hợp lệ: không biết trước số lần đã bỏ qua, phải đi từ đầu
+            if (count == 0 || !checkDay) {
+                step = Math.max(0, stepsBefore(windowBegin - duration) - 1);
+                index = step;
+            }
+            return this;
+        }
+
+        /**
+         * Chuyển tới lần xuất hiện tiếp theo trong cửa sổ.
+         * @return false nếu không còn lần nào
+         */
+        public boolean next() {
+            while (!done) {
+                if (count > 0 && index >= count) break;
+                calendar.setTimeInMillis(dtStart);
+                if (step > 0) calendar.add(field, step * interval);
+                step++;
+                if (checkDay && calendar.get(Calendar.DAY_OF_MONTH) != startDay) continue;
+                index++;
+                long occurrence = calendar.getTimeInMillis();
+                if ((until > 0 && occurrence > until) || occurrence >= windowEnd) break;
+                // Sự kiện tức thời chiếm 1ms, giống EventIntervalIndex
+                if (Math.max(occurrence + duration, occurrence + 1) <= windowBegin) continue;
+                begin = occurrence;
+                end = occurrence + duration;
+                return true;
+            }
+            done = true;
+            return false;
+        }
+
+        public long begin() {
+            return begin;
+        }
+
+        public long end() {
+            return end;
+        }
+
+        // Số bước (ước lượng, không vượt quá số thật quá 1) từ DTSTART tới thời điểm target
+        private int stepsBefore(long target) {
+            if (target <= dtStart) return 0;
+            long steps;
+            if (field == Calendar.DATE || field == Calendar.WEEK_OF_YEAR) {
+                long period = (field == Calendar.DATE ? DAY_MILLIS : 7 * DAY_MILLIS) * interval;
+                steps = (target - dtStart) / period;
+            } else {
+                int startYear = calendar.get(Calendar.YEAR);
+                int startMonth = calendar.get(Calendar.MONTH);
+                calendar.setTimeInMillis(target);
+                long months = (calendar.get(Calendar.YEAR) - startYear) * 12L + (calendar.get(Calendar.MONTH) - startMonth);
+                steps = field == Calendar.MONTH ? months / interval : months / (12L * interval);
+            }
+            return (int) Math.min(Integer.MAX_VALUE / Math.max(1, interval), steps);
+        }
+    }
+
+    // --- Cache ---
+
+    private static final class Expansion {
+        final long dtStart;
+        final long duration;
+        final String rrule;
+        final String timeZone;
+        final List<long[]> windows = new ArrayList<>(); // begin, end
+        final List<long[]> results = new ArrayList<>();
+
+        Expansion(long dtStart, long duration, String rrule, String timeZone) {
+            this.dtStart = dtStart;
+            this.duration = duration;
+            this.rrule = rrule;
+            this.timeZone = timeZone;
+        }
+
+        boolean matches(long dtStart, long duration, String rrule, String timeZone) {
+            return this.dtStart == dtStart && this.duration == duration
+                    && equals(this.rrule, rrule) && equals(this.timeZone, timeZone);
+        }
+
+        long[] find(long begin, long end) {
+            for (int i = 0; i < windows.size(); i++) {
+                long[] window = windows.get(i);
+                if (window[0] == begin && window[1] == end) return results.get(i);
+            }
+            return null;
+        }
+
+        void remember(long begin, long end, long[] starts) {
+            if (windows.size() == WINDOWS_PER_EVENT) {
+                windows.remove(0);
+                results.remove(0);
+            }
+            windows.add(new long[]{begin, end});
+            results.add(starts);
+        }
+
+        private static boolean equals(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.personalschedule.database;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Hàng đợi ưu tiên (theo thời điểm nhắc) các reminder sắp tới, lưu trong bộ nhớ riêng của app.
+ * Chỉ giữ các reminder trong một khoảng thời gian giới hạn phía trước (xem ReminderScheduler), nên
+ * hàng đợi nhỏ và được ghi lại toàn bộ sau mỗi thay đổi. Mỗi phần tử là một lần xuất hiện của sự kiện
+ * (sự kiện lặp lại có thể có nhiều phần tử), kèm tiêu đề/địa điểm để hiển thị thông báo không cần
+ * truy vấn lại provider.
+ *
+ * Định dạng (big-endian, chuỗi là UTF-8 theo DataOutputStream.writeUTF, null ghi thành cờ):
+ * <pre>
+ *   int magic, int formatVersion, long refilledAtMillis, int count
+ *   count x { long eventId, long begin, long alarmTime, int minutes, byte allDay, String? title, String? location }
+ * </pre>
+ *
+ * Thread-safe. File được đọc ở lần truy cập đầu tiên, nên chỉ gọi từ background thread.
+ */
+public final class ReminderQueue {
+
+    private static final String TAG = "ReminderQueue";
+
+    private static final String FILE_NAME = "reminder_queue.bin";
+    private static final int MAGIC = 0x50535251; // "PSRQ"
+    private static final int FORMAT_VERSION = 2;
+    // Giới hạn để file hỏng không làm cấp phát quá lớn
+    private static final int MAX_ENTRIES = 10_000;
+
+    private static volatile ReminderQueue instance;
+
+    // Thứ tự: thời điểm nhắc, rồi sự kiện, rồi lần xuất hiện
+    private static final Comparator<Entry> ALARM_ORDER = (a, b) -> {
+        if (a.alarmTime != b.alarmTime) return Long.compare(a.alarmTime, b.alarmTime);
+        if (a.eventId != b.eventId) return Long.compare(a.eventId, b.eventId);
+        return Long.compare(a.begin, b.begin);
+    };
+
+    private final AtomicFile file;
+    private final TreeSet<Entry> entries = new TreeSet<>(ALARM_ORDER);
+    private long refilledAt = 0;
+    private boolean loaded = false;
+
+    // Một reminder: lần xuất hiện bắt đầu lúc begin của sự kiện eventId, nhắc lúc alarmTime
+    public static final class Entry {
+        final long eventId;
+        final long begin;
+        final long alarmTime;
+        final int minutes;
+        final boolean allDay;
+        final String title;
+        final String location;
+
+        public Entry(long eventId, long begin, int minutes, boolean allDay, String title, String location) {
+            this(eventId, begin, begin - minutes * 60_000L, minutes, allDay, title, location);
+        }
+
+        private Entry(long eventId, long begin, long alarmTime, int minutes, boolean allDay, String title,
+                      String location) {
+            this.eventId = eventId;
+            this.begin = begin;
+            this.alarmTime = alarmTime;
+            this.minutes = minutes;
+            this.allDay = allDay;
+            this.title = title;
+            this.location = location;
+        }
+
+        public long getEventId() { return eventId; }
+        public long getBegin() { return begin; }
+        public long getAlarmTime() { return alarmTime; }
+        public int getMinutes() { return minutes; }
+        public boolean isAllDay() { return allDay; }
+        public String getTitle() { return title; }
+        public String getLocation() { return location; }
+    }
+
+    private ReminderQueue(Context context) {
+        file = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    // Hàng đợi chỉ nằm trong bộ nhớ (không đọc/ghi file), dùng cho unit test
+    ReminderQueue() {
+        file = null;
+        loaded = true;
+    }
+
+    public static ReminderQueue getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (ReminderQueue.class) {
+                if (instance == null) instance = new ReminderQueue(context.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    // --- Đọc ---
+
+    // Thời điểm nhắc sớm nhất, hoặc -1 nếu hàng đợi rỗng
+    public synchronized long nextAlarmTime() {
+        ensureLoaded();
+        return entries.isEmpty() ? -1 : entries.first().alarmTime;
+    }
+
+    // Lần cuối hàng đợi được dựng lại từ provider (0: chưa bao giờ)
+    public synchronized long getRefilledAt() {
+        ensureLoaded();
+        return refilledAt;
+    }
+
+    public synchronized int size() {
+        ensureLoaded();
+        return entries.size();
+    }
+
+    // --- Ghi (mỗi lần ghi lại toàn bộ file) ---
+
+    /**
+     * Thay các reminder của những sự kiện trong eventIds bằng added (sự kiện vừa được thêm/sửa/xóa).
+     */
+    public synchronized void replaceEvents(@NonNull long[] eventIds, @NonNull Collection<Entry> added) {
+        ensureLoaded();
+        boolean changed = removeEventsLocked(eventIds);
+        changed |= entries.addAll(added);
+        if (changed) persist();
+    }
+
+    /**
+     * Thay toàn bộ hàng đợi bằng các reminder vừa đọc từ provider.
+     */
+    public synchronized void replaceAll(@NonNull Collection<Entry> all, long refilledAtMillis) {
+        ensureLoaded();
+        entries.clear();
+        entries.addAll(all);
+        refilledAt = refilledAtMillis;
+        persist();
+    }
+
+    /**
+     * Lấy ra (và xóa khỏi hàng đợi) mọi reminder có thời điểm nhắc trước upTo, theo thứ tự thời gian.
+     */
+    @NonNull
+    public synchronized List<Entry> pollDue(long upTo) {
+        ensureLoaded();
+        List<Entry> due = new ArrayList<>();
+        Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.alarmTime >= upTo) break;
+            due.add(entry);
+            iterator.remove();
+        }
+        if (!due.isEmpty()) persist();
+        return due;
+    }
+
+    // --- Helpers ---
+
+    private boolean removeEventsLocked(long[] eventIds) {
+        if (eventIds.length == 0 || entries.isEmpty()) return false;
+        long[] sorted = eventIds.clone();
+        Arrays.sort(sorted);
+        boolean removed = false;
+        Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            if (Arrays.binarySearch(sorted, iterator.next().eventId) >= 0) {
+                iterator.remove();
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        FileInputStream stream = null;
+        try {
+            stream = file.openRead();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                Log.w(TAG, "Discarding reminder queue with unknown format");
+                file.delete();
+                return;
+            }
+            long savedRefilledAt = in.readLong();
+            int count = in.readInt();
+            if (count < 0 || count > MAX_ENTRIES) throw new IOException("entry count " + count);
+            List<Entry> read = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long eventId = in.readLong();
+                long begin = in.readLong();
+                long alarmTime = in.readLong();
+                int minutes = in.readInt();
+                boolean allDay = in.readBoolean();
+                String title = readString(in);
+                String location = readString(in);
+                read.add(new Entry(eventId, begin, alarmTime, minutes, allDay, title, location));
+            }
+            entries.addAll(read);
+            refilledAt = savedRefilledAt;
+            Log.d(TAG, "Loaded " + count + " pending reminders");
+        } catch (FileNotFoundException e) {
+            Log.d(TAG, "No reminder queue yet");
+        } catch (IOException e) {
+            // Kể cả file bị cắt (EOFException): hàng đợi sẽ được dựng lại từ provider (refilledAt = 0)
+            Log.w(TAG, "Discarding unreadable reminder queue", e);
+            file.delete();
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void persist() {
+        if (file == null) return;
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(refilledAt);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeLong(entry.eventId);
+                out.writeLong(entry.begin);
+                out.writeLong(entry.alarmTime);
+                out.writeInt(entry.minutes);
+                out.writeBoolean(entry.allDay);
+                writeString(out, entry.title);
+                writeString(out, entry.location);
+            }
+            out.flush();
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            // Hàng đợi trong bộ nhớ vẫn đúng; lần ghi sau sẽ thử lại
+            Log.w(TAG, "Cannot write reminder queue", e);
+            if (stream != null) file.failWrite(stream);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value.length() > 1000 ? value.substring(0, 1000) : value);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.personalschedule.database;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Số liệu hiệu năng cho các thao tác của EventRepository.
+ *
+ * Mỗi thao tác (ví dụ "getEventsByMonth") được đo bằng một Span: thời gian chạy, thời gian chờ
+ * trong hàng đợi executor, số dòng cursor, số lần IPC tới provider và số dòng được chuyển thành
+ * Event. Các giá trị được ghi vào Histogram không khóa (AtomicLongArray theo bucket log2), nên
+ * việc ghi số liệu không làm chậm hay chặn các thread khác.
+ *
+ * Span hiện tại được giữ trong ThreadLocal, nên các hàm helper sâu bên trong (queryEventRows,
+ * prefetchReminderMinutes, ...) chỉ cần gọi countIpc()/countRows() mà không phải truyền tham số.
+ *
+ * Đọc số liệu qua snapshot() (màn hình debug, unit test) hoặc dump() (dạng text).
+ */
+public final class RepositoryMetrics {
+
+    private static final ConcurrentHashMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Span> currentSpan = new ThreadLocal<>();
+
+    private RepositoryMetrics() {
+    }
+
+    // --- Ghi số liệu ---
+
+    /**
+     * Bắt đầu đo một thao tác trên thread hiện tại.
+     * @param enqueuedNanos System.nanoTime() lúc thao tác được đưa vào executor (0 nếu không có)
+     */
+    public static Span begin(@NonNull String operation, long enqueuedNanos) {
+        Span span = new Span(operation, enqueuedNanos, currentSpan.get());
+        currentSpan.set(span);
+        return span;
+    }
+
+    // Một lần gọi ContentResolver (query/insert/update/delete/applyBatch)
+    public static void countIpc() {
+        Span span = currentSpan.get();
+        if (span != null) span.ipcCalls++;
+    }
+
+    // Số dòng cursor trả về
+    public static void countRows(int rows) {
+        Span span = currentSpan.get();
+        if (span != null && rows > 0) span.cursorRows += rows;
+    }
+
+    // Số dòng đã chuyển thành Event
+    public static void countConverted(int rows) {
+        Span span = currentSpan.get();
+        if (span != null && rows > 0) span.rowsConverted += rows;
+    }
+
+    // --- Đọc số liệu ---
+
+    /**
+     * @return bản sao số liệu của mọi thao tác, sắp xếp theo tên.
+     */
+    public static List<OperationSnapshot> snapshot() {
+        List<OperationSnapshot> result = new ArrayList<>();
+        for (Map.Entry<String, OperationStats> entry : operations.entrySet()) {
+            result.add(entry.getValue().snapshot(entry.getKey()));
+        }
+        Collections.sort(result, (a, b) -> a.operation.compareTo(b.operation));
+        return result;
+    }
+
+    /**
+     * @return số liệu dạng text, mỗi thao tác một dòng (dùng cho màn hình debug / log).
+     */
+    public static String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (OperationSnapshot s : snapshot()) {
+            builder.append(String.format(Locale.US,
+                    "%s: n=%d, time p50=%.1fms p95=%.1fms max=%.1fms, wait p95=%.1fms, rows avg=%.0f, ipc avg=%.1f, converted avg=%.0f%n",
+                    s.operation, s.wallTime.count,
+                    s.wallTime.percentile(50) / 1e6, s.wallTime.percentile(95) / 1e6, s.wallTime.max / 1e6,
+                    s.queueWait.percentile(95) / 1e6,
+                    s.cursorRows.mean(), s.ipcCalls.mean(), s.rowsConverted.mean()));
+        }
+        return builder.toString();
+    }
+
+    public static void reset() {
+        operations.clear();
+    }
+
+    // --- Span ---
+
+    /**
+     * Một lần chạy thao tác. Chỉ dùng trên thread đã tạo ra nó; close() ghi số liệu vào histogram.
+     */
+    public static final class Span implements AutoCloseable {
+        private final String operation;
+        private final long startNanos;
+        private final long queueWaitNanos;
+        private final Span parent;
+        private int ipcCalls;
+        private int cursorRows;
+        private int rowsConverted;
+        private boolean closed;
+
+        private Span(String operation, long enqueuedNanos, Span parent) {
+            this.operation = operation;
+            this.startNanos = System.nanoTime();
+            this.queueWaitNanos = enqueuedNanos > 0 ? Math.max(0, startNanos - enqueuedNanos) : -1;
+            this.parent = parent;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            long wallNanos = System.nanoTime() - startNanos;
+            OperationStats stats = operations.get(operation);
+            if (stats == null) {
+                OperationStats created = new OperationStats();
+                OperationStats existing = operations.putIfAbsent(operation, created);
+                stats = existing != null ? existing : created;
+            }
+            stats.wallTime.record(wallNanos);
+            if (queueWaitNanos >= 0) stats.queueWait.record(queueWaitNanos);
+            stats.cursorRows.record(cursorRows);
+            stats.ipcCalls.record(ipcCalls);
+            stats.rowsConverted.record(rowsConverted);
+
+            // Thao tác lồng nhau: cộng dồn IPC/dòng vào thao tác cha rồi trả lại span cha cho thread
+            if (parent != null) {
+                parent.ipcCalls += ipcCalls;
+                parent.cursorRows += cursorRows;
+                parent.rowsConverted += rowsConverted;
+            }
+            if (currentSpan.get() == this) {
+                if (parent != null) currentSpan.set(parent);
+                else currentSpan.remove();
+            }
+        }
+    }
+
+    private static final class OperationStats {
+        final Histogram wallTime = new Histogram();
+        final Histogram queueWait = new Histogram();
+        final Histogram cursorRows = new Histogram();
+        final Histogram ipcCalls = new Histogram();
+        final Histogram rowsConverted = new Histogram();
+
+        OperationSnapshot snapshot(String operation) {
+            return new OperationSnapshot(operation, wallTime.snapshot(), queueWait.snapshot(),
+                    cursorRows.snapshot(), ipcCalls.snapshot(), rowsConverted.snapshot());
+        }
+    }
+
+    // --- Histogram ---
+
+    /**
+     * Histogram không khóa cho giá trị >= 0. Bucket i chứa các giá trị trong [2^(i-1), 2^i)
+     * (bucket 0 chứa giá trị 0), nên sai số của percentile tối đa là 2 lần.
+     */
+    public static final class Histogram {
+        private static final int BUCKETS = 64;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long value) {
+            if (value < 0) value = 0;
+            buckets.incrementAndGet(bucketOf(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long currentMax;
+            while (value > (currentMax = max.get())) {
+                if (max.compareAndSet(currentMax, value)) break;
+            }
+        }
+
+        public HistogramSnapshot snapshot() {
+            long[] copy = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) copy[i] = buckets.get(i);
+            return new HistogramSnapshot(copy, count.get(), sum.get(), max.get());
+        }
+
+        static int bucketOf(long value) {
+            return value == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+        }
+    }
+
+    public static final class HistogramSnapshot {
+        private final long[] buckets;
+        public final long count;
+        public final long sum;
+        public final long max;
+
+        HistogramSnapshot(long[] buckets, long count, long sum, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @return cận trên của bucket chứa percentile p (0-100), không vượt quá max.
+         */
+        public long percentile(double p) {
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(count * p / 100.0);
+            if (rank < 1) rank = 1;
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    long upper = i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                    return Math.min(upper, max);
+                }
+            }
+            return max;
+        }
+    }
+
+    public static final class OperationSnapshot {
+        public final String operation;
+        public final HistogramSnapshot wallTime;      // nanos
+        public final HistogramSnapshot queueWait;     // nanos
+        public final HistogramSnapshot cursorRows;
+        public final HistogramSnapshot ipcCalls;
+        public final HistogramSnapshot rowsConverted;
+
+        OperationSnapshot(String operation, HistogramSnapshot wallTime, HistogramSnapshot queueWait,
+                          HistogramSnapshot cursorRows, HistogramSnapshot ipcCalls, HistogramSnapshot rowsConverted) {
+            this.operation = operation;
+            this.wallTime = wallTime;
+            this.queueWait = queueWait;
+            this.cursorRows = cursorRows;
+            this.ipcCalls = ipcCalls;
+            this.rowsConverted = rowsConverted;
+        }
+    }
+}
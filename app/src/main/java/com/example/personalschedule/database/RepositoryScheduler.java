@@ -0,0 +1,124 @@
+package com.example.personalschedule.database;
+
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lập lịch các thao tác của EventRepository, dùng chung toàn app.
+ *
+ * - Đọc: một pool nhỏ (READ_THREADS thread) lấy việc từ hàng đợi ưu tiên. Việc INTERACTIVE
+ *   (màn hình chi tiết, tháng đang xem, tìm kiếm) chạy trước NORMAL, NORMAL trước BACKGROUND
+ *   (load trước tháng bên cạnh, xuất file); cùng mức thì theo thứ tự gửi.
+ * - Ghi: một lane tuần tự riêng, nên lưu sự kiện không phải chờ sau các truy vấn đọc chậm
+ *   và các lần ghi không bao giờ chạy chồng lên nhau.
+ *
+ * Truy vấn có thể bị hủy qua CancellationSignal: runCancellable() gắn signal vào thread đang chạy,
+ * EventRepository.queryProvider() tự lấy signal đó (currentSignal()) truyền cho ContentResolver.
+ */
+public final class RepositoryScheduler {
+
+    private static final int READ_THREADS = 3;
+
+    public enum Priority { INTERACTIVE, NORMAL, BACKGROUND }
+
+    private static volatile RepositoryScheduler instance;
+
+    // Signal của truy vấn đang chạy trên thread hiện tại (null nếu không hủy được)
+    private static final ThreadLocal<CancellationSignal> currentSignal = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor readPool;
+    private final ExecutorService writeLane;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private RepositoryScheduler() {
+        readPool = new ThreadPoolExecutor(READ_THREADS, READ_THREADS, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), namedThreads("repo-read"));
+        readPool.allowCoreThreadTimeOut(true);
+        writeLane = Executors.newSingleThreadExecutor(namedThreads("repo-write"));
+    }
+
+    public static RepositoryScheduler getInstance() {
+        if (instance == null) {
+            synchronized (RepositoryScheduler.class) {
+                if (instance == null) instance = new RepositoryScheduler();
+            }
+        }
+        return instance;
+    }
+
+    // --- Gửi việc ---
+
+    public void read(@NonNull Priority priority, @NonNull Runnable task) {
+        readPool.execute(new PrioritizedTask(priority, sequence.getAndIncrement(), task));
+    }
+
+    public void write(@NonNull Runnable task) {
+        writeLane.execute(task);
+    }
+
+    // --- Hủy truy vấn ---
+
+    /**
+     * Chạy loader với signal được gắn vào thread hiện tại, để mọi truy vấn provider bên trong
+     * có thể bị hủy khi signal.cancel() được gọi (OperationCanceledException).
+     */
+    public static <T> T runCancellable(CancellationSignal signal, @NonNull ProviderQueryLiveData.Loader<T> loader) {
+        CancellationSignal previous = currentSignal.get();
+        currentSignal.set(signal);
+        try {
+            return loader.load();
+        } finally {
+            if (previous != null) currentSignal.set(previous);
+            else currentSignal.remove();
+        }
+    }
+
+    public static CancellationSignal currentSignal() {
+        return currentSignal.get();
+    }
+
+    // --- Helpers ---
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1); // Nhường main thread
+            return thread;
+        };
+    }
+
+    // Việc đọc kèm mức ưu tiên; cùng mức thì việc gửi trước chạy trước
+    private static final class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final Priority priority;
+        private final long sequence;
+        private final Runnable task;
+
+        PrioritizedTask(Priority priority, long sequence, Runnable task) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
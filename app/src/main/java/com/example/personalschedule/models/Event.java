@@ -9,26 +9,17 @@ package com.example.personalschedule.models;
 
 // Không cần TypeConverter nữa
 // @TypeConverters(DateTimeConverter.class)
-public class Event {
+// Các trường id/calendarId/title/startTime/endTime/location/isAllDay nằm ở EventSummary
+public class Event extends EventSummary {
 
-    // @PrimaryKey(autoGenerate = true) // Xóa annotation
-    private long id; // Thay int thành long để khớp với CalendarContract.Events._ID
-
-    private long calendarId; // THÊM: ID của lịch hệ thống mà sự kiện thuộc về
     private String timeZone; // THÊM: Timezone của sự kiện (bắt buộc cho Calendar Provider)
 
-    private String title;
-    // private Date startTime; // Thay Date bằng long (milliseconds UTC)
-    private long startTime;
-    // private Date endTime; // Thay Date bằng long (milliseconds UTC)
-    private long endTime;
-    private String location;
     private String description;
     private int reminderMinutes; // Thêm lại: Lời nhắc trước sự kiện (phút)
+    private String rrule; // Quy tắc lặp lại (RRULE, ví dụ "FREQ=WEEKLY"); null nếu không lặp
+    private String exdate; // Các lần lặp bị bỏ (EXDATE, "yyyyMMdd'T'HHmmss'Z'" cách nhau bởi dấu phẩy); null nếu không có
     // priority đã được xóa hoàn toàn
 
-    private boolean isAllDay; // Giữ lại, tương ứng với CalendarContract.Events.ALL_DAY
-
     // Constructors
     public Event() {
         // Khởi tạo giá trị mặc định nếu cần
@@ -58,18 +49,10 @@ public class Event {
     // --- Getters and Setters ---
     // Đã cập nhật kiểu dữ liệu và thêm/xóa các trường cần thiết
 
-    public long getId() {
-        return id;
-    }
-
     public void setId(long id) {
         this.id = id;
     }
 
-    public long getCalendarId() {
-        return calendarId;
-    }
-
     public void setCalendarId(long calendarId) {
         this.calendarId = calendarId;
     }
@@ -82,34 +65,18 @@ public class Event {
         this.timeZone = timeZone;
     }
 
-    public String getTitle() {
-        return title;
-    }
-
     public void setTitle(String title) {
         this.title = title;
     }
 
-    public long getStartTime() {
-        return startTime;
-    }
-
     public void setStartTime(long startTime) {
         this.startTime = startTime;
     }
 
-    public long getEndTime() {
-        return endTime;
-    }
-
     public void setEndTime(long endTime) {
         this.endTime = endTime;
     }
 
-    public String getLocation() {
-        return location;
-    }
-
     public void setLocation(String location) {
         this.location = location;
     }
@@ -131,14 +98,30 @@ public class Event {
         this.reminderMinutes = reminderMinutes;
     }
 
-    public boolean isAllDay() {
-        return isAllDay;
-    }
-
     public void setAllDay(boolean allDay) {
         isAllDay = allDay;
     }
 
+    public String getRrule() {
+        return rrule;
+    }
+
+    public void setRrule(String rrule) {
+        this.rrule = rrule;
+    }
+
+    public String getExdate() {
+        return exdate;
+    }
+
+    public void setExdate(String exdate) {
+        this.exdate = exdate;
+    }
+
+    public boolean isRecurring() {
+        return rrule != null && !rrule.isEmpty();
+    }
+
     @Override
     public String toString() {
         return "Event{" +
@@ -152,6 +135,8 @@ public class Event {
                 ", description='" + description + '\'' +
                 ", reminderMinutes=" + reminderMinutes +
                 ", isAllDay=" + isAllDay +
+                ", rrule='" + rrule + '\'' +
+                ", exdate='" + exdate + '\'' +
                 '}';
     }
 }
\ No newline at end of file
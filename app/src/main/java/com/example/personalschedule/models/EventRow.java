@@ -0,0 +1,107 @@
+package com.example.personalschedule.models;
+
+import androidx.annotation.NonNull;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Một dòng sự kiện trong danh sách, với các chuỗi hiển thị đã được format sẵn (ngày, thứ, khoảng giờ)
+ * và cờ "hôm nay". Được tạo ở background cùng lúc với danh sách, nên onBindViewHolder chỉ gán chuỗi,
+ * không tạo Date/Calendar hay format lại mỗi lần cuộn.
+ */
+public final class EventRow {
+
+    private final EventSummary event;
+    private final String date;
+    private final String dayOfWeek;
+    private final String timeRange;
+    private final boolean today;
+
+    private EventRow(EventSummary event, String date, String dayOfWeek, String timeRange, boolean today) {
+        this.event = event;
+        this.date = date;
+        this.dayOfWeek = dayOfWeek;
+        this.timeRange = timeRange;
+        this.today = today;
+    }
+
+    public EventSummary getEvent() { return event; }
+    public String getDate() { return date; }
+    public String getDayOfWeek() { return dayOfWeek; }
+    // "09:00 - 10:30", hoặc nhãn "Cả ngày"
+    public String getTimeRange() { return timeRange; }
+    public boolean isToday() { return today; }
+
+    /**
+     * Tạo EventRow cho một lần dựng danh sách. Có formatter và Calendar riêng (SimpleDateFormat của
+     * DateTimeUtils dùng chung, không thread-safe), nên mỗi thread/lần dựng dùng một Formatter riêng.
+     * Danh sách thường theo thứ tự thời gian, nên chuỗi ngày/thứ được dùng lại cho các sự kiện cùng ngày.
+     */
+    public static final class Formatter {
+        private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
+        private final SimpleDateFormat dayOfWeekFormat = new SimpleDateFormat("EEEE", Locale.getDefault());
+        private final Calendar calendar = Calendar.getInstance();
+        private final Date scratch = new Date();
+        private final String allDayLabel;
+        private final long todayStart;
+        private final long tomorrowStart;
+
+        // Ngày của sự kiện vừa format: [dayStart, dayEnd)
+        private long dayStart = Long.MAX_VALUE;
+        private long dayEnd = Long.MIN_VALUE;
+        private String dayDate;
+        private String dayName;
+
+        public Formatter(@NonNull String allDayLabel, long nowMillis) {
+            this.allDayLabel = allDayLabel;
+            todayStart = startOfDay(nowMillis);
+            calendar.add(Calendar.DAY_OF_YEAR, 1);
+            tomorrowStart = calendar.getTimeInMillis();
+        }
+
+        @NonNull
+        public EventRow format(@NonNull EventSummary event) {
+            long start = event.getStartTime();
+            if (start < dayStart || start >= dayEnd) {
+                dayStart = startOfDay(start);
+                calendar.add(Calendar.DAY_OF_YEAR, 1);
+                dayEnd = calendar.getTimeInMillis();
+                dayDate = start > 0 ? format(dateFormat, start) : "";
+                dayName = start > 0 ? format(dayOfWeekFormat, start) : "";
+            }
+            String timeRange;
+            if (event.isAllDay()) {
+                timeRange = allDayLabel;
+            } else {
+                // Đảm bảo endTime hợp lệ trước khi format
+                String end = event.getEndTime() >= start ? formatTime(event.getEndTime()) : "?";
+                timeRange = formatTime(start) + " - " + end;
+            }
+            boolean today = start > 0 && start >= todayStart && start < tomorrowStart;
+            return new EventRow(event, dayDate, dayName, timeRange, today);
+        }
+
+        private String formatTime(long millis) {
+            return millis > 0 ? format(timeFormat, millis) : "";
+        }
+
+        private String format(SimpleDateFormat format, long millis) {
+            scratch.setTime(millis);
+            return format.format(scratch);
+        }
+
+        // Để calendar ở 00:00 của ngày chứa millis
+        private long startOfDay(long millis) {
+            calendar.setTimeInMillis(millis);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            return calendar.getTimeInMillis();
+        }
+    }
+}
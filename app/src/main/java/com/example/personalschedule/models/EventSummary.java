@@ -0,0 +1,84 @@
+package com.example.personalschedule.models;
+
+/**
+ * Dạng rút gọn của một sự kiện, chỉ gồm các trường cần cho danh sách và chấm trên lịch
+ * (id, lịch, tiêu đề, thời gian, cả ngày, địa điểm).
+ *
+ * Được đọc bằng projection hẹp (không có DESCRIPTION, timezone, reminder), nên cursor nhỏ hơn
+ * và không cần truy vấn Reminders. Event đầy đủ kế thừa lớp này và chỉ được load khi mở
+ * màn hình chi tiết/sửa.
+ *
+ * Lớp này không có setter, nhưng Event (lớp con) thì có, nên một EventSummary chưa chắc đã bất biến.
+ * Cache dùng chung chỉ giữ EventSummary thật (xem of()) hoặc bản sao riêng của Event, và Event đưa
+ * ra khỏi cache luôn là bản sao, để nơi gọi sửa Event không làm hỏng dữ liệu trong cache.
+ */
+public class EventSummary {
+
+    protected long id;
+    protected long calendarId; // ID của lịch chứa sự kiện (lọc theo lịch đang hiển thị)
+    protected String title;
+    protected long startTime;
+    protected long endTime;
+    protected String location;
+    protected boolean isAllDay;
+
+    protected EventSummary() {
+    }
+
+    public EventSummary(long id, long calendarId, String title, long startTime, long endTime, String location,
+                        boolean isAllDay) {
+        this.id = id;
+        this.calendarId = calendarId;
+        this.title = title;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.location = location;
+        this.isAllDay = isAllDay;
+    }
+
+    // Bản rút gọn (độc lập, không sửa được) của một Event, ví dụ để cập nhật cache sau khi ghi
+    public static EventSummary of(Event event) {
+        return new EventSummary(event.getId(), event.getCalendarId(), event.getTitle(), event.getStartTime(), event.getEndTime(),
+                event.getLocation(), event.isAllDay());
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getCalendarId() {
+        return calendarId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public boolean isAllDay() {
+        return isAllDay;
+    }
+
+    @Override
+    public String toString() {
+        return "EventSummary{" +
+                "id=" + id +
+                ", calendarId=" + calendarId +
+                ", title='" + title + '\'' +
+                ", startTime=" + startTime +
+                ", endTime=" + endTime +
+                ", isAllDay=" + isAllDay +
+                '}';
+    }
+}
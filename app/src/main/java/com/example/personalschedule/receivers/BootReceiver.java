@@ -1,45 +1,33 @@
 package com.example.personalschedule.receivers;
 
-import android.app.Application;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.util.Log;
 
-import com.example.personalschedule.database.EventRepository;
-import com.example.personalschedule.models.Event;
-import com.example.personalschedule.utils.NotificationUtils;
-
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import com.example.personalschedule.utils.ReminderScheduler;
 
+/**
+ * Đặt lại alarm reminder khi AlarmManager mất alarm (khởi động lại, cập nhật app) hoặc thời điểm
+ * nhắc bị lệch (đổi giờ, đổi múi giờ). Alarm được đặt lại ngay từ hàng đợi đã lưu (ReminderQueue),
+ * sau đó hàng đợi được đối chiếu với provider ở background.
+ */
 public class BootReceiver extends BroadcastReceiver {
 
+    private static final String TAG = "BootReceiver";
+
     @Override
     public void onReceive(Context context, Intent intent) {
-        if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
-            // Re-schedule all event reminders
-            rescheduleEventReminders(context);
+        String action = intent.getAction();
+        if (!Intent.ACTION_BOOT_COMPLETED.equals(action)
+                && !Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)
+                && !Intent.ACTION_TIME_CHANGED.equals(action)
+                && !Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
+            return;
         }
+        Log.d(TAG, "Rescheduling reminders after " + action);
+        final Context appContext = context.getApplicationContext();
+        // Thread riêng của reminder: alarm được đặt lại từ hàng đợi dù pool đọc của repository đang bận
+        ReminderScheduler.runAsync(goAsync(), done -> ReminderScheduler.reschedule(appContext, done));
     }
-
-    private void rescheduleEventReminders(Context context) {
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.execute(() -> {
-            EventRepository repository = new EventRepository((Application) context.getApplicationContext());
-            List<Event> allEvents = repository.getAllEvents().getValue(); // Get the current value synchronously
-
-            if (allEvents != null) {
-                for (Event event : allEvents) {
-                    // Không còn sử dụng getReminderMinutes() vì đã bị loại bỏ
-                    // Lên lịch thông báo cho tất cả sự kiện sắp tới
-                    // Thay vì kiểm tra reminderMinutes, có thể dựa vào thời gian bắt đầu của sự kiện
-                    long currentTime = System.currentTimeMillis();
-                    if (event.getStartTime() > currentTime) {
-                        NotificationUtils.scheduleEventReminder(context, event);
-                    }
-                }
-            }
-        });
-    }
-}
\ No newline at end of file
+}
@@ -2,48 +2,168 @@ package com.example.personalschedule.receivers;
 
 import android.Manifest;
 import android.app.Notification;
-import android.app.NotificationManager;
+import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.os.SystemClock;
+import android.text.TextUtils;
 import android.util.Log;
 
-import androidx.core.app.ActivityCompat;
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
 import androidx.core.content.ContextCompat;
 
 import com.example.personalschedule.R;
+import com.example.personalschedule.activities.EventDetailActivity;
+import com.example.personalschedule.activities.MainActivity;
+import com.example.personalschedule.database.ReminderQueue;
 import com.example.personalschedule.utils.Constants;
+import com.example.personalschedule.utils.DateTimeUtils;
 import com.example.personalschedule.utils.NotificationUtils;
+import com.example.personalschedule.utils.ReminderScheduler;
 
+import java.util.List;
+
+/**
+ * Nhận alarm duy nhất của ReminderScheduler: báo mọi reminder đến hạn trong phút hiện tại, rồi đặt
+ * alarm cho reminder tiếp theo. Việc đọc/ghi hàng đợi chạy ở background (goAsync).
+ *
+ * Nhiều reminder cùng lúc (ví dụ 9:00 sáng thứ Hai) được gộp thành một nhóm thông báo với một thông
+ * báo tóm tắt dạng inbox, chỉ kêu một lần. Nội dung lấy từ ReminderQueue, không truy vấn lại provider.
+ */
 public class EventReminderReceiver extends BroadcastReceiver {
-    // KHÔNG cần khởi tạo ở đây
-    // private static final Notification CHANNEL_ID = ...;
+
+    private static final String TAG = "EventReminderReceiver";
+
+    // goAsync() chỉ cho khoảng 10 giây; phần còn lại (dựng lại hàng đợi) để lần alarm sau
+    private static final long TIME_BUDGET_MILLIS = 3000;
+    // Số thông báo riêng tối đa trong một nhóm, phần còn lại chỉ nằm trong thông báo tóm tắt
+    private static final int MAX_CHILD_NOTIFICATIONS = 8;
+    private static final int MAX_SUMMARY_LINES = 5;
 
     @Override
     public void onReceive(Context context, Intent intent) {
-        String eventTitle = intent.getStringExtra(Constants.EXTRA_EVENT_TITLE);
-        int eventId = intent.getIntExtra(Constants.EXTRA_EVENT_ID, -1);
+        Log.i(TAG, "onReceive() called!");
+        final Context appContext = context.getApplicationContext();
+        final long deadline = SystemClock.elapsedRealtime() + TIME_BUDGET_MILLIS;
+        // Thread riêng của reminder: báo và đặt alarm không phải chờ các truy vấn trên pool đọc của repository
+        ReminderScheduler.runAsync(goAsync(), done -> {
+            try {
+                // Luôn lấy ra khỏi hàng đợi, kể cả khi không có quyền, để alarm không kêu lại
+                List<ReminderQueue.Entry> due = ReminderScheduler.takeDue(appContext, System.currentTimeMillis());
+                showReminders(appContext, due, deadline);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Cannot deliver reminders", e);
+            }
+            if (SystemClock.elapsedRealtime() < deadline) {
+                // Đặt alarm tiếp theo từ hàng đợi, rồi dựng lại hàng đợi nếu đã cũ
+                ReminderScheduler.refillIfStale(appContext, done);
+            } else {
+                // Hết thời gian: chỉ đặt alarm từ hàng đợi; nếu hàng đợi đã cũ, alarm kêu ngay để dựng lại
+                Log.w(TAG, "Time budget exceeded, refill deferred");
+                ReminderScheduler.armNextAlarm(appContext);
+                done.run();
+            }
+        });
+    }
 
-        Log.i("EventReminderReceiver", "onReceive() called!");
+    private static void showReminders(Context context, List<ReminderQueue.Entry> due, long deadline) {
+        if (due.isEmpty()) return;
         // Kiểm tra quyền trước
-        if (ContextCompat.checkSelfPermission(context, Manifest.permission.POST_NOTIFICATIONS) == PackageManager.PERMISSION_GRANTED) {
-            Notification notification = new NotificationCompat.Builder(context, NotificationUtils.CHANNEL_ID) // Sử dụng CHANNEL_ID từ NotificationUtils
-                    .setSmallIcon(R.drawable.ic_notification)
-                    .setContentTitle("Event Reminder")
-                    .setContentText(eventTitle)
-                    .setPriority(NotificationCompat.PRIORITY_HIGH) // Thêm dòng này
-                    .setAutoCancel(true) // Thêm dòng này
-                    .build();
-
-            NotificationManagerCompat notificationManager = NotificationManagerCompat.from(context);
-            notificationManager.notify(eventId, notification); // Sử dụng eventId làm ID thông báo
-        } else {
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
             // Xử lý trường hợp không có quyền
-            Log.w("EventReminderReceiver", "Không có quyền POST_NOTIFICATIONS");
-            // Bạn có thể hiển thị một thông báo cho người dùng rằng họ cần cấp quyền
+            Log.w(TAG, "Không có quyền POST_NOTIFICATIONS, bỏ qua " + due.size() + " reminder");
+            return;
+        }
+        NotificationManagerCompat notificationManager = NotificationManagerCompat.from(context);
+        if (due.size() == 1) {
+            ReminderQueue.Entry entry = due.get(0);
+            notificationManager.notify(NotificationUtils.reminderNotificationId(entry.getEventId()),
+                    buildReminder(context, entry, false));
+            return;
+        }
+
+        // Thông báo tóm tắt trước, để nhóm đã đầy đủ dù hết thời gian giữa chừng
+        notificationManager.notify(NotificationUtils.REMINDER_SUMMARY_ID, buildSummary(context, due));
+        int posted = 0;
+        for (ReminderQueue.Entry entry : due) {
+            if (posted == MAX_CHILD_NOTIFICATIONS || SystemClock.elapsedRealtime() >= deadline) break;
+            notificationManager.notify(NotificationUtils.reminderNotificationId(entry.getEventId()),
+                    buildReminder(context, entry, true));
+            posted++;
+        }
+        Log.d(TAG, "Posted " + due.size() + " reminders as a group (" + posted + " shown separately)");
+    }
+
+    private static Notification buildReminder(Context context, ReminderQueue.Entry entry, boolean grouped) {
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, NotificationUtils.CHANNEL_ID) // Sử dụng CHANNEL_ID từ NotificationUtils
+                .setSmallIcon(R.drawable.ic_notification)
+                .setContentTitle(entry.getTitle())
+                .setContentText(describe(context, entry))
+                .setWhen(entry.getBegin())
+                .setShowWhen(!entry.isAllDay())
+                .setCategory(NotificationCompat.CATEGORY_EVENT)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setContentIntent(detailIntent(context, entry.getEventId()))
+                .setAutoCancel(true);
+        if (grouped) {
+            // Chỉ thông báo tóm tắt kêu/rung
+            builder.setGroup(NotificationUtils.REMINDER_GROUP_KEY)
+                    .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY);
+        }
+        return builder.build();
+    }
+
+    private static Notification buildSummary(Context context, List<ReminderQueue.Entry> due) {
+        String title = context.getString(R.string.reminder_group_title, due.size());
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle().setBigContentTitle(title);
+        int lines = Math.min(due.size(), MAX_SUMMARY_LINES);
+        for (int i = 0; i < lines; i++) {
+            ReminderQueue.Entry entry = due.get(i);
+            style.addLine(time(context, entry) + "  " + (entry.getTitle() != null ? entry.getTitle() : ""));
+        }
+        if (due.size() > lines) {
+            style.setSummaryText(context.getString(R.string.reminder_group_more, due.size() - lines));
         }
+
+        Intent intent = new Intent(context, MainActivity.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent contentIntent = PendingIntent.getActivity(context, NotificationUtils.REMINDER_SUMMARY_ID,
+                intent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        return new NotificationCompat.Builder(context, NotificationUtils.CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_notification)
+                .setContentTitle(title)
+                .setContentText(context.getString(R.string.reminder_title))
+                .setStyle(style)
+                .setCategory(NotificationCompat.CATEGORY_EVENT)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setGroup(NotificationUtils.REMINDER_GROUP_KEY)
+                .setGroupSummary(true)
+                .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY)
+                .setContentIntent(contentIntent)
+                .setAutoCancel(true)
+                .build();
+    }
+
+    // Mở chi tiết sự kiện; EXTRA_EVENT_ID là long (EventDetailActivity đọc bằng getLongExtra)
+    private static PendingIntent detailIntent(Context context, long eventId) {
+        Intent intent = new Intent(context, EventDetailActivity.class);
+        intent.putExtra(Constants.EXTRA_EVENT_ID, eventId);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        return PendingIntent.getActivity(context, NotificationUtils.reminderNotificationId(eventId), intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    // "09:00 · Phòng họp A", hoặc "Cả ngày"
+    private static String describe(Context context, ReminderQueue.Entry entry) {
+        String time = time(context, entry);
+        return TextUtils.isEmpty(entry.getLocation()) ? time : time + " · " + entry.getLocation();
+    }
+
+    private static String time(Context context, ReminderQueue.Entry entry) {
+        return entry.isAllDay() ? context.getString(R.string.all_day) : DateTimeUtils.formatTime(entry.getBegin());
     }
-}
\ No newline at end of file
+}
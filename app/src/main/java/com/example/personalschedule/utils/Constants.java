@@ -21,6 +21,8 @@ public class Constants {
 
     // Reminder options (in minutes)
     public static final int[] REMINDER_OPTIONS = {0, 5, 10, 15, 30, 60, 120, 1440};
+    // Chỉ các reminder trong chừng này ngày tới được giữ trong hàng đợi (xem ReminderScheduler)
+    public static final int REMINDER_HORIZON_DAYS = 7;
 
     // Recurrence patterns
     public static final String RECURRENCE_NONE = "NONE";
@@ -28,4 +30,9 @@ public class Constants {
     public static final String RECURRENCE_WEEKLY = "WEEKLY";
     public static final String RECURRENCE_MONTHLY = "MONTHLY";
     public static final String RECURRENCE_YEARLY = "YEARLY";
+
+    // Tìm giờ trống: giờ làm việc (phút tính từ 00:00) và số ngày tìm kiếm kể từ bây giờ
+    public static final int WORK_DAY_START_MINUTE = 9 * 60;
+    public static final int WORK_DAY_END_MINUTE = 18 * 60;
+    public static final int FREE_SLOT_SEARCH_DAYS = 7;
 }
\ No newline at end of file
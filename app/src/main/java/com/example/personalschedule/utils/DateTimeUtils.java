@@ -155,6 +155,51 @@ public class DateTimeUtils {
                 cal1.get(Calendar.DAY_OF_YEAR) == cal2.get(Calendar.DAY_OF_YEAR);
     }
 
+    /**
+     * Độ dài dạng RFC 5545 [+-]P[nW][nD][T[nH][nM][nS]] (DURATION của file .ics và của Calendar Provider,
+     * TRIGGER của VALARM) tính bằng millis, có dấu. Ví dụ "P3600S", "PT1H30M", "-PT15M".
+     * @throws IllegalArgumentException nếu không đúng định dạng
+     */
+    public static long parseDuration(String value) {
+        if (value == null) throw new IllegalArgumentException("Invalid duration: null");
+        String duration = value.trim().toUpperCase(Locale.US);
+        int i = 0;
+        boolean negative = false;
+        if (i < duration.length() && (duration.charAt(i) == '+' || duration.charAt(i) == '-')) {
+            negative = duration.charAt(i) == '-';
+            i++;
+        }
+        if (i >= duration.length() || duration.charAt(i) != 'P') {
+            throw new IllegalArgumentException("Invalid duration: " + value);
+        }
+        i++;
+        long millis = 0;
+        long number = -1;
+        boolean any = false;
+        for (; i < duration.length(); i++) {
+            char c = duration.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number = (number < 0 ? 0 : number * 10) + (c - '0');
+                continue;
+            }
+            if (c == 'T') continue;
+            if (number < 0) throw new IllegalArgumentException("Invalid duration: " + value);
+            switch (c) {
+                case 'W': millis += number * 7 * 24 * 3600_000L; break;
+                case 'D': millis += number * 24 * 3600_000L; break;
+                case 'H': millis += number * 3600_000L; break;
+                case 'M': millis += number * 60_000L; break;
+                case 'S': millis += number * 1000L; break;
+                default: throw new IllegalArgumentException("Invalid duration: " + value);
+            }
+            number = -1;
+            any = true;
+        }
+        // Không có đơn vị nào ("P", "PT") hoặc số không có đơn vị ở cuối ("PT1")
+        if (!any || number >= 0) throw new IllegalArgumentException("Invalid duration: " + value);
+        return negative ? -millis : millis;
+    }
+
     // --- Helper Methods ---
     private static Calendar dateToCalendar(Date date) {
         if (date == null) return null;
@@ -0,0 +1,347 @@
+package com.example.personalschedule.utils;
+
+import com.example.personalschedule.models.Event;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Đọc tuần tự các VEVENT từ một file iCalendar (RFC 5545) mà không load cả file vào bộ nhớ.
+ * Mỗi lần gọi next() chỉ đọc tới hết VEVENT tiếp theo và trả về một Event (chưa có id/calendarId).
+ *
+ * Hỗ trợ: gộp dòng bị gấp (folding), SUMMARY/LOCATION/DESCRIPTION (bỏ escape), DTSTART/DTEND
+ * dạng DATE (cả ngày), UTC ("Z"), TZID hoặc giờ địa phương, DURATION, RRULE, EXDATE (đổi sang UTC)
+ * và TRIGGER của VALARM đầu tiên -> reminderMinutes. Các thành phần khác (VTIMEZONE, VTODO, ...) bị bỏ qua.
+ *
+ * VEVENT có RECURRENCE-ID (một lần lặp đã sửa của sự kiện lặp lại) bị bỏ qua: app không tạo được
+ * ngoại lệ gắn với sự kiện gốc khi nhập, và nhập nó như sự kiện riêng sẽ tạo bản trùng với lần lặp
+ * mà RRULE của sự kiện gốc đã sinh ra.
+ * Không thread-safe.
+ */
+public class IcsEventReader implements Closeable {
+
+    // Giới hạn độ dài một dòng sau khi gộp để một file hỏng không làm tràn bộ nhớ
+    private static final int MAX_LINE_LENGTH = 256 * 1024;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final BufferedReader reader;
+    private String pendingLine; // Dòng đã đọc trước (để phát hiện dòng gấp)
+    private int skippedCount = 0;
+
+    // Thuộc tính của VEVENT đang đọc
+    private String title;
+    private String location;
+    private String description;
+    private String startValue, startTzid, endValue, endTzid, duration;
+    private boolean startIsDate;
+    private String rrule;
+    private final StringBuilder exdates = new StringBuilder();
+    private boolean recurrenceId;
+    private String triggerValue;
+    private boolean triggerIsDateTime;
+
+    public IcsEventReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    /**
+     * @return số VEVENT bị bỏ qua vì thiếu/sai DTSTART hoặc vì là ngoại lệ (RECURRENCE-ID).
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * Đọc VEVENT tiếp theo.
+     * @return Event tương ứng, hoặc null nếu đã hết file.
+     */
+    public Event next() throws IOException {
+        String line;
+        while ((line = readUnfoldedLine()) != null) {
+            if (!line.trim().equalsIgnoreCase("BEGIN:VEVENT")) continue;
+            Event event = readEvent();
+            if (event != null) return event;
+            skippedCount++;
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // --- Helpers ---
+
+    private Event readEvent() throws IOException {
+        resetEvent();
+        boolean inAlarm = false;
+        boolean alarmSeen = false;
+        String line;
+        while ((line = readUnfoldedLine()) != null) {
+            String name = propertyName(line);
+            String value = propertyValue(line);
+            if (name.equals("END") && value.equalsIgnoreCase("VEVENT")) {
+                return buildEvent();
+            }
+            if (name.equals("BEGIN") && value.equalsIgnoreCase("VALARM")) {
+                inAlarm = true;
+                continue;
+            }
+            if (name.equals("END") && value.equalsIgnoreCase("VALARM")) {
+                inAlarm = false;
+                alarmSeen = true;
+                continue;
+            }
+            if (inAlarm) {
+                // Chỉ lấy TRIGGER của VALARM đầu tiên
+                if (!alarmSeen && name.equals("TRIGGER")) {
+                    triggerValue = value;
+                    triggerIsDateTime = "DATE-TIME".equalsIgnoreCase(parameter(line, "VALUE"));
+                }
+                continue;
+            }
+            switch (name) {
+                case "SUMMARY":
+                    title = unescapeText(value);
+                    break;
+                case "LOCATION":
+                    location = unescapeText(value);
+                    break;
+                case "DESCRIPTION":
+                    description = unescapeText(value);
+                    break;
+                case "DTSTART":
+                    startValue = value;
+                    startTzid = parameter(line, "TZID");
+                    startIsDate = "DATE".equalsIgnoreCase(parameter(line, "VALUE")) || value.length() == 8;
+                    break;
+                case "DTEND":
+                    endValue = value;
+                    endTzid = parameter(line, "TZID");
+                    break;
+                case "DURATION":
+                    duration = value;
+                    break;
+                case "RRULE":
+                    rrule = value.trim();
+                    break;
+                case "EXDATE":
+                    appendExdates(value, parameter(line, "TZID"));
+                    break;
+                case "RECURRENCE-ID":
+                    recurrenceId = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return null; // Hết file giữa chừng
+    }
+
+    private void resetEvent() {
+        title = location = description = null;
+        startValue = startTzid = endValue = endTzid = duration = null;
+        startIsDate = false;
+        rrule = null;
+        exdates.setLength(0);
+        recurrenceId = false;
+        triggerValue = null;
+        triggerIsDateTime = false;
+    }
+
+    private Event buildEvent() {
+        if (startValue == null || recurrenceId) return null;
+        try {
+            String timeZone;
+            long start;
+            long end;
+            if (startIsDate) {
+                // Calendar Provider yêu cầu sự kiện cả ngày dùng UTC, bắt đầu lúc 00:00 UTC
+                timeZone = "UTC";
+                start = parseDateTime(startValue, "UTC");
+                if (endValue != null) {
+                    end = parseDateTime(endValue, "UTC");
+                } else if (duration != null) {
+                    end = start + DateTimeUtils.parseDuration(duration);
+                } else {
+                    end = start + DAY_MILLIS;
+                }
+            } else {
+                timeZone = startValue.endsWith("Z") ? "UTC" : resolveTimeZone(startTzid).getID();
+                start = parseDateTime(startValue, startTzid);
+                if (endValue != null) {
+                    end = parseDateTime(endValue, endTzid != null ? endTzid : startTzid);
+                } else if (duration != null) {
+                    end = start + DateTimeUtils.parseDuration(duration);
+                } else {
+                    end = start;
+                }
+            }
+            if (end < start) end = start;
+
+            int reminderMinutes = 0; // Không có VALARM -> không nhắc
+            if (triggerValue != null) {
+                long offset = triggerIsDateTime
+                        ? parseDateTime(triggerValue, null) - start
+                        : DateTimeUtils.parseDuration(triggerValue);
+                // TRIGGER âm = trước giờ bắt đầu; trigger sau giờ bắt đầu không biểu diễn được -> nhắc đúng giờ
+                reminderMinutes = offset < 0 ? (int) (-offset / 60000) : 0;
+            }
+
+            Event event = new Event(0, 0, timeZone, title != null ? title : "", start, end, location, description,
+                    reminderMinutes, startIsDate);
+            if (rrule != null && !rrule.isEmpty()) {
+                event.setRrule(rrule);
+                if (exdates.length() > 0) event.setExdate(exdates.toString());
+            }
+            return event;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // EXDATE có thể là danh sách cách nhau bởi dấu phẩy và lặp lại nhiều dòng; lưu dạng UTC như Calendar Provider.
+    // Ngày sai bị bỏ qua (không bỏ cả sự kiện).
+    private void appendExdates(String value, String tzid) {
+        for (String date : value.split(",")) {
+            if (date.trim().isEmpty()) continue;
+            try {
+                // EXDATE dạng DATE chỉ dùng cho sự kiện cả ngày, được lưu lúc 00:00 UTC
+                long millis = parseDateTime(date, date.trim().length() == 8 ? "UTC" : tzid);
+                if (exdates.length() > 0) exdates.append(',');
+                exdates.append(formatUtc(millis));
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+    }
+
+    // "yyyyMMdd'T'HHmmss'Z'"
+    static String formatUtc(long millis) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.setTimeInMillis(millis);
+        return String.format(Locale.ROOT, "%04d%02d%02dT%02d%02d%02dZ",
+                calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH),
+                calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND));
+    }
+
+    // Đọc một dòng logic: gộp các dòng tiếp theo bắt đầu bằng khoảng trắng/tab
+    private String readUnfoldedLine() throws IOException {
+        String line = pendingLine != null ? pendingLine : reader.readLine();
+        pendingLine = null;
+        if (line == null) return null;
+        StringBuilder builder = null;
+        String next;
+        while ((next = reader.readLine()) != null
+                && !next.isEmpty() && (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+            if (builder == null) builder = new StringBuilder(line);
+            if (builder.length() < MAX_LINE_LENGTH) {
+                builder.append(next, 1, Math.min(next.length(), 1 + MAX_LINE_LENGTH - builder.length()));
+            }
+        }
+        pendingLine = next;
+        return builder != null ? builder.toString() : line;
+    }
+
+    // Tên thuộc tính (viết hoa), trước ';' hoặc ':' đầu tiên
+    private static String propertyName(String line) {
+        int end = 0;
+        while (end < line.length() && line.charAt(end) != ';' && line.charAt(end) != ':') end++;
+        return line.substring(0, end).trim().toUpperCase(Locale.ROOT);
+    }
+
+    // Giá trị sau dấu ':' đầu tiên không nằm trong tham số có ngoặc kép
+    private static String propertyValue(String line) {
+        int index = valueSeparator(line);
+        return index >= 0 ? line.substring(index + 1) : "";
+    }
+
+    private static int valueSeparator(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') quoted = !quoted;
+            else if (c == ':' && !quoted) return i;
+        }
+        return -1;
+    }
+
+    // Giá trị của tham số (ví dụ TZID) trong phần trước ':'
+    private static String parameter(String line, String name) {
+        int separator = valueSeparator(line);
+        String head = separator >= 0 ? line.substring(0, separator) : line;
+        for (String part : head.split(";")) {
+            int eq = part.indexOf('=');
+            if (eq > 0 && part.substring(0, eq).trim().equalsIgnoreCase(name)) {
+                String value = part.substring(eq + 1).trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static String unescapeText(String value) {
+        if (value.indexOf('\\') < 0) return value;
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                builder.append(next == 'n' || next == 'N' ? '\n' : next);
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Phân tích DATE ("yyyyMMdd") hoặc DATE-TIME ("yyyyMMdd'T'HHmmss" kèm "Z" nếu là UTC).
+     */
+    static long parseDateTime(String value, String tzid) {
+        value = value.trim();
+        if (value.length() < 8) throw new IllegalArgumentException("Invalid date: " + value);
+        boolean utc = value.endsWith("Z");
+        Calendar calendar = Calendar.getInstance(utc ? TimeZone.getTimeZone("UTC") : resolveTimeZone(tzid));
+        calendar.clear();
+        int year = parseInt(value, 0, 4);
+        int month = parseInt(value, 4, 6);
+        int day = parseInt(value, 6, 8);
+        int hour = 0, minute = 0, second = 0;
+        if (value.length() >= 15 && value.charAt(8) == 'T') {
+            hour = parseInt(value, 9, 11);
+            minute = parseInt(value, 11, 13);
+            second = parseInt(value, 13, 15);
+        }
+        calendar.set(year, month - 1, day, hour, minute, second);
+        return calendar.getTimeInMillis();
+    }
+
+    // TZID không nhận ra (hoặc không có) -> dùng múi giờ thiết bị ("floating time")
+    private static TimeZone resolveTimeZone(String tzid) {
+        if (tzid == null || tzid.isEmpty()) return TimeZone.getDefault();
+        TimeZone timeZone = TimeZone.getTimeZone(tzid);
+        if (timeZone.getID().equals("GMT") && !tzid.equalsIgnoreCase("GMT")) {
+            return TimeZone.getDefault();
+        }
+        return timeZone;
+    }
+
+    private static int parseInt(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') throw new IllegalArgumentException("Invalid number: " + value);
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+}
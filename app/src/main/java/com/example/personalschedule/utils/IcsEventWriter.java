@@ -0,0 +1,222 @@
+package com.example.personalschedule.utils;
+
+import com.example.personalschedule.models.Event;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Ghi sự kiện ra định dạng iCalendar (RFC 5545) theo kiểu streaming: mỗi writeEvent() ghi ngay
+ * một VEVENT qua BufferedWriter, không giữ lại gì trong bộ nhớ.
+ *
+ * Thời gian được ghi theo UTC ("Z"), sự kiện cả ngày dùng VALUE=DATE. Sự kiện lặp lại (không phải cả ngày)
+ * ghi DTSTART theo giờ địa phương kèm TZID của sự kiện, để các lần lặp giữ đúng giờ khi qua DST.
+ * Dòng dài được gấp ở 75 octet (UTF-8) như chuẩn yêu cầu. Không thread-safe.
+ */
+public class IcsEventWriter implements Closeable {
+
+    private static final String CRLF = "\r\n";
+    private static final int MAX_LINE_OCTETS = 75;
+
+    private final BufferedWriter writer;
+    // Dùng lại cho mọi lần format (tránh tạo SimpleDateFormat/Calendar cho từng dòng)
+    private final Calendar utcCalendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    private final Calendar localCalendar = Calendar.getInstance();
+    private final StringBuilder line = new StringBuilder(128);
+    private final String timestamp;
+
+    public IcsEventWriter(Writer writer) {
+        this.writer = writer instanceof BufferedWriter ? (BufferedWriter) writer : new BufferedWriter(writer, 64 * 1024);
+        this.timestamp = formatDateTime(System.currentTimeMillis());
+    }
+
+    public void begin() throws IOException {
+        writeLine("BEGIN:VCALENDAR");
+        writeLine("VERSION:2.0");
+        writeLine("PRODID:-//PersonalSchedule//Event Export//VI");
+        writeLine("CALSCALE:GREGORIAN");
+    }
+
+    /**
+     * Ghi một VEVENT.
+     * @param uid UID duy nhất của sự kiện
+     * @param rrule RRULE của sự kiện lặp lại (null nếu không lặp); EXDATE được lấy từ event.getExdate()
+     * @param duration DURATION của provider, dùng khi sự kiện không có end time (ví dụ sự kiện lặp lại)
+     */
+    public void writeEvent(String uid, Event event, String rrule, String duration) throws IOException {
+        boolean recurring = rrule != null && !rrule.isEmpty();
+        writeLine("BEGIN:VEVENT");
+        writeProperty("UID", uid);
+        writeLine("DTSTAMP:" + timestamp);
+        writeTimes(event, duration, recurring ? event.getTimeZone() : null);
+        if (recurring) {
+            writeLine("RRULE:" + rrule);
+            writeExdate(event.getExdate());
+        }
+        writeBody(event);
+    }
+
+    /**
+     * Ghi một lần lặp đã sửa (hoặc đã hủy) của sự kiện lặp lại, dưới cùng UID với sự kiện gốc.
+     * @param originalStart thời điểm bắt đầu ban đầu của lần lặp (ORIGINAL_INSTANCE_TIME)
+     * @param cancelled lần lặp đã bị xóa khỏi chuỗi
+     */
+    public void writeOverride(String uid, Event event, long originalStart, boolean originalAllDay, boolean cancelled,
+                              String duration) throws IOException {
+        writeLine("BEGIN:VEVENT");
+        writeProperty("UID", uid);
+        writeLine("DTSTAMP:" + timestamp);
+        writeLine(originalAllDay
+                ? "RECURRENCE-ID;VALUE=DATE:" + formatDate(originalStart)
+                : "RECURRENCE-ID:" + formatDateTime(originalStart));
+        writeTimes(event, duration, null);
+        if (cancelled) writeLine("STATUS:CANCELLED");
+        writeBody(event);
+    }
+
+    public void end() throws IOException {
+        writeLine("END:VCALENDAR");
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    // --- Helpers ---
+
+    // DTSTART và DTEND/DURATION; timeZone khác null -> giờ địa phương kèm TZID thay cho UTC
+    private void writeTimes(Event event, String duration, String timeZone) throws IOException {
+        long start = event.getStartTime();
+        long end = event.getEndTime();
+        if (event.isAllDay()) {
+            writeLine("DTSTART;VALUE=DATE:" + formatDate(start));
+            if (end > start) writeLine("DTEND;VALUE=DATE:" + formatDate(end));
+            else if (duration != null && !duration.isEmpty()) writeLine("DURATION:" + duration);
+        } else if (timeZone != null && !timeZone.isEmpty() && !timeZone.equals("UTC")) {
+            localCalendar.setTimeZone(TimeZone.getTimeZone(timeZone));
+            writeLine("DTSTART;TZID=" + timeZone + ":" + formatLocalDateTime(start));
+            if (end > start) writeLine("DTEND;TZID=" + timeZone + ":" + formatLocalDateTime(end));
+            else if (duration != null && !duration.isEmpty()) writeLine("DURATION:" + duration);
+        } else {
+            writeLine("DTSTART:" + formatDateTime(start));
+            if (end > start) writeLine("DTEND:" + formatDateTime(end));
+            else if (duration != null && !duration.isEmpty()) writeLine("DURATION:" + duration);
+        }
+    }
+
+    // EXDATE của provider: danh sách ngày UTC, hoặc "TZID;ngày,ngày" với giờ địa phương
+    private void writeExdate(String exdate) throws IOException {
+        if (exdate == null || exdate.isEmpty()) return;
+        int separator = exdate.indexOf(';');
+        if (separator > 0) {
+            writeLine("EXDATE;TZID=" + exdate.substring(0, separator) + ":" + exdate.substring(separator + 1));
+        } else {
+            writeLine("EXDATE:" + exdate);
+        }
+    }
+
+    private void writeBody(Event event) throws IOException {
+        writeProperty("SUMMARY", event.getTitle());
+        writeProperty("LOCATION", event.getLocation());
+        writeProperty("DESCRIPTION", event.getDescription());
+        if (event.getReminderMinutes() > 0) {
+            writeLine("BEGIN:VALARM");
+            writeLine("ACTION:DISPLAY");
+            writeProperty("DESCRIPTION", event.getTitle() != null && !event.getTitle().isEmpty() ? event.getTitle() : "Reminder");
+            writeLine("TRIGGER:-PT" + event.getReminderMinutes() + "M");
+            writeLine("END:VALARM");
+        }
+        writeLine("END:VEVENT");
+    }
+
+    private void writeProperty(String name, String text) throws IOException {
+        if (text == null || text.isEmpty()) return;
+        line.setLength(0);
+        line.append(name).append(':');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\': line.append("\\\\"); break;
+                case ';': line.append("\\;"); break;
+                case ',': line.append("\\,"); break;
+                case '\n': line.append("\\n"); break;
+                case '\r': break;
+                default: line.append(c);
+            }
+        }
+        writeFolded(line);
+    }
+
+    private void writeLine(String text) throws IOException {
+        line.setLength(0);
+        line.append(text);
+        writeFolded(line);
+    }
+
+    // Gấp dòng ở 75 octet UTF-8, không cắt giữa một ký tự nhiều byte
+    private void writeFolded(CharSequence text) throws IOException {
+        int octets = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean pair = Character.isHighSurrogate(c) && i + 1 < text.length();
+            int size = pair ? 4 : c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+            if (octets + size > MAX_LINE_OCTETS) {
+                writer.write(CRLF);
+                writer.write(' ');
+                octets = 1;
+            }
+            writer.write(c);
+            if (pair) writer.write(text.charAt(++i));
+            octets += size;
+        }
+        writer.write(CRLF);
+    }
+
+    private String formatDate(long millis) {
+        utcCalendar.setTimeInMillis(millis);
+        StringBuilder builder = new StringBuilder(8);
+        appendDate(builder, utcCalendar);
+        return builder.toString();
+    }
+
+    private String formatDateTime(long millis) {
+        utcCalendar.setTimeInMillis(millis);
+        StringBuilder builder = new StringBuilder(16);
+        appendDateTime(builder, utcCalendar);
+        return builder.append('Z').toString();
+    }
+
+    // Giờ địa phương theo múi giờ đang đặt cho localCalendar (không có "Z")
+    private String formatLocalDateTime(long millis) {
+        localCalendar.setTimeInMillis(millis);
+        StringBuilder builder = new StringBuilder(15);
+        appendDateTime(builder, localCalendar);
+        return builder.toString();
+    }
+
+    private static void appendDateTime(StringBuilder builder, Calendar calendar) {
+        appendDate(builder, calendar);
+        builder.append('T');
+        appendPadded(builder, calendar.get(Calendar.HOUR_OF_DAY), 2);
+        appendPadded(builder, calendar.get(Calendar.MINUTE), 2);
+        appendPadded(builder, calendar.get(Calendar.SECOND), 2);
+    }
+
+    private static void appendDate(StringBuilder builder, Calendar calendar) {
+        appendPadded(builder, calendar.get(Calendar.YEAR), 4);
+        appendPadded(builder, calendar.get(Calendar.MONTH) + 1, 2);
+        appendPadded(builder, calendar.get(Calendar.DAY_OF_MONTH), 2);
+    }
+
+    private static void appendPadded(StringBuilder builder, int value, int width) {
+        String digits = Integer.toString(value);
+        for (int i = digits.length(); i < width; i++) builder.append('0');
+        builder.append(digits);
+    }
+}
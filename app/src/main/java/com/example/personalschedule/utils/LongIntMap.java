@@ -0,0 +1,126 @@
+package com.example.personalschedule.utils;
+
+import java.util.Arrays;
+
+/**
+ * Map long -> int dùng mảng nguyên thủy (open addressing, linear probing).
+ * Dùng cho các bảng tra cứu lớn (ví dụ eventId -> reminderMinutes) để tránh
+ * boxing Long/Integer như khi dùng HashMap.
+ * Không thread-safe.
+ */
+public class LongIntMap {
+
+    private static final long EMPTY_KEY = Long.MIN_VALUE; // Khóa trống (ID của Calendar Provider luôn > 0)
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    public LongIntMap() {
+        this(16);
+    }
+
+    public LongIntMap(int expectedSize) {
+        int capacity = tableSizeFor((int) Math.ceil(Math.max(expectedSize, 4) / LOAD_FACTOR));
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    // Trả về giá trị của key, hoặc defaultValue nếu không có
+    public int get(long key, int defaultValue) {
+        int index = indexOf(key);
+        return index >= 0 ? values[index] : defaultValue;
+    }
+
+    public void put(long key, int value) {
+        checkKey(key);
+        int index = probe(key);
+        if (keys[index] == EMPTY_KEY) {
+            keys[index] = key;
+            values[index] = value;
+            if (++size > keys.length * LOAD_FACTOR) {
+                rehash(keys.length << 1);
+            }
+        } else {
+            values[index] = value;
+        }
+    }
+
+    // Chỉ thêm nếu key chưa tồn tại. Trả về true nếu đã thêm.
+    public boolean putIfAbsent(long key, int value) {
+        if (containsKey(key)) return false;
+        put(key, value);
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY_KEY);
+        size = 0;
+    }
+
+    // --- Helpers ---
+
+    private int indexOf(long key) {
+        if (key == EMPTY_KEY) return -1;
+        int index = probe(key);
+        return keys[index] == key ? index : -1;
+    }
+
+    // Tìm slot chứa key hoặc slot trống đầu tiên trên chuỗi probe
+    private int probe(long key) {
+        int index = hash(key) & mask;
+        while (keys[index] != EMPTY_KEY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY_KEY) {
+                int index = probe(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+        mask = capacity - 1;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L; // Fibonacci hashing để phân tán ID liên tiếp
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int tableSizeFor(int n) {
+        int capacity = Integer.highestOneBit(Math.max(n - 1, 1)) << 1;
+        return Math.max(capacity, 8);
+    }
+
+    private static void checkKey(long key) {
+        if (key == EMPTY_KEY) {
+            throw new IllegalArgumentException("Key không hợp lệ: " + key);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.personalschedule.utils;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Quy tắc lặp lại (RRULE, RFC 5545) dạng đơn giản mà app hỗ trợ:
+ * FREQ=DAILY|WEEKLY|MONTHLY|YEARLY, kèm INTERVAL, COUNT, UNTIL tùy chọn.
+ *
+ * RRULE có các phần khác (BYDAY, BYMONTHDAY, ...) vẫn được giữ nguyên khi ghi lại sự kiện,
+ * nhưng parse() trả về null nên app không tự mở rộng các lần xuất hiện của chúng.
+ */
+public final class RecurrenceRule {
+
+    public static final int FREQ_DAILY = 0;
+    public static final int FREQ_WEEKLY = 1;
+    public static final int FREQ_MONTHLY = 2;
+    public static final int FREQ_YEARLY = 3;
+
+    private static final String[] FREQ_NAMES = {
+            Constants.RECURRENCE_DAILY, Constants.RECURRENCE_WEEKLY,
+            Constants.RECURRENCE_MONTHLY, Constants.RECURRENCE_YEARLY
+    };
+
+    private final int frequency;
+    private final int interval;  // >= 1
+    private final int count;     // 0: không giới hạn số lần
+    private final long until;    // 0: không có UNTIL (millis UTC, tính cả lần bắt đầu đúng lúc này)
+
+    public RecurrenceRule(int frequency, int interval, int count, long until) {
+        this.frequency = frequency;
+        this.interval = Math.max(1, interval);
+        this.count = Math.max(0, count);
+        this.until = Math.max(0, until);
+    }
+
+    /**
+     * @param pattern một trong Constants.RECURRENCE_* (NONE hoặc null: không lặp)
+     * @return RRULE tương ứng, hoặc null nếu không lặp
+     */
+    public static String forPattern(String pattern) {
+        int frequency = frequencyOf(pattern);
+        return frequency < 0 ? null : "FREQ=" + FREQ_NAMES[frequency];
+    }
+
+    /**
+     * @return Constants.RECURRENCE_* tương ứng với rrule nếu nó chỉ gồm FREQ (không INTERVAL/COUNT/UNTIL),
+     * RECURRENCE_NONE nếu rrule rỗng, hoặc null nếu là quy tắc tùy chỉnh.
+     */
+    public static String patternOf(String rrule) {
+        if (rrule == null || rrule.trim().isEmpty()) return Constants.RECURRENCE_NONE;
+        RecurrenceRule rule = parse(rrule);
+        if (rule == null || rule.interval != 1 || rule.count != 0 || rule.until != 0) return null;
+        return FREQ_NAMES[rule.frequency];
+    }
+
+    /**
+     * @return quy tắc đã parse, hoặc null nếu rrule rỗng, sai cú pháp hoặc dùng phần không hỗ trợ.
+     */
+    public static RecurrenceRule parse(String rrule) {
+        if (rrule == null) return null;
+        String value = rrule.trim();
+        if (value.regionMatches(true, 0, "RRULE:", 0, 6)) value = value.substring(6);
+        if (value.isEmpty()) return null;
+
+        int frequency = -1;
+        int interval = 1;
+        int count = 0;
+        long until = 0;
+        try {
+            for (String part : value.split(";")) {
+                int eq = part.indexOf('=');
+                if (eq <= 0) continue;
+                String name = part.substring(0, eq).trim().toUpperCase(Locale.US);
+                String arg = part.substring(eq + 1).trim();
+                switch (name) {
+                    case "FREQ":
+                        frequency = frequencyOf(arg.toUpperCase(Locale.US));
+                        if (frequency < 0) return null; // HOURLY, MINUTELY, ...
+                        break;
+                    case "INTERVAL":
+                        interval = Integer.parseInt(arg);
+                        break;
+                    case "COUNT":
+                        count = Integer.parseInt(arg);
+                        break;
+                    case "UNTIL":
+                        until = parseUntil(arg);
+                        if (until <= 0) return null;
+                        break;
+                    case "WKST":
+                        break; // Không ảnh hưởng khi không có BYDAY
+                    default:
+                        return null; // BYDAY, BYMONTHDAY, BYSETPOS, ...
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (frequency < 0 || interval < 1 || count < 0) return null;
+        return new RecurrenceRule(frequency, interval, count, until);
+    }
+
+    /**
+     * DURATION để ghi vào Calendar Provider (bắt buộc với sự kiện lặp lại thay cho DTEND):
+     * "P<n>D" cho sự kiện cả ngày, "P<n>S" cho sự kiện thường.
+     */
+    public static String formatDuration(long millis, boolean allDay) {
+        if (allDay) {
+            long days = Math.max(1, (millis + 24 * 3600_000L - 1) / (24 * 3600_000L));
+            return "P" + days + "D";
+        }
+        return "P" + Math.max(0, millis / 1000) + "S";
+    }
+
+    public int getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getUntil() {
+        return until;
+    }
+
+    // Dạng RRULE (không có tiền tố "RRULE:")
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("FREQ=").append(FREQ_NAMES[frequency]);
+        if (interval > 1) builder.append(";INTERVAL=").append(interval);
+        if (count > 0) builder.append(";COUNT=").append(count);
+        if (until > 0) {
+            Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.US);
+            calendar.setTimeInMillis(until);
+            builder.append(String.format(Locale.US, ";UNTIL=%04d%02d%02dT%02d%02d%02dZ",
+                    calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH),
+                    calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND)));
+        }
+        return builder.toString();
+    }
+
+    // --- Helpers ---
+
+    private static int frequencyOf(String name) {
+        if (name == null) return -1;
+        for (int i = 0; i < FREQ_NAMES.length; i++) {
+            if (FREQ_NAMES[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    // UNTIL dạng yyyyMMdd hoặc yyyyMMdd'T'HHmmss['Z'] (không có Z: coi như UTC, đủ cho việc giới hạn)
+    private static long parseUntil(String value) {
+        if (value.length() < 8) return -1;
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.US);
+        calendar.clear();
+        int year = Integer.parseInt(value.substring(0, 4));
+        int month = Integer.parseInt(value.substring(4, 6));
+        int day = Integer.parseInt(value.substring(6, 8));
+        if (value.length() >= 15 && value.charAt(8) == 'T') {
+            calendar.set(year, month - 1, day, Integer.parseInt(value.substring(9, 11)),
+                    Integer.parseInt(value.substring(11, 13)), Integer.parseInt(value.substring(13, 15)));
+        } else {
+            // Chỉ có ngày: tính hết ngày đó
+            calendar.set(year, month - 1, day, 23, 59, 59);
+        }
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.personalschedule.utils;
+
+import android.annotation.SuppressLint;
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.personalschedule.PersonalScheduleApp;
+import com.example.personalschedule.database.EventRepository;
+import com.example.personalschedule.database.RecurrenceExpander;
+import com.example.personalschedule.database.ReminderQueue;
+import com.example.personalschedule.models.Event;
+import com.example.personalschedule.receivers.EventReminderReceiver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lên lịch reminder bằng một alarm duy nhất.
+ *
+ * Các reminder sắp tới (trong REMINDER_HORIZON_DAYS ngày) nằm trong ReminderQueue trên đĩa; chỉ một
+ * alarm chính xác được đặt cho thời điểm nhắc sớm nhất. Khi alarm kêu, EventReminderReceiver lấy ra
+ * mọi reminder đến hạn trong cùng phút đó (takeDue) rồi đặt lại alarm cho phần tử tiếp theo. Reminder
+ * xa hơn horizon (và thay đổi từ ứng dụng khác) được nạp khi hàng đợi được dựng lại từ provider,
+ * mỗi nửa horizon một lần (refillIfStale).
+ *
+ * Các phương thức đọc/ghi hàng đợi nên được gọi từ background thread. Receiver dùng runAsync(): thread
+ * riêng của reminder, không xếp hàng sau các truy vấn provider trên pool đọc của repository.
+ */
+public final class ReminderScheduler {
+
+    private static final String TAG = "ReminderScheduler";
+
+    public static final String ACTION_REMINDER_ALARM = "com.example.personalschedule.action.REMINDER_ALARM";
+    // Một PendingIntent duy nhất cho mọi reminder
+    private static final int ALARM_REQUEST_CODE = 0;
+
+    private static final long MINUTE_MILLIS = 60_000L;
+    public static final long HORIZON_MILLIS = Constants.REMINDER_HORIZON_DAYS * 24L * 3600_000;
+    private static final long REFILL_INTERVAL_MILLIS = HORIZON_MILLIS / 2;
+    private static final int MAX_OCCURRENCES_PER_EVENT = 64;
+    // Reminder bị lỡ quá lâu (máy tắt, đồng hồ nhảy tới) thì bỏ, không báo dồn một loạt
+    private static final long MISSED_GRACE_MILLIS = 15 * MINUTE_MILLIS;
+    // goAsync() chỉ cho khoảng 10 giây: kết thúc broadcast trước đó dù refill vẫn đang chờ provider
+    private static final long ASYNC_TIMEOUT_MILLIS = 8000;
+
+    private static volatile ScheduledExecutorService receiverThread;
+
+    private ReminderScheduler() {
+    }
+
+    /** Việc của một broadcast; gọi done khi xong (có thể từ thread khác, gọi nhiều lần cũng được). */
+    public interface AsyncWork {
+        void run(@NonNull Runnable done);
+    }
+
+    /**
+     * Chạy việc của receiver (sau goAsync()) trên thread riêng của reminder. pendingResult.finish() được
+     * gọi đúng một lần: khi work gọi done, khi work ném lỗi, hoặc khi hết ASYNC_TIMEOUT_MILLIS. Hết giờ
+     * chỉ kết thúc broadcast, refill đang chạy vẫn tiếp tục.
+     */
+    public static void runAsync(@NonNull BroadcastReceiver.PendingResult pendingResult, @NonNull AsyncWork work) {
+        AtomicBoolean finished = new AtomicBoolean();
+        Runnable done = () -> {
+            if (finished.compareAndSet(false, true)) pendingResult.finish();
+        };
+        ScheduledExecutorService executor = receiverThread();
+        executor.schedule(() -> {
+            if (!finished.get()) Log.w(TAG, "Broadcast timed out, finishing early");
+            done.run();
+        }, ASYNC_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        executor.execute(() -> {
+            try {
+                work.run(done);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Reminder broadcast failed", e);
+                done.run();
+            }
+        });
+    }
+
+    /**
+     * Cập nhật hàng đợi sau khi repository thêm/sửa/xóa sự kiện, rồi đặt lại alarm.
+     * @param written   sự kiện vừa được thêm/sửa (reminder cũ của chúng bị thay)
+     * @param deletedIds sự kiện vừa bị xóa
+     */
+    public static void onEventsWritten(@NonNull Context context, @NonNull List<Event> written,
+                                       @NonNull long[] deletedIds) {
+        if (written.isEmpty() && deletedIds.length == 0) return;
+        long now = System.currentTimeMillis();
+        long[] eventIds = new long[written.size() + deletedIds.length];
+        List<ReminderQueue.Entry> added = new ArrayList<>();
+        boolean needsRefill = false;
+        for (int i = 0; i < written.size(); i++) {
+            Event event = written.get(i);
+            eventIds[i] = event.getId();
+            if (event.isRecurring() && (event.getExdate() != null || RecurrenceRule.parse(event.getRrule()) == null)) {
+                // Quy tắc app không tự mở rộng được (BYDAY, EXDATE, ...): lấy các lần xuất hiện từ Instances
+                needsRefill = true;
+                continue;
+            }
+            added.addAll(remindersOf(event, now));
+        }
+        System.arraycopy(deletedIds, 0, eventIds, written.size(), deletedIds.length);
+        ReminderQueue.getInstance(context).replaceEvents(eventIds, added);
+        if (needsRefill) {
+            refill(context, null);
+        } else {
+            armNextAlarm(context);
+        }
+    }
+
+    /**
+     * Lấy ra các reminder đến hạn tính tới hết phút hiện tại, để mọi reminder của cùng một phút
+     * được báo cùng lúc.
+     */
+    @NonNull
+    public static List<ReminderQueue.Entry> takeDue(@NonNull Context context, long now) {
+        long endOfMinute = (now / MINUTE_MILLIS + 1) * MINUTE_MILLIS;
+        List<ReminderQueue.Entry> due = ReminderQueue.getInstance(context).pollDue(endOfMinute);
+        Log.d(TAG, due.size() + " reminders due at " + new Date(now));
+        return due;
+    }
+
+    /**
+     * Sau khi khởi động lại, đổi giờ hoặc đổi múi giờ (AlarmManager đã mất alarm hoặc thời điểm đã lệch):
+     * đặt lại alarm ngay từ hàng đợi trên đĩa, rồi đối chiếu với provider bằng một truy vấn theo khoảng.
+     * Đổi múi giờ cũng làm đổi thời điểm nhắc của sự kiện cả ngày, nên luôn dựng lại hàng đợi.
+     * @param done chạy khi xong (background thread), có thể null
+     */
+    public static void reschedule(@NonNull Context context, Runnable done) {
+        long now = System.currentTimeMillis();
+        List<ReminderQueue.Entry> missed = ReminderQueue.getInstance(context).pollDue(now - MISSED_GRACE_MILLIS);
+        if (!missed.isEmpty()) Log.d(TAG, "Dropped " + missed.size() + " missed reminders");
+        armNextAlarm(context);
+        refill(context, done);
+    }
+
+    /**
+     * Dựng lại hàng đợi từ provider nếu lần dựng trước đã cũ, rồi đặt lại alarm.
+     * @param done chạy khi xong (background thread), có thể null
+     */
+    public static void refillIfStale(@NonNull Context context, Runnable done) {
+        // Đặt alarm từ hàng đợi hiện tại trước, không chờ truy vấn provider
+        armNextAlarm(context);
+        long refilledAt = ReminderQueue.getInstance(context).getRefilledAt();
+        long now = System.currentTimeMillis();
+        if (refilledAt > 0 && refilledAt <= now && now - refilledAt < REFILL_INTERVAL_MILLIS) {
+            if (done != null) done.run();
+            return;
+        }
+        refill(context, done);
+    }
+
+    /**
+     * Đọc mọi reminder trong horizon từ provider (một truy vấn Instances theo khoảng thời gian) và thay
+     * toàn bộ hàng đợi, rồi đặt lại alarm.
+     * @param done chạy khi xong (background thread), có thể null
+     */
+    public static void refill(@NonNull Context context, Runnable done) {
+        final Context appContext = context.getApplicationContext();
+        final long now = System.currentTimeMillis();
+        EventRepository repository = PersonalScheduleApp.getRepository(appContext);
+        repository.loadUpcomingReminders(now, now + HORIZON_MILLIS, new EventRepository.OnRemindersLoadedListener() {
+            @Override
+            public void onSuccess(List<ReminderQueue.Entry> reminders) {
+                try {
+                    ReminderQueue.getInstance(appContext).replaceAll(reminders, now);
+                    Log.d(TAG, "Reminder queue refilled with " + reminders.size() + " reminders");
+                } catch (RuntimeException e) {
+                    // Giữ hàng đợi hiện tại, thử lại ở lần sau
+                    Log.e(TAG, "Cannot replace reminder queue", e);
+                } finally {
+                    finishRefill(appContext, done);
+                }
+            }
+
+            @Override
+            public void onError(String message) {
+                // Giữ hàng đợi hiện tại, thử lại ở lần sau
+                Log.w(TAG, "Cannot refill reminder queue: " + message);
+                finishRefill(appContext, done);
+            }
+        });
+    }
+
+    // Không ném lỗi ra listener: repository sẽ gọi tiếp onError và done bị chạy hai lần
+    private static void finishRefill(Context context, Runnable done) {
+        try {
+            armNextAlarm(context);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Cannot arm reminder alarm", e);
+        } finally {
+            if (done != null) done.run();
+        }
+    }
+
+    /**
+     * Đặt (hoặc hủy) alarm duy nhất cho thời điểm nhắc sớm nhất trong hàng đợi. Alarm cũng kêu khi tới
+     * lúc dựng lại hàng đợi, để reminder ngoài horizon hiện tại không bị bỏ sót.
+     */
+    @SuppressLint("ScheduleExactAlarm")
+    public static void armNextAlarm(@NonNull Context context) {
+        ReminderQueue queue = ReminderQueue.getInstance(context);
+        long next = queue.nextAlarmTime();
+        long refilledAt = queue.getRefilledAt();
+        long refillAt = refilledAt > 0 ? refilledAt + REFILL_INTERVAL_MILLIS : -1;
+        long triggerAt = next < 0 ? refillAt : (refillAt < 0 ? next : Math.min(next, refillAt));
+
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        PendingIntent pendingIntent = alarmIntent(context);
+        if (triggerAt < 0) {
+            alarmManager.cancel(pendingIntent);
+            Log.d(TAG, "No pending reminders, alarm cancelled");
+            return;
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms()) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAt, pendingIntent);
+        } else {
+            // Chưa được cấp quyền alarm chính xác: vẫn nhắc, có thể trễ vài phút
+            Log.w(TAG, "SCHEDULE_EXACT_ALARM not granted, using inexact alarm");
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAt, pendingIntent);
+        }
+        Log.d(TAG, "Next reminder alarm at " + new Date(triggerAt) + " (" + queue.size() + " queued)");
+    }
+
+    /**
+     * Thời điểm bắt đầu theo giờ địa phương: sự kiện cả ngày được lưu là 00:00 UTC, reminder của nó
+     * tính từ 00:00 của ngày đó theo múi giờ thiết bị.
+     */
+    public static long localBegin(long begin, boolean isAllDay) {
+        return isAllDay ? begin - TimeZone.getDefault().getOffset(begin) : begin;
+    }
+
+    // --- Helpers ---
+
+    private static ScheduledExecutorService receiverThread() {
+        if (receiverThread == null) {
+            synchronized (ReminderScheduler.class) {
+                if (receiverThread == null) {
+                    receiverThread = Executors.newSingleThreadScheduledExecutor(
+                            runnable -> new Thread(runnable, "reminder-receiver"));
+                }
+            }
+        }
+        return receiverThread;
+    }
+
+    private static PendingIntent alarmIntent(Context context) {
+        Intent intent = new Intent(context, EventReminderReceiver.class);
+        intent.setAction(ACTION_REMINDER_ALARM);
+        return PendingIntent.getBroadcast(context, ALARM_REQUEST_CODE, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    // Các reminder của sự kiện có thời điểm nhắc trong [now, now + horizon)
+    private static List<ReminderQueue.Entry> remindersOf(Event event, long now) {
+        int minutes = event.getReminderMinutes();
+        if (minutes <= 0) return Collections.emptyList();
+        long lead = minutes * MINUTE_MILLIS;
+        long horizonEnd = now + HORIZON_MILLIS;
+        List<ReminderQueue.Entry> reminders = new ArrayList<>();
+        if (!event.isRecurring()) {
+            long begin = localBegin(event.getStartTime(), event.isAllDay());
+            if (begin - lead >= now && begin - lead < horizonEnd) {
+                reminders.add(new ReminderQueue.Entry(event.getId(), begin, minutes, event.isAllDay(),
+                        event.getTitle(), event.getLocation()));
+            }
+            return reminders;
+        }
+        RecurrenceRule rule = RecurrenceRule.parse(event.getRrule());
+        if (rule == null) return reminders;
+        // Sự kiện cả ngày được lưu theo UTC
+        RecurrenceExpander.OccurrenceIterator occurrences = new RecurrenceExpander.OccurrenceIterator().reset(
+                event.getStartTime(), 0, rule, event.isAllDay() ? "UTC" : event.getTimeZone(),
+                now + lead - 24 * 3600_000L, horizonEnd + lead + 24 * 3600_000L);
+        while (reminders.size() < MAX_OCCURRENCES_PER_EVENT && occurrences.next()) {
+            long begin = localBegin(occurrences.begin(), event.isAllDay());
+            if (begin - lead < now) continue;
+            if (begin - lead >= horizonEnd) break;
+            reminders.add(new ReminderQueue.Entry(event.getId(), begin, minutes, event.isAllDay(),
+                    event.getTitle(), event.getLocation()));
+        }
+        return reminders;
+    }
+}
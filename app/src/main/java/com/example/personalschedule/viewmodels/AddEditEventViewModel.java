@@ -1,6 +1,9 @@
 package com.example.personalschedule.viewmodels;
 
 import android.app.Application;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -9,9 +12,11 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Observer; // Thêm import Observer
 
+import com.example.personalschedule.PersonalScheduleApp;
 import com.example.personalschedule.database.EventRepository;
 import com.example.personalschedule.models.CalendarInfo; // Lớp mới để chứa thông tin lịch
 import com.example.personalschedule.models.Event;
+import com.example.personalschedule.models.EventSummary;
 // import com.example.personalschedule.utils.Constants; // Có thể không cần nếu xóa hết Priority/Reminder
 
 import java.util.List;
@@ -38,12 +43,22 @@ public class AddEditEventViewModel extends AndroidViewModel {
     private final MutableLiveData<Long> _selectedCalendarId = new MutableLiveData<>();
     public LiveData<Long> getSelectedCalendarId() { return _selectedCalendarId; }
 
+    // LiveData cho các sự kiện trùng giờ với thời gian đang chọn (rỗng nếu không trùng)
+    private final MutableLiveData<List<EventSummary>> _conflicts = new MutableLiveData<>();
+    public LiveData<List<EventSummary>> getConflicts() { return _conflicts; }
+
+    // Gộp các thay đổi giờ liên tiếp (start + end + all-day cùng lúc) thành một lần kiểm tra trùng
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable conflictCheck = this::runConflictCheck;
+    private CancellationSignal conflictSignal; // Lần kiểm tra đang chạy, bị hủy khi có lần mới
+
     // Observer để quản lý việc observeForever
     private Observer<Event> eventObserver;
+    private LiveData<Event> eventSource; // LiveData nguồn từ repository (tự cập nhật khi provider thay đổi)
 
     public AddEditEventViewModel(@NonNull Application application) {
         super(application);
-        repository = new EventRepository(application);
+        repository = PersonalScheduleApp.getRepository(application);
 
         // Initialize event data với giá trị mặc định hợp lệ cho Calendar Provider
         Event defaultEvent = new Event();
@@ -54,7 +69,7 @@ public class AddEditEventViewModel extends AndroidViewModel {
         defaultEvent.setStartTime(now);
         defaultEvent.setEndTime(now + (60 * 60 * 1000)); // Mặc định +1 giờ
         // Xóa priority, reminderMinutes
-        // defaultEvent.setRecurrencePattern(Constants.RECURRENCE_NONE); // Giữ lại nếu dùng recurrence
+        defaultEvent.setRrule(null); // Mặc định không lặp lại
         _eventData.setValue(defaultEvent);
 
         // Khởi tạo selectedCalendarId (có thể là giá trị không hợp lệ ban đầu)
@@ -77,9 +92,10 @@ public class AddEditEventViewModel extends AndroidViewModel {
         LiveData<Event> source = repository.getEventById(eventId);
 
         // **CẢNH BÁO**: observeForever cần được quản lý cẩn thận để tránh leak.
-        // Một pattern tốt hơn là dùng MediatorLiveData hoặc Transformations.switchMap
-        // Hoặc Repository nên dùng callback/coroutine để trả về Event đơn lẻ.
+        // LiveData từ repository tự truy vấn lại khi provider thay đổi, nhưng form đang sửa
+        // không nên bị ghi đè, nên chỉ lấy giá trị đầu tiên rồi gỡ observer.
         eventObserver = event -> {
+            removeEventObserver();
             if (event != null) {
                 Log.d(TAG, "Event data loaded/updated for ID " + eventId);
                 _eventData.postValue(event);
@@ -91,19 +107,17 @@ public class AddEditEventViewModel extends AndroidViewModel {
                 _eventData.postValue(createDefaultEvent()); // Hoặc null nếu muốn Activity xử lý
             }
         };
+        eventSource = source;
         source.observeForever(eventObserver);
         // **QUAN TRỌNG**: Cần gọi removeEventObserver() trong onCleared() của ViewModel.
     }
 
     private void removeEventObserver() {
-        // Check if eventData's source (LiveData from repo) is being observed by our observer
-        // This is tricky because we don't hold a direct reference to the source LiveData always.
-        // If repository.getEventById always returns the *same* LiveData instance,
-        // we could try removing the observer from it. But it's safer to just remove
-        // the observer when the ViewModel is cleared. The observeForever approach here
-        // is simplified and potentially leaky if not managed in onCleared().
-
-        // Tạm thời chỉ set observer về null, việc remove thực sự trong onCleared
+        // Gỡ observer khỏi LiveData nguồn để nó ngừng theo dõi Calendar Provider
+        if (eventSource != null && eventObserver != null) {
+            eventSource.removeObserver(eventObserver);
+        }
+        eventSource = null;
         eventObserver = null;
     }
 
@@ -180,6 +194,7 @@ public class AddEditEventViewModel extends AndroidViewModel {
                 current.setEndTime(startTimeMillis + (60 * 60 * 1000)); // +1 giờ
             }
             // _eventData.setValue(current);
+            scheduleConflictCheck();
         }
     }
 
@@ -196,6 +211,7 @@ public class AddEditEventViewModel extends AndroidViewModel {
                 current.setEndTime(current.getStartTime() + (60 * 60 * 1000));
             }
             // _eventData.setValue(current);
+            scheduleConflictCheck();
         }
     }
 
@@ -220,9 +236,45 @@ public class AddEditEventViewModel extends AndroidViewModel {
         if (current != null) {
             current.setAllDay(isAllDay);
             // _eventData.setValue(current);
+            scheduleConflictCheck();
+        }
+    }
+
+    public void updateRecurrence(String rrule) {
+        Event current = _eventData.getValue();
+        if (current != null) {
+            current.setRrule(rrule);
+            scheduleConflictCheck();
         }
     }
 
+    // === Conflict Check ===
+    // Gọi trên main thread mỗi khi giờ/lặp lại thay đổi; kiểm tra chạy trên pool đọc của repository
+    private void scheduleConflictCheck() {
+        mainHandler.removeCallbacks(conflictCheck);
+        mainHandler.post(conflictCheck);
+    }
+
+    private void runConflictCheck() {
+        Event current = _eventData.getValue();
+        if (current == null) return;
+        if (conflictSignal != null) conflictSignal.cancel(); // Kết quả của giờ cũ không còn cần
+        final CancellationSignal signal = new CancellationSignal();
+        conflictSignal = signal;
+
+        // Bản sao các trường cần thiết: form có thể tiếp tục sửa current trong lúc kiểm tra
+        Event candidate = new Event();
+        candidate.setId(current.getId());
+        candidate.setStartTime(current.getStartTime());
+        candidate.setEndTime(current.getEndTime());
+        candidate.setAllDay(current.isAllDay());
+        candidate.setTimeZone(current.getTimeZone());
+        candidate.setRrule(current.getRrule());
+        repository.findConflicts(candidate, signal, conflicts -> {
+            if (!signal.isCanceled()) _conflicts.postValue(conflicts);
+        });
+    }
+
     // === Save Event ===
     // Nhận Event object đã hoàn chỉnh từ Activity
     public void saveEvent(Event eventToSave) {
@@ -284,6 +336,8 @@ public class AddEditEventViewModel extends AndroidViewModel {
         super.onCleared();
         Log.d(TAG, "onCleared called.");
         removeEventObserver(); // Quan trọng để tránh leak từ observeForever
+        mainHandler.removeCallbacks(conflictCheck);
+        if (conflictSignal != null) conflictSignal.cancel();
         // Repository không cần shutdown executor nếu nó là singleton hoặc quản lý bởi Application scope
     }
 
@@ -9,6 +9,7 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Transformations; // Thêm Transformations
 
+import com.example.personalschedule.PersonalScheduleApp;
 import com.example.personalschedule.database.EventRepository;
 import com.example.personalschedule.models.Event;
 
@@ -30,7 +31,7 @@ public class EventDetailViewModel extends AndroidViewModel {
 
     public EventDetailViewModel(@NonNull Application application) {
         super(application);
-        repository = new EventRepository(application);
+        repository = PersonalScheduleApp.getRepository(application); // Dùng chung, sự kiện đã load được dùng lại
 
         // Sử dụng switchMap để liên kết event với _eventId
         // Khi _eventId thay đổi, switchMap sẽ gọi repository.getEventById(newId)
@@ -81,6 +82,14 @@ public class EventDetailViewModel extends AndroidViewModel {
         return event;
     }
 
+    /**
+     * Lần xuất hiện tiếp theo của sự kiện lặp lại, tính trong bộ nhớ (không truy vấn provider).
+     * @return thời điểm bắt đầu, hoặc -1 nếu không lặp / không còn lần nào
+     */
+    public long getNextOccurrence(@NonNull Event event) {
+        return repository.getNextOccurrence(event, System.currentTimeMillis());
+    }
+
     /**
      * Yêu cầu xóa sự kiện được cung cấp.
      * @param eventToDelete Đối tượng Event cần xóa (phải có ID hợp lệ).
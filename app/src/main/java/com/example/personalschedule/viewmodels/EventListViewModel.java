@@ -1,18 +1,33 @@
 package com.example.personalschedule.viewmodels;
 
 import android.app.Application;
+import android.net.Uri;
+import android.os.CancellationSignal;
 import android.text.TextUtils; // Thêm import TextUtils
 import android.util.Log; // Thêm Log
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Transformations;
 
+import com.example.personalschedule.PersonalScheduleApp;
+import com.example.personalschedule.database.EventChangeTracker;
+import com.example.personalschedule.database.EventPager;
 import com.example.personalschedule.database.EventRepository;
 import com.example.personalschedule.models.Event;
+import com.example.personalschedule.models.EventSummary;
+import com.example.personalschedule.models.MonthHeader;
+import com.example.personalschedule.utils.DateTimeUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collections; // Thêm import Collections
 import java.util.List;
 
@@ -25,16 +40,56 @@ public class EventListViewModel extends AndroidViewModel {
     // Input: Từ khóa tìm kiếm (private MutableLiveData)
     private final MutableLiveData<String> _searchQuery = new MutableLiveData<>();
 
-    // Output: Danh sách sự kiện dựa trên tìm kiếm (hoặc tất cả nếu query rỗng)
+    // Output: Danh sách sự kiện dựa trên tìm kiếm (rỗng nếu query rỗng)
     private final LiveData<List<Event>> searchResults;
 
+    // Input: Tháng đang chọn, định dạng "MM-yyyy"
+    private final MutableLiveData<String> _selectedMonth = new MutableLiveData<>();
+
+    // Output: Sự kiện của tháng đang chọn, tự cập nhật khi Calendar Provider thay đổi
+    private final LiveData<List<EventSummary>> selectedMonthEvents;
+
+    // Input: Tháng đang hiển thị trên lịch (thay đổi khi người dùng vuốt lịch), định dạng "MM-yyyy"
+    private final MutableLiveData<String> _visibleMonth = new MutableLiveData<>();
+
+    // Output: Sự kiện của tháng đang hiển thị, dùng để đánh dấu ngày trên lịch
+    private final LiveData<List<EventSummary>> visibleMonthEvents;
+
+    // Input: Ngày đang chọn (millis bất kỳ trong ngày)
+    private final MutableLiveData<Long> _selectedDay = new MutableLiveData<>();
+
+    // Output: Sự kiện giao với ngày đang chọn (trả lời từ chỉ mục trong bộ nhớ khi tháng đã được load)
+    private final LiveData<List<EventSummary>> selectedDayEvents;
+
+    // Agenda: mọi sự kiện theo thời gian, load theo trang quanh vị trí cuộn (xem EventPager)
+    private final EventPager agendaPager;
+    // Output: Các dòng của agenda (MonthHeader + Event), tự cập nhật khi provider thay đổi
+    private final MediatorLiveData<List<Object>> agendaRows = new MediatorLiveData<>();
+    // Chỉ số sự kiện (trong cửa sổ của pager) ứng với từng dòng agenda
+    private int[] agendaRowToEvent = new int[0];
+    private boolean agendaMode = false;
+
+    // Output: Các sự kiện đã thêm/sửa/xóa ở lần delta refresh gần nhất (xem refreshCurrentList)
+    private final MutableLiveData<EventChangeTracker.ChangeSet> _listChanges = new MutableLiveData<>();
+    public LiveData<EventChangeTracker.ChangeSet> getListChanges() { return _listChanges; }
+
     // Output: Kết quả của thao tác xóa
     private final MutableLiveData<DeleteResult> _deleteResult = new MutableLiveData<>();
     public LiveData<DeleteResult> getDeleteResult() { return _deleteResult; }
 
+    // Output: Tiến trình/kết quả nhập file .ics
+    private final MutableLiveData<TransferStatus> _importStatus = new MutableLiveData<>();
+    public LiveData<TransferStatus> getImportStatus() { return _importStatus; }
+    private CancellationSignal importSignal;
+
+    // Output: Tiến trình/kết quả xuất file .ics
+    private final MutableLiveData<TransferStatus> _exportStatus = new MutableLiveData<>();
+    public LiveData<TransferStatus> getExportStatus() { return _exportStatus; }
+    private CancellationSignal exportSignal;
+
     public EventListViewModel(@NonNull Application application) {
         super(application);
-        repository = new EventRepository(application);
+        repository = PersonalScheduleApp.getRepository(application);
 
         // Khởi tạo giá trị ban đầu cho searchQuery (ví dụ: null hoặc rỗng để load tất cả ban đầu)
         _searchQuery.setValue(null);
@@ -42,24 +97,37 @@ public class EventListViewModel extends AndroidViewModel {
         // Sử dụng switchMap để searchResults phụ thuộc vào _searchQuery
         searchResults = Transformations.switchMap(_searchQuery, query -> {
             if (TextUtils.isEmpty(query)) {
-                Log.d(TAG, "Search query is empty, loading all events.");
-                // Trả về LiveData chứa tất cả sự kiện
-                return repository.getAllEvents();
+                // Không tìm kiếm: danh sách hiển thị theo tháng hoặc agenda (phân trang),
+                // nên không cần load toàn bộ sự kiện trên thiết bị
+                MutableLiveData<List<Event>> emptyResult = new MutableLiveData<>();
+                emptyResult.setValue(Collections.emptyList());
+                return emptyResult;
             } else {
                 Log.d(TAG, "Search query changed: '" + query + "', searching events.");
                 // Trả về LiveData chứa kết quả tìm kiếm
                 return repository.searchEvents(query);
             }
-            // Lưu ý: LiveData trả về từ repository hiện tại chỉ load 1 lần.
-            // Nếu muốn tự động refresh khi Calendar Provider thay đổi, cần cơ chế phức tạp hơn.
+            // LiveData từ repository tự truy vấn lại khi Calendar Provider thay đổi,
+            // không cần refresh thủ công.
         });
+
+        selectedMonthEvents = Transformations.switchMap(_selectedMonth, this::getEventsByMonth);
+        selectedDayEvents = Transformations.switchMap(_selectedDay, repository::getEventsForDay);
+        visibleMonthEvents = Transformations.switchMap(_visibleMonth, this::getEventsByMonth);
+
+        agendaPager = new EventPager(repository);
+        agendaRows.addSource(agendaPager.getWindow(), events -> agendaRows.setValue(buildAgendaRows(events)));
+        // Chỉ theo dõi provider khi agenda đang được observe (MediatorLiveData active). Khi provider đổi,
+        // agenda được cập nhật theo các sự kiện đã đổi thay vì luôn load lại cả cửa sổ.
+        agendaRows.addSource(repository.getProviderChanges(), version -> refreshCurrentList());
+        agendaRows.addSource(_listChanges, agendaPager::applyChanges);
     }
 
     // --- Lấy dữ liệu danh sách ---
 
     /**
      * Trả về LiveData chứa danh sách sự kiện dựa trên query tìm kiếm hiện tại.
-     * Nếu query rỗng, sẽ trả về tất cả sự kiện.
+     * Nếu query rỗng, trả về danh sách rỗng (dùng getAgendaRows() để xem mọi sự kiện).
      * Activity/Fragment nên observe LiveData này để hiển thị danh sách.
      */
     public LiveData<List<Event>> getEventList() {
@@ -80,17 +148,143 @@ public class EventListViewModel extends AndroidViewModel {
      * Lưu ý: LiveData này chỉ được cập nhật khi hàm này được gọi.
      * @param monthYear Chuỗi định dạng "MM-yyyy" (ví dụ: "03-2024").
      */
-    public LiveData<List<Event>> getEventsByMonth(String monthYear) {
+    public LiveData<List<EventSummary>> getEventsByMonth(String monthYear) {
         Log.d(TAG, "Requesting events for month: " + monthYear);
         if (TextUtils.isEmpty(monthYear)) {
             // Trả về LiveData rỗng nếu monthYear không hợp lệ
-            MutableLiveData<List<Event>> emptyResult = new MutableLiveData<>();
+            MutableLiveData<List<EventSummary>> emptyResult = new MutableLiveData<>();
             emptyResult.setValue(Collections.emptyList());
             return emptyResult;
         }
         return repository.getEventsByMonth(monthYear);
     }
 
+    /**
+     * Chọn tháng cần hiển thị. Chỉ trigger truy vấn mới khi tháng thực sự thay đổi.
+     * @param monthYear Chuỗi định dạng "MM-yyyy" (ví dụ: "03-2024").
+     */
+    public void setSelectedMonth(String monthYear) {
+        if (!TextUtils.equals(monthYear, _selectedMonth.getValue())) {
+            _selectedMonth.setValue(monthYear);
+        }
+    }
+
+    /**
+     * Lấy tháng đang chọn ("MM-yyyy"), null nếu chưa chọn.
+     */
+    public String getSelectedMonth() {
+        return _selectedMonth.getValue();
+    }
+
+    /**
+     * Trả về LiveData chứa sự kiện của tháng đang chọn (xem setSelectedMonth).
+     * LiveData này tự cập nhật khi dữ liệu lịch thay đổi.
+     */
+    public LiveData<List<EventSummary>> getSelectedMonthEvents() {
+        return selectedMonthEvents;
+    }
+
+    /**
+     * Đặt tháng đang hiển thị trên lịch. Tháng trước/sau được repository load trước,
+     * nên vuốt qua lại thường được trả lời ngay từ cache.
+     * @param monthYear Chuỗi định dạng "MM-yyyy" (ví dụ: "03-2024").
+     */
+    public void setVisibleMonth(String monthYear) {
+        if (!TextUtils.equals(monthYear, _visibleMonth.getValue())) {
+            _visibleMonth.setValue(monthYear);
+        }
+    }
+
+    /**
+     * Trả về LiveData chứa sự kiện của tháng đang hiển thị trên lịch (xem setVisibleMonth).
+     */
+    public LiveData<List<EventSummary>> getVisibleMonthEvents() {
+        return visibleMonthEvents;
+    }
+
+    /**
+     * Chọn ngày cần hiển thị ở mục "Sự kiện trong ngày".
+     * @param dayMillis Thời điểm bất kỳ trong ngày.
+     */
+    public void setSelectedDay(long dayMillis) {
+        long startOfDay = DateTimeUtils.getStartOfDayInMillis(dayMillis);
+        Long current = _selectedDay.getValue();
+        if (current == null || current != startOfDay) {
+            _selectedDay.setValue(startOfDay);
+        }
+    }
+
+    /**
+     * Lấy ngày đang chọn (millis đầu ngày), null nếu chưa chọn.
+     */
+    public Long getSelectedDay() {
+        return _selectedDay.getValue();
+    }
+
+    /**
+     * Trả về LiveData chứa các sự kiện giao với ngày đang chọn (xem setSelectedDay).
+     */
+    public LiveData<List<EventSummary>> getSelectedDayEvents() {
+        return selectedDayEvents;
+    }
+
+    // --- Agenda ---
+
+    public boolean isAgendaMode() {
+        return agendaMode;
+    }
+
+    /**
+     * Bật/tắt chế độ agenda. Lần bật đầu tiên bắt đầu danh sách từ đầu ngày hôm nay.
+     */
+    public void setAgendaMode(boolean enabled) {
+        agendaMode = enabled;
+        if (enabled && !agendaPager.isStarted()) {
+            agendaPager.start(DateTimeUtils.getStartOfDayInMillis(System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Trả về LiveData chứa các dòng của agenda: MonthHeader đầu mỗi tháng, tiếp theo là các Event.
+     * Chỉ giữ một cửa sổ giới hạn quanh vị trí cuộn (báo qua onAgendaScrolled).
+     */
+    public LiveData<List<Object>> getAgendaRows() {
+        return agendaRows;
+    }
+
+    /**
+     * Báo các dòng agenda đang hiển thị để load trước trang kế tiếp và bỏ các trang ở xa.
+     */
+    public void onAgendaScrolled(int firstRow, int lastRow) {
+        int[] rowToEvent = agendaRowToEvent;
+        if (rowToEvent.length == 0 || firstRow < 0) return;
+        int first = rowToEvent[Math.min(firstRow, rowToEvent.length - 1)];
+        int last = rowToEvent[Math.min(Math.max(lastRow, firstRow), rowToEvent.length - 1)];
+        agendaPager.onVisibleRangeChanged(first, last);
+    }
+
+    // Chèn MonthHeader trước sự kiện đầu tiên của mỗi tháng
+    private List<Object> buildAgendaRows(List<EventSummary> events) {
+        List<Object> rows = new ArrayList<>(events.size() + 16);
+        int[] rowToEvent = new int[events.size() * 2];
+        Calendar calendar = Calendar.getInstance();
+        int currentKey = -1;
+        for (int i = 0; i < events.size(); i++) {
+            calendar.setTimeInMillis(events.get(i).getStartTime());
+            int month = calendar.get(Calendar.MONTH); // MonthHeader dùng tháng bắt đầu từ 0
+            int year = calendar.get(Calendar.YEAR);
+            if (year * 12 + month != currentKey) {
+                currentKey = year * 12 + month;
+                rowToEvent[rows.size()] = i;
+                rows.add(new MonthHeader(month, year));
+            }
+            rowToEvent[rows.size()] = i;
+            rows.add(events.get(i));
+        }
+        agendaRowToEvent = Arrays.copyOf(rowToEvent, rows.size());
+        return rows;
+    }
+
     // --- Tìm kiếm ---
 
     /**
@@ -102,6 +296,13 @@ public class EventListViewModel extends AndroidViewModel {
         _searchQuery.setValue(query);
     }
 
+    /**
+     * Gọi khi ô tìm kiếm được mở: dựng chỉ mục tìm kiếm ở background trước khi người dùng gõ phím.
+     */
+    public void prepareSearch() {
+        repository.prepareSearch();
+    }
+
     /**
      * Lấy giá trị query hiện tại.
      */
@@ -128,8 +329,7 @@ public class EventListViewModel extends AndroidViewModel {
             public void onSuccess(long id) { // <<<< SỬA Ở ĐÂY: Nhận long
                 Log.d(TAG, "Repository delete success callback for ID: " + id);
                 _deleteResult.postValue(new DeleteResult(true, id, null));
-                // Trigger refresh danh sách hiện tại sau khi xóa thành công
-                refreshCurrentList();
+                // Không cần refresh: LiveData đang observe tự truy vấn lại khi provider thay đổi
             }
 
             @Override
@@ -141,16 +341,148 @@ public class EventListViewModel extends AndroidViewModel {
     }
 
     /**
-     * Làm mới danh sách sự kiện hiện tại bằng cách trigger lại `searchQuery`.
+     * Làm mới danh sách sự kiện hiện tại theo delta (ví dụ khi quay lại màn hình): chỉ các sự kiện đã
+     * thêm/sửa/xóa kể từ lần trước được load lại, kết quả được đưa ra qua getListChanges().
+     * Provider chưa đổi thì không có truy vấn nào. Các LiveData danh sách tự truy vấn lại khi provider
+     * thay đổi và được trả lời từ dữ liệu trong bộ nhớ vừa được cập nhật.
      */
     public void refreshCurrentList() {
-        Log.d(TAG, "Refreshing current event list...");
-        // Set lại giá trị hiện tại của searchQuery để trigger switchMap load lại
-        _searchQuery.setValue(_searchQuery.getValue());
-        // Nếu _searchQuery đang là null, set nó về null một lần nữa cũng sẽ trigger
-        // if (_searchQuery.getValue() == null) {
-        //     _searchQuery.setValue(null);
-        // }
+        repository.refreshChanges(changes -> {
+            if (changes.getFromVersion() == changes.getToVersion()) return; // Provider chưa đổi
+            Log.d(TAG, "Provider changed: " + changes);
+            _listChanges.postValue(changes);
+        });
+    }
+
+    // --- Nhập file .ics ---
+
+    /**
+     * Nhập sự kiện từ file .ics (Uri từ Storage Access Framework) vào lịch mặc định.
+     * Mỗi lần chỉ chạy một lần nhập; kết quả được đưa ra qua getImportStatus().
+     */
+    public void importIcs(Uri uri) {
+        final CancellationSignal signal = new CancellationSignal();
+        synchronized (this) {
+            if (importSignal != null) {
+                Log.w(TAG, "Import already running, ignoring " + uri);
+                return;
+            }
+            importSignal = signal;
+        }
+        InputStream input;
+        try {
+            input = getApplication().getContentResolver().openInputStream(uri);
+        } catch (IOException | SecurityException e) {
+            Log.e(TAG, "Cannot open " + uri, e);
+            clearImportSignal(signal);
+            _importStatus.setValue(TransferStatus.error(e.getMessage()));
+            return;
+        }
+        if (input == null) {
+            clearImportSignal(signal);
+            _importStatus.setValue(TransferStatus.error("Cannot open " + uri));
+            return;
+        }
+        _importStatus.setValue(TransferStatus.progress(0, 0));
+        repository.importIcs(input, 0, signal, new EventRepository.OnImportListener() {
+            @Override
+            public void onProgress(int imported, int failed) {
+                _importStatus.postValue(TransferStatus.progress(imported, failed));
+            }
+
+            @Override
+            public void onComplete(int imported, int failed, boolean cancelled) {
+                clearImportSignal(signal);
+                _importStatus.postValue(TransferStatus.done(imported, failed, cancelled));
+            }
+
+            @Override
+            public void onError(String message) {
+                clearImportSignal(signal);
+                _importStatus.postValue(TransferStatus.error(message));
+            }
+        });
+    }
+
+    public synchronized void cancelImport() {
+        if (importSignal != null) importSignal.cancel();
+    }
+
+    private synchronized void clearImportSignal(CancellationSignal signal) {
+        if (importSignal == signal) importSignal = null;
+    }
+
+    // --- Xuất file .ics ---
+
+    /**
+     * Xuất tất cả sự kiện (hoặc kết quả tìm kiếm hiện tại nếu đang tìm kiếm) ra file .ics
+     * (Uri từ Storage Access Framework). Kết quả được đưa ra qua getExportStatus().
+     */
+    public void exportIcs(Uri uri) {
+        final CancellationSignal signal = new CancellationSignal();
+        synchronized (this) {
+            if (exportSignal != null) {
+                Log.w(TAG, "Export already running, ignoring " + uri);
+                return;
+            }
+            exportSignal = signal;
+        }
+        OutputStream output;
+        try {
+            output = getApplication().getContentResolver().openOutputStream(uri, "wt");
+        } catch (IOException | SecurityException e) {
+            Log.e(TAG, "Cannot open " + uri, e);
+            clearExportSignal(signal);
+            _exportStatus.setValue(TransferStatus.error(e.getMessage()));
+            return;
+        }
+        if (output == null) {
+            clearExportSignal(signal);
+            _exportStatus.setValue(TransferStatus.error("Cannot open " + uri));
+            return;
+        }
+        // Đang tìm kiếm: xuất đúng các kết quả đang hiển thị (từ chỉ mục tìm kiếm)
+        String query = getCurrentSearchQuery();
+        List<Event> results = searchResults.getValue();
+        EventRepository.ExportQuery exportQuery = TextUtils.isEmpty(query)
+                ? EventRepository.ExportQuery.all()
+                : EventRepository.ExportQuery.events(results != null ? results : Collections.<Event>emptyList());
+        _exportStatus.setValue(TransferStatus.progress(0, 0));
+        repository.exportIcs(output, exportQuery, signal, new EventRepository.OnExportListener() {
+            @Override
+            public void onProgress(int exported) {
+                _exportStatus.postValue(TransferStatus.progress(exported, 0));
+            }
+
+            @Override
+            public void onComplete(int exported, boolean cancelled) {
+                clearExportSignal(signal);
+                _exportStatus.postValue(TransferStatus.done(exported, 0, cancelled));
+            }
+
+            @Override
+            public void onError(String message) {
+                clearExportSignal(signal);
+                _exportStatus.postValue(TransferStatus.error(message));
+            }
+        });
+    }
+
+    public synchronized void cancelExport() {
+        if (exportSignal != null) exportSignal.cancel();
+    }
+
+    private synchronized void clearExportSignal(CancellationSignal signal) {
+        if (exportSignal == signal) exportSignal = null;
+    }
+
+    // Reset trạng thái import/export để không hiện lại thông báo khi xoay màn hình
+    public void resetImportStatus() {
+        _importStatus.setValue(null);
+    }
+
+    public void resetExportStatus() {
+        _exportStatus.setValue(null);
     }
 
     // Reset trạng thái delete để tránh trigger lại không cần thiết
@@ -172,10 +504,33 @@ public class EventListViewModel extends AndroidViewModel {
         }
     }
 
+    // === Lớp Helper cho trạng thái nhập/xuất file .ics ===
+    public static class TransferStatus {
+        public final boolean finished;
+        public final boolean cancelled;
+        public final int count;  // Số sự kiện đã nhập/xuất
+        public final int failed;
+        public final String errorMessage; // null nếu không lỗi
+
+        private TransferStatus(boolean finished, boolean cancelled, int count, int failed, String errorMessage) {
+            this.finished = finished;
+            this.cancelled = cancelled;
+            this.count = count;
+            this.failed = failed;
+            this.errorMessage = errorMessage;
+        }
+
+        static TransferStatus progress(int count, int failed) { return new TransferStatus(false, false, count, failed, null); }
+        static TransferStatus done(int count, int failed, boolean cancelled) { return new TransferStatus(true, cancelled, count, failed, null); }
+        static TransferStatus error(String message) { return new TransferStatus(true, false, 0, 0, message); }
+    }
+
     @Override
     protected void onCleared() {
         super.onCleared();
         Log.d(TAG,"onCleared called.");
+        cancelImport();
+        cancelExport();
         // Repository không cần shutdown nếu quản lý bởi Application scope
     }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.example.personalschedule.viewmodels;
+
+import android.app.Application;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.personalschedule.PersonalScheduleApp;
+import com.example.personalschedule.database.EventRepository;
+import com.example.personalschedule.database.FreeSlotFinder;
+import com.example.personalschedule.utils.Constants;
+
+import java.util.List;
+
+// ViewModel cho chức năng "tìm giờ trống" (ví dụ 45 phút trong 7 ngày tới, từ 09:00 tới 18:00)
+public class FreeSlotViewModel extends AndroidViewModel {
+
+    private static final String TAG = "FreeSlotVM";
+
+    private final EventRepository repository;
+
+    // Kết quả tìm kiếm gần nhất; null khi chưa tìm hoặc đã được Activity xử lý
+    private final MutableLiveData<List<FreeSlotFinder.Slot>> _freeSlots = new MutableLiveData<>();
+    public LiveData<List<FreeSlotFinder.Slot>> getFreeSlots() { return _freeSlots; }
+
+    private final MutableLiveData<Boolean> _searching = new MutableLiveData<>(false);
+    public LiveData<Boolean> isSearching() { return _searching; }
+
+    public FreeSlotViewModel(@NonNull Application application) {
+        super(application);
+        repository = PersonalScheduleApp.getRepository(application);
+    }
+
+    /**
+     * Tìm các khoảng trống dài ít nhất durationMinutes trong FREE_SLOT_SEARCH_DAYS ngày tới, trong giờ làm việc.
+     * @param excludeEventId sự kiện đang sửa (giờ hiện tại của nó được coi là trống), 0 nếu là sự kiện mới
+     */
+    public void findFreeSlots(int durationMinutes, long excludeEventId) {
+        if (Boolean.TRUE.equals(_searching.getValue())) return; // Đang tìm, bỏ qua lần bấm lặp
+        long now = System.currentTimeMillis();
+        long end = now + Constants.FREE_SLOT_SEARCH_DAYS * 24L * 60 * 60 * 1000;
+        Log.d(TAG, "Searching free slots of " + durationMinutes + " minutes");
+        _searching.setValue(true);
+        repository.findFreeSlots(now, end, durationMinutes * 60_000L,
+                Constants.WORK_DAY_START_MINUTE, Constants.WORK_DAY_END_MINUTE, excludeEventId, slots -> {
+                    _freeSlots.postValue(slots);
+                    _searching.postValue(false);
+                });
+    }
+
+    // Gọi sau khi đã hiển thị kết quả để observer không nhận lại khi có config change
+    public void resetFreeSlots() {
+        _freeSlots.setValue(null);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.personalschedule.database;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ConflictDetectorTest {
+
+    // Phần tử thử: {id, start, end}
+    private static final EventIntervalIndex.IntervalAdapter<long[]> ADAPTER = new EventIntervalIndex.IntervalAdapter<long[]>() {
+        @Override public long idOf(long[] item) { return item[0]; }
+        @Override public long startOf(long[] item) { return item[1]; }
+        @Override public long endOf(long[] item) { return item[2]; }
+    };
+
+    @Test
+    public void singleCandidate_isHalfOpen() {
+        List<long[]> sorted = Arrays.asList(
+                item(1, 0, 10), item(2, 5, 15), item(3, 10, 20), item(4, 20, 30), item(5, 30, 40));
+
+        // Ứng viên [10, 30): chạm đầu/cuối không tính là trùng
+        assertEquals(ids(2, 3, 4), ids(find(new long[]{10}, 20, sorted)));
+    }
+
+    @Test
+    public void instantEvents_occupyOneMillisecond() {
+        List<long[]> sorted = Arrays.asList(item(1, 9, 9), item(2, 10, 10), item(3, 11, 11));
+
+        assertEquals(ids(2), ids(find(new long[]{10}, 0, sorted)));
+        assertEquals(ids(1), ids(find(new long[]{0}, 10, sorted))); // [0, 10) không chứa 10
+    }
+
+    @Test
+    public void recurringCandidate_reportsEachEventOnce() {
+        // Ứng viên lặp lại mỗi 100ms, dài 10ms
+        long[] starts = {0, 100, 200, 300};
+        List<long[]> sorted = Arrays.asList(
+                item(1, 5, 250),   // Trùng ba lần xuất hiện, chỉ báo một lần
+                item(2, 50, 60),
+                item(3, 95, 105),
+                item(4, 305, 400),
+                item(5, 310, 320)); // Bắt đầu đúng lúc lần xuất hiện cuối kết thúc
+
+        assertEquals(ids(1, 3, 4), ids(find(starts, 10, sorted)));
+    }
+
+    @Test
+    public void longEventBeforeCandidate_isFound() {
+        List<long[]> sorted = Arrays.asList(item(1, 0, 1000), item(2, 10, 20));
+
+        assertEquals(ids(1), ids(find(new long[]{500}, 10, sorted)));
+    }
+
+    @Test
+    public void emptyInputs_returnNothing() {
+        List<long[]> sorted = Collections.singletonList(item(1, 0, 10));
+
+        assertTrue(find(new long[0], 10, sorted).isEmpty());
+        assertTrue(ConflictDetector.findConflicts(new long[]{0, 5}, 0, 10, sorted, ADAPTER).isEmpty());
+        assertTrue(find(new long[]{0}, 10, new ArrayList<>()).isEmpty());
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            List<long[]> sorted = new ArrayList<>();
+            long start = 0;
+            for (int i = 0; i < 30; i++) {
+                start += random.nextInt(20);
+                sorted.add(item(i, start, start + random.nextInt(50)));
+            }
+            int count = 1 + random.nextInt(5);
+            long[] starts = new long[count];
+            long candidate = random.nextInt(50);
+            for (int i = 0; i < count; i++) {
+                starts[i] = candidate;
+                candidate += 1 + random.nextInt(100);
+            }
+            long duration = random.nextInt(30);
+
+            List<Long> expected = new ArrayList<>();
+            for (long[] item : sorted) {
+                long end = Math.max(item[2], item[1] + 1);
+                for (long s : starts) {
+                    if (s < end && item[1] < s + Math.max(1, duration)) {
+                        expected.add(item[0]);
+                        break;
+                    }
+                }
+            }
+            assertEquals(expected, ids(find(starts, duration, sorted)));
+        }
+    }
+
+    private static List<long[]> find(long[] starts, long duration, List<long[]> sorted) {
+        return ConflictDetector.findConflicts(starts, starts.length, duration, sorted, ADAPTER);
+    }
+
+    private static long[] item(long id, long start, long end) {
+        return new long[]{id, start, end};
+    }
+
+    private static List<Long> ids(long... ids) {
+        List<Long> list = new ArrayList<>();
+        for (long id : ids) list.add(id);
+        return list;
+    }
+
+    private static List<Long> ids(List<long[]> items) {
+        List<Long> list = new ArrayList<>();
+        for (long[] item : items) list.add(item[0]);
+        return list;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.personalschedule.database;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EventChangeTrackerTest {
+
+    private EventChangeTracker tracker;
+
+    @Before
+    public void setUp() {
+        tracker = new EventChangeTracker();
+    }
+
+    @Test
+    public void withoutBaseline_diffIsFull() {
+        EventChangeTracker.ChangeSet changes = tracker.diff(scan(new long[]{1, 2}, "a", "b"), 5);
+
+        assertFalse(tracker.hasBaseline());
+        assertTrue(changes.isFull());
+        assertFalse(changes.isEmpty());
+    }
+
+    @Test
+    public void diff_reportsInsertedUpdatedRemoved() {
+        tracker.commit(scan(new long[]{1, 2, 3, 5}, "a", "b", "c", "e"), 1);
+
+        EventChangeTracker.ChangeSet changes = tracker.diff(scan(new long[]{2, 3, 4, 5, 6}, "b", "C", "d", "e", "f"), 2);
+
+        assertFalse(changes.isFull());
+        assertArrayEquals(new long[]{4, 6}, changes.getInserted());
+        assertArrayEquals(new long[]{3}, changes.getUpdated());
+        assertArrayEquals(new long[]{1}, changes.getRemoved());
+        assertEquals(3, changes.changedCount());
+        assertEquals(1, changes.getFromVersion());
+        assertFalse(changes.touchesExceptions());
+    }
+
+    @Test
+    public void diff_doesNotChangeBaselineUntilCommit() {
+        tracker.commit(scan(new long[]{1}, "a"), 1);
+        EventChangeTracker.Scan next = scan(new long[]{1}, "b");
+
+        assertArrayEquals(new long[]{1}, tracker.diff(next, 2).getUpdated());
+        assertArrayEquals(new long[]{1}, tracker.diff(next, 2).getUpdated());
+        assertEquals(1, tracker.getVersion());
+
+        tracker.commit(next, 2);
+
+        assertTrue(tracker.diff(scan(new long[]{1}, "b"), 3).isEmpty());
+        assertEquals(2, tracker.getVersion());
+    }
+
+    @Test
+    public void exceptionRows_areFlagged() {
+        EventChangeTracker.Scan base = new EventChangeTracker.Scan(2);
+        base.add(1, fingerprint("a"), false);
+        base.add(2, fingerprint("b"), true);
+        tracker.commit(base, 1);
+
+        // Xóa một ngoại lệ
+        EventChangeTracker.Scan removed = new EventChangeTracker.Scan(1);
+        removed.add(1, fingerprint("a"), false);
+        assertTrue(tracker.diff(removed, 2).touchesExceptions());
+
+        // Sửa dòng thường: không ảnh hưởng ngoại lệ
+        EventChangeTracker.Scan updated = new EventChangeTracker.Scan(2);
+        updated.add(1, fingerprint("x"), false);
+        updated.add(2, fingerprint("b"), true);
+        assertFalse(tracker.diff(updated, 2).touchesExceptions());
+
+        // Thêm một ngoại lệ mới
+        EventChangeTracker.Scan inserted = new EventChangeTracker.Scan(3);
+        inserted.add(1, fingerprint("a"), false);
+        inserted.add(2, fingerprint("b"), true);
+        inserted.add(3, fingerprint("c"), true);
+        assertTrue(tracker.diff(inserted, 2).touchesExceptions());
+    }
+
+    @Test
+    public void reset_dropsBaseline() {
+        tracker.commit(scan(new long[]{1}, "a"), 1);
+        tracker.reset();
+
+        assertFalse(tracker.hasBaseline());
+        assertTrue(tracker.diff(scan(new long[]{1}, "a"), 2).isFull());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void scan_mustBeSortedById() {
+        EventChangeTracker.Scan scan = new EventChangeTracker.Scan(2);
+        scan.add(2, 0, false);
+        scan.add(1, 0, false);
+    }
+
+    @Test
+    public void scan_growsPastExpectedSize() {
+        EventChangeTracker.Scan scan = new EventChangeTracker.Scan(0);
+        for (int i = 0; i < 100; i++) scan.add(i, i, false);
+        tracker.commit(scan, 1);
+
+        assertEquals(100, scan.size());
+        assertTrue(tracker.diff(scan, 2).isEmpty());
+    }
+
+    @Test
+    public void fingerprint_separatesColumnsAndNull() {
+        long ab = EventChangeTracker.addToFingerprint(fingerprint("a"), "b");
+        long a_b = EventChangeTracker.addToFingerprint(fingerprint("ab"), "");
+
+        assertNotEquals(ab, a_b);
+        assertNotEquals(fingerprint(""), fingerprint(null));
+        assertEquals(fingerprint("Họp"), fingerprint("Họp"));
+        assertNotEquals(fingerprint("Họp"), fingerprint("Hop"));
+    }
+
+    private static EventChangeTracker.Scan scan(long[] ids, String... values) {
+        EventChangeTracker.Scan scan = new EventChangeTracker.Scan(ids.length);
+        for (int i = 0; i < ids.length; i++) scan.add(ids[i], fingerprint(values[i]), false);
+        return scan;
+    }
+
+    private static long fingerprint(String value) {
+        return EventChangeTracker.addToFingerprint(EventChangeTracker.initialFingerprint(), value);
+    }
+}
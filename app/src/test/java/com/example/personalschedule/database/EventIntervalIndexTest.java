@@ -0,0 +1,153 @@
+package com.example.personalschedule.database;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EventIntervalIndexTest {
+
+    // Phần tử thử: {id, start, end}
+    private static final EventIntervalIndex.IntervalAdapter<long[]> ADAPTER = new EventIntervalIndex.IntervalAdapter<long[]>() {
+        @Override public long idOf(long[] item) { return item[0]; }
+        @Override public long startOf(long[] item) { return item[1]; }
+        @Override public long endOf(long[] item) { return item[2]; }
+    };
+
+    private EventIntervalIndex<long[]> index;
+
+    @Before
+    public void setUp() {
+        index = new EventIntervalIndex<>(ADAPTER);
+    }
+
+    @Test
+    public void emptyIndex_coversNothing() {
+        assertFalse(index.covers(0, 10));
+        assertTrue(index.query(0, 10).isEmpty());
+    }
+
+    @Test
+    public void query_isHalfOpenAndSortedByStart() {
+        index.replaceWindow(0, 100, Arrays.asList(
+                item(1, 50, 60), item(2, 10, 20), item(3, 20, 30), item(4, 40, 40)));
+
+        assertEquals(ids(2, 3), ids(index.query(15, 25)));
+        assertTrue(index.query(30, 40).isEmpty());     // Kết thúc đúng lúc cửa sổ bắt đầu: không giao
+        assertEquals(ids(4), ids(index.query(40, 41))); // Sự kiện tức thời chiếm 1ms
+        assertEquals(ids(2, 3, 4, 1), ids(index.query(0, 100)));
+        assertTrue(index.query(25, 25).isEmpty());
+    }
+
+    @Test
+    public void query_findsLongEventStartingBeforeWindow() {
+        List<long[]> items = new ArrayList<>();
+        items.add(item(1, 0, 1000));
+        for (int i = 0; i < 100; i++) items.add(item(100 + i, 10 + i * 5, 12 + i * 5));
+        index.replaceWindow(0, 1000, items);
+
+        assertEquals(ids(1), ids(index.query(900, 950)));
+    }
+
+    @Test
+    public void query_matchesBruteForce() {
+        Random random = new Random(42);
+        List<long[]> items = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            long start = random.nextInt(10_000);
+            long length = random.nextInt(10) == 0 ? random.nextInt(3000) : random.nextInt(100);
+            items.add(item(i + 1, start, start + length));
+        }
+        index.replaceWindow(0, 20_000, items);
+
+        for (int q = 0; q < 200; q++) {
+            long begin = random.nextInt(12_000);
+            long end = begin + random.nextInt(500);
+            List<Long> expected = new ArrayList<>();
+            List<long[]> sorted = new ArrayList<>(items);
+            sorted.sort(Comparator.<long[]>comparingLong(a -> a[1]).thenComparingLong(a -> a[0]));
+            for (long[] item : sorted) {
+                long itemEnd = Math.max(item[2], item[1] + 1);
+                if (item[1] < end && itemEnd > begin) expected.add(item[0]);
+            }
+            assertEquals("[" + begin + ", " + end + ")", expected, ids(index.query(begin, end)));
+        }
+    }
+
+    @Test
+    public void replaceWindow_mergesAdjacentCoverage() {
+        index.replaceWindow(0, 10, new ArrayList<>());
+        index.replaceWindow(20, 30, new ArrayList<>());
+        assertFalse(index.covers(5, 25));
+
+        index.replaceWindow(10, 20, new ArrayList<>());
+
+        assertTrue(index.covers(5, 25));
+        assertArrayEquals(new long[]{0, 30}, index.getCoveredWindows());
+    }
+
+    @Test
+    public void replaceWindow_onlyReplacesOverlappingItems() {
+        index.replaceWindow(0, 100, Arrays.asList(item(1, 10, 20), item(2, 50, 60)));
+
+        index.replaceWindow(40, 100, Arrays.asList(item(3, 70, 80)));
+
+        assertEquals(ids(1, 3), ids(index.query(0, 100)));
+    }
+
+    @Test
+    public void add_ignoresItemsOutsideCoverage() {
+        index.replaceWindow(0, 100, new ArrayList<>());
+
+        index.add(item(1, 200, 210));
+        index.add(item(2, 90, 110));
+
+        assertEquals(1, index.size());
+        assertEquals(ids(2), ids(index.query(0, 100)));
+    }
+
+    @Test
+    public void update_andRemoveById_affectEveryOccurrence() {
+        index.replaceWindow(0, 100, Arrays.asList(item(1, 10, 20), item(1, 30, 40), item(2, 50, 60)));
+
+        index.update(item(2, 80, 90));
+        assertEquals(ids(1, 1, 2), ids(index.query(0, 100)));
+        assertEquals(80, index.query(70, 100).get(0)[1]);
+
+        index.removeById(1);
+        assertEquals(ids(2), ids(index.query(0, 100)));
+    }
+
+    @Test
+    public void clear_dropsItemsAndCoverage() {
+        index.replaceWindow(0, 100, Arrays.asList(item(1, 10, 20)));
+
+        index.clear();
+
+        assertEquals(0, index.size());
+        assertFalse(index.covers(0, 100));
+        assertEquals(0, index.getCoveredWindows().length);
+    }
+
+    private static long[] item(long id, long start, long end) {
+        return new long[]{id, start, end};
+    }
+
+    private static List<Long> ids(long... ids) {
+        List<Long> list = new ArrayList<>();
+        for (long id : ids) list.add(id);
+        return list;
+    }
+
+    private static List<Long> ids(List<long[]> items) {
+        List<Long> list = new ArrayList<>();
+        for (long[] item : items) list.add(item[0]);
+        return list;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.personalschedule.database;
+
+import com.example.personalschedule.models.EventSummary;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class EventSnapshotStoreTest {
+
+    @Test
+    public void monthRoundTrip() throws IOException {
+        EventSnapshotStore.Month month = new EventSnapshotStore.Month("03-2024", 1000, 2000, Arrays.asList(
+                new EventSummary(1, 2, "Họp nhóm", 1100, 1200, "Phòng 1", false),
+                new EventSummary(3, 2, null, 1500, 1500, null, true)));
+
+        EventSnapshotStore.Month read = EventSnapshotStore.decodeMonth(
+                ByteBuffer.wrap(EventSnapshotStore.encodeMonth(month)));
+
+        assertEquals("03-2024", read.key);
+        assertEquals(1000, read.begin);
+        assertEquals(2000, read.end);
+        assertEquals(2, read.events.size());
+        EventSummary first = read.events.get(0);
+        assertEquals(1, first.getId());
+        assertEquals(2, first.getCalendarId());
+        assertEquals("Họp nhóm", first.getTitle());
+        assertEquals(1100, first.getStartTime());
+        assertEquals(1200, first.getEndTime());
+        assertEquals("Phòng 1", first.getLocation());
+        assertFalse(first.isAllDay());
+        EventSummary second = read.events.get(1);
+        assertNull(second.getTitle()); // null khác chuỗi rỗng
+        assertNull(second.getLocation());
+        assertTrue(second.isAllDay());
+    }
+
+    @Test
+    public void emptyMonthRoundTrip() throws IOException {
+        EventSnapshotStore.Month month = new EventSnapshotStore.Month("01-2024", 0, 10, Collections.emptyList());
+
+        EventSnapshotStore.Month read = EventSnapshotStore.decodeMonth(
+                ByteBuffer.wrap(EventSnapshotStore.encodeMonth(month)));
+
+        assertEquals("01-2024", read.key);
+        assertTrue(read.events.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void corruptEventCount_isRejected() throws IOException {
+        byte[] block = EventSnapshotStore.encodeMonth(
+                new EventSnapshotStore.Month("01-2024", 0, 10, Collections.emptyList()));
+        // Số sự kiện nằm ngay sau key (4 + 7 byte) và begin/end
+        ByteBuffer.wrap(block).putInt(4 + 7 + 16, Integer.MAX_VALUE);
+
+        EventSnapshotStore.decodeMonth(ByteBuffer.wrap(block));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badStringLength_isRejected() throws IOException {
+        byte[] block = EventSnapshotStore.encodeMonth(
+                new EventSnapshotStore.Month("01-2024", 0, 10, Collections.emptyList()));
+        ByteBuffer.wrap(block).putInt(0, block.length); // Dài hơn phần còn lại của khối
+
+        EventSnapshotStore.decodeMonth(ByteBuffer.wrap(block));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingKey_isRejected() throws IOException {
+        byte[] block = EventSnapshotStore.encodeMonth(
+                new EventSnapshotStore.Month("01-2024", 0, 10, Collections.emptyList()));
+        ByteBuffer buffer = ByteBuffer.allocate(block.length - 7);
+        buffer.putInt(-1).put(block, 4 + 7, block.length - 4 - 7).flip();
+
+        EventSnapshotStore.decodeMonth(buffer);
+    }
+}
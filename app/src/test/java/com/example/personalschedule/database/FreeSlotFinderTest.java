@@ -0,0 +1,126 @@
+package com.example.personalschedule.database;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class FreeSlotFinderTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final int NINE = 9 * 60;
+    private static final int SIX_PM = 18 * 60;
+
+    // Sự kiện thử: {start, end}
+    private static final EventIntervalIndex.IntervalAdapter<long[]> ADAPTER = new EventIntervalIndex.IntervalAdapter<long[]>() {
+        @Override public long idOf(long[] item) { return 0; }
+        @Override public long startOf(long[] item) { return item[0]; }
+        @Override public long endOf(long[] item) { return item[1]; }
+    };
+
+    @Test
+    public void noEvents_returnsWorkingHoursOfEachDay() {
+        List<FreeSlotFinder.Slot> slots = find(Collections.<long[]>emptyList(),
+                at(1, 0, 0), at(3, 0, 0), HOUR, 10);
+
+        assertSlots(slots, at(1, 9, 0), at(1, 18, 0), at(2, 9, 0), at(2, 18, 0));
+    }
+
+    @Test
+    public void gapsBetweenOverlappingEvents() {
+        List<long[]> busy = Arrays.asList(
+                event(at(1, 9, 0), at(1, 11, 0)),
+                event(at(1, 10, 0), at(1, 12, 0)),   // Chồng lên sự kiện trước
+                event(at(1, 10, 30), at(1, 10, 45)), // Nằm trong sự kiện trước
+                event(at(1, 13, 0), at(1, 17, 30)));
+
+        List<FreeSlotFinder.Slot> slots = find(busy, at(1, 0, 0), at(2, 0, 0), HOUR, 10);
+
+        assertSlots(slots, at(1, 12, 0), at(1, 13, 0));
+    }
+
+    @Test
+    public void shortGapsAreSkipped() {
+        List<long[]> busy = Arrays.asList(
+                event(at(1, 9, 30), at(1, 17, 0)));
+
+        List<FreeSlotFinder.Slot> slots = find(busy, at(1, 0, 0), at(2, 0, 0), HOUR, 10);
+
+        assertSlots(slots, at(1, 17, 0), at(1, 18, 0));
+    }
+
+    @Test
+    public void eventSpanningNightBlocksNextMorning() {
+        List<long[]> busy = Arrays.asList(
+                event(at(1, 17, 0), at(2, 10, 0)));
+
+        List<FreeSlotFinder.Slot> slots = find(busy, at(1, 0, 0), at(3, 0, 0), HOUR, 10);
+
+        assertSlots(slots, at(1, 9, 0), at(1, 17, 0), at(2, 10, 0), at(2, 18, 0));
+    }
+
+    @Test
+    public void windowClipsWorkingHours() {
+        List<FreeSlotFinder.Slot> slots = find(Collections.<long[]>emptyList(),
+                at(1, 16, 0), at(2, 10, 30), HOUR, 10);
+
+        assertSlots(slots, at(1, 16, 0), at(1, 18, 0), at(2, 9, 0), at(2, 10, 30));
+    }
+
+    @Test
+    public void stopsAtMaxSlots() {
+        List<FreeSlotFinder.Slot> slots = find(Collections.<long[]>emptyList(),
+                at(1, 0, 0), at(10, 0, 0), HOUR, 3);
+
+        assertEquals(3, slots.size());
+        assertEquals(at(3, 9, 0), slots.get(2).getStart());
+    }
+
+    @Test
+    public void invalidArguments_returnNothing() {
+        List<long[]> none = Collections.emptyList();
+        assertTrue(FreeSlotFinder.findFreeSlots(none, ADAPTER, at(2, 0, 0), at(1, 0, 0), HOUR,
+                NINE, SIX_PM, UTC, 10).isEmpty());
+        assertTrue(FreeSlotFinder.findFreeSlots(none, ADAPTER, at(1, 0, 0), at(2, 0, 0), HOUR,
+                SIX_PM, NINE, UTC, 10).isEmpty());
+        assertTrue(FreeSlotFinder.findFreeSlots(none, ADAPTER, at(1, 0, 0), at(2, 0, 0), HOUR,
+                NINE, SIX_PM, UTC, 0).isEmpty());
+    }
+
+    private static List<FreeSlotFinder.Slot> find(List<long[]> busy, long begin, long end, long duration, int maxSlots) {
+        return FreeSlotFinder.findFreeSlots(busy, ADAPTER, begin, end, duration, NINE, SIX_PM, UTC, maxSlots);
+    }
+
+    // Các cặp start, end mong đợi
+    private static void assertSlots(List<FreeSlotFinder.Slot> slots, long... bounds) {
+        List<Long> actual = new ArrayList<>();
+        for (FreeSlotFinder.Slot slot : slots) {
+            actual.add(slot.getStart());
+            actual.add(slot.getEnd());
+            assertEquals(slot.getEnd() - slot.getStart(), slot.getDuration());
+        }
+        List<Long> expected = new ArrayList<>();
+        for (long bound : bounds) expected.add(bound);
+        assertEquals(expected, actual);
+    }
+
+    private static long[] event(long start, long end) {
+        return new long[]{start, end};
+    }
+
+    // Ngày day của tháng 1/2024, theo UTC
+    private static long at(int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(UTC);
+        calendar.clear();
+        calendar.set(2024, Calendar.JANUARY, day, hour, minute, 0);
+        return calendar.getTimeInMillis();
+    }
+}
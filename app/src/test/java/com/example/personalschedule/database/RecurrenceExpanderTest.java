@@ -0,0 +1,203 @@
+package com.example.personalschedule.database;
+
+import com.example.personalschedule.utils.RecurrenceRule;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class RecurrenceExpanderTest {
+
+    private static final long HOUR = 3600_000L;
+    private static final long DAY = 24 * HOUR;
+    private static final String BERLIN = "Europe/Berlin";
+
+    // --- OccurrenceIterator ---
+
+    @Test
+    public void daily_keepsLocalTimeAcrossDst() {
+        // Berlin chuyển sang giờ mùa hè ngày 31/3/2024
+        long start = local(BERLIN, 2024, Calendar.MARCH, 29, 10, 0);
+        List<Long> starts = occurrences(start, HOUR, "FREQ=DAILY", BERLIN,
+                start, local(BERLIN, 2024, Calendar.APRIL, 2, 0, 0));
+
+        assertEquals(4, starts.size());
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone(BERLIN));
+        for (long occurrence : starts) {
+            calendar.setTimeInMillis(occurrence);
+            assertEquals(10, calendar.get(Calendar.HOUR_OF_DAY));
+            assertEquals(0, calendar.get(Calendar.MINUTE));
+        }
+        assertEquals(23 * HOUR, starts.get(2) - starts.get(1)); // Ngày đổi giờ chỉ có 23 giờ
+    }
+
+    @Test
+    public void monthlyOn31st_skipsShortMonths() {
+        long start = utc(2024, Calendar.JANUARY, 31, 9);
+        List<Long> starts = occurrences(start, HOUR, "FREQ=MONTHLY", "UTC",
+                start, utc(2025, Calendar.JANUARY, 1, 0));
+
+        assertEquals(expected(
+                utc(2024, Calendar.JANUARY, 31, 9), utc(2024, Calendar.MARCH, 31, 9),
+                utc(2024, Calendar.MAY, 31, 9), utc(2024, Calendar.JULY, 31, 9),
+                utc(2024, Calendar.AUGUST, 31, 9), utc(2024, Calendar.OCTOBER, 31, 9),
+                utc(2024, Calendar.DECEMBER, 31, 9)), starts);
+    }
+
+    @Test
+    public void yearlyOnLeapDay_onlyInLeapYears() {
+        long start = utc(2024, Calendar.FEBRUARY, 29, 0);
+        List<Long> starts = occurrences(start, DAY, "FREQ=YEARLY;COUNT=2", "UTC",
+                start, utc(2040, Calendar.JANUARY, 1, 0));
+
+        assertEquals(expected(start, utc(2028, Calendar.FEBRUARY, 29, 0)), starts);
+    }
+
+    @Test
+    public void count_doesNotIncludeSkippedDays() {
+        long start = utc(2024, Calendar.JANUARY, 31, 9);
+        long yearEnd = utc(2025, Calendar.JANUARY, 1, 0);
+
+        // Tháng 2 và tháng 4 không có ngày 31, không tính vào COUNT
+        assertEquals(expected(start, utc(2024, Calendar.MARCH, 31, 9), utc(2024, Calendar.MAY, 31, 9)),
+                occurrences(start, HOUR, "FREQ=MONTHLY;COUNT=3", "UTC", start, yearEnd));
+        // Cửa sổ bắt đầu giữa chuỗi vẫn đếm từ DTSTART
+        assertEquals(expected(utc(2024, Calendar.MAY, 31, 9)),
+                occurrences(start, HOUR, "FREQ=MONTHLY;COUNT=3", "UTC", utc(2024, Calendar.APRIL, 1, 0), yearEnd));
+        assertTrue(occurrences(start, HOUR, "FREQ=MONTHLY;COUNT=3", "UTC",
+                utc(2024, Calendar.JUNE, 1, 0), yearEnd).isEmpty());
+    }
+
+    @Test
+    public void count_withJumpAheadStopsAtLastOccurrence() {
+        long start = utc(2024, Calendar.JANUARY, 1, 9);
+        List<Long> starts = occurrences(start, HOUR, "FREQ=DAILY;COUNT=10", "UTC",
+                utc(2024, Calendar.JANUARY, 8, 0), utc(2024, Calendar.FEBRUARY, 1, 0));
+
+        assertEquals(expected(utc(2024, Calendar.JANUARY, 8, 9), utc(2024, Calendar.JANUARY, 9, 9),
+                utc(2024, Calendar.JANUARY, 10, 9)), starts);
+    }
+
+    @Test
+    public void until_includesOccurrenceStartingExactlyAtUntil() {
+        long start = utc(2024, Calendar.JANUARY, 1, 9);
+        List<Long> starts = occurrences(start, HOUR, "FREQ=DAILY;UNTIL=20240103T090000Z", "UTC",
+                start, utc(2024, Calendar.FEBRUARY, 1, 0));
+
+        assertEquals(3, starts.size());
+    }
+
+    @Test
+    public void jumpAhead_matchesWalkingFromStart() {
+        String[][] cases = {
+                {"FREQ=DAILY", "UTC"},
+                {"FREQ=DAILY;INTERVAL=3", BERLIN},
+                {"FREQ=WEEKLY;INTERVAL=2", BERLIN},
+                {"FREQ=MONTHLY", BERLIN},
+                {"FREQ=YEARLY", "UTC"},
+        };
+        long start = local(BERLIN, 2000, Calendar.JANUARY, 1, 23, 0);
+        long windowBegin = local(BERLIN, 2030, Calendar.MARCH, 1, 0, 30);
+        long windowEnd = local(BERLIN, 2030, Calendar.MAY, 1, 0, 0);
+        for (String[] c : cases) {
+            // Sự kiện 2 giờ từ 23:00: lần của ngày trước cửa sổ vẫn giao với cửa sổ
+            List<Long> jumped = occurrences(start, 2 * HOUR, c[0], c[1], windowBegin, windowEnd);
+            List<Long> walked = new ArrayList<>();
+            for (long occurrence : occurrences(start, 2 * HOUR, c[0], c[1], start, windowEnd)) {
+                if (occurrence + 2 * HOUR > windowBegin) walked.add(occurrence);
+            }
+            assertEquals(c[0] + " " + c[1], walked, jumped);
+        }
+    }
+
+    @Test
+    public void jumpAhead_includesOccurrenceOverlappingWindowStart() {
+        long start = utc(2020, Calendar.JANUARY, 1, 23);
+        List<Long> starts = occurrences(start, 2 * HOUR, "FREQ=DAILY", "UTC",
+                utc(2024, Calendar.JANUARY, 2, 0), utc(2024, Calendar.JANUARY, 3, 0));
+
+        assertEquals(expected(utc(2024, Calendar.JANUARY, 1, 23), utc(2024, Calendar.JANUARY, 2, 23)), starts);
+    }
+
+    // --- RecurrenceExpander ---
+
+    @Test
+    public void expand_cachesWindowPerEvent() {
+        RecurrenceExpander expander = new RecurrenceExpander(4);
+        long start = utc(2024, Calendar.JANUARY, 1, 9);
+        long begin = utc(2024, Calendar.FEBRUARY, 1, 0);
+        long end = utc(2024, Calendar.MARCH, 1, 0);
+
+        long[] first = expander.expand(1, start, HOUR, "FREQ=WEEKLY", "UTC", begin, end);
+        assertEquals(4, first.length);
+        assertSame(first, expander.expand(1, start, HOUR, "FREQ=WEEKLY", "UTC", begin, end));
+        // Quy tắc đổi -> tính lại
+        assertEquals(29, expander.expand(1, start, HOUR, "FREQ=DAILY", "UTC", begin, end).length);
+        expander.invalidate(1);
+        assertNotSame(first, expander.expand(1, start, HOUR, "FREQ=WEEKLY", "UTC", begin, end));
+    }
+
+    @Test
+    public void expand_unsupportedRuleIsEmpty() {
+        RecurrenceExpander expander = new RecurrenceExpander(4);
+        assertEquals(0, expander.expand(1, 0, HOUR, "FREQ=WEEKLY;BYDAY=MO", "UTC", 0, DAY * 30).length);
+    }
+
+    @Test
+    public void nextOccurrence_returnsOccurrenceNotYetEnded() {
+        RecurrenceExpander expander = new RecurrenceExpander(4);
+        long start = utc(2024, Calendar.JANUARY, 1, 9);
+
+        assertEquals(start + DAY, expander.nextOccurrence(start, HOUR, "FREQ=DAILY", "UTC", start + DAY + HOUR / 2));
+        assertEquals(start + 2 * DAY, expander.nextOccurrence(start, HOUR, "FREQ=DAILY", "UTC", start + DAY + HOUR));
+        assertEquals(-1, expander.nextOccurrence(start, HOUR, "FREQ=DAILY;COUNT=2", "UTC", start + 2 * DAY));
+    }
+
+    @Test
+    public void lastOccurrenceEnd_followsCountAndUntil() {
+        long start = utc(2024, Calendar.JANUARY, 1, 9);
+
+        assertEquals(start + 2 * DAY + HOUR, RecurrenceExpander.lastOccurrenceEnd(start, HOUR,
+                RecurrenceRule.parse("FREQ=DAILY;COUNT=3"), "UTC"));
+        assertEquals(Long.MAX_VALUE, RecurrenceExpander.lastOccurrenceEnd(start, HOUR,
+                RecurrenceRule.parse("FREQ=DAILY"), "UTC"));
+        RecurrenceRule until = RecurrenceRule.parse("FREQ=DAILY;UNTIL=20240110T090000Z");
+        assertEquals(until.getUntil() + HOUR, RecurrenceExpander.lastOccurrenceEnd(start, HOUR, until, "UTC"));
+    }
+
+    // --- Helpers ---
+
+    private static List<Long> occurrences(long dtStart, long duration, String rrule, String timeZone,
+                                          long windowBegin, long windowEnd) {
+        RecurrenceExpander.OccurrenceIterator iterator = new RecurrenceExpander.OccurrenceIterator()
+                .reset(dtStart, duration, RecurrenceRule.parse(rrule), timeZone, windowBegin, windowEnd);
+        List<Long> starts = new ArrayList<>();
+        while (iterator.next()) {
+            assertEquals(iterator.begin() + duration, iterator.end());
+            starts.add(iterator.begin());
+        }
+        return starts;
+    }
+
+    private static List<Long> expected(long... starts) {
+        List<Long> list = new ArrayList<>();
+        for (long start : starts) list.add(start);
+        return list;
+    }
+
+    private static long utc(int year, int month, int day, int hour) {
+        return local("UTC", year, month, day, hour, 0);
+    }
+
+    private static long local(String zone, int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone(zone));
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute, 0);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.personalschedule.database;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReminderQueueTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private ReminderQueue queue;
+
+    @Before
+    public void setUp() {
+        queue = new ReminderQueue();
+    }
+
+    @Test
+    public void emptyQueue() {
+        assertEquals(-1, queue.nextAlarmTime());
+        assertEquals(0, queue.size());
+        assertTrue(queue.pollDue(Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void entries_areOrderedByAlarmTime() {
+        queue.replaceAll(Arrays.asList(
+                entry(1, 100 * MINUTE, 10),  // nhắc lúc 90
+                entry(2, 60 * MINUTE, 0),    // nhắc lúc 60
+                entry(3, 120 * MINUTE, 60)), // nhắc lúc 60, sau sự kiện 2
+                5);
+
+        assertEquals(3, queue.size());
+        assertEquals(60 * MINUTE, queue.nextAlarmTime());
+        assertEquals(5, queue.getRefilledAt());
+        assertEquals(Arrays.asList(2L, 3L, 1L), eventIds(queue.pollDue(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void pollDue_takesOnlyAlarmsBeforeLimit() {
+        queue.replaceAll(Arrays.asList(entry(1, 10 * MINUTE, 0), entry(2, 20 * MINUTE, 0),
+                entry(3, 30 * MINUTE, 0)), 1);
+
+        List<ReminderQueue.Entry> due = queue.pollDue(20 * MINUTE); // Giới hạn không bao gồm
+
+        assertEquals(Collections.singletonList(1L), eventIds(due));
+        assertEquals(2, queue.size());
+        assertEquals(20 * MINUTE, queue.nextAlarmTime());
+        assertTrue(queue.pollDue(20 * MINUTE).isEmpty());
+        assertEquals(Arrays.asList(2L, 3L), eventIds(queue.pollDue(30 * MINUTE + 1)));
+        assertEquals(-1, queue.nextAlarmTime());
+    }
+
+    @Test
+    public void recurringEvent_keepsEachOccurrence() {
+        queue.replaceAll(Arrays.asList(entry(1, 10 * MINUTE, 5), entry(1, 20 * MINUTE, 5),
+                entry(1, 10 * MINUTE, 5)), 1); // Trùng lặp bị gộp
+
+        List<ReminderQueue.Entry> due = queue.pollDue(Long.MAX_VALUE);
+
+        assertEquals(2, due.size());
+        assertEquals(10 * MINUTE, due.get(0).getBegin());
+        assertEquals(5 * MINUTE, due.get(0).getAlarmTime());
+        assertEquals(20 * MINUTE, due.get(1).getBegin());
+    }
+
+    @Test
+    public void replaceEvents_swapsOnlyGivenEvents() {
+        queue.replaceAll(Arrays.asList(entry(1, 10 * MINUTE, 0), entry(1, 40 * MINUTE, 0),
+                entry(2, 20 * MINUTE, 0), entry(3, 30 * MINUTE, 0)), 1);
+
+        queue.replaceEvents(new long[]{3, 1}, Collections.singletonList(entry(1, 50 * MINUTE, 0)));
+
+        List<ReminderQueue.Entry> due = queue.pollDue(Long.MAX_VALUE);
+        assertEquals(Arrays.asList(2L, 1L), eventIds(due));
+        assertEquals(50 * MINUTE, due.get(1).getBegin());
+        assertEquals(1, queue.getRefilledAt()); // Không phải refill toàn bộ
+    }
+
+    private static ReminderQueue.Entry entry(long eventId, long begin, int minutes) {
+        return new ReminderQueue.Entry(eventId, begin, minutes, false, "Sự kiện " + eventId, null);
+    }
+
+    private static List<Long> eventIds(List<ReminderQueue.Entry> entries) {
+        List<Long> ids = new ArrayList<>();
+        for (ReminderQueue.Entry entry : entries) ids.add(entry.getEventId());
+        return ids;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.personalschedule.database;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RepositoryMetricsTest {
+
+    @Before
+    public void setUp() {
+        RepositoryMetrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        RepositoryMetrics.reset();
+    }
+
+    @Test
+    public void span_recordsCountsIntoSnapshot() {
+        RepositoryMetrics.Span span = RepositoryMetrics.begin("query", 0);
+        RepositoryMetrics.countIpc();
+        RepositoryMetrics.countIpc();
+        RepositoryMetrics.countRows(5);
+        RepositoryMetrics.countConverted(3);
+        span.close();
+
+        RepositoryMetrics.OperationSnapshot s = single();
+        assertEquals("query", s.operation);
+        assertEquals(1, s.wallTime.count);
+        assertEquals(0, s.queueWait.count); // enqueuedNanos = 0: không đo thời gian chờ
+        assertEquals(2, s.ipcCalls.sum);
+        assertEquals(5, s.cursorRows.max);
+        assertEquals(3, s.rowsConverted.sum);
+    }
+
+    @Test
+    public void span_recordsQueueWaitWhenEnqueued() {
+        RepositoryMetrics.begin("query", System.nanoTime()).close();
+
+        assertEquals(1, single().queueWait.count);
+    }
+
+    @Test
+    public void span_closeTwiceRecordsOnce() {
+        RepositoryMetrics.Span span = RepositoryMetrics.begin("query", 0);
+        span.close();
+        span.close();
+
+        assertEquals(1, single().wallTime.count);
+    }
+
+    @Test
+    public void countersWithoutSpan_areIgnored() {
+        RepositoryMetrics.countIpc();
+        RepositoryMetrics.countRows(10);
+
+        assertTrue(RepositoryMetrics.snapshot().isEmpty());
+    }
+
+    @Test
+    public void nestedSpan_addsCountsToParent() {
+        RepositoryMetrics.Span parent = RepositoryMetrics.begin("parent", 0);
+        RepositoryMetrics.countIpc();
+        RepositoryMetrics.Span child = RepositoryMetrics.begin("child", 0);
+        RepositoryMetrics.countIpc();
+        RepositoryMetrics.countRows(4);
+        child.close();
+        RepositoryMetrics.countIpc(); // Sau khi đóng span con, số liệu lại vào span cha
+        parent.close();
+
+        List<RepositoryMetrics.OperationSnapshot> snapshot = RepositoryMetrics.snapshot();
+        assertEquals(2, snapshot.size());
+        // Sắp xếp theo tên
+        assertEquals("child", snapshot.get(0).operation);
+        assertEquals("parent", snapshot.get(1).operation);
+        assertEquals(1, snapshot.get(0).ipcCalls.sum);
+        assertEquals(3, snapshot.get(1).ipcCalls.sum);
+        assertEquals(4, snapshot.get(1).cursorRows.sum);
+    }
+
+    @Test
+    public void reset_clearsAllOperations() {
+        RepositoryMetrics.begin("a", 0).close();
+        RepositoryMetrics.begin("b", 0).close();
+        assertEquals(2, RepositoryMetrics.snapshot().size());
+
+        RepositoryMetrics.reset();
+
+        assertTrue(RepositoryMetrics.snapshot().isEmpty());
+        assertEquals("", RepositoryMetrics.dump());
+    }
+
+    @Test
+    public void bucketOf_usesPowerOfTwoBoundaries() {
+        assertEquals(0, RepositoryMetrics.Histogram.bucketOf(0));
+        assertEquals(1, RepositoryMetrics.Histogram.bucketOf(1));
+        assertEquals(2, RepositoryMetrics.Histogram.bucketOf(2));
+        assertEquals(2, RepositoryMetrics.Histogram.bucketOf(3));
+        assertEquals(3, RepositoryMetrics.Histogram.bucketOf(4));
+        assertEquals(10, RepositoryMetrics.Histogram.bucketOf(1023));
+        assertEquals(11, RepositoryMetrics.Histogram.bucketOf(1024));
+        assertEquals(63, RepositoryMetrics.Histogram.bucketOf(1L << 62));
+        assertEquals(63, RepositoryMetrics.Histogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void histogram_percentileIsBucketUpperBoundCappedByMax() {
+        RepositoryMetrics.Histogram histogram = new RepositoryMetrics.Histogram();
+        for (int i = 0; i < 9; i++) histogram.record(4); // Bucket [4, 8)
+        histogram.record(100); // Bucket [64, 128)
+
+        RepositoryMetrics.HistogramSnapshot s = histogram.snapshot();
+        assertEquals(10, s.count);
+        assertEquals(136, s.sum);
+        assertEquals(100, s.max);
+        assertEquals(13.6, s.mean(), 1e-9);
+        assertEquals(7, s.percentile(50));
+        assertEquals(7, s.percentile(90));
+        assertEquals(100, s.percentile(95)); // Cận trên 127 bị giới hạn bởi max
+    }
+
+    @Test
+    public void histogram_negativeValuesAreRecordedAsZero() {
+        RepositoryMetrics.Histogram histogram = new RepositoryMetrics.Histogram();
+        histogram.record(-5);
+
+        RepositoryMetrics.HistogramSnapshot s = histogram.snapshot();
+        assertEquals(1, s.count);
+        assertEquals(0, s.sum);
+        assertEquals(0, s.percentile(100));
+    }
+
+    @Test
+    public void emptyHistogram_hasZeroPercentileAndMean() {
+        RepositoryMetrics.HistogramSnapshot s = new RepositoryMetrics.Histogram().snapshot();
+        assertEquals(0, s.percentile(50));
+        assertEquals(0, s.mean(), 0);
+    }
+
+    private static RepositoryMetrics.OperationSnapshot single() {
+        List<RepositoryMetrics.OperationSnapshot> snapshot = RepositoryMetrics.snapshot();
+        assertEquals(1, snapshot.size());
+        return snapshot.get(0);
+    }
+}
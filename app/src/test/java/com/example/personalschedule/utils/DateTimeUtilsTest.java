@@ -0,0 +1,41 @@
+package com.example.personalschedule.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DateTimeUtilsTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    @Test
+    public void parseDuration_readsAllUnits() {
+        assertEquals(DAY, DateTimeUtils.parseDuration("P1D"));
+        assertEquals(HOUR + 30 * MINUTE, DateTimeUtils.parseDuration("PT1H30M"));
+        assertEquals(14 * DAY, DateTimeUtils.parseDuration("P2W"));
+        assertEquals(HOUR, DateTimeUtils.parseDuration("P3600S"));
+        assertEquals(DAY + 2 * HOUR + 5000, DateTimeUtils.parseDuration("p1dt2h5s"));
+    }
+
+    @Test
+    public void parseDuration_keepsSign() {
+        assertEquals(-15 * MINUTE, DateTimeUtils.parseDuration("-PT15M"));
+        assertEquals(-(DAY + 2 * HOUR), DateTimeUtils.parseDuration(" -P1DT2H "));
+        assertEquals(MINUTE, DateTimeUtils.parseDuration("+PT1M"));
+    }
+
+    @Test
+    public void parseDuration_rejectsMalformedValues() {
+        String[] invalid = {null, "", "1H", "P", "PT", "PT1", "PTH", "P1X", "--PT1M"};
+        for (String value : invalid) {
+            try {
+                DateTimeUtils.parseDuration(value);
+                fail("Expected IllegalArgumentException for " + value);
+            } catch (IllegalArgumentException expected) {
+                // Đúng
+            }
+        }
+    }
+}
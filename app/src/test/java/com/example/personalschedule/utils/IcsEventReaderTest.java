@@ -0,0 +1,179 @@
+package com.example.personalschedule.utils;
+
+import com.example.personalschedule.models.Event;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class IcsEventReaderTest {
+
+    private static final long DAY = 24 * 3600_000L;
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        // Giờ địa phương không có TZID ("floating") dùng múi giờ thiết bị
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Ho_Chi_Minh"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void readsUtcEventWithTextAndAlarm() throws IOException {
+        List<Event> events = read(
+                "BEGIN:VEVENT",
+                "DTSTART:20240101T100000Z",
+                "DTEND:20240101T113000Z",
+                "SUMMARY:Họp\\, nhóm",
+                "LOCATION:Phòng 1\\;2",
+                "DESCRIPTION:Dòng 1\\nDòng 2",
+                "BEGIN:VALARM",
+                "TRIGGER:-PT15M",
+                "END:VALARM",
+                "BEGIN:VALARM",
+                "TRIGGER:-PT1H",
+                "END:VALARM",
+                "END:VEVENT");
+
+        assertEquals(1, events.size());
+        Event event = events.get(0);
+        assertEquals("Họp, nhóm", event.getTitle());
+        assertEquals("Phòng 1;2", event.getLocation());
+        assertEquals("Dòng 1\nDòng 2", event.getDescription());
+        assertEquals(utc(2024, Calendar.JANUARY, 1, 10, 0), event.getStartTime());
+        assertEquals(utc(2024, Calendar.JANUARY, 1, 11, 30), event.getEndTime());
+        assertEquals("UTC", event.getTimeZone());
+        assertEquals(15, event.getReminderMinutes()); // Chỉ VALARM đầu tiên
+        assertFalse(event.isAllDay());
+        assertFalse(event.isRecurring());
+    }
+
+    @Test
+    public void unfoldsContinuationLines() throws IOException {
+        List<Event> events = read(
+                "BEGIN:VEVENT",
+                "DTSTART:20240101T100000Z",
+                "SUMMARY:Một tiêu đề",
+                "  rất dài",
+                "\tđược gấp",
+                "END:VEVENT");
+
+        assertEquals("Một tiêu đề rất dàiđược gấp", events.get(0).getTitle());
+    }
+
+    @Test
+    public void allDayEventIsStoredAtUtcMidnight() throws IOException {
+        List<Event> events = read(
+                "BEGIN:VEVENT",
+                "DTSTART;VALUE=DATE:20240301",
+                "SUMMARY:Cả ngày",
+                "END:VEVENT");
+
+        Event event = events.get(0);
+        assertTrue(event.isAllDay());
+        assertEquals("UTC", event.getTimeZone());
+        assertEquals(utc(2024, Calendar.MARCH, 1, 0, 0), event.getStartTime());
+        assertEquals(event.getStartTime() + DAY, event.getEndTime());
+    }
+
+    @Test
+    public void tzidAndFloatingTimesAndDuration() throws IOException {
+        List<Event> events = read(
+                "BEGIN:VEVENT",
+                "DTSTART;TZID=\"Europe/Berlin\":20240701T100000",
+                "DURATION:PT45M",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "DTSTART:20240701T100000",
+                "END:VEVENT");
+
+        assertEquals(2, events.size());
+        assertEquals("Europe/Berlin", events.get(0).getTimeZone());
+        assertEquals(utc(2024, Calendar.JULY, 1, 8, 0), events.get(0).getStartTime()); // UTC+2 mùa hè
+        assertEquals(events.get(0).getStartTime() + 45 * 60_000L, events.get(0).getEndTime());
+        assertEquals("Asia/Ho_Chi_Minh", events.get(1).getTimeZone());
+        assertEquals(utc(2024, Calendar.JULY, 1, 3, 0), events.get(1).getStartTime());
+        assertEquals(events.get(1).getStartTime(), events.get(1).getEndTime());
+    }
+
+    @Test
+    public void readsRruleAndExdateInUtc() throws IOException {
+        List<Event> events = read(
+                "BEGIN:VEVENT",
+                "DTSTART;TZID=Europe/Berlin:20240101T100000",
+                "DTEND;TZID=Europe/Berlin:20240101T110000",
+                "RRULE:FREQ=WEEKLY;COUNT=5",
+                "EXDATE;TZID=Europe/Berlin:20240108T100000,20240115T100000",
+                "EXDATE;TZID=Europe/Berlin:20240122T100000",
+                "END:VEVENT");
+
+        Event event = events.get(0);
+        assertEquals("FREQ=WEEKLY;COUNT=5", event.getRrule());
+        assertEquals("20240108T090000Z,20240115T090000Z,20240122T090000Z", event.getExdate());
+    }
+
+    @Test
+    public void skipsRecurrenceOverridesAndEventsWithoutStart() throws IOException {
+        IcsEventReader reader = reader(
+                "BEGIN:VCALENDAR",
+                "BEGIN:VEVENT",
+                "UID:1",
+                "DTSTART:20240101T100000Z",
+                "RRULE:FREQ=DAILY",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "UID:1",
+                "RECURRENCE-ID:20240102T100000Z",
+                "DTSTART:20240102T120000Z",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "SUMMARY:Không có DTSTART",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "DTSTART:2024",
+                "END:VEVENT",
+                "BEGIN:VTODO",
+                "DTSTART:20240101T100000Z",
+                "END:VTODO",
+                "END:VCALENDAR");
+
+        assertNotNull(reader.next());
+        assertNull(reader.next());
+        assertEquals(3, reader.getSkippedCount());
+    }
+
+    private static List<Event> read(String... lines) throws IOException {
+        IcsEventReader reader = reader(lines);
+        List<Event> events = new ArrayList<>();
+        Event event;
+        while ((event = reader.next()) != null) events.add(event);
+        assertEquals(0, reader.getSkippedCount());
+        return events;
+    }
+
+    private static IcsEventReader reader(String... lines) {
+        return new IcsEventReader(new StringReader(String.join("\r\n", lines) + "\r\n"));
+    }
+
+    private static long utc(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute, 0);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.personalschedule.utils;
+
+import com.example.personalschedule.models.Event;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class IcsEventWriterTest {
+
+    private static final long HOUR = 3600_000L;
+    private static final String BERLIN = "Europe/Berlin";
+
+    @Test
+    public void writesUtcTimesEscapedTextAndAlarm() throws IOException {
+        Event event = new Event(1, 1, BERLIN, "Họp, nhóm; A\\B", utc(2024, Calendar.JANUARY, 1, 10),
+                utc(2024, Calendar.JANUARY, 1, 11), null, "Dòng 1\nDòng 2", 15, false);
+
+        List<String> lines = write(writer -> writer.writeEvent("1@test", event, null, null));
+
+        assertTrue(lines.contains("DTSTART:20240101T100000Z"));
+        assertTrue(lines.contains("DTEND:20240101T110000Z"));
+        assertTrue(lines.contains("SUMMARY:Họp\\, nhóm\\; A\\\\B"));
+        assertTrue(lines.contains("DESCRIPTION:Dòng 1\\nDòng 2"));
+        assertTrue(lines.contains("TRIGGER:-PT15M"));
+        assertFalse(lines.contains("LOCATION:")); // Trường rỗng không được ghi
+        assertEquals("BEGIN:VCALENDAR", lines.get(0));
+        assertEquals("END:VCALENDAR", lines.get(lines.size() - 1));
+    }
+
+    @Test
+    public void recurringEventUsesLocalTimeWithTzid() throws IOException {
+        Event event = new Event(1, 1, BERLIN, "Lặp", local(BERLIN, 2024, Calendar.JANUARY, 1, 10), 0,
+                null, null, 0, false);
+        event.setRrule("FREQ=WEEKLY");
+        event.setExdate("20240108T090000Z");
+
+        List<String> lines = write(writer -> writer.writeEvent("1@test", event, "FREQ=WEEKLY", "PT1H"));
+
+        assertTrue(lines.contains("DTSTART;TZID=Europe/Berlin:20240101T100000"));
+        assertTrue(lines.contains("DURATION:PT1H"));
+        assertTrue(lines.contains("RRULE:FREQ=WEEKLY"));
+        assertTrue(lines.contains("EXDATE:20240108T090000Z"));
+    }
+
+    @Test
+    public void exdateWithTzidPrefix() throws IOException {
+        Event event = new Event(1, 1, BERLIN, "Lặp", local(BERLIN, 2024, Calendar.JANUARY, 1, 10),
+                local(BERLIN, 2024, Calendar.JANUARY, 1, 11), null, null, 0, false);
+        event.setExdate("Europe/Berlin;20240108T100000,20240115T100000");
+
+        List<String> lines = write(writer -> writer.writeEvent("1@test", event, "FREQ=WEEKLY", null));
+
+        assertTrue(lines.contains("EXDATE;TZID=Europe/Berlin:20240108T100000,20240115T100000"));
+    }
+
+    @Test
+    public void allDayEventUsesDateValues() throws IOException {
+        Event event = new Event(1, 1, "UTC", "Cả ngày", utc(2024, Calendar.MARCH, 1, 0),
+                utc(2024, Calendar.MARCH, 2, 0), null, null, 0, true);
+
+        List<String> lines = write(writer -> writer.writeEvent("1@test", event, null, null));
+
+        assertTrue(lines.contains("DTSTART;VALUE=DATE:20240301"));
+        assertTrue(lines.contains("DTEND;VALUE=DATE:20240302"));
+    }
+
+    @Test
+    public void overrideWritesRecurrenceIdAndStatus() throws IOException {
+        Event event = new Event(2, 1, BERLIN, "Đã dời", utc(2024, Calendar.JANUARY, 8, 12),
+                utc(2024, Calendar.JANUARY, 8, 13), null, null, 0, false);
+
+        List<String> lines = write(writer -> {
+            writer.writeOverride("1@test", event, utc(2024, Calendar.JANUARY, 8, 9), false, false, null);
+            writer.writeOverride("1@test", event, utc(2024, Calendar.JANUARY, 15, 0), true, true, null);
+        });
+
+        assertTrue(lines.contains("RECURRENCE-ID:20240108T090000Z"));
+        assertTrue(lines.contains("RECURRENCE-ID;VALUE=DATE:20240115"));
+        assertEquals(1, count(lines, "STATUS:CANCELLED"));
+        assertEquals(2, count(lines, "UID:1@test"));
+    }
+
+    @Test
+    public void foldsLongLinesAt75Octets() throws IOException {
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < 100; i++) title.append("Ệ"); // 3 octet mỗi ký tự
+        Event event = new Event(1, 1, "UTC", title.toString(), utc(2024, Calendar.JANUARY, 1, 10),
+                utc(2024, Calendar.JANUARY, 1, 11), null, null, 0, false);
+
+        String ics = writeRaw(writer -> writer.writeEvent("1@test", event, null, null));
+
+        for (String line : ics.split("\r\n")) {
+            assertTrue(line, line.getBytes(StandardCharsets.UTF_8).length <= 75);
+        }
+        assertTrue(ics.contains("\r\n Ệ"));
+    }
+
+    @Test
+    public void roundTripThroughReader() throws IOException {
+        Event event = new Event(1, 1, BERLIN, "Họp, nhóm\ntuần", local(BERLIN, 2024, Calendar.MARCH, 25, 10),
+                local(BERLIN, 2024, Calendar.MARCH, 25, 11), "Phòng; 2", "Mô tả rất dài ".concat(repeat("x", 200)),
+                30, false);
+        event.setRrule("FREQ=DAILY;COUNT=10");
+        event.setExdate("20240327T090000Z");
+
+        String ics = writeRaw(writer -> writer.writeEvent("1@test", event, event.getRrule(), null));
+        IcsEventReader reader = new IcsEventReader(new StringReader(ics));
+        Event read = reader.next();
+
+        assertNotNull(read);
+        assertNull(reader.next());
+        assertEquals(event.getTitle(), read.getTitle());
+        assertEquals(event.getLocation(), read.getLocation());
+        assertEquals(event.getDescription(), read.getDescription());
+        assertEquals(event.getStartTime(), read.getStartTime());
+        assertEquals(event.getEndTime(), read.getEndTime());
+        assertEquals(BERLIN, read.getTimeZone());
+        assertEquals(30, read.getReminderMinutes());
+        assertEquals(event.getRrule(), read.getRrule());
+        assertEquals(event.getExdate(), read.getExdate());
+    }
+
+    // --- Helpers ---
+
+    private interface Body {
+        void write(IcsEventWriter writer) throws IOException;
+    }
+
+    private static List<String> write(Body body) throws IOException {
+        return Arrays.asList(writeRaw(body).split("\r\n"));
+    }
+
+    private static String writeRaw(Body body) throws IOException {
+        StringWriter output = new StringWriter();
+        IcsEventWriter writer = new IcsEventWriter(output);
+        writer.begin();
+        body.write(writer);
+        writer.end();
+        return output.toString();
+    }
+
+    private static int count(List<String> lines, String line) {
+        int count = 0;
+        for (String l : lines) if (l.equals(line)) count++;
+        return count;
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) builder.append(text);
+        return builder.toString();
+    }
+
+    private static long utc(int year, int month, int day, int hour) {
+        return local("UTC", year, month, day, hour);
+    }
+
+    private static long local(String zone, int year, int month, int day, int hour) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone(zone));
+        calendar.clear();
+        calendar.set(year, month, day, hour, 0, 0);
+        return calendar.getTimeInMillis();
+    }
+}
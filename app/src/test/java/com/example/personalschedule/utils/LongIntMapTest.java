@@ -0,0 +1,88 @@
+package com.example.personalschedule.utils;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongIntMapTest {
+
+    @Test
+    public void getReturnsDefaultForMissingKey() {
+        LongIntMap map = new LongIntMap();
+
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(1));
+        assertEquals(-7, map.get(1, -7));
+    }
+
+    @Test
+    public void putOverwritesExistingValue() {
+        LongIntMap map = new LongIntMap();
+        map.put(5, 10);
+        map.put(5, 20);
+
+        assertEquals(1, map.size());
+        assertEquals(20, map.get(5, 0));
+    }
+
+    @Test
+    public void putIfAbsent_keepsFirstValue() {
+        LongIntMap map = new LongIntMap();
+
+        assertTrue(map.putIfAbsent(5, 10));
+        assertFalse(map.putIfAbsent(5, 20));
+        assertEquals(10, map.get(5, 0));
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        LongIntMap map = new LongIntMap(2);
+        for (int i = 1; i <= 1000; i++) map.put(i * 1_000_003L, i);
+
+        assertEquals(1000, map.size());
+        for (int i = 1; i <= 1000; i++) assertEquals(i, map.get(i * 1_000_003L, -1));
+    }
+
+    @Test
+    public void matchesHashMapForRandomKeys() {
+        Random random = new Random(7);
+        LongIntMap map = new LongIntMap(16);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            // Khoảng nhỏ để có khóa trùng và va chạm
+            long key = random.nextInt(2000) - 1000L;
+            int value = random.nextInt();
+            map.put(key, value);
+            expected.put(key, value);
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals((int) entry.getValue(), map.get(entry.getKey(), 0));
+        }
+        assertFalse(map.containsKey(5000));
+    }
+
+    @Test
+    public void clearRemovesEverything() {
+        LongIntMap map = new LongIntMap();
+        map.put(1, 1);
+        map.put(2, 2);
+
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(1));
+        map.put(1, 3);
+        assertEquals(3, map.get(1, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void minValueKeyIsRejected() {
+        new LongIntMap().put(Long.MIN_VALUE, 1);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.personalschedule.utils;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class RecurrenceRuleTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    @Test
+    public void parse_readsFrequencyIntervalAndCount() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=WEEKLY;INTERVAL=2;COUNT=5");
+
+        assertNotNull(rule);
+        assertEquals(RecurrenceRule.FREQ_WEEKLY, rule.getFrequency());
+        assertEquals(2, rule.getInterval());
+        assertEquals(5, rule.getCount());
+        assertEquals(0, rule.getUntil());
+    }
+
+    @Test
+    public void parse_acceptsPrefixAndLowerCase() {
+        RecurrenceRule rule = RecurrenceRule.parse(" RRULE:freq=daily;wkst=MO ");
+
+        assertNotNull(rule);
+        assertEquals(RecurrenceRule.FREQ_DAILY, rule.getFrequency());
+        assertEquals(1, rule.getInterval());
+    }
+
+    @Test
+    public void parse_untilDateTimeIsUtc() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=MONTHLY;UNTIL=20240131T103000Z");
+
+        assertNotNull(rule);
+        assertEquals(utc(2024, Calendar.JANUARY, 31, 10, 30, 0), rule.getUntil());
+    }
+
+    @Test
+    public void parse_untilDateCoversWholeDay() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=YEARLY;UNTIL=20240131");
+
+        assertNotNull(rule);
+        assertEquals(utc(2024, Calendar.JANUARY, 31, 23, 59, 59), rule.getUntil());
+    }
+
+    @Test
+    public void parse_rejectsUnsupportedOrInvalidRules() {
+        assertNull(RecurrenceRule.parse(null));
+        assertNull(RecurrenceRule.parse(""));
+        assertNull(RecurrenceRule.parse("RRULE:"));
+        assertNull(RecurrenceRule.parse("FREQ=WEEKLY;BYDAY=MO,WE"));
+        assertNull(RecurrenceRule.parse("FREQ=HOURLY"));
+        assertNull(RecurrenceRule.parse("INTERVAL=2"));
+        assertNull(RecurrenceRule.parse("FREQ=DAILY;COUNT=x"));
+        assertNull(RecurrenceRule.parse("FREQ=DAILY;INTERVAL=0"));
+        assertNull(RecurrenceRule.parse("FREQ=DAILY;COUNT=-1"));
+        assertNull(RecurrenceRule.parse("FREQ=DAILY;UNTIL=2024"));
+    }
+
+    @Test
+    public void toString_roundTripsThroughParse() {
+        String rrule = "FREQ=MONTHLY;INTERVAL=3;COUNT=4";
+        assertEquals(rrule, RecurrenceRule.parse(rrule).toString());
+
+        String withUntil = "FREQ=DAILY;UNTIL=20240131T103000Z";
+        assertEquals(withUntil, RecurrenceRule.parse(withUntil).toString());
+    }
+
+    @Test
+    public void patternOf_onlyForPlainFrequency() {
+        assertEquals(Constants.RECURRENCE_NONE, RecurrenceRule.patternOf(null));
+        assertEquals(Constants.RECURRENCE_NONE, RecurrenceRule.patternOf(" "));
+        assertEquals(Constants.RECURRENCE_WEEKLY, RecurrenceRule.patternOf("FREQ=WEEKLY"));
+        assertNull(RecurrenceRule.patternOf("FREQ=WEEKLY;COUNT=3"));
+        assertNull(RecurrenceRule.patternOf("FREQ=WEEKLY;BYDAY=MO"));
+    }
+
+    @Test
+    public void forPattern_buildsRrule() {
+        assertEquals("FREQ=MONTHLY", RecurrenceRule.forPattern(Constants.RECURRENCE_MONTHLY));
+        assertNull(RecurrenceRule.forPattern(Constants.RECURRENCE_NONE));
+        assertNull(RecurrenceRule.forPattern(null));
+    }
+
+    @Test
+    public void formatDuration_usesSecondsOrWholeDays() {
+        assertEquals("P5400S", RecurrenceRule.formatDuration(90 * MINUTE, false));
+        assertEquals("P0S", RecurrenceRule.formatDuration(-1, false));
+        assertEquals("P1D", RecurrenceRule.formatDuration(0, true));
+        assertEquals("P1D", RecurrenceRule.formatDuration(DAY, true));
+        assertEquals("P2D", RecurrenceRule.formatDuration(DAY + HOUR, true));
+    }
+
+    private static long utc(int year, int month, int day, int hour, int minute, int second) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute, second);
+        return calendar.getTimeInMillis();
+    }
+}